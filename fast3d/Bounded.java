@@ -0,0 +1,34 @@
+package fast3d;
+
+import fast3d.math.Vector3d;
+
+/**
+ * a bounded renderable knows a sphere around all of its vertices, so that it
+ * can be skipped entirely if the sphere is out of the cameras sight<br>
+ * the sphere has not to be the smallest one, but it must contain every vertex
+ *
+ * @see fast3d.graphics.Graphics3d#inFrustum(Bounded)
+ * @author Tim Trense
+ */
+public interface Bounded {
+
+	/**
+	 * should return a reference (should not must), which must not be changed
+	 *
+	 * @return the center of the bounding sphere
+	 */
+	public Vector3d getBoundingCenter();
+
+	/**
+	 * @return the radius of the bounding sphere
+	 */
+	public double getBoundingRadius();
+
+	/**
+	 * indicates that the vertices were changed in a way the bounded does not
+	 * notice by itself (e.g. by direct access to them), so that the bounding
+	 * sphere has to be recalculated
+	 */
+	public void invalidateBounds();
+
+}
@@ -0,0 +1,31 @@
+package fast3d;
+
+import fast3d.math.Vector3d;
+
+/**
+ * a movable can be moved as a whole, keeping its shape<br>
+ * a universe with a spatial index has to be told about every move, which can
+ * be done by moving through it
+ *
+ * @see fast3d.simple.GridUniverse#move(Movable, Vector3d)
+ * @author Tim Trense
+ */
+public interface Movable {
+
+	/**
+	 * moves every vertex by the given vector
+	 *
+	 * @param dir
+	 *            the vector to add to every vertex
+	 */
+	public void moveInAbsoluteDirection(final Vector3d dir);
+
+	/**
+	 * moves this so that its position is at the target afterwards
+	 *
+	 * @param target
+	 *            the location where the position-vector will be after call
+	 */
+	public void moveTo(final Vector3d target);
+
+}
@@ -2,14 +2,17 @@ package fast3d;
 
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.util.Hashtable;
-import java.util.LinkedList;
-import java.util.List;
 
 import javax.swing.JComponent;
 
+import fast3d.complex.RayHit;
 import fast3d.complex.Universe;
+import fast3d.complex.light.Light;
 import fast3d.graphics.Graphics3d;
+import fast3d.graphics.ProjectionBuffer;
+import fast3d.graphics.RasterGraphics3d;
 import fast3d.math.Camera;
 import fast3d.math.Shader;
 import fast3d.math.Vector3d;
@@ -43,6 +46,17 @@ public class Panel3d extends JComponent {
 
 	private Control control;
 	private final Universe uni;
+	private boolean depthBuffered;
+	private BufferedImage frame;
+	private float[] depth;
+	private final ProjectionBuffer projections = new ProjectionBuffer();
+	private volatile RenderLoop loop;
+
+	/**
+	 * the default count of frames rendered ahead of the displayed one if
+	 * pipelined
+	 */
+	public static int defaultQueuedFrames = 1;
 
 	/**
 	 * default settings:<br>
@@ -50,6 +64,7 @@ public class Panel3d extends JComponent {
 	 * <li>background black
 	 * <li>foreground white
 	 * <li>double buffered disabled
+	 * <li>depth buffered disabled
 	 * <li>focusable
 	 * </ul>
 	 * 
@@ -63,6 +78,7 @@ public class Panel3d extends JComponent {
 		setForeground(java.awt.Color.WHITE);
 		setDoubleBuffered(false);
 		setFocusable(true);
+		depthBuffered = false;
 	}
 
 	/**
@@ -74,7 +90,13 @@ public class Panel3d extends JComponent {
 
 	@Override
 	public void paintComponent(final Graphics g) {
+		final RenderLoop loop = this.loop;
+		if (loop != null) {
+			paintPipelined((Graphics2D) g, loop);
+			return;
+		}
 		preRender();
+		uni.invalidateBounds();
 		final Graphics2D g2d = (Graphics2D) g;
 
 		final double width = getWidth();
@@ -88,29 +110,252 @@ public class Panel3d extends JComponent {
 		uni.getCam().applyAspectRatioWpH(width / height);
 
 		final Graphics3d g3d = createGraphics3d(g2d);
-		if (g3d != null)
+		if (g3d != null) {
 			render(g3d);
+			if (g3d instanceof RasterGraphics3d) {
+				((RasterGraphics3d) g3d).dispose();
+				g2d.drawImage(frame, 0, 0, null);
+			}
+		}
 		super.paintComponents(g2d);
 	}
 
+	/**
+	 * draws the newest frame of the render-thread, requests a new one if
+	 * the size of this changed
+	 */
+	private void paintPipelined(final Graphics2D g2d, final RenderLoop loop) {
+		final RenderLoop.Frame f = loop.latest();
+		if (f == null || f.image.getWidth() != getWidth()
+				|| f.image.getHeight() != getHeight()) {
+			g2d.setColor(getBackground());
+			g2d.fillRect(0, 0, getWidth(), getHeight());
+			loop.request();
+		}
+		if (f != null)
+			g2d.drawImage(f.image, 0, 0, null);
+		g2d.setColor(getForeground());
+		super.paintComponent(g2d);
+		super.paintComponents(g2d);
+	}
+
+	/**
+	 * called by the render-thread if pipelined, renders one frame just like
+	 * paintComponent(Graphics) but into the offscreen frame and with a
+	 * snapshot of the camera, so that the camera may be moved on while the
+	 * frame is rendered
+	 *
+	 * @return false if nothing was rendered because this has no size
+	 */
+	boolean renderOffscreen(final RenderLoop.Frame f) {
+		final int width = getWidth();
+		final int height = getHeight();
+		if (width <= 0 || height <= 0)
+			return false;
+		f.ensureSize(width, height);
+		preRender();
+		uni.invalidateBounds();
+		final Camera cam = uni.getCam();
+		final Camera snapshot;
+		synchronized (cam) {
+			cam.applyAspectRatioWpH(((double) width) / height);
+			snapshot = cam.snapshot();
+		}
+		final Shader sh = new Shader(snapshot, width, height);
+		final Graphics2D g2d = f.image.createGraphics();
+		try {
+			g2d.setFont(getFont());
+			final Graphics3d g3d;
+			if (depthBuffered) {
+				final RasterGraphics3d raster = createRasterGraphics3d(
+						f.image, f.depth, sh, projections, uni.getLights());
+				raster.clear(getBackground().getRGB());
+				raster.getGraphics2d().setFont(getFont());
+				raster.getGraphics2d().setColor(getForeground());
+				g3d = raster;
+			} else {
+				g2d.setColor(getBackground());
+				g2d.fillRect(0, 0, width, height);
+				g2d.setColor(getForeground());
+				g3d = new Graphics3d(g2d, sh, projections, uni.getLights());
+			}
+			render(g3d);
+			if (g3d instanceof RasterGraphics3d)
+				((RasterGraphics3d) g3d).dispose();
+		} finally {
+			g2d.dispose();
+		}
+		return true;
+	}
+
+	/**
+	 * called by the render-thread to show a finished frame
+	 */
+	void present() {
+		super.repaint();
+	}
+
+	/**
+	 * called by a render-thread that stopped because a frame failed, this
+	 * paints on the EDT again
+	 */
+	void renderFailed(final RenderLoop failed) {
+		if (loop == failed) {
+			loop = null;
+			super.repaint();
+		}
+	}
+
+	/**
+	 * @return whether the frames are rendered by a render-thread, false
+	 *         after the render-thread stopped because a frame failed
+	 */
+	public boolean isPipelined() {
+		return loop != null;
+	}
+
+	/**
+	 * enables or disables the rendering on a render-thread with
+	 * defaultQueuedFrames frames ahead of the displayed one
+	 * 
+	 * @see #setPipelined(boolean, int)
+	 * @param pipelined
+	 *            whether to render on a render-thread
+	 */
+	public void setPipelined(final boolean pipelined) {
+		setPipelined(pipelined, defaultQueuedFrames);
+	}
+
+	/**
+	 * enables or disables the rendering on a render-thread<br>
+	 * if enabled, every repaint() requests a frame from the render-thread,
+	 * which calls preRender() and render(Graphics3d) and draws into an
+	 * offscreen frame-buffer, while the EDT only draws the newest finished
+	 * frame, so the EDT stays responsive and the rendering of the next frame
+	 * overlaps the display of the last one<br>
+	 * the frame is rendered with a snapshot of the camera, taken while
+	 * holding the cameras monitor, threads other than the render-thread
+	 * changing the camera should synchronize on it, changes of the scenery
+	 * have to be synchronized by the application itself<br>
+	 * createGraphics3d(Graphics2D) is not used then<br>
+	 * if a frame fails on the render-thread, pipelining is disabled and the
+	 * failure is passed to the UncaughtExceptionHandler of the render-thread<br>
+	 * default is disabled
+	 * 
+	 * @param pipelined
+	 *            whether to render on a render-thread
+	 * @param queuedFrames
+	 *            the count of frames that may be finished ahead of the
+	 *            displayed one (at least 1), the render-thread waits if that
+	 *            many frames are not yet displayed
+	 */
+	public void setPipelined(final boolean pipelined,
+			final int queuedFrames) {
+		if (loop != null) {
+			loop.stop();
+			loop = null;
+		}
+		if (pipelined) {
+			loop = new RenderLoop(this, queuedFrames);
+			loop.start();
+			loop.request();
+		}
+	}
+
 	/**
 	 * subclasses may override this method to adjust the Graphics3d passed to
-	 * render(Graphics3d) or give in a subclass of Graphics3d
+	 * render(Graphics3d) or give in a subclass of Graphics3d<br>
+	 * if depth-buffering is enabled a cleared RasterGraphics3d is returned
+	 * that draws into a frame-buffer of this, which is drawn to the backing
+	 * Graphics2D after render(Graphics3d)
 	 * 
+	 * @see #setDepthBuffered(boolean)
 	 * @param g2d
 	 *            the backing Graphics2D
 	 * @return a blank Graphics3d for the current frame to draw
 	 */
 	protected Graphics3d createGraphics3d(final Graphics2D g2d) {
-		final Graphics3d g3d = new Graphics3d(g2d,
-				new Shader(uni.getCam(), getWidth(), getHeight()),
+		final Shader sh = new Shader(uni.getCam(), getWidth(), getHeight());
+		if (depthBuffered && getWidth() > 0 && getHeight() > 0) {
+			if (frame == null || frame.getWidth() != getWidth()
+					|| frame.getHeight() != getHeight()) {
+				frame = new BufferedImage(getWidth(), getHeight(),
+						BufferedImage.TYPE_INT_ARGB);
+				depth = new float[getWidth() * getHeight()];
+			}
+			final RasterGraphics3d g3d = createRasterGraphics3d(frame, depth,
+					sh, projections, uni.getLights());
+			g3d.clear(getBackground().getRGB());
+			g3d.getGraphics2d().setFont(g2d.getFont());
+			g3d.getGraphics2d().setColor(getForeground());
+			return g3d;
+		}
+		final Graphics3d g3d = new Graphics3d(g2d, sh, projections,
 				uni.getLights());
 		return g3d;
 	}
 
+	/**
+	 * called by createGraphics3d(Graphics2D) if depth-buffering is enabled,
+	 * subclasses may override this to rasterize differently
+	 * 
+	 * @param frame
+	 *            the frame-buffer to draw into
+	 * @param depth
+	 *            the depth-buffer of the frame-buffer
+	 * @param sh
+	 *            the shader of the frame
+	 * @param projections
+	 *            the buffer to store the shaded vertices in
+	 * @param lights
+	 *            the lights of the universe
+	 * @return a not yet cleared RasterGraphics3d drawing into the frame
+	 */
+	protected RasterGraphics3d createRasterGraphics3d(
+			final BufferedImage frame, final float[] depth, final Shader sh,
+			final ProjectionBuffer projections, final Light... lights) {
+		return new RasterGraphics3d(frame, depth, sh, projections, lights);
+	}
+
+	/**
+	 * @return whether the frames are drawn by a depth-buffered
+	 *         RasterGraphics3d
+	 */
+	public boolean isDepthBuffered() {
+		return depthBuffered;
+	}
+
+	/**
+	 * enables or disables the depth-buffered rasterization of the following
+	 * frames<br>
+	 * if enabled, opaque renderables are rendered without sorting them
+	 * because every pixel is depth-tested, the frame-buffer is drawn to the
+	 * screen at once<br>
+	 * default is disabled
+	 * 
+	 * @see fast3d.graphics.RasterGraphics3d
+	 * @param depthBuffered
+	 *            whether to use a depth-buffer
+	 */
+	public void setDepthBuffered(final boolean depthBuffered) {
+		this.depthBuffered = depthBuffered;
+		if (!depthBuffered) {
+			frame = null;
+			depth = null;
+		}
+	}
+
+	/**
+	 * if pipelined a new frame is requested from the render-thread, that
+	 * repaints this as soon as the frame is finished
+	 */
 	@Override
 	public void repaint() {
-		super.repaint();
+		final RenderLoop loop = this.loop;
+		if (loop != null)
+			loop.request();
+		else
+			super.repaint();
 		asyncPreRender();
 	}
 
@@ -146,10 +391,28 @@ public class Panel3d extends JComponent {
 	 *            the 3d-graphics context
 	 */
 	public void render(final Graphics3d g) {
-		for (Renderable r : getUniverse().getObjsSorted())
+		for (Renderable r : getRenderOrder(g))
 			r.render(g);
 	}
 
+	/**
+	 * if the given graphics3d is depth-buffered only the translucent
+	 * renderables are sorted, otherwise all of them
+	 * 
+	 * @see fast3d.graphics.Graphics3d#sort(Renderable...)
+	 * @param g
+	 *            the 3d-graphics context to render with
+	 * @return all renderables of the universe in the order to render them
+	 */
+	protected Renderable[] getRenderOrder(final Graphics3d g) {
+		if (g.isDepthBuffered()) {
+			final Renderable[] objs = getUniverse().getObjs();
+			g.sort(objs);
+			return objs;
+		} else
+			return getUniverse().getObjsSorted();
+	}
+
 	/**
 	 * used to pick all Renderables by click on the panel<br>
 	 * may return null if rayTracing is not supported by the universe or no
@@ -165,27 +428,15 @@ public class Panel3d extends JComponent {
 	public Hashtable<Renderable, Vector3d> pick(final int x,
 			final int y) {
 		final Camera cam = uni.getCam();
-		final Vector3d pix = get3dScreenPoint(x, y);
-		final Vector3d s, r;
-		if (cam.mode.viewmode == Viewmode.ORTHOGONAL) {
-			s = pix;
-			if (!cam.mode.notincam)
-				s.add(cam.getLookDir().invert());
-			r = cam.getLookDir();
-		} else {
-			if (cam.mode.notincam)
-				s = pix;
-			else
-				s = cam.getPos().clone();
-			r = cam.getPos().to(pix);
-		}
+		final Vector3d[] ray = pickRay(x, y);
+		final Vector3d s = ray[0], r = ray[1];
 
 		final Hashtable<Renderable, Vector3d> oriented = uni
 				.rayTrace(s, r);
 		if (!cam.mode.oriented) {
 			final Vector3d sInv;
 			if (cam.mode.viewmode == Viewmode.ORTHOGONAL) {
-				sInv = pix;
+				sInv = s;
 				if (cam.mode.notincam)
 					s.add(cam.getLookDir().invert());
 			} else {
@@ -198,6 +449,29 @@ public class Panel3d extends JComponent {
 		return oriented;
 	}
 
+	/**
+	 * @return the start and the direction of the ray through the given
+	 *         coordinate on the Panel3d
+	 */
+	private Vector3d[] pickRay(final int x, final int y) {
+		final Camera cam = uni.getCam();
+		final Vector3d pix = get3dScreenPoint(x, y);
+		final Vector3d s, r;
+		if (cam.mode.viewmode == Viewmode.ORTHOGONAL) {
+			s = pix;
+			if (!cam.mode.notincam)
+				s.add(cam.getLookDir().invert());
+			r = cam.getLookDir();
+		} else {
+			if (cam.mode.notincam)
+				s = pix;
+			else
+				s = cam.getPos().clone();
+			r = cam.getPos().to(pix);
+		}
+		return new Vector3d[] { s, r };
+	}
+
 	/**
 	 * for a given coordinate on the Panel3d the 3d point in the universe is
 	 * returned that is on the screen at the transformed given screen position
@@ -222,6 +496,7 @@ public class Panel3d extends JComponent {
 	/**
 	 * used to pick the closest-to-the-camera Renderable of all Renderables in
 	 * the Universe by click on the panel<br>
+	 * only the nearest hit is searched by Universe.rayTraceClosest()<br>
 	 * may return null if rayTracing is not supported by the universe or no
 	 * Renderable was detected
 	 * 
@@ -232,26 +507,18 @@ public class Panel3d extends JComponent {
 	 * @return probably the Renderable the user was expecting to click on
 	 */
 	public Renderable pickClosest(final int x, final int y) {
-		final Hashtable<Renderable, Vector3d> punctures = pick(x, y);
-		if (punctures.size() == 0)
-			return null;
-
-		Renderable close;
-		final List<Renderable> keys = new LinkedList<Renderable>();
-		keys.addAll(punctures.keySet());
-		close = keys.get(0);
-		double closeDistance = punctures.get(close)
-				.distanceTo(uni.getCam().getPos());
-		double currentDistance;
-		for (Renderable r : keys) {
-			currentDistance = punctures.get(r)
-					.distanceTo(uni.getCam().getPos());
-			if (currentDistance < closeDistance) {
-				closeDistance = currentDistance;
-				close = r;
-			}
+		final Camera cam = uni.getCam();
+		final Vector3d[] ray = pickRay(x, y);
+		final Vector3d s = ray[0], r = ray[1];
+		RayHit close = uni.rayTraceClosest(s, r, Double.POSITIVE_INFINITY);
+		if (!cam.mode.oriented) {
+			final RayHit inv = uni.rayTraceClosest(s, r.clone().invert(),
+					Double.POSITIVE_INFINITY);
+			if (close == null
+					|| (inv != null && inv.getDistance() < close.getDistance()))
+				close = inv;
 		}
-		return close;
+		return close == null ? null : close.getRenderable();
 	}
 
 	/**
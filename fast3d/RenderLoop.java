@@ -0,0 +1,165 @@
+package fast3d;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * renders the frames of a Panel3d on its own thread into offscreen buffers,
+ * while the EDT only draws the newest finished frame<br>
+ * the buffers circulate between a queue of free ones and a queue of finished
+ * ones, so at most queuedFrames frames are ahead of the displayed one and the
+ * render-thread waits for the EDT instead of outrunning it<br>
+ * every repaint() of the panel requests one frame, requests arriving while a
+ * frame is rendered are merged into the next one<br>
+ * if rendering a frame fails, the loop stops, the panel paints on the EDT
+ * again and the failure is passed to the UncaughtExceptionHandler of the
+ * render-thread
+ *
+ * @see Panel3d#setPipelined(boolean)
+ * @author Tim Trense
+ */
+final class RenderLoop implements Runnable {
+
+	/**
+	 * an offscreen frame-buffer with its depth-buffer
+	 */
+	static final class Frame {
+
+		BufferedImage image;
+		float[] depth;
+
+		/**
+		 * reallocates the buffers if they do not match the given size
+		 */
+		void ensureSize(final int width, final int height) {
+			if (image == null || image.getWidth() != width
+					|| image.getHeight() != height) {
+				image = new BufferedImage(width, height,
+						BufferedImage.TYPE_INT_ARGB);
+				depth = null;
+			}
+			if (depth == null)
+				depth = new float[width * height];
+		}
+	}
+
+	private final Panel3d panel;
+	private final BlockingQueue<Frame> free, finished;
+	private final Thread thread;
+	private boolean requested;
+	private volatile boolean running;
+	private Frame shown;
+
+	/**
+	 * @param panel
+	 *            the panel to render the frames of
+	 * @param queuedFrames
+	 *            the count of frames that may be finished but not yet drawn
+	 */
+	RenderLoop(final Panel3d panel, final int queuedFrames) {
+		this.panel = panel;
+		final int count = Math.max(1, queuedFrames) + 1;
+		this.free = new ArrayBlockingQueue<Frame>(count);
+		this.finished = new ArrayBlockingQueue<Frame>(count);
+		for (int i = 0; i < count; i++)
+			free.add(new Frame());
+		this.thread = new Thread(this, "fast3d-render");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * starts the render-thread
+	 */
+	void start() {
+		running = true;
+		thread.start();
+	}
+
+	/**
+	 * stops the render-thread after the current frame and waits for it
+	 */
+	void stop() {
+		running = false;
+		thread.interrupt();
+		if (Thread.currentThread() != thread) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * requests the rendering of a new frame
+	 */
+	synchronized void request() {
+		requested = true;
+		notifyAll();
+	}
+
+	/**
+	 * called by the EDT to get the frame to draw, the previously drawn one is
+	 * given back to the render-thread if a newer one is finished
+	 *
+	 * @return the newest finished frame, null if none was finished yet
+	 */
+	Frame latest() {
+		Frame next;
+		while ((next = finished.poll()) != null) {
+			if (shown != null)
+				free.offer(shown);
+			shown = next;
+		}
+		return shown;
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				synchronized (this) {
+					while (!requested)
+						wait();
+					requested = false;
+				}
+				final Frame f = free.take();
+				final boolean rendered;
+				try {
+					rendered = panel.renderOffscreen(f);
+				} catch (Throwable t) {
+					fail(t);
+					return;
+				}
+				if (rendered) {
+					finished.put(f);
+					panel.present();
+				} else
+					free.put(f);
+			} catch (InterruptedException e) {
+				// stop() was called
+			}
+		}
+	}
+
+	/**
+	 * stops the loop, lets the panel paint on the EDT and passes the failure
+	 * to the handler of the render-thread
+	 */
+	private void fail(final Throwable t) {
+		running = false;
+		panel.renderFailed(this);
+		thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+	}
+
+	/**
+	 *
+	 * @return fast3d.RenderLoop[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.RenderLoop[" + "running=" + running + ";finished="
+				+ finished.size() + ";free=" + free.size() + "]";
+	}
+}
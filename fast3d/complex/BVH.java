@@ -0,0 +1,885 @@
+package fast3d.complex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+
+import fast3d.Bounded;
+import fast3d.Renderable;
+import fast3d.math.Vector3d;
+import fast3d.renderables.Rectangle;
+import fast3d.renderables.Triangle;
+
+/**
+ * a bounding volume hierarchy over renderables to answer ray-queries without
+ * testing every renderable<br>
+ * every renderable is enclosed by an axis-aligned box, the boxes are split
+ * repeatedly by the surface area heuristic (binned) into a binary tree, at
+ * the median if no split is cheaper but a leaf would exceed the leaf-size, a
+ * ray only tests the renderables of the leaves whose boxes it passes<br>
+ * only renderables that are hit within their vertices are put into the tree:
+ * Triangles, Rectangles and every Bounded (groups, objects, scenes, meshes),
+ * the others (like a Pixel, that is hit within an angle around it) are tested
+ * linearly on every query<br>
+ * if the renderables moved, refit() recomputes the boxes without changing
+ * the tree, which is much faster than building it again but lets the tree
+ * degrade if the renderables move far<br>
+ * queries are thread-safe as long as no refit() runs at the same time
+ *
+ * @see fast3d.complex.Universe#rayTrace(Vector3d, Vector3d)
+ * @author Tim Trense
+ */
+public class BVH {
+
+	/**
+	 * the default maximal count of renderables in a leaf
+	 */
+	public static int defaultLeafSize = 4;
+
+	/**
+	 * the kind of renderables hit only in front of the start of the ray and
+	 * within their vertices (triangles and bounded ones)
+	 */
+	public static final int HIT_FORWARD = 0;
+	/**
+	 * the kind of renderables hit by the whole line of the ray but within
+	 * their vertices (rectangles)
+	 */
+	public static final int HIT_LINE = 1;
+	/**
+	 * the kind of renderables that may be hit outside of their vertices
+	 * (pixels, lines and any unknown renderable)
+	 */
+	public static final int HIT_UNBOUNDED = 2;
+
+	private static final int BINS = 12;
+
+	/**
+	 * a tree over renderables of the same ray-semantic
+	 */
+	private static final class Tree {
+
+		/**
+		 * whether the renderables are hit behind the origin of the ray too
+		 */
+		final boolean bothDirections;
+		final Renderable[] prims;
+		final double[] primBounds;
+		/**
+		 * 6 doubles per node: min x,y,z, max x,y,z
+		 */
+		double[] bounds;
+		/**
+		 * for inner nodes the index of the second child (the first one is
+		 * the next node), for leaves -1-(index of the first renderable)
+		 */
+		int[] next;
+		/**
+		 * the count of renderables of a leaf, 0 for inner nodes
+		 */
+		int[] counts;
+		int nodes;
+
+		Tree(final List<Renderable> prims, final boolean bothDirections) {
+			this.bothDirections = bothDirections;
+			this.prims = prims.toArray(new Renderable[prims.size()]);
+			this.primBounds = new double[6 * this.prims.length];
+			final int capacity = Math.max(1, 2 * this.prims.length);
+			this.bounds = new double[6 * capacity];
+			this.next = new int[capacity];
+			this.counts = new int[capacity];
+		}
+	}
+
+	private final int leafSize;
+	private final Tree forward, both;
+	private final Renderable[] unbounded;
+
+	/**
+	 * builds a hierarchy over the given renderables with leaves of at most
+	 * defaultLeafSize renderables
+	 *
+	 * @param objs
+	 *            the renderables to build the hierarchy over
+	 */
+	public BVH(final Renderable... objs) {
+		this(defaultLeafSize, objs);
+	}
+
+	/**
+	 * builds a hierarchy over the given renderables
+	 *
+	 * @param leafSize
+	 *            the maximal count of renderables in a leaf
+	 * @param objs
+	 *            the renderables to build the hierarchy over
+	 */
+	public BVH(final int leafSize, final Renderable... objs) {
+		this.leafSize = Math.max(1, leafSize);
+		final List<Renderable> fw = new ArrayList<Renderable>();
+		final List<Renderable> bd = new ArrayList<Renderable>();
+		final List<Renderable> ub = new ArrayList<Renderable>();
+		for (Renderable r : objs) {
+			final int kind = hitKind(r);
+			if (kind == HIT_FORWARD)
+				fw.add(r);
+			else if (kind == HIT_LINE)
+				bd.add(r);
+			else
+				ub.add(r);
+		}
+		this.forward = build(fw, false);
+		this.both = build(bd, true);
+		this.unbounded = ub.toArray(new Renderable[ub.size()]);
+	}
+
+	/**
+	 * @param r
+	 *            any renderable
+	 * @return HIT_FORWARD, HIT_LINE or HIT_UNBOUNDED, where the hit-points of
+	 *         rayTrace() of the renderable can be
+	 */
+	public static int hitKind(final Renderable r) {
+		if (r instanceof Triangle || r instanceof Bounded)
+			return HIT_FORWARD;
+		if (r instanceof Rectangle)
+			return HIT_LINE;
+		return HIT_UNBOUNDED;
+	}
+
+	/**
+	 * @return the count of renderables in the hierarchy, including those
+	 *         tested linearly
+	 */
+	public int size() {
+		return forward.prims.length + both.prims.length + unbounded.length;
+	}
+
+	/**
+	 * @return the count of renderables tested linearly on every query
+	 */
+	public int unboundedSize() {
+		return unbounded.length;
+	}
+
+	/**
+	 * tests the ray against every renderable whose box it passes
+	 *
+	 * @param s
+	 *            the start of the ray
+	 * @param r
+	 *            the direction of the ray
+	 * @return all renderables targeted by the ray and their puncture point
+	 *         with the ray
+	 */
+	public Hashtable<Renderable, Vector3d> rayTrace(final Vector3d s,
+			final Vector3d r) {
+		final Hashtable<Renderable, Vector3d> res = new Hashtable<Renderable, Vector3d>();
+		rayTrace(forward, s, r, res);
+		rayTrace(both, s, r, res);
+		Vector3d current;
+		for (Renderable rend : unbounded)
+			if ((current = rend.rayTrace(s, r)) != null)
+				res.put(rend, current);
+		return res;
+	}
+
+	/**
+	 * searches the nearest renderable in the direction of the ray, the nodes
+	 * are visited nearest first and skipped if they are farther than the
+	 * nearest hit found so far
+	 *
+	 * @param s
+	 *            the start of the ray
+	 * @param r
+	 *            the direction of the ray
+	 * @param maxDistance
+	 *            the maximal distance of a hit to the start of the ray
+	 * @return the nearest hit or null if nothing is hit within the distance
+	 */
+	public RayHit rayTraceClosest(final Vector3d s, final Vector3d r,
+			final double maxDistance) {
+		final double length = r.length();
+		if (!(length > 0))
+			return null;
+		final Search q = new Search(maxDistance / length, null, false);
+		search(forward, s, r, q);
+		search(both, s, r, q);
+		for (Renderable rend : unbounded)
+			q.offer(rend, s, r);
+		return q.hit == null ? null
+				: new RayHit(q.hit, q.point, q.tmax * length);
+	}
+
+	/**
+	 * searches the nearest renderable for every ray of the packet<br>
+	 * the packet walks through the tree as a whole: a node is entered if any
+	 * ray of the packet passes its box before its nearest hit so far, and the
+	 * rays in front of the first such ray are not tested below that node<br>
+	 * triangles are intersected with all rays at once, other renderables are
+	 * asked by rayTrace() ray by ray
+	 *
+	 * @param packet
+	 *            the rays to trace, their hits are written to it
+	 */
+	public void rayTraceClosest(final RayPacket packet) {
+		final int n = packet.size();
+		if (n == 0)
+			return;
+		final Vector3d s = new Vector3d(0, 0, 0), r = new Vector3d(0, 0, 0);
+		search(forward, packet, s, r);
+		search(both, packet, s, r);
+		for (Renderable rend : unbounded)
+			offer(rend, packet, 0, s, r);
+	}
+
+	/**
+	 * offers the hits of the renderable with the rays of the packet from the
+	 * given index on to the packet
+	 */
+	private static void offer(final Renderable rend, final RayPacket packet,
+			final int from, final Vector3d s, final Vector3d r) {
+		if (rend instanceof Triangle) {
+			((Triangle) rend).rayTrace(packet, from);
+			return;
+		}
+		for (int i = from; i < packet.size(); i++) {
+			if (!(packet.t[i] >= 0))
+				continue;
+			s.x = packet.ox[i];
+			s.y = packet.oy[i];
+			s.z = packet.oz[i];
+			r.x = packet.dx[i];
+			r.y = packet.dy[i];
+			r.z = packet.dz[i];
+			final Vector3d p = rend.rayTrace(s, r);
+			if (p != null)
+				packet.offer(i, rend, RayHit.param(s, r, p));
+		}
+	}
+
+	private static void search(final Tree t, final RayPacket packet,
+			final Vector3d s, final Vector3d r) {
+		if (t.nodes == 0)
+			return;
+		// the node and the first ray of the packet passing its box
+		int[] stack = new int[128];
+		int top = 0;
+		int first = firstPassing(t.bounds, 0, packet, 0);
+		if (first < 0)
+			return;
+		stack[top++] = 0;
+		stack[top++] = first;
+		while (top > 0) {
+			first = stack[--top];
+			final int n = stack[--top];
+			first = firstPassing(t.bounds, 6 * n, packet, first);
+			if (first < 0)
+				continue;
+			if (t.counts[n] > 0) {
+				final int f = -1 - t.next[n];
+				for (int i = f; i < f + t.counts[n]; i++)
+					offer(t.prims[i], packet, first, s, r);
+				continue;
+			}
+			if (top + 4 > stack.length)
+				stack = Arrays.copyOf(stack, 2 * stack.length);
+			stack[top++] = t.next[n];
+			stack[top++] = first;
+			stack[top++] = n + 1;
+			stack[top++] = first;
+		}
+	}
+
+	/**
+	 * @return the index of the first ray of the packet from the given index
+	 *         on passing the box before its nearest hit so far, -1 if none
+	 */
+	private static int firstPassing(final double[] bounds, final int b,
+			final RayPacket packet, final int from) {
+		for (int i = from; i < packet.size(); i++) {
+			if (!(packet.t[i] >= 0))
+				continue;
+			double tmin = 0, tmax = packet.t[i];
+			boolean passes = true;
+			for (int axis = 0; axis < 3 && passes; axis++) {
+				final double o = axis == 0 ? packet.ox[i]
+						: axis == 1 ? packet.oy[i] : packet.oz[i];
+				final double d = axis == 0 ? packet.dx[i]
+						: axis == 1 ? packet.dy[i] : packet.dz[i];
+				final double min = bounds[b + axis],
+						max = bounds[b + 3 + axis];
+				if (d == 0) {
+					passes = o >= min && o <= max;
+					continue;
+				}
+				double t0 = (min - o) / d, t1 = (max - o) / d;
+				if (t0 > t1) {
+					final double help = t0;
+					t0 = t1;
+					t1 = help;
+				}
+				if (t0 > tmin)
+					tmin = t0;
+				if (t1 < tmax)
+					tmax = t1;
+				passes = tmin <= tmax;
+			}
+			if (passes)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * tests whether anything is in the way of the ray, stopping at the first
+	 * hit
+	 *
+	 * @param s
+	 *            the start of the ray
+	 * @param r
+	 *            the direction of the ray
+	 * @param maxDistance
+	 *            the maximal distance of a hit to the start of the ray
+	 * @param ignore
+	 *            a renderable not to count as hit, may be null
+	 * @return whether any renderable but the ignored one is hit in the
+	 *         direction of the ray within the distance
+	 */
+	public boolean rayTraceAny(final Vector3d s, final Vector3d r,
+			final double maxDistance, final Renderable ignore) {
+		final double length = r.length();
+		if (!(length > 0))
+			return false;
+		final Search q = new Search(maxDistance / length, ignore, true);
+		if (search(forward, s, r, q) || search(both, s, r, q))
+			return true;
+		for (Renderable rend : unbounded)
+			if (q.offer(rend, s, r))
+				return true;
+		return false;
+	}
+
+	/**
+	 * the state of a closest- or any-hit query
+	 */
+	private static final class Search {
+
+		/**
+		 * the multiple of the direction up to which hits count
+		 */
+		double tmax;
+		final Renderable ignore;
+		final boolean any;
+		Renderable hit;
+		Vector3d point;
+
+		Search(final double tmax, final Renderable ignore, final boolean any) {
+			this.tmax = tmax;
+			this.ignore = ignore;
+			this.any = any;
+		}
+
+		/**
+		 * @return whether the query is answered
+		 */
+		boolean offer(final Renderable rend, final Vector3d s,
+				final Vector3d r) {
+			if (rend == ignore)
+				return false;
+			final Vector3d p = rend.rayTrace(s, r);
+			if (p == null)
+				return false;
+			final double t = RayHit.param(s, r, p);
+			if (!(t >= 0 && t <= tmax))
+				return false;
+			tmax = t;
+			hit = rend;
+			point = p;
+			return any;
+		}
+	}
+
+	/**
+	 * @return whether the query is answered
+	 */
+	private static boolean search(final Tree t, final Vector3d s,
+			final Vector3d r, final Search q) {
+		if (t.nodes == 0)
+			return false;
+		int[] stack = new int[64];
+		double[] enter = new double[64];
+		int top = 0;
+		enter[top] = entry(t.bounds, 0, s, r, 0, q.tmax);
+		if (Double.isNaN(enter[top]))
+			return false;
+		stack[top++] = 0;
+		while (top > 0) {
+			final int n = stack[--top];
+			if (enter[top] > q.tmax)
+				continue; // a nearer hit was found meanwhile
+			if (t.counts[n] > 0) {
+				final int first = -1 - t.next[n];
+				for (int i = first; i < first + t.counts[n]; i++)
+					if (q.offer(t.prims[i], s, r))
+						return true;
+				continue;
+			}
+			final int a = n + 1, b = t.next[n];
+			final double ta = entry(t.bounds, 6 * a, s, r, 0, q.tmax);
+			final double tb = entry(t.bounds, 6 * b, s, r, 0, q.tmax);
+			if (top + 2 > stack.length) {
+				stack = Arrays.copyOf(stack, 2 * stack.length);
+				enter = Arrays.copyOf(enter, 2 * enter.length);
+			}
+			// the nearer child is pushed last to be visited first
+			final boolean aFirst = Double.isNaN(tb) || ta <= tb;
+			final int far = aFirst ? b : a, near = aFirst ? a : b;
+			final double tFar = aFirst ? tb : ta, tNear = aFirst ? ta : tb;
+			if (!Double.isNaN(tFar)) {
+				enter[top] = tFar;
+				stack[top++] = far;
+			}
+			if (!Double.isNaN(tNear)) {
+				enter[top] = tNear;
+				stack[top++] = near;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * recomputes the boxes of all renderables and nodes for the current
+	 * positions of the renderables, the tree itself is not changed
+	 */
+	public void refit() {
+		refit(forward);
+		refit(both);
+	}
+
+	private void refit(final Tree t) {
+		for (int i = 0; i < t.prims.length; i++)
+			bounds(t.prims[i], t.primBounds, 6 * i);
+		// children are always stored behind their parent
+		for (int n = t.nodes - 1; n >= 0; n--) {
+			final int b = 6 * n;
+			if (t.counts[n] > 0) {
+				empty(t.bounds, b);
+				final int first = -1 - t.next[n];
+				for (int i = first; i < first + t.counts[n]; i++)
+					include(t.bounds, b, t.primBounds, 6 * i);
+			} else {
+				System.arraycopy(t.bounds, 6 * (n + 1), t.bounds, b, 6);
+				include(t.bounds, b, t.bounds, 6 * t.next[n]);
+			}
+		}
+	}
+
+	private void rayTrace(final Tree t, final Vector3d s, final Vector3d r,
+			final Hashtable<Renderable, Vector3d> res) {
+		if (t.nodes == 0)
+			return;
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = 0;
+		Vector3d current;
+		while (top > 0) {
+			final int n = stack[--top];
+			if (!hits(t.bounds, 6 * n, s, r, t.bothDirections))
+				continue;
+			if (t.counts[n] > 0) {
+				final int first = -1 - t.next[n];
+				for (int i = first; i < first + t.counts[n]; i++)
+					if ((current = t.prims[i].rayTrace(s, r)) != null)
+						res.put(t.prims[i], current);
+			} else {
+				if (top + 2 > stack.length)
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				stack[top++] = t.next[n];
+				stack[top++] = n + 1;
+			}
+		}
+	}
+
+	/**
+	 * tests whether a ray passes a sphere, used by bounded renderables to
+	 * skip their parts before testing them<br>
+	 * creates no object
+	 *
+	 * @param s
+	 *            the start of the ray
+	 * @param r
+	 *            the direction of the ray
+	 * @param center
+	 *            the center of the sphere
+	 * @param radius
+	 *            the radius of the sphere
+	 * @return false if no point of the ray in its direction from its start
+	 *         on is within the sphere
+	 */
+	public static boolean hitsSphere(final Vector3d s, final Vector3d r,
+			final Vector3d center, final double radius) {
+		final double ox = center.x - s.x, oy = center.y - s.y,
+				oz = center.z - s.z;
+		final double rr = r.x * r.x + r.y * r.y + r.z * r.z;
+		double t = rr > 0 ? (ox * r.x + oy * r.y + oz * r.z) / rr : 0;
+		if (t < 0)
+			t = 0;
+		final double dx = ox - t * r.x, dy = oy - t * r.y, dz = oz - t * r.z;
+		final double tolerance = radius * (1 + 1e-9) + 1e-9;
+		return dx * dx + dy * dy + dz * dz <= tolerance * tolerance;
+	}
+
+	/**
+	 * the slab-test of a ray against an axis-aligned box<br>
+	 * creates no object
+	 *
+	 * @param bounds
+	 *            the array containing min x,y,z and max x,y,z of the box
+	 * @param b
+	 *            the index of min x in the array
+	 * @param s
+	 *            the start of the ray
+	 * @param r
+	 *            the direction of the ray
+	 * @param bothDirections
+	 *            whether the ray continues behind its start
+	 * @return whether the ray passes the box
+	 */
+	public static boolean hits(final double[] bounds, final int b,
+			final Vector3d s, final Vector3d r,
+			final boolean bothDirections) {
+		return !Double.isNaN(entry(bounds, b, s, r,
+				bothDirections ? Double.NEGATIVE_INFINITY : 0,
+				Double.POSITIVE_INFINITY));
+	}
+
+	/**
+	 * the slab-test of a part of a ray against an axis-aligned box
+	 *
+	 * @return the multiple of the direction at which the part of the ray
+	 *         from tmin to tmax enters the box (tmin if it starts within) or
+	 *         NaN if it misses the box
+	 */
+	private static double entry(final double[] bounds, final int b,
+			final Vector3d s, final Vector3d r, double tmin, double tmax) {
+		for (int axis = 0; axis < 3; axis++) {
+			final double o = axis == 0 ? s.x : axis == 1 ? s.y : s.z;
+			final double d = axis == 0 ? r.x : axis == 1 ? r.y : r.z;
+			final double min = bounds[b + axis], max = bounds[b + 3 + axis];
+			if (d == 0) {
+				if (o < min || o > max)
+					return Double.NaN;
+				continue;
+			}
+			double t0 = (min - o) / d, t1 = (max - o) / d;
+			if (t0 > t1) {
+				final double help = t0;
+				t0 = t1;
+				t1 = help;
+			}
+			if (t0 > tmin)
+				tmin = t0;
+			if (t1 < tmax)
+				tmax = t1;
+			if (!(tmin <= tmax))
+				return Double.NaN;
+		}
+		return tmin;
+	}
+
+	/**
+	 * writes the axis-aligned box around the bounding sphere of a bounded
+	 * renderable or around the vertices of any other, slightly enlarged so
+	 * that rounding does not let a ray miss it<br>
+	 * a renderable without vertices gets a box around its position
+	 *
+	 * @param r
+	 *            the renderable to get the box of
+	 * @param out
+	 *            the array to write min x,y,z and max x,y,z to
+	 * @param o
+	 *            the index to write the first value to
+	 */
+	public static void bounds(final Renderable r, final double[] out,
+			final int o) {
+		empty(out, o);
+		final Vector3d[] vertices = r instanceof Bounded ? null
+				: r.getVertices();
+		if (r instanceof Bounded) {
+			final Bounded b = (Bounded) r;
+			final Vector3d c = b.getBoundingCenter();
+			final double rad = b.getBoundingRadius();
+			out[o] = c.x - rad;
+			out[o + 1] = c.y - rad;
+			out[o + 2] = c.z - rad;
+			out[o + 3] = c.x + rad;
+			out[o + 4] = c.y + rad;
+			out[o + 5] = c.z + rad;
+		} else if (vertices == null || vertices.length == 0) {
+			final Vector3d p = r.getPos();
+			out[o] = out[o + 3] = p.x;
+			out[o + 1] = out[o + 4] = p.y;
+			out[o + 2] = out[o + 5] = p.z;
+		} else
+			for (Vector3d v : vertices) {
+				out[o] = Math.min(out[o], v.x);
+				out[o + 1] = Math.min(out[o + 1], v.y);
+				out[o + 2] = Math.min(out[o + 2], v.z);
+				out[o + 3] = Math.max(out[o + 3], v.x);
+				out[o + 4] = Math.max(out[o + 4], v.y);
+				out[o + 5] = Math.max(out[o + 5], v.z);
+			}
+		for (int axis = 0; axis < 3; axis++) {
+			final double eps = 1e-9 + 1e-9
+					* (Math.abs(out[o + axis]) + Math.abs(out[o + 3 + axis]));
+			out[o + axis] -= eps;
+			out[o + 3 + axis] += eps;
+		}
+	}
+
+	private static void empty(final double[] bounds, final int b) {
+		bounds[b] = bounds[b + 1] = bounds[b + 2] = Double.POSITIVE_INFINITY;
+		bounds[b + 3] = bounds[b + 4] = bounds[b + 5] = Double.NEGATIVE_INFINITY;
+	}
+
+	private static void include(final double[] bounds, final int b,
+			final double[] other, final int o) {
+		for (int axis = 0; axis < 3; axis++) {
+			bounds[b + axis] = Math.min(bounds[b + axis], other[o + axis]);
+			bounds[b + 3 + axis] = Math.max(bounds[b + 3 + axis],
+					other[o + 3 + axis]);
+		}
+	}
+
+	private static double area(final double[] bounds, final int b) {
+		final double x = bounds[b + 3] - bounds[b];
+		final double y = bounds[b + 4] - bounds[b + 1];
+		final double z = bounds[b + 5] - bounds[b + 2];
+		if (!(x >= 0 && y >= 0 && z >= 0))
+			return 0; // empty
+		return x * y + y * z + z * x;
+	}
+
+	private Tree build(final List<Renderable> prims,
+			final boolean bothDirections) {
+		final Tree t = new Tree(prims, bothDirections);
+		if (t.prims.length == 0)
+			return t;
+		for (int i = 0; i < t.prims.length; i++)
+			bounds(t.prims[i], t.primBounds, 6 * i);
+		final double[] centroids = new double[3 * t.prims.length];
+		for (int i = 0; i < t.prims.length; i++)
+			for (int axis = 0; axis < 3; axis++)
+				centroids[3 * i + axis] = .5 * (t.primBounds[6 * i + axis]
+						+ t.primBounds[6 * i + 3 + axis]);
+		final int[] order = new int[t.prims.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		// depth first on an explicit stack of (from, to, parent), the parent
+		// is -1 for a first child, as its index is the one of the parent + 1
+		int[] stack = new int[48];
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = order.length;
+		stack[top++] = -1;
+		while (top > 0) {
+			final int parent = stack[--top];
+			final int to = stack[--top];
+			final int from = stack[--top];
+			final int n = t.nodes;
+			final int mid = split(t, order, centroids, from, to);
+			if (parent >= 0)
+				t.next[parent] = n;
+			if (mid < 0)
+				continue;
+			if (top + 6 > stack.length)
+				stack = Arrays.copyOf(stack, 2 * stack.length);
+			// the second child is pushed first, so that it is created after
+			// the whole subtree of the first one
+			stack[top++] = mid;
+			stack[top++] = to;
+			stack[top++] = n;
+			stack[top++] = from;
+			stack[top++] = mid;
+			stack[top++] = -1;
+		}
+
+		// store the renderables in the order of the leaves
+		final Renderable[] sorted = new Renderable[order.length];
+		final double[] sortedBounds = new double[6 * order.length];
+		for (int i = 0; i < order.length; i++) {
+			sorted[i] = t.prims[order[i]];
+			System.arraycopy(t.primBounds, 6 * order[i], sortedBounds, 6 * i,
+					6);
+		}
+		System.arraycopy(sorted, 0, t.prims, 0, sorted.length);
+		System.arraycopy(sortedBounds, 0, t.primBounds, 0,
+				sortedBounds.length);
+		return t;
+	}
+
+	/**
+	 * creates the node of the renderables order[from..to) as the next node,
+	 * for an inner node the renderables are reordered so that the ones of
+	 * the first child are order[from..mid) and the ones of the second child
+	 * order[mid..to)<br>
+	 * if the leaf would exceed the leafSize but no split is cheaper, the
+	 * renderables are split at their median
+	 *
+	 * @return mid for an inner node or -1 for a leaf
+	 */
+	private int split(final Tree t, final int[] order,
+			final double[] centroids, final int from, final int to) {
+		final int n = t.nodes++;
+		if (n == t.counts.length) {
+			t.bounds = Arrays.copyOf(t.bounds, 12 * n);
+			t.next = Arrays.copyOf(t.next, 2 * n);
+			t.counts = Arrays.copyOf(t.counts, 2 * n);
+		}
+		final int b = 6 * n;
+		empty(t.bounds, b);
+		final double[] cb = new double[6];
+		empty(cb, 0);
+		for (int i = from; i < to; i++) {
+			include(t.bounds, b, t.primBounds, 6 * order[i]);
+			for (int axis = 0; axis < 3; axis++) {
+				final double c = centroids[3 * order[i] + axis];
+				cb[axis] = Math.min(cb[axis], c);
+				cb[3 + axis] = Math.max(cb[3 + axis], c);
+			}
+		}
+		final int count = to - from;
+		int bestAxis = -1, bestBin = -1;
+		if (count > leafSize) {
+			// binned surface area heuristic
+			double bestCost = area(t.bounds, b) * count;
+			final double[] binBounds = new double[6 * BINS];
+			final int[] binCounts = new int[BINS];
+			final double[] leftArea = new double[BINS];
+			final int[] leftCount = new int[BINS];
+			final double[] acc = new double[6];
+			for (int axis = 0; axis < 3; axis++) {
+				final double min = cb[axis], extent = cb[3 + axis] - min;
+				if (!(extent > 0))
+					continue;
+				for (int k = 0; k < BINS; k++)
+					empty(binBounds, 6 * k);
+				Arrays.fill(binCounts, 0);
+				for (int i = from; i < to; i++) {
+					final int k = bin(centroids[3 * order[i] + axis], min,
+							extent);
+					binCounts[k]++;
+					include(binBounds, 6 * k, t.primBounds, 6 * order[i]);
+				}
+				empty(acc, 0);
+				int c = 0;
+				for (int k = 0; k < BINS - 1; k++) {
+					include(acc, 0, binBounds, 6 * k);
+					c += binCounts[k];
+					leftArea[k] = area(acc, 0);
+					leftCount[k] = c;
+				}
+				empty(acc, 0);
+				c = 0;
+				for (int k = BINS - 1; k > 0; k--) {
+					include(acc, 0, binBounds, 6 * k);
+					c += binCounts[k];
+					if (leftCount[k - 1] == 0 || c == 0)
+						continue;
+					final double cost = leftArea[k - 1] * leftCount[k - 1]
+							+ area(acc, 0) * c;
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAxis = axis;
+						bestBin = k - 1;
+					}
+				}
+			}
+		}
+		if (bestAxis < 0) {
+			if (count <= leafSize) {
+				t.next[n] = -1 - from;
+				t.counts[n] = count;
+				return -1;
+			}
+			// split at the median of the widest extent of the centroids, if
+			// all centroids are the same this is just the middle of the range
+			int axis = 0;
+			for (int a = 1; a < 3; a++)
+				if (cb[3 + a] - cb[a] > cb[3 + axis] - cb[axis])
+					axis = a;
+			final int mid = (from + to) >>> 1;
+			select(order, centroids, axis, from, to, mid);
+			t.counts[n] = 0;
+			return mid;
+		}
+		// partition by the chosen bin
+		final double min = cb[bestAxis], extent = cb[3 + bestAxis] - min;
+		int lo = from, hi = to - 1;
+		while (lo <= hi) {
+			if (bin(centroids[3 * order[lo] + bestAxis], min,
+					extent) <= bestBin)
+				lo++;
+			else {
+				final int help = order[lo];
+				order[lo] = order[hi];
+				order[hi] = help;
+				hi--;
+			}
+		}
+		t.counts[n] = 0;
+		return lo;
+	}
+
+	/**
+	 * reorders order[from..to) so that the renderable at k has the k-th least
+	 * centroid on the axis, none before it has a greater one and none behind
+	 * it a less one
+	 */
+	private static void select(final int[] order, final double[] centroids,
+			final int axis, int from, int to, final int k) {
+		while (to - from > 1) {
+			final double pivot = centroids[3 * order[(from + to) >>> 1]
+					+ axis];
+			int i = from, j = to - 1;
+			while (i <= j) {
+				while (centroids[3 * order[i] + axis] < pivot)
+					i++;
+				while (centroids[3 * order[j] + axis] > pivot)
+					j--;
+				if (i <= j) {
+					final int help = order[i];
+					order[i] = order[j];
+					order[j] = help;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j)
+				to = j + 1;
+			else if (k >= i)
+				from = i;
+			else
+				return;
+		}
+	}
+
+	private static int bin(final double c, final double min,
+			final double extent) {
+		final int k = (int) (BINS * (c - min) / extent);
+		return k < 0 ? 0 : k >= BINS ? BINS - 1 : k;
+	}
+
+	/**
+	 *
+	 * @return fast3d.complex.BVH[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.complex.BVH[" + "renderables=" + size() + ";nodes="
+				+ (forward.nodes + both.nodes) + ";unbounded="
+				+ unbounded.length + "]";
+	}
+}
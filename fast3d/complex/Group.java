@@ -1,17 +1,21 @@
 package fast3d.complex;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Set;
 
+import fast3d.Bounded;
+import fast3d.Movable;
 import fast3d.Renderable;
 import fast3d.complex.light.Illuminatable;
 import fast3d.complex.light.Light;
 import fast3d.complex.light.Material;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
+import fast3d.math.Matrix4d;
 import fast3d.math.Vector3d;
 import fast3d.renderables.AdvTriangle;
 import fast3d.renderables.Triangle;
@@ -27,14 +31,25 @@ import fast3d.renderables.Triangle;
  * considering the model-view-controller model it is requested to used
  * addToUniverse() instead of adding this to a universe<br>
  * hint: although the contained Renderables can build an 3d-object, they can be
- * independent
+ * independent<br>
+ * moving, rotating and scaling just compose a pending transformation in
+ * constant time, it is applied to all vertices at once when the triangles
+ * are needed the next time (e.g. for shading or ray-tracing), if the
+ * triangles were added to a universe on their own by addToUniverse() the
+ * universe applies it once per frame<br>
+ * if groups share vertices and are moved on their own, their transformations
+ * are applied group by group, applyTransform() has to be called in between
+ * to keep the order of the calls
  * 
  * @author Tim Trense
  */
-public class Group extends java.lang.Object implements Illuminatable {
+public class Group extends java.lang.Object
+		implements Illuminatable, Bounded, Movable {
 
 	/**
-	 * direct access to the internal storage permitted
+	 * direct access to the internal storage permitted, applyTransform() has to
+	 * be called before reading the vertices of the triangles or adding
+	 * triangles directly
 	 */
 	public final List<Triangle> triangles;
 	/**
@@ -45,6 +60,26 @@ public class Group extends java.lang.Object implements Illuminatable {
 	private final Vector3d pos;
 	private Vector3d forward, up;
 	private String groupID;
+	private final Vector3d boundingCenter = Vector3d.zero();
+	private double boundingRadius;
+	private int boundedTriangles = -1;
+	private long version;
+	private final Matrix4d pending = new Matrix4d();
+	private final Matrix4d pendingNormals = new Matrix4d();
+	/**
+	 * written while holding the monitor of this, so that the pending
+	 * transformation is composed and applied by one thread at a time
+	 */
+	private volatile boolean transformPending;
+	/**
+	 * the count of universes holding the triangles of this without watching
+	 * it, while positive every transformation is applied at once, guarded by
+	 * the monitor of this
+	 */
+	private int unwatched;
+	private final VertexSet vertexSet = new VertexSet();
+
+	private static final Vector3d ORIGIN = Vector3d.zero();
 
 	/**
 	 * @param pos
@@ -124,6 +159,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * @return a reference to the internal storage
 	 */
 	public List<Triangle> getTriangles() {
+		applyTransform();
 		return triangles;
 	}
 
@@ -154,6 +190,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * @return an array-reference to the hold triangles
 	 */
 	public Triangle[] getTrianglesAsArray() {
+		applyTransform();
 		return triangles.toArray(new Triangle[triangles.size()]);
 	}
 
@@ -170,6 +207,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 */
 	@Override
 	protected Group clone() {
+		applyTransform();
 		return new Group(pos.clone(), triangles);
 	}
 
@@ -213,15 +251,20 @@ public class Group extends java.lang.Object implements Illuminatable {
 
 	/**
 	 * translates all Triangles along the given vector and the position-vector
-	 * too
+	 * too<br>
+	 * the triangles are moved with the pending transformation
 	 * 
 	 * @param dir
 	 *            the vector to add to all triangles
 	 */
 	public void moveInAbsoluteDirection(final Vector3d dir) {
 		pos.add(dir);
-		for (Vector3d v : getVerticesOnce())
-			v.add(dir);
+		synchronized (this) {
+			pending.translate(dir);
+			deferred();
+		}
+		if (boundedTriangles >= 0)
+			boundingCenter.add(dir);
 	}
 
 	/**
@@ -231,6 +274,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * @return the relative position of the triangles to the groups position
 	 */
 	public Hashtable<Triangle, Vector3d> getRelativePositions() {
+		applyTransform();
 		final Hashtable<Triangle, Vector3d> relatives = new Hashtable<Triangle, Vector3d>();
 		for (Triangle t : triangles)
 			relatives.put(t, pos.to(t.getPos()));
@@ -250,11 +294,16 @@ public class Group extends java.lang.Object implements Illuminatable {
 
 	/**
 	 * a group is targeted if any of its triangles is targeted<br>
-	 * does not necessarily return the nearest to rayOrig puncture point
+	 * does not necessarily return the nearest to rayOrig puncture point<br>
+	 * nothing is tested if the ray misses the bounding sphere
 	 */
 	@Override
 	public Vector3d rayTrace(final Vector3d rayOrig,
 			final Vector3d rayDir) {
+		if (!BVH.hitsSphere(rayOrig, rayDir, getBoundingCenter(),
+				getBoundingRadius()))
+			return null;
+		applyTransform();
 		Vector3d v;
 		for (Triangle t : triangles)
 			if ((v = t.rayTrace(rayOrig, rayDir)) != null)
@@ -266,10 +315,14 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * a group renders all of its triangles in the correct order<br>
 	 * if some groups may intersect each other user-recognizable, every triangle
 	 * of those groups should be rendered directly by adding them to the
-	 * universe using addToUniverse()
+	 * universe using addToUniverse()<br>
+	 * nothing is done if the group is out of the cameras sight
 	 */
 	@Override
 	public void shade(final Graphics3d g) {
+		if (!g.inFrustum(this))
+			return;
+		applyTransform();
 		for (Renderable r : triangles)
 			r.shade(g);
 	}
@@ -278,10 +331,14 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * a group renders all of its triangles in the correct order<br>
 	 * if some groups may intersect each other user-recognizable, every triangle
 	 * of those groups should be rendered directly by adding them to the
-	 * universe using addToUniverse()
+	 * universe using addToUniverse()<br>
+	 * nothing is done if the group is out of the cameras sight
 	 */
 	@Override
 	public void render(final Graphics3d g) {
+		if (!g.inFrustum(this))
+			return;
+		applyTransform();
 		final Renderable[] triangs = new Renderable[triangles.size()];
 		triangles.toArray(triangs);
 		g.sort(triangs);
@@ -310,9 +367,11 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * @return whether this collides with the parameter
 	 */
 	public boolean collides(final Renderable r) {
+		applyTransform();
 		if (r instanceof Group) {
 			final Group object = (Group) r;
 			if (collisionSphereRadius == 0) {
+				object.applyTransform();
 				for (Triangle thisT : triangles)
 					for (Triangle otherT : object.triangles)
 						if (thisT.collides(otherT))
@@ -369,7 +428,9 @@ public class Group extends java.lang.Object implements Illuminatable {
 
 	/**
 	 * on any rotation, also either a translation and rotation of any triangles
-	 * is performed
+	 * is performed<br>
+	 * the triangles and the normals of the AdvTriangles are rotated around the
+	 * position with the pending transformation
 	 * 
 	 * @param axis
 	 *            the axe to rotate around in mathematically positive direction
@@ -377,14 +438,16 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 *            the rotation angle in radiant
 	 */
 	public void rot(final Vector3d axis, final double rad) {
-		for (Vector3d v : getVerticesOnce()) {
-			v.sub(pos);
-			v.rot(axis, rad);
-			v.add(pos);
+		synchronized (this) {
+			pending.rotate(pos, axis, rad);
+			pendingNormals.rotate(ORIGIN, axis, rad);
+			deferred();
+		}
+		if (boundedTriangles >= 0) {
+			boundingCenter.sub(pos);
+			boundingCenter.rot(axis, rad);
+			boundingCenter.add(pos);
 		}
-		for (Triangle t : getTrianglesOnce())
-			if (t instanceof AdvTriangle)
-				t.getNormal().rot(axis, rad);
 		forward.rot(axis, rad);
 		up.rot(axis, rad);
 	}
@@ -456,6 +519,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * @return the middle between all hold triangles
 	 */
 	public Vector3d getMiddle() {
+		applyTransform();
 		double x, y, z;
 		x = y = z = 0;
 		int count = 0;
@@ -478,29 +542,47 @@ public class Group extends java.lang.Object implements Illuminatable {
 	}
 
 	/**
-	 * performs uni.add(Triangle) for all hold triangles
+	 * performs uni.add(Triangle) for all hold triangles and lets the universe
+	 * watch this, so that it applies the pending transformation once per
+	 * frame<br>
+	 * if the universe does not watch groups, every following transformation
+	 * is applied at once until this is removed from it again
 	 * 
+	 * @see Universe#watchTransform(Group)
 	 * @param uni
 	 *            the universe to add the internal storage to
 	 */
 	public void addToUniverse(final Universe uni) {
+		applyTransform();
 		for (Triangle t : triangles)
 			uni.add(t);
+		if (!uni.watchTransform(this))
+			synchronized (this) {
+				unwatched++;
+				applyPending();
+			}
 	}
 
 	/**
-	 * performs uni.remove(Triangle) for all hold triangles
+	 * performs uni.remove(Triangle) for all hold triangles and lets the
+	 * universe stop watching this
 	 * 
 	 * @param uni
 	 *            the universe to remove the internal storage from
 	 */
 	public void removeFromUniverse(final Universe uni) {
+		if (!uni.unwatchTransform(this))
+			synchronized (this) {
+				if (unwatched > 0)
+					unwatched--;
+			}
 		for (Triangle t : triangles)
 			uni.remove(t);
 	}
 
 	@Override
 	public Vector3d[] getVertices() {
+		applyTransform();
 		final List<Vector3d[]> vecs = new ArrayList<Vector3d[]>(
 				triangles.size());
 		int count = 0;
@@ -564,6 +646,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 */
 	@Override
 	public Vector3d getNormal() {
+		applyTransform();
 		return triangles.get(0).getNormal();
 	}
 
@@ -574,6 +657,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 	 * @return all triangles of the internal storage but everyone only once
 	 */
 	public Set<Triangle> getTrianglesOnce() {
+		applyTransform();
 		final HashSet<Triangle> triangs = new HashSet<Triangle>();
 		for (Triangle t : triangles)
 			triangs.add(t); // does contains()-check automatically
@@ -594,15 +678,191 @@ public class Group extends java.lang.Object implements Illuminatable {
 	}
 
 	/**
-	 * scales every hold vertex by the given factor
+	 * scales every hold vertex by the given factor with the pending
+	 * transformation
 	 * 
 	 * @param factor
 	 *            the factor how to enlarge ]1;infinite[ or shrink ]0;1[ or
 	 *            mirror-scale ]-infinite;0[
 	 */
 	public void scale(final double factor) {
-		for (Vector3d v : getVerticesOnce())
-			v.scale(factor);
+		synchronized (this) {
+			pending.scale(ORIGIN, factor);
+			deferred();
+		}
+		if (boundedTriangles >= 0) {
+			boundingCenter.scale(factor);
+			boundingRadius *= Math.abs(factor);
+		}
+	}
+
+	/**
+	 * the version changes whenever this is moved, rotated or scaled
+	 * 
+	 * @see #changed()
+	 * @return the current version of the vertices of this
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the vertices of this were changed directly or
+	 * triangles were replaced, the methods of this call it themselves<br>
+	 * changes the version of this and of all triangles
+	 * 
+	 * @see Triangle#changed()
+	 */
+	public void changed() {
+		version++;
+		synchronized (this) {
+			vertexSet.invalidate();
+		}
+		for (Triangle t : triangles)
+			t.changed();
+	}
+
+	/**
+	 * composes the transformation with the pending one, so that it is
+	 * applied after it<br>
+	 * used by an object or scene containing this, the position and the
+	 * alignment-vectors of this stay unchanged
+	 *
+	 * @param points
+	 *            the transformation of the vertices
+	 * @param normals
+	 *            the transformation of the normals of the AdvTriangles
+	 */
+	void transform(final Matrix4d points, final Matrix4d normals) {
+		synchronized (this) {
+			pending.preMul(points);
+			pendingNormals.preMul(normals);
+			deferred();
+		}
+		transformBounds(points);
+	}
+
+	/**
+	 * changes the version of this and of all triangles after the vertices
+	 * were transformed directly by an object or scene containing this
+	 *
+	 * @param points
+	 *            the transformation of the vertices
+	 */
+	void transformed(final Matrix4d points) {
+		transformBounds(points);
+		version++;
+		for (Triangle t : triangles)
+			t.changed();
+	}
+
+	/**
+	 * changes the version of this and marks the transformation as pending,
+	 * has to be called while holding the monitor of this<br>
+	 * the transformation is applied at once if the triangles of this are in
+	 * a universe not watching this
+	 */
+	private void deferred() {
+		version++;
+		transformPending = true;
+		if (unwatched > 0)
+			applyPending();
+	}
+
+	/**
+	 * applies the pending transformation to all vertices of this and the
+	 * normals of the AdvTriangles at once, every vertex shared by some
+	 * triangles is transformed once<br>
+	 * does nothing if no transformation is pending, may be called by any
+	 * thread
+	 */
+	public void applyTransform() {
+		if (transformPending)
+			applyPending();
+	}
+
+	private synchronized void applyPending() {
+		if (!transformPending)
+			return;
+		vertexSet.validate(Collections.singletonList(this), true);
+		vertexSet.transform(pending, pendingNormals);
+		pending.setIdentity();
+		pendingNormals.setIdentity();
+		for (Triangle t : triangles)
+			t.changed();
+		transformPending = false;
+	}
+
+	/**
+	 * @return whether this was moved, rotated or scaled since the last
+	 *         applyTransform()
+	 */
+	public boolean isTransformPending() {
+		return transformPending;
+	}
+
+	/**
+	 * the bounding sphere is calculated once and then moved, rotated and
+	 * scaled together with the triangles, it is recalculated if the count of
+	 * triangles changed or invalidateBounds() was called
+	 */
+	@Override
+	public Vector3d getBoundingCenter() {
+		validateBounds();
+		return boundingCenter;
+	}
+
+	@Override
+	public double getBoundingRadius() {
+		validateBounds();
+		return boundingRadius;
+	}
+
+	@Override
+	public void invalidateBounds() {
+		boundedTriangles = -1;
+	}
+
+	private void validateBounds() {
+		if (boundedTriangles == triangles.size())
+			return;
+		applyTransform();
+		double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+		for (Triangle t : triangles)
+			for (Vector3d v : t.getVertices()) {
+				minX = Math.min(minX, v.x);
+				maxX = Math.max(maxX, v.x);
+				minY = Math.min(minY, v.y);
+				maxY = Math.max(maxY, v.y);
+				minZ = Math.min(minZ, v.z);
+				maxZ = Math.max(maxZ, v.z);
+			}
+		if (minX > maxX) {
+			boundingCenter.set(pos);
+			boundingRadius = 0;
+		} else {
+			boundingCenter.x = (minX + maxX) / 2;
+			boundingCenter.y = (minY + maxY) / 2;
+			boundingCenter.z = (minZ + maxZ) / 2;
+			double r = 0;
+			for (Triangle t : triangles)
+				for (Vector3d v : t.getVertices())
+					r = Math.max(r, boundingCenter.distanceTo(v));
+			boundingRadius = r;
+		}
+		boundedTriangles = triangles.size();
+	}
+
+	/**
+	 * transforms the bounding sphere (if calculated yet) just like the
+	 * vertices are transformed by an object or scene containing this
+	 */
+	void transformBounds(final Matrix4d m) {
+		if (boundedTriangles >= 0) {
+			m.transformPoint(boundingCenter);
+			boundingRadius *= m.getMaxScale();
+		}
 	}
 
 	/**
@@ -630,6 +890,7 @@ public class Group extends java.lang.Object implements Illuminatable {
 
 	@Override
 	public void revalidateLight(Light... lights) {
+		applyTransform();
 		for (Triangle t : triangles)
 			if (t instanceof AdvTriangle)
 				((AdvTriangle) t).revalidateLight(lights);
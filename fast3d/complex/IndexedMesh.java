@@ -0,0 +1,762 @@
+package fast3d.complex;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import fast3d.Bounded;
+import fast3d.Movable;
+import fast3d.complex.light.Illuminatable;
+import fast3d.complex.light.Light;
+import fast3d.complex.light.Material;
+import fast3d.graphics.Color;
+import fast3d.graphics.Graphics3d;
+import fast3d.math.Shader;
+import fast3d.math.Vector3d;
+import fast3d.renderables.AdvTriangle;
+import fast3d.renderables.Triangle;
+
+/**
+ * a renderable mesh of triangles that share their vertices through an index
+ * buffer<br>
+ * in contrast to a group no Triangle or Vector3d is held per face, face i is
+ * made of the vertices indices[3*i], indices[3*i+1] and indices[3*i+2] of the
+ * vertex buffer and all vertices are shaded at once<br>
+ * the faces are counter-clockwise: the normal of face (a,b,c) is
+ * (b-a)x(c-a)<br>
+ * if a material is set, every face is illuminated separately, otherwise all
+ * faces are drawn in the plain color<br>
+ * direct access to the buffers is permitted, invalidateLight() and
+ * invalidateBounds() have to be called after changing them directly
+ *
+ * @see fast3d.complex.VertexBuffer
+ * @author Tim Trense
+ */
+public class IndexedMesh extends java.lang.Object
+		implements Illuminatable, Bounded, Movable {
+
+	/**
+	 * the vertices of the mesh
+	 */
+	public final VertexBuffer vertices;
+	/**
+	 * three vertex-indices per face
+	 */
+	public final int[] indices;
+	/**
+	 * whether to skip the faces turning their back to the camera (unless the
+	 * material is double-sided)<br>
+	 * default true
+	 */
+	public boolean cullBackfaces = true;
+	private final Vector3d pos;
+	private Color color;
+	private Material material;
+	private final Vector3d boundingCenter = Vector3d.zero();
+	private double boundingRadius = -1;
+
+	private final Facet facet = new Facet(this);
+	private Color[] faceColors;
+	private boolean lit;
+	// the versions of the lights and the vertices the face colors were
+	// calculated for
+	private long litLights, litVertices;
+
+	private float[] xs, ys, zs;
+	private long[] visible;
+	private long[] order;
+	// marks the entries of order of the faces that have to be clipped
+	private static final long PARTIAL = 1L << 31;
+	private int orderCount;
+	private Graphics3d shadedFor;
+	// what the projections and the order were calculated for, they are
+	// reused while all of it stays the same
+	private Shader projectedFor;
+	private long projectedVersion;
+	private boolean projectedSort, projectedCull;
+
+	/**
+	 * @param pos
+	 *            the initial position of the mesh (reference), it is moved
+	 *            together with the vertices and is the center of rotations
+	 * @param vertices
+	 *            the vertices of the mesh
+	 * @param indices
+	 *            three vertex-indices per face
+	 * @param color
+	 *            the color of all faces if no material is set
+	 */
+	public IndexedMesh(final Vector3d pos, final VertexBuffer vertices,
+			final int[] indices, final Color color) {
+		if (indices.length % 3 != 0)
+			throw new IllegalArgumentException(
+					"indices need three vertices per face");
+		final int count = vertices.size();
+		for (int i : indices)
+			if (i < 0 || i >= count)
+				throw new IndexOutOfBoundsException("vertex-index " + i
+						+ " not in vertex buffer of size " + count);
+		this.pos = pos;
+		this.vertices = vertices;
+		this.indices = indices;
+		this.color = color;
+	}
+
+	/**
+	 * the initial position will be the center of the vertices
+	 *
+	 * @param vertices
+	 *            the vertices of the mesh
+	 * @param indices
+	 *            three vertex-indices per face
+	 * @param color
+	 *            the color of all faces if no material is set
+	 */
+	public IndexedMesh(final VertexBuffer vertices, final int[] indices,
+			final Color color) {
+		this(vertices.getCenter(), vertices, indices, color);
+	}
+
+	/**
+	 * builds a mesh of all triangles of the group<br>
+	 * vertices shared by reference between the triangles are stored only once
+	 * in the vertex buffer<br>
+	 * if the first triangle is an AdvTriangle, its material is used for the
+	 * mesh, otherwise its color
+	 *
+	 * @param group
+	 *            the group to convert, not changed
+	 * @return a new mesh looking like the group
+	 */
+	public static IndexedMesh fromGroup(final Group group) {
+		group.applyTransform();
+		final Map<Vector3d, Integer> ids = new IdentityHashMap<Vector3d, Integer>();
+		final int[] indices = new int[3 * group.capacity()];
+		int i = 0;
+		for (Triangle t : group.triangles)
+			for (Vector3d v : t.getVertices()) {
+				Integer id = ids.get(v);
+				if (id == null)
+					ids.put(v, id = ids.size());
+				indices[i++] = id;
+			}
+		final VertexBuffer vb = new VertexBuffer(ids.size(), false, false);
+		for (Map.Entry<Vector3d, Integer> e : ids.entrySet())
+			vb.setPosition(e.getValue(), e.getKey());
+		final Triangle first = group.capacity() > 0 ? group.triangles.get(0)
+				: null;
+		final IndexedMesh mesh = new IndexedMesh(group.getPos().clone(), vb,
+				indices, first != null ? first.getColor() : null);
+		if (first instanceof AdvTriangle)
+			mesh.setMaterial(((AdvTriangle) first).getMaterial());
+		return mesh;
+	}
+
+	/**
+	 * @return the count of faces
+	 */
+	public int capacity() {
+		return indices.length / 3;
+	}
+
+	/**
+	 * shades all vertices at once and illuminates the faces if needed<br>
+	 * the faces to draw are sorted far to near unless the graphics3d is
+	 * depth-buffered and this is opaque<br>
+	 * the projections and the order of the last frame are reused if neither
+	 * the view nor the vertices changed, the faces are illuminated again only
+	 * if this was invalidated or the vertices or the lights changed
+	 * 
+	 * @see Shader#hasSameView(Shader)
+	 * @see Graphics3d#getLightsVersion()
+	 */
+	@Override
+	public void shade(final Graphics3d s) {
+		shadedFor = s;
+		final Shader sh = s.getShader();
+		final boolean sort = !s.isDepthBuffered() || !isOpaque();
+		final boolean cull = cullBackfaces
+				&& (material == null || !material.doubleSided);
+		if (sh.hasSameView(projectedFor) && projectedVersion == getVersion()
+				&& projectedSort == sort && projectedCull == cull) {
+			if (orderCount > 0 && material != null && !isLit(s))
+				illuminate(s);
+			return;
+		}
+		projectedFor = sh;
+		projectedVersion = getVersion();
+		projectedSort = sort;
+		projectedCull = cull;
+		orderCount = 0;
+		if (!s.inFrustum(this))
+			return;
+		final int count = vertices.size();
+		final int faces = capacity();
+		if (xs == null || xs.length < count) {
+			xs = new float[count];
+			ys = new float[count];
+			zs = new float[count];
+			visible = new long[(count + 63) >>> 6];
+		}
+		if (order == null || order.length < faces)
+			order = new long[faces];
+		sh.projectAll(vertices.positions, 0, count, xs, ys, zs, visible);
+		if (material != null && !isLit(s))
+			illuminate(s);
+
+		orderCount = orderFaces(vertices.positions, indices, visible, order,
+				sh, sort, cull);
+	}
+
+	/**
+	 * draws all faces that were visible during shade(), the partially visible
+	 * ones are clipped
+	 */
+	@Override
+	public void render(final Graphics3d g) {
+		if (shadedFor != g)
+			shade(g);
+		drawFaces(g, vertices.positions, indices, xs, ys, zs, order,
+				orderCount, material != null ? faceColors : null, color);
+	}
+
+	/**
+	 * writes the visible faces to order, every entry holds the index of the
+	 * face, whether it is partially visible and if sorted the squared
+	 * distance of its center to the camera-position in the upper half<br>
+	 * shared by all renderables drawing indexed faces
+	 *
+	 * @param p
+	 *            the flat xyz-coordinates of the vertices in the universe
+	 * @param indices
+	 *            three vertex-indices per face
+	 * @param visible
+	 *            the visibility-bits of the projected vertices
+	 * @param order
+	 *            receives the entries, at least one per face
+	 * @param sh
+	 *            the shader the vertices were projected with
+	 * @param sort
+	 *            whether to sort the entries far to near
+	 * @param cull
+	 *            whether to skip the faces turning their back to the camera
+	 * @return the count of entries
+	 */
+	static int orderFaces(final float[] p, final int[] indices,
+			final long[] visible, final long[] order, final Shader sh,
+			final boolean sort, final boolean cull) {
+		final Vector3d cam = sh.cam.getPos();
+		final double cx = cam.x, cy = cam.y, cz = cam.z;
+		final boolean clipping = sh.isClipping();
+		final int faces = indices.length / 3;
+		int count = 0;
+		for (int f = 0; f < faces; f++) {
+			final int a = indices[3 * f], b = indices[3 * f + 1],
+					c = indices[3 * f + 2];
+			final boolean partial = !Shader.isVisible(visible, a)
+					|| !Shader.isVisible(visible, b)
+					|| !Shader.isVisible(visible, c);
+			if (partial && !clipping)
+				continue;
+			final int ia = 3 * a, ib = 3 * b, ic = 3 * c;
+			final double mx = (p[ia] + p[ib] + p[ic]) / 3 - cx;
+			final double my = (p[ia + 1] + p[ib + 1] + p[ic + 1]) / 3 - cy;
+			final double mz = (p[ia + 2] + p[ib + 2] + p[ic + 2]) / 3 - cz;
+			if (cull) {
+				final double ux = p[ib] - p[ia], uy = p[ib + 1] - p[ia + 1],
+						uz = p[ib + 2] - p[ia + 2];
+				final double vx = p[ic] - p[ia], vy = p[ic + 1] - p[ia + 1],
+						vz = p[ic + 2] - p[ia + 2];
+				if (sh.isBackface(p[ia], p[ia + 1], p[ia + 2],
+						uy * vz - uz * vy, uz * vx - ux * vz,
+						ux * vy - uy * vx))
+					continue;
+			}
+			// the squared distance is positive, so its float-bits are
+			// ordered just like the distance itself
+			final long key = sort ? Float
+					.floatToIntBits((float) (mx * mx + my * my + mz * mz))
+					: 0;
+			order[count++] = (key << 32) | f | (partial ? PARTIAL : 0);
+		}
+		if (sort)
+			Arrays.sort(order, 0, count);
+		return count;
+	}
+
+	/**
+	 * draws the faces of order from the last to the first entry, the
+	 * partially visible ones are clipped
+	 *
+	 * @see #orderFaces(float[], int[], long[], long[], Shader, boolean,
+	 *      boolean)
+	 * @param g
+	 *            the graphics to draw on
+	 * @param p
+	 *            the flat xyz-coordinates of the vertices in the universe
+	 * @param indices
+	 *            three vertex-indices per face
+	 * @param xs
+	 *            the projected x-coordinates of the vertices
+	 * @param ys
+	 *            the projected y-coordinates of the vertices
+	 * @param zs
+	 *            the depth-keys of the vertices
+	 * @param order
+	 *            the entries of the faces to draw
+	 * @param count
+	 *            the count of entries
+	 * @param faceColors
+	 *            the color per face or null to draw all in the plain color
+	 * @param color
+	 *            the plain color
+	 */
+	static void drawFaces(final Graphics3d g, final float[] p,
+			final int[] indices, final float[] xs, final float[] ys,
+			final float[] zs, final long[] order, final int count,
+			final Color[] faceColors, final Color color) {
+		Color current = null;
+		for (int i = count - 1; i >= 0; i--) {
+			final int f = (int) (order[i] & ~PARTIAL);
+			final Color col = faceColors != null ? faceColors[f] : color;
+			if (col == null)
+				continue;
+			if (col != current)
+				g.setColor(current = col);
+			final int a = indices[3 * f], b = indices[3 * f + 1],
+					c = indices[3 * f + 2];
+			if ((order[i] & PARTIAL) != 0) {
+				// not all vertices visible, let the graphics clip it
+				g.polygon(point(p, a), point(p, b), point(p, c));
+			} else
+				g.triangle(xs[a], ys[a], zs[a], xs[b], ys[b], zs[b], xs[c],
+						ys[c], zs[c]);
+		}
+	}
+
+	private static Vector3d point(final float[] p, final int i) {
+		return new Vector3d(p[3 * i], p[3 * i + 1], p[3 * i + 2]);
+	}
+
+	private void illuminate(final Graphics3d s) {
+		final int faces = capacity();
+		if (faceColors == null || faceColors.length != faces)
+			faceColors = new Color[faces];
+		for (int f = 0; f < faces; f++) {
+			facet.set(vertices.positions, vertices.normals, indices, f);
+			faceColors[f] = s.illuminateSurface(facet);
+		}
+		lit = true;
+		litLights = s.getLightsVersion();
+		litVertices = getVersion();
+	}
+
+	private boolean isLit(final Graphics3d s) {
+		return lit && litLights == s.getLightsVersion()
+				&& litVertices == getVersion();
+	}
+
+	private boolean isOpaque() {
+		if (material != null)
+			return material.alpha >= 1;
+		return color == null || color.isOpaque();
+	}
+
+	/**
+	 * the nearest puncture point of the ray with any face
+	 */
+	@Override
+	public Vector3d rayTrace(final Vector3d s, final Vector3d r) {
+		final float[] p = vertices.positions;
+		double nearest = Double.POSITIVE_INFINITY;
+		for (int f = 0; f < indices.length; f += 3) {
+			final int a = 3 * indices[f], b = 3 * indices[f + 1],
+					c = 3 * indices[f + 2];
+			final double e1x = p[b] - p[a], e1y = p[b + 1] - p[a + 1],
+					e1z = p[b + 2] - p[a + 2];
+			final double e2x = p[c] - p[a], e2y = p[c + 1] - p[a + 1],
+					e2z = p[c + 2] - p[a + 2];
+			final double hx = r.y * e2z - r.z * e2y,
+					hy = r.z * e2x - r.x * e2z, hz = r.x * e2y - r.y * e2x;
+			final double det = e1x * hx + e1y * hy + e1z * hz;
+			if (det == 0)
+				continue; // parallel to the face
+			final double inv = 1 / det;
+			final double tx = s.x - p[a], ty = s.y - p[a + 1],
+					tz = s.z - p[a + 2];
+			final double u = (tx * hx + ty * hy + tz * hz) * inv;
+			if (u < 0 || u > 1)
+				continue;
+			final double qx = ty * e1z - tz * e1y, qy = tz * e1x - tx * e1z,
+					qz = tx * e1y - ty * e1x;
+			final double v = (r.x * qx + r.y * qy + r.z * qz) * inv;
+			if (v < 0 || u + v > 1)
+				continue;
+			final double t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+			if (t > 1e-9 && t < nearest)
+				nearest = t;
+		}
+		if (nearest == Double.POSITIVE_INFINITY)
+			return null;
+		return new Vector3d(s.x + nearest * r.x, s.y + nearest * r.y,
+				s.z + nearest * r.z);
+	}
+
+	/**
+	 * returns a reference
+	 */
+	@Override
+	public Vector3d getPos() {
+		return pos;
+	}
+
+	/**
+	 * @return null, the vertices are not stored as Vector3d
+	 */
+	@Override
+	public Vector3d[] getVertices() {
+		return null;
+	}
+
+	/**
+	 * @return the plain color or if a material is set, its diffuse color with
+	 *         the materials alpha
+	 */
+	@Override
+	public Color getColor() {
+		if (material != null) {
+			final Color c = material.diffuse.clone();
+			c.a = material.alpha;
+			return c;
+		}
+		return color;
+	}
+
+	/**
+	 * @param color
+	 *            the color of all faces if no material is set
+	 */
+	public void setColor(final Color color) {
+		this.color = color;
+	}
+
+	/**
+	 * may return null
+	 */
+	@Override
+	public Material getMaterial() {
+		return material;
+	}
+
+	/**
+	 * calls invalidateLight()
+	 *
+	 * @param mat
+	 *            the material to illuminate the faces with (reference) or null
+	 *            to draw the plain color
+	 */
+	public void setMaterial(final Material mat) {
+		this.material = mat;
+		invalidateLight();
+	}
+
+	/**
+	 * @return the normal of the first face
+	 */
+	@Override
+	public Vector3d getNormal() {
+		if (indices.length == 0)
+			return null;
+		facet.set(vertices.positions, vertices.normals, indices, 0);
+		return facet.normal.clone();
+	}
+
+	@Override
+	public void invalidateLight() {
+		lit = false;
+	}
+
+	@Override
+	public void revalidateLight(final Light... lights) {
+		if (material == null)
+			return;
+		final int faces = capacity();
+		final Color[] cols = new Color[faces];
+		for (int f = 0; f < faces; f++) {
+			facet.set(vertices.positions, vertices.normals, indices, f);
+			cols[f] = Graphics3d.illuminateSurface(facet, lights);
+		}
+		faceColors = cols;
+		lit = true;
+		litLights = Graphics3d.lightsVersion(lights);
+		litVertices = getVersion();
+	}
+
+	/**
+	 * translates all vertices along the given vector and the position-vector
+	 * too
+	 *
+	 * @param dir
+	 *            the vector to add to all vertices
+	 */
+	public void moveInAbsoluteDirection(final Vector3d dir) {
+		pos.add(dir);
+		vertices.moveInAbsoluteDirection(dir);
+		if (boundingRadius >= 0)
+			boundingCenter.add(dir);
+		invalidateLight();
+	}
+
+	/**
+	 * moves in the absolute direction of the difference vector from the current
+	 * position to the target
+	 *
+	 * @param target
+	 *            the location where the position-vector will be after call
+	 */
+	public void moveTo(final Vector3d target) {
+		moveInAbsoluteDirection(pos.to(target));
+	}
+
+	/**
+	 * rotates the mesh around the specified axis
+	 *
+	 * @see #rot(Vector3d, double)
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotX(final double rad) {
+		rot(Vector3d.right(), rad);
+	}
+
+	/**
+	 * rotates the mesh around the specified axis
+	 *
+	 * @see #rot(Vector3d, double)
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotY(final double rad) {
+		rot(Vector3d.up(), rad);
+	}
+
+	/**
+	 * rotates the mesh around the specified axis
+	 *
+	 * @see #rot(Vector3d, double)
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotZ(final double rad) {
+		rot(Vector3d.forward(), rad);
+	}
+
+	/**
+	 * rotates all vertices and normals around the axis through the position
+	 *
+	 * @param axis
+	 *            the axe to rotate around in mathematically positive direction
+	 * @param rad
+	 *            the rotation angle in radiant
+	 */
+	public void rot(final Vector3d axis, final double rad) {
+		vertices.rot(pos, axis, rad);
+		if (boundingRadius >= 0) {
+			boundingCenter.sub(pos);
+			boundingCenter.rot(axis, rad);
+			boundingCenter.add(pos);
+		}
+		invalidateLight();
+	}
+
+	/**
+	 * scales every vertex by the given factor (just like Group.scale())
+	 *
+	 * @param factor
+	 *            the factor how to enlarge ]1;infinite[ or shrink ]0;1[ or
+	 *            mirror-scale ]-infinite;0[
+	 */
+	public void scale(final double factor) {
+		vertices.scale(factor);
+		if (boundingRadius >= 0) {
+			boundingCenter.scale(factor);
+			boundingRadius *= Math.abs(factor);
+		}
+		invalidateLight();
+	}
+
+	/**
+	 * the version changes whenever the vertices are changed by the methods of
+	 * the vertex buffer or of this
+	 * 
+	 * @see VertexBuffer#getVersion()
+	 * @return the current version of the vertices
+	 */
+	public long getVersion() {
+		return vertices.getVersion();
+	}
+
+	/**
+	 * the bounding sphere is calculated once and then moved, rotated and
+	 * scaled together with the vertices
+	 */
+	@Override
+	public Vector3d getBoundingCenter() {
+		validateBounds();
+		return boundingCenter;
+	}
+
+	@Override
+	public double getBoundingRadius() {
+		validateBounds();
+		return boundingRadius;
+	}
+
+	@Override
+	public void invalidateBounds() {
+		boundingRadius = -1;
+	}
+
+	private void validateBounds() {
+		if (boundingRadius >= 0)
+			return;
+		boundingCenter.set(vertices.getCenter());
+		final float[] p = vertices.positions;
+		double r = 0;
+		for (int i = 0; i < p.length; i += 3) {
+			final double dx = p[i] - boundingCenter.x,
+					dy = p[i + 1] - boundingCenter.y,
+					dz = p[i + 2] - boundingCenter.z;
+			r = Math.max(r, dx * dx + dy * dy + dz * dz);
+		}
+		// widened a little, the vertices are only float-precise
+		boundingRadius = Math.sqrt(r) * (1 + 1e-6) + 1e-6;
+	}
+
+	/**
+	 * the position will be cloned just like the vertex buffer, the index
+	 * buffer is shared
+	 */
+	@Override
+	protected IndexedMesh clone() {
+		final IndexedMesh m = new IndexedMesh(pos.clone(), vertices.clone(),
+				indices, color);
+		m.material = material;
+		m.cullBackfaces = cullBackfaces;
+		return m;
+	}
+
+	/**
+	 * @return fast3d.complex.IndexedMesh[_parameter_]
+	 */
+	@Override
+	public String toString() {
+		return "fast3d.complex.IndexedMesh[" + "capacity=" + capacity()
+				+ ";vertices=" + vertices + ";pos=" + pos + ";material="
+				+ material + "]";
+	}
+
+	/**
+	 * one face presented to the lights, reused for every face
+	 */
+	static class Facet implements Illuminatable {
+
+		private final Illuminatable owner;
+		private final Vector3d center = Vector3d.zero();
+		private final Vector3d normal = Vector3d.zero();
+
+		/**
+		 * @param owner
+		 *            the renderable offering the material and color
+		 */
+		Facet(final Illuminatable owner) {
+			this.owner = owner;
+		}
+
+		/**
+		 * @param p
+		 *            the flat xyz-coordinates of the vertices
+		 * @param n
+		 *            the flat xyz-coordinates of the normals, may be null
+		 * @param indices
+		 *            three vertex-indices per face
+		 * @param f
+		 *            the face to present
+		 */
+		void set(final float[] p, final float[] n, final int[] indices,
+				final int f) {
+			final int a = indices[3 * f], b = indices[3 * f + 1],
+					c = indices[3 * f + 2];
+			final int ia = 3 * a, ib = 3 * b, ic = 3 * c;
+			center.x = (p[ia] + p[ib] + p[ic]) / 3d;
+			center.y = (p[ia + 1] + p[ib + 1] + p[ic + 1]) / 3d;
+			center.z = (p[ia + 2] + p[ib + 2] + p[ic + 2]) / 3d;
+			if (n != null) {
+				normal.x = n[ia] + n[ib] + n[ic];
+				normal.y = n[ia + 1] + n[ib + 1] + n[ic + 1];
+				normal.z = n[ia + 2] + n[ib + 2] + n[ic + 2];
+			} else {
+				final double ux = p[ib] - p[ia], uy = p[ib + 1] - p[ia + 1],
+						uz = p[ib + 2] - p[ia + 2];
+				final double vx = p[ic] - p[ia], vy = p[ic + 1] - p[ia + 1],
+						vz = p[ic + 2] - p[ia + 2];
+				normal.x = uy * vz - uz * vy;
+				normal.y = uz * vx - ux * vz;
+				normal.z = ux * vy - uy * vx;
+			}
+			final double len = Math.sqrt(normal.x * normal.x
+					+ normal.y * normal.y + normal.z * normal.z);
+			if (len > 0) {
+				normal.x /= len;
+				normal.y /= len;
+				normal.z /= len;
+			}
+		}
+
+		@Override
+		public Vector3d[] getVertices() {
+			return null;
+		}
+
+		@Override
+		public void shade(final Graphics3d s) {
+		}
+
+		@Override
+		public void render(final Graphics3d g) {
+		}
+
+		@Override
+		public Color getColor() {
+			return owner.getColor();
+		}
+
+		@Override
+		public Vector3d rayTrace(final Vector3d s, final Vector3d r) {
+			return null;
+		}
+
+		@Override
+		public Vector3d getPos() {
+			return center;
+		}
+
+		@Override
+		public Material getMaterial() {
+			return owner.getMaterial();
+		}
+
+		@Override
+		public Vector3d getNormal() {
+			return normal;
+		}
+
+		@Override
+		public void invalidateLight() {
+		}
+
+		@Override
+		public void revalidateLight(final Light... lights) {
+		}
+	}
+}
@@ -0,0 +1,431 @@
+package fast3d.complex;
+
+import fast3d.Bounded;
+import fast3d.Movable;
+import fast3d.complex.light.Illuminatable;
+import fast3d.complex.light.Light;
+import fast3d.complex.light.Material;
+import fast3d.graphics.Color;
+import fast3d.graphics.Graphics3d;
+import fast3d.math.Matrix4d;
+import fast3d.math.Shader;
+import fast3d.math.Vector3d;
+
+/**
+ * a renderable placing a shared indexed mesh in the universe by its own
+ * transformation, so that the same model may be shown many times while its
+ * vertices are stored only once<br>
+ * the mesh is never changed by this: moving, rotating and scaling change the
+ * transformation only, which is applied to the vertices while shading and
+ * rendering into a buffer of the current thread<br>
+ * the faces are illuminated per instance, with the material of this or if
+ * none is set the one of the mesh<br>
+ * normals are transformed by the transformation itself, which is exact for
+ * rotations, translations and uniform scales<br>
+ * after changing the transformation directly changed() has to be called
+ *
+ * @see fast3d.complex.IndexedMesh
+ * @author Tim Trense
+ */
+public class Instance extends java.lang.Object
+		implements Illuminatable, Bounded, Movable {
+
+	private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+	/**
+	 * the shared mesh, its vertices are in model coordinates
+	 */
+	public final IndexedMesh mesh;
+	/**
+	 * transforms the model coordinates of the mesh to the universe
+	 */
+	public final Matrix4d transform;
+	private Material material;
+	private long version;
+
+	private final Vector3d pos = Vector3d.zero();
+	private final Vector3d boundingCenter = Vector3d.zero();
+	private double boundingRadius;
+	private boolean boundsValid;
+	private long boundsVersion, boundsMesh;
+	private final Matrix4d inverse = new Matrix4d();
+	private long inverseVersion = -1;
+
+	private final IndexedMesh.Facet facet = new IndexedMesh.Facet(this);
+	private Color[] faceColors;
+	private boolean lit;
+	private long litLights, litVersion, litMesh;
+	private boolean visible;
+	private Graphics3d shadedFor;
+
+	/**
+	 * places the mesh where it is
+	 *
+	 * @param mesh
+	 *            the mesh to show (reference, may be shared)
+	 */
+	public Instance(final IndexedMesh mesh) {
+		this(mesh, new Matrix4d());
+	}
+
+	/**
+	 * @param mesh
+	 *            the mesh to show (reference, may be shared)
+	 * @param transform
+	 *            the transformation from the model coordinates of the mesh to
+	 *            the universe (reference)
+	 */
+	public Instance(final IndexedMesh mesh, final Matrix4d transform) {
+		this.mesh = mesh;
+		this.transform = transform;
+	}
+
+	/**
+	 * tests the transformed bounding sphere against the frustum and
+	 * illuminates the faces if this was invalidated or the transformation,
+	 * the mesh or the lights changed
+	 */
+	@Override
+	public void shade(final Graphics3d s) {
+		shadedFor = s;
+		visible = s.inFrustum(this);
+		if (visible && getMaterial() != null && !isLit(s)) {
+			final Scratch sc = SCRATCH.get();
+			sc.transform(this);
+			illuminate(s, sc);
+		}
+	}
+
+	/**
+	 * transforms and projects all vertices and draws the faces like the mesh
+	 * would, but at the place of this
+	 */
+	@Override
+	public void render(final Graphics3d g) {
+		if (shadedFor != g)
+			shade(g);
+		if (!visible)
+			return;
+		final Shader sh = g.getShader();
+		final Material mat = getMaterial();
+		final boolean opaque = mat != null ? mat.alpha >= 1
+				: mesh.getColor() == null || mesh.getColor().isOpaque();
+		final boolean sort = !g.isDepthBuffered() || !opaque;
+		final boolean cull = mesh.cullBackfaces
+				&& (mat == null || !mat.doubleSided);
+		final Scratch sc = SCRATCH.get();
+		sc.transform(this);
+		final int count = mesh.vertices.size();
+		sh.projectAll(sc.world, 0, count, sc.xs, sc.ys, sc.zs, sc.visible);
+		final int entries = IndexedMesh.orderFaces(sc.world, mesh.indices,
+				sc.visible, sc.order, sh, sort, cull);
+		IndexedMesh.drawFaces(g, sc.world, mesh.indices, sc.xs, sc.ys, sc.zs,
+				sc.order, entries, mat != null ? faceColors : null,
+				mesh.getColor());
+	}
+
+	private void illuminate(final Graphics3d s, final Scratch sc) {
+		final int faces = mesh.capacity();
+		if (faceColors == null || faceColors.length != faces)
+			faceColors = new Color[faces];
+		for (int f = 0; f < faces; f++) {
+			facet.set(sc.world, sc.normals(mesh), mesh.indices, f);
+			faceColors[f] = s.illuminateSurface(facet);
+		}
+		lit = true;
+		litLights = s.getLightsVersion();
+		litVersion = version;
+		litMesh = mesh.getVersion();
+	}
+
+	private boolean isLit(final Graphics3d s) {
+		return lit && litLights == s.getLightsVersion()
+				&& litVersion == version && litMesh == mesh.getVersion();
+	}
+
+	/**
+	 * the nearest puncture point of the ray with any face of the mesh at the
+	 * place of this
+	 */
+	@Override
+	public Vector3d rayTrace(final Vector3d s, final Vector3d r) {
+		if (inverseVersion != version) {
+			inverse.set(transform).invert();
+			inverseVersion = version;
+		}
+		// the ray-parameter of the puncture point is the same in both spaces
+		final Vector3d hit = mesh.rayTrace(
+				inverse.transformPoint(s.clone()),
+				inverse.transformDirection(r.clone()));
+		return hit != null ? transform.transformPoint(hit) : null;
+	}
+
+	/**
+	 * returns a reference to the transformed position of the mesh
+	 */
+	@Override
+	public Vector3d getPos() {
+		validateBounds();
+		return pos;
+	}
+
+	/**
+	 * @return null, the vertices are not stored as Vector3d
+	 */
+	@Override
+	public Vector3d[] getVertices() {
+		return null;
+	}
+
+	/**
+	 * @return the color of the mesh or if a material is set, its diffuse
+	 *         color with the materials alpha
+	 */
+	@Override
+	public Color getColor() {
+		if (material != null) {
+			final Color c = material.diffuse.clone();
+			c.a = material.alpha;
+			return c;
+		}
+		return mesh.getColor();
+	}
+
+	/**
+	 * @return the material of this or if none is set, the one of the mesh
+	 */
+	@Override
+	public Material getMaterial() {
+		return material != null ? material : mesh.getMaterial();
+	}
+
+	/**
+	 * calls invalidateLight()
+	 *
+	 * @param mat
+	 *            the material to illuminate the faces with instead of the one
+	 *            of the mesh (reference) or null to use the one of the mesh
+	 */
+	public void setMaterial(final Material mat) {
+		this.material = mat;
+		invalidateLight();
+	}
+
+	/**
+	 * @return the transformed normal of the first face
+	 */
+	@Override
+	public Vector3d getNormal() {
+		final Vector3d n = mesh.getNormal();
+		return n != null ? transform.transformDirection(n).normalize() : null;
+	}
+
+	@Override
+	public void invalidateLight() {
+		lit = false;
+	}
+
+	@Override
+	public void revalidateLight(final Light... lights) {
+		if (getMaterial() == null)
+			return;
+		final Scratch sc = SCRATCH.get();
+		sc.transform(this);
+		final int faces = mesh.capacity();
+		final Color[] cols = new Color[faces];
+		for (int f = 0; f < faces; f++) {
+			facet.set(sc.world, sc.normals(mesh), mesh.indices, f);
+			cols[f] = Graphics3d.illuminateSurface(facet, lights);
+		}
+		faceColors = cols;
+		lit = true;
+		litLights = Graphics3d.lightsVersion(lights);
+		litVersion = version;
+		litMesh = mesh.getVersion();
+	}
+
+	/**
+	 * translates the transformation along the given vector
+	 *
+	 * @param dir
+	 *            the vector to move along
+	 */
+	@Override
+	public void moveInAbsoluteDirection(final Vector3d dir) {
+		transform.translate(dir);
+		changed();
+	}
+
+	/**
+	 * moves along the difference-vector from getPos() to target
+	 *
+	 * @param target
+	 *            the location where the position-vector will be after call
+	 */
+	@Override
+	public void moveTo(final Vector3d target) {
+		moveInAbsoluteDirection(getPos().to(target));
+	}
+
+	/**
+	 * rotates the transformation around the position
+	 *
+	 * @param axis
+	 *            the axe to rotate around in mathematically positive direction
+	 * @param rad
+	 *            the rotation angle in radiant
+	 */
+	public void rot(final Vector3d axis, final double rad) {
+		transform.rotate(getPos(), axis, rad);
+		changed();
+	}
+
+	/**
+	 * rotates around the constant x axis
+	 *
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotX(final double rad) {
+		rot(Vector3d.right(), rad);
+	}
+
+	/**
+	 * rotates around the constant y axis
+	 *
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotY(final double rad) {
+		rot(Vector3d.up(), rad);
+	}
+
+	/**
+	 * rotates around the constant z axis
+	 *
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotZ(final double rad) {
+		rot(Vector3d.forward(), rad);
+	}
+
+	/**
+	 * scales the transformation relative to the origin of the universe (just
+	 * like IndexedMesh.scale()), the position is scaled too
+	 *
+	 * @param factor
+	 *            the factor how to enlarge ]1;infinite[ or shrink ]0;1[ or
+	 *            mirror-scale ]-infinite;0[
+	 */
+	public void scale(final double factor) {
+		transform.scale(Vector3d.zero(), factor);
+		changed();
+	}
+
+	/**
+	 * @return the current version of the transformation, the mesh has its own
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the transformation was changed directly, the
+	 * methods of this call it themselves
+	 */
+	public void changed() {
+		version++;
+	}
+
+	/**
+	 * the bounding sphere of the mesh, transformed and widened by the largest
+	 * scale of the transformation
+	 */
+	@Override
+	public Vector3d getBoundingCenter() {
+		validateBounds();
+		return boundingCenter;
+	}
+
+	@Override
+	public double getBoundingRadius() {
+		validateBounds();
+		return boundingRadius;
+	}
+
+	@Override
+	public void invalidateBounds() {
+		boundsValid = false;
+	}
+
+	private void validateBounds() {
+		if (boundsValid && boundsVersion == version
+				&& boundsMesh == mesh.getVersion())
+			return;
+		transform.transformPoint(boundingCenter.set(mesh.getBoundingCenter()));
+		boundingRadius = mesh.getBoundingRadius() * transform.getMaxScale();
+		transform.transformPoint(pos.set(mesh.getPos()));
+		boundsValid = true;
+		boundsVersion = version;
+		boundsMesh = mesh.getVersion();
+	}
+
+	/**
+	 * the mesh is shared, the transformation is cloned
+	 */
+	@Override
+	protected Instance clone() {
+		final Instance i = new Instance(mesh, transform.clone());
+		i.material = material;
+		return i;
+	}
+
+	/**
+	 * @return fast3d.complex.Instance[_parameter_]
+	 */
+	@Override
+	public String toString() {
+		return "fast3d.complex.Instance[" + "mesh=" + mesh + ";transform="
+				+ transform + ";material=" + material + "]";
+	}
+
+	/**
+	 * the transformed vertices and their projections, one per thread and
+	 * reused by all instances
+	 */
+	private static final class Scratch {
+
+		private float[] world, normals, xs, ys, zs;
+		private long[] visible;
+		private long[] order;
+
+		private void transform(final Instance i) {
+			final VertexBuffer v = i.mesh.vertices;
+			final int count = v.size();
+			final int faces = i.mesh.capacity();
+			if (world == null || xs.length < count) {
+				world = new float[3 * count];
+				normals = new float[3 * count];
+				xs = new float[count];
+				ys = new float[count];
+				zs = new float[count];
+				visible = new long[(count + 63) >>> 6];
+			}
+			if (order == null || order.length < faces)
+				order = new long[faces];
+			i.transform.transformPoints(v.positions, 0, count, world);
+			if (v.normals != null)
+				i.transform.transformDirections(v.normals, 0, count, normals);
+		}
+
+		private float[] normals(final IndexedMesh mesh) {
+			return mesh.vertices.normals != null ? normals : null;
+		}
+	}
+}
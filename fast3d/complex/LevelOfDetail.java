@@ -0,0 +1,330 @@
+package fast3d.complex;
+
+import fast3d.Bounded;
+import fast3d.Movable;
+import fast3d.complex.light.Illuminatable;
+import fast3d.complex.light.Light;
+import fast3d.complex.light.Material;
+import fast3d.graphics.Color;
+import fast3d.graphics.Graphics3d;
+import fast3d.math.Vector3d;
+
+/**
+ * a renderable showing one of several groups of the same shape in different
+ * resolutions, chosen per frame by the size it appears on the screen<br>
+ * the levels are ordered from the finest to the coarsest, level i is shown
+ * while the projected diameter of the bounding sphere is at least
+ * getMinSize(i) pixel, the coarsest one down to minPixelSize<br>
+ * to not flicker between two levels at a border, the level is only changed
+ * if the size differs from the border by more than the hysteresis<br>
+ * all levels are moved, rotated and scaled together, ray-traces are done on
+ * the finest level
+ *
+ * @see fast3d.simple.shapes.GeometricBodyBuilder#buildLevelOfDetail()
+ * @author Tim Trense
+ */
+public class LevelOfDetail extends java.lang.Object
+		implements Illuminatable, Bounded, Movable {
+
+	/**
+	 * the initial value of hysteresis for every new level of detail<br>
+	 * default 0.2
+	 */
+	public static double defaultHysteresis = .2;
+
+	/**
+	 * the relative amount the projected size has to exceed a border to change
+	 * the level, e.g. 0.2 means a finer level is chosen at 120% of its minimal
+	 * size and a coarser one at 80% of the current minimal size
+	 */
+	public double hysteresis = defaultHysteresis;
+	/**
+	 * below this projected diameter in pixel nothing is drawn<br>
+	 * default 0
+	 */
+	public double minPixelSize = 0;
+
+	private final Group[] levels;
+	private final double[] minSizes;
+	private int current = -1;
+	private Group shown;
+
+	/**
+	 * @param levels
+	 *            the groups of the same shape from the finest to the coarsest,
+	 *            at least one
+	 * @param minSizes
+	 *            for every level the projected diameter in pixel from which on
+	 *            it is shown, descending, the one of the coarsest level is
+	 *            ignored
+	 */
+	public LevelOfDetail(final Group[] levels, final double[] minSizes) {
+		if (levels.length == 0)
+			throw new IllegalArgumentException("no level given");
+		if (minSizes.length != levels.length)
+			throw new IllegalArgumentException(
+					"one minimal size per level required");
+		for (int i = 1; i < minSizes.length - 1; i++)
+			if (minSizes[i] > minSizes[i - 1])
+				throw new IllegalArgumentException(
+						"minimal sizes must be descending");
+		this.levels = levels.clone();
+		this.minSizes = minSizes.clone();
+		this.minSizes[minSizes.length - 1] = 0;
+	}
+
+	/**
+	 * @return the count of levels
+	 */
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+	/**
+	 * @param level
+	 *            the index of the level, 0 is the finest
+	 * @return the group of the level (reference)
+	 */
+	public Group getLevel(final int level) {
+		return levels[level];
+	}
+
+	/**
+	 * @param level
+	 *            the index of the level, 0 is the finest
+	 * @return the projected diameter in pixel from which on the level is
+	 *         shown
+	 */
+	public double getMinSize(final int level) {
+		return minSizes[level];
+	}
+
+	/**
+	 * @return the index of the level chosen for the last frame, -1 if nothing
+	 *         was shown
+	 */
+	public int getCurrentLevel() {
+		return shown != null ? current : -1;
+	}
+
+	/**
+	 * chooses the level for the given projected size, starting from the
+	 * level of the last frame
+	 *
+	 * @param size
+	 *            the projected diameter in pixel
+	 * @return the index of the level to show, -1 if nothing is shown
+	 */
+	public int select(final double size) {
+		if (size < minPixelSize)
+			return -1;
+		int target = levels.length - 1;
+		for (int i = 0; i < levels.length - 1; i++)
+			if (size >= minSizes[i]) {
+				target = i;
+				break;
+			}
+		if (current < 0)
+			return current = target;
+		if (target < current) {
+			// finer: the size has to exceed the border of the level clearly
+			while (target < current
+					&& size < minSizes[target] * (1 + hysteresis))
+				target++;
+		} else if (target > current
+				&& size >= minSizes[current] * (1 - hysteresis))
+			target = current;
+		return current = target;
+	}
+
+	/**
+	 * chooses the level by the projected size of the bounding sphere and
+	 * shades it<br>
+	 * nothing is done if this is out of the cameras sight
+	 */
+	@Override
+	public void shade(final Graphics3d s) {
+		shown = null;
+		if (!s.inFrustum(this))
+			return;
+		final int level = select(s.projectedSize(this));
+		if (level < 0)
+			return;
+		shown = levels[level];
+		shown.shade(s);
+	}
+
+	/**
+	 * renders the level chosen during shade()
+	 */
+	@Override
+	public void render(final Graphics3d g) {
+		if (shown != null)
+			shown.render(g);
+	}
+
+	/**
+	 * @return the vertices of the finest level
+	 */
+	@Override
+	public Vector3d[] getVertices() {
+		return levels[0].getVertices();
+	}
+
+	@Override
+	public Color getColor() {
+		return levels[0].getColor();
+	}
+
+	/**
+	 * the puncture point with the finest level
+	 */
+	@Override
+	public Vector3d rayTrace(final Vector3d s, final Vector3d r) {
+		return levels[0].rayTrace(s, r);
+	}
+
+	/**
+	 * returns the position of the finest level as a reference
+	 */
+	@Override
+	public Vector3d getPos() {
+		return levels[0].getPos();
+	}
+
+	/**
+	 * @return the material of the finest level
+	 */
+	@Override
+	public Material getMaterial() {
+		return levels[0].getMaterial();
+	}
+
+	/**
+	 * @return the normal of the finest level
+	 */
+	@Override
+	public Vector3d getNormal() {
+		return levels[0].getNormal();
+	}
+
+	@Override
+	public void invalidateLight() {
+		for (Group g : levels)
+			g.invalidateLight();
+	}
+
+	@Override
+	public void revalidateLight(final Light... lights) {
+		for (Group g : levels)
+			g.revalidateLight(lights);
+	}
+
+	/**
+	 * the bounding sphere of the finest level
+	 */
+	@Override
+	public Vector3d getBoundingCenter() {
+		return levels[0].getBoundingCenter();
+	}
+
+	@Override
+	public double getBoundingRadius() {
+		return levels[0].getBoundingRadius();
+	}
+
+	@Override
+	public void invalidateBounds() {
+		for (Group g : levels)
+			g.invalidateBounds();
+	}
+
+	/**
+	 * moves all levels
+	 *
+	 * @param dir
+	 *            the vector to add to all levels
+	 */
+	@Override
+	public void moveInAbsoluteDirection(final Vector3d dir) {
+		for (Group g : levels)
+			g.moveInAbsoluteDirection(dir);
+	}
+
+	/**
+	 * moves all levels along the difference-vector from getPos() to target
+	 *
+	 * @param target
+	 *            the location where the position-vector will be after call
+	 */
+	@Override
+	public void moveTo(final Vector3d target) {
+		moveInAbsoluteDirection(getPos().to(target));
+	}
+
+	/**
+	 * rotates all levels around their positions
+	 *
+	 * @param axis
+	 *            the axe to rotate around in mathematically positive direction
+	 * @param rad
+	 *            the rotation angle in radiant
+	 */
+	public void rot(final Vector3d axis, final double rad) {
+		for (Group g : levels)
+			g.rot(axis, rad);
+	}
+
+	/**
+	 * rotates all levels around the constant x axis
+	 *
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotX(final double rad) {
+		rot(Vector3d.right(), rad);
+	}
+
+	/**
+	 * rotates all levels around the constant y axis
+	 *
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotY(final double rad) {
+		rot(Vector3d.up(), rad);
+	}
+
+	/**
+	 * rotates all levels around the constant z axis
+	 *
+	 * @param rad
+	 *            the radians-angle to rotate mathematically positive
+	 */
+	public void rotZ(final double rad) {
+		rot(Vector3d.forward(), rad);
+	}
+
+	/**
+	 * scales every vertex of all levels by the given factor
+	 *
+	 * @param factor
+	 *            the factor how to enlarge ]1;infinite[ or shrink ]0;1[ or
+	 *            mirror-scale ]-infinite;0[
+	 */
+	public void scale(final double factor) {
+		for (Group g : levels)
+			g.scale(factor);
+	}
+
+	/**
+	 *
+	 * @return fast3d.complex.LevelOfDetail[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.complex.LevelOfDetail[" + "levels=" + levels.length
+				+ ";currentLevel=" + getCurrentLevel() + ";hysteresis="
+				+ hysteresis + ";minPixelSize=" + minPixelSize + "]";
+	}
+}
@@ -6,12 +6,15 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Set;
 
+import fast3d.Bounded;
+import fast3d.Movable;
 import fast3d.Renderable;
 import fast3d.complex.light.Illuminatable;
 import fast3d.complex.light.Light;
 import fast3d.complex.light.Material;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
+import fast3d.math.Matrix4d;
 import fast3d.math.Vector3d;
 import fast3d.renderables.AdvTriangle;
 import fast3d.renderables.Triangle;
@@ -23,12 +26,16 @@ import fast3d.renderables.Triangle;
  * note: to add this to an universe does not mean to add the groups to the
  * universe, but just to make clicking and selecting work<br>
  * although the contained groups can be part of a 3d-object, they can be
- * independent
+ * independent<br>
+ * rotating and scaling compose the transformation with the pending ones of
+ * the groups, only if the groups share vertices they are transformed at
+ * once
  * 
+ * @see Group#applyTransform()
  * @author Tim Trense
  */
 public class Object extends java.lang.Object
-		implements Illuminatable {
+		implements Illuminatable, Bounded, Movable {
 
 	/**
 	 * direct access to the internal storage permitted
@@ -37,6 +44,11 @@ public class Object extends java.lang.Object
 	private final Vector3d pos;
 	private String objectID;
 	private Vector3d forward, up;
+	private final Vector3d boundingCenter = Vector3d.zero();
+	private long version;
+	private final VertexSet vertexSet = new VertexSet();
+
+	private static final Vector3d ORIGIN = Vector3d.zero();
 
 	/**
 	 * @param pos
@@ -111,19 +123,25 @@ public class Object extends java.lang.Object
 	}
 
 	/**
-	 * calls shade() for every hold Group
+	 * calls shade() for every hold Group<br>
+	 * nothing is done if the object is out of the cameras sight
 	 */
 	@Override
 	public void shade(final Graphics3d g) {
+		if (!g.inFrustum(this))
+			return;
 		for (Renderable r : groups)
 			r.shade(g);
 	}
 	
 	/**
-	 * calls render() for every hold Group, but in the sorted, right order
+	 * calls render() for every hold Group, but in the sorted, right order<br>
+	 * nothing is done if the object is out of the cameras sight
 	 */
 	@Override
 	public void render(final Graphics3d g) {
+		if (!g.inFrustum(this))
+			return;
 		final Renderable[] o = new Renderable[groups.size()];
 		groups.toArray(o);
 		g.sort(o);
@@ -207,6 +225,8 @@ public class Object extends java.lang.Object
 		pos.add(dir);
 		for (Group t : groups)
 			t.moveInAbsoluteDirection(dir);
+		// the groups changed themselves
+		version++;
 	}
 
 	/**
@@ -234,11 +254,15 @@ public class Object extends java.lang.Object
 
 	/**
 	 * an object is targeted if any of its groups is targeted<br>
-	 * does not necessarily return the nearest to rayOrig puncture point
+	 * does not necessarily return the nearest to rayOrig puncture point<br>
+	 * nothing is tested if the ray misses the bounding sphere
 	 */
 	@Override
 	public Vector3d rayTrace(final Vector3d rayOrig,
 			final Vector3d rayDir) {
+		if (!BVH.hitsSphere(rayOrig, rayDir, getBoundingCenter(),
+				getBoundingRadius()))
+			return null;
 		Vector3d v;
 		for (Group t : groups)
 			if ((v = t.rayTrace(rayOrig, rayDir)) != null)
@@ -303,14 +327,8 @@ public class Object extends java.lang.Object
 	 *            the rotation angle in radiant
 	 */
 	public void rot(final Vector3d axis, final double rad) {
-		for (Vector3d v : getVerticesOnce()) {
-			v.sub(pos);
-			v.rot(axis, rad);
-			v.add(pos);
-		}
-		for (Triangle t : getTrianglesOnce())
-			if (t instanceof AdvTriangle)
-				t.getNormal().rot(axis, rad);
+		transform(new Matrix4d().rotate(pos, axis, rad),
+				new Matrix4d().rotate(ORIGIN, axis, rad));
 		forward.rot(axis, rad);
 		up.rot(axis, rad);
 	}
@@ -597,8 +615,134 @@ public class Object extends java.lang.Object
 	 *            mirror-scale ]-infinite;0[
 	 */
 	public void scale(final double factor) {
-		for (Vector3d v : getVerticesOnce())
-			v.scale(factor);
+		transform(new Matrix4d().scale(ORIGIN, factor), new Matrix4d());
+	}
+
+	/**
+	 * the version changes whenever this is moved, rotated or scaled
+	 * 
+	 * @see #changed()
+	 * @return the current version of the vertices of this
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the vertices of this were changed directly, the
+	 * methods of this call it themselves<br>
+	 * changes the version of this and of all groups
+	 * 
+	 * @see Triangle#changed()
+	 */
+	public void changed() {
+		version++;
+		vertexSet.invalidate();
+		for (Group t : groups)
+			t.changed();
+	}
+
+	/**
+	 * the bounding sphere encloses the cached bounding spheres of all groups
+	 */
+	@Override
+	public Vector3d getBoundingCenter() {
+		enclose(boundingCenter, groups);
+		return boundingCenter;
+	}
+
+	@Override
+	public double getBoundingRadius() {
+		return enclose(boundingCenter, groups);
+	}
+
+	/**
+	 * invalidates the bounds of every group
+	 */
+	@Override
+	public void invalidateBounds() {
+		for (Group g : groups)
+			g.invalidateBounds();
+	}
+
+	/**
+	 * calculates a sphere enclosing all the given spheres
+	 *
+	 * @param center
+	 *            receives the center of the sphere
+	 * @param parts
+	 *            the bounded to enclose
+	 * @return the radius of the sphere
+	 */
+	static double enclose(final Vector3d center,
+			final List<? extends Bounded> parts) {
+		double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+		for (Bounded b : parts) {
+			final Vector3d c = b.getBoundingCenter();
+			final double r = b.getBoundingRadius();
+			minX = Math.min(minX, c.x - r);
+			maxX = Math.max(maxX, c.x + r);
+			minY = Math.min(minY, c.y - r);
+			maxY = Math.max(maxY, c.y + r);
+			minZ = Math.min(minZ, c.z - r);
+			maxZ = Math.max(maxZ, c.z + r);
+		}
+		if (minX > maxX)
+			return 0;
+		center.x = (minX + maxX) / 2;
+		center.y = (minY + maxY) / 2;
+		center.z = (minZ + maxZ) / 2;
+		double radius = 0;
+		for (Bounded b : parts)
+			radius = Math.max(radius, center.distanceTo(b.getBoundingCenter())
+					+ b.getBoundingRadius());
+		return radius;
+	}
+
+	/**
+	 * transforms all vertices of the groups and the normals of their
+	 * AdvTriangles: composed with the pending transformations of the groups
+	 * if they are disjoint, otherwise at once
+	 *
+	 * @param points
+	 *            the transformation of the vertices
+	 * @param normals
+	 *            the transformation of the normals
+	 */
+	void transform(final Matrix4d points, final Matrix4d normals) {
+		if (vertexSet.validate(groups, false))
+			for (Group g : groups)
+				g.transform(points, normals);
+		else {
+			applyTransform();
+			vertexSet.transform(points, normals);
+			transformed(points);
+		}
+		version++;
+	}
+
+	/**
+	 * changes the version of all groups after their vertices were transformed
+	 * directly by this or a scene containing this
+	 *
+	 * @param points
+	 *            the transformation of the vertices
+	 */
+	void transformed(final Matrix4d points) {
+		for (Group g : groups)
+			g.transformed(points);
+		version++;
+	}
+
+	/**
+	 * applies the pending transformations of all groups
+	 *
+	 * @see Group#applyTransform()
+	 */
+	public void applyTransform() {
+		for (Group g : groups)
+			g.applyTransform();
 	}
 
 	/**
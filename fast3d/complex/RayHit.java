@@ -0,0 +1,124 @@
+package fast3d.complex;
+
+import java.util.Map;
+
+import fast3d.Renderable;
+import fast3d.math.Vector3d;
+
+/**
+ * the nearest renderable targeted by a ray, its puncture point with the ray
+ * and the distance of that point to the start of the ray<br>
+ * only puncture points in the direction of the ray from its start on count
+ * as hits
+ *
+ * @see Universe#rayTraceClosest(Vector3d, Vector3d, double)
+ * @author Tim Trense
+ */
+public class RayHit {
+
+	private final Renderable renderable;
+	private final Vector3d point;
+	private final double distance;
+
+	/**
+	 * @param renderable
+	 *            the renderable targeted by the ray
+	 * @param point
+	 *            its puncture point with the ray
+	 * @param distance
+	 *            the distance of the puncture point to the start of the ray
+	 */
+	public RayHit(final Renderable renderable, final Vector3d point,
+			final double distance) {
+		this.renderable = renderable;
+		this.point = point;
+		this.distance = distance;
+	}
+
+	/**
+	 * @return the renderable targeted by the ray
+	 */
+	public Renderable getRenderable() {
+		return renderable;
+	}
+
+	/**
+	 * @return the puncture point of the renderable with the ray
+	 */
+	public Vector3d getPoint() {
+		return point;
+	}
+
+	/**
+	 * @return the distance of the puncture point to the start of the ray
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	/**
+	 * creates no object
+	 *
+	 * @param s
+	 *            the start of the ray
+	 * @param r
+	 *            the direction of the ray
+	 * @param p
+	 *            any point
+	 * @return the multiple of the direction to get from the start to the
+	 *         projection of the point onto the ray (negative if the point is
+	 *         behind the start, NaN if the direction is zero)
+	 */
+	public static double param(final Vector3d s, final Vector3d r,
+			final Vector3d p) {
+		final double rr = r.x * r.x + r.y * r.y + r.z * r.z;
+		return ((p.x - s.x) * r.x + (p.y - s.y) * r.y + (p.z - s.z) * r.z)
+				/ rr;
+	}
+
+	/**
+	 * searches the puncture points of a full ray-trace for the nearest hit
+	 *
+	 * @param punctures
+	 *            all renderables targeted by the ray and their puncture points
+	 * @param s
+	 *            the start of the ray
+	 * @param r
+	 *            the direction of the ray
+	 * @param maxDistance
+	 *            the maximal distance of a hit to the start of the ray
+	 * @return the nearest hit or null if there is none within the distance
+	 */
+	public static RayHit closest(final Map<Renderable, Vector3d> punctures,
+			final Vector3d s, final Vector3d r, final double maxDistance) {
+		if (punctures == null)
+			return null;
+		final double length = r.length();
+		double tmax = maxDistance / length;
+		Renderable closest = null;
+		Vector3d point = null;
+		for (Map.Entry<Renderable, Vector3d> e : punctures.entrySet()) {
+			final Vector3d p = e.getValue();
+			if (p == null)
+				continue;
+			final double t = param(s, r, p);
+			if (t >= 0 && t <= tmax) {
+				tmax = t;
+				closest = e.getKey();
+				point = p;
+			}
+		}
+		return closest == null ? null
+				: new RayHit(closest, point, tmax * length);
+	}
+
+	/**
+	 *
+	 * @return fast3d.complex.RayHit[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.complex.RayHit[" + "renderable=" + renderable
+				+ ";point=" + point + ";distance=" + distance + "]";
+	}
+}
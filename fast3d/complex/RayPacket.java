@@ -0,0 +1,185 @@
+package fast3d.complex;
+
+import java.util.Arrays;
+
+import fast3d.Renderable;
+import fast3d.math.Vector3d;
+
+/**
+ * a bundle of rays traced together, e.g. the primary rays of a block of
+ * pixels<br>
+ * the rays are stored in primitive arrays, so tracing a packet creates no
+ * vector per ray, and the tests of the bounding volumes and the setup of a
+ * triangle are done once for all rays of the packet<br>
+ * after tracing, hit[i] is the nearest renderable hit by ray i (null if
+ * none) and t[i] the multiple of its direction to get from its start to the
+ * puncture point<br>
+ * not thread-safe, every thread should trace its own packet
+ *
+ * @see Universe#rayTraceClosest(RayPacket)
+ * @author Tim Trense
+ */
+public class RayPacket {
+
+	/**
+	 * the starts of the rays
+	 */
+	public final double[] ox, oy, oz;
+	/**
+	 * the directions of the rays
+	 */
+	public final double[] dx, dy, dz;
+	/**
+	 * before tracing the multiple of the direction up to which hits count,
+	 * afterwards the multiple at the nearest hit
+	 */
+	public final double[] t;
+	/**
+	 * the nearest renderable hit by each ray, null if none
+	 */
+	public final Renderable[] hit;
+	private int size;
+
+	/**
+	 * @param capacity
+	 *            the maximal count of rays, e.g. 64 for blocks of 8x8 pixels
+	 */
+	public RayPacket(final int capacity) {
+		ox = new double[capacity];
+		oy = new double[capacity];
+		oz = new double[capacity];
+		dx = new double[capacity];
+		dy = new double[capacity];
+		dz = new double[capacity];
+		t = new double[capacity];
+		hit = new Renderable[capacity];
+	}
+
+	/**
+	 * @return the count of rays in the packet
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the maximal count of rays in the packet
+	 */
+	public int capacity() {
+		return t.length;
+	}
+
+	/**
+	 * removes all rays
+	 */
+	public void clear() {
+		Arrays.fill(hit, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * adds a ray
+	 *
+	 * @param sx
+	 *            the x-coordinate of the start
+	 * @param sy
+	 *            the y-coordinate of the start
+	 * @param sz
+	 *            the z-coordinate of the start
+	 * @param rx
+	 *            the x-coordinate of the direction
+	 * @param ry
+	 *            the y-coordinate of the direction
+	 * @param rz
+	 *            the z-coordinate of the direction
+	 * @param maxDistance
+	 *            the maximal distance of a hit to the start
+	 * @return the index of the ray
+	 */
+	public int add(final double sx, final double sy, final double sz,
+			final double rx, final double ry, final double rz,
+			final double maxDistance) {
+		if (size == t.length)
+			throw new IllegalStateException("packet is full");
+		final int i = size++;
+		ox[i] = sx;
+		oy[i] = sy;
+		oz[i] = sz;
+		dx[i] = rx;
+		dy[i] = ry;
+		dz[i] = rz;
+		final double length = Math.sqrt(rx * rx + ry * ry + rz * rz);
+		// a ray without direction hits nothing
+		t[i] = length > 0 ? maxDistance / length : -1;
+		hit[i] = null;
+		return i;
+	}
+
+	/**
+	 * records a hit if it is in front of the start of the ray and nearer than
+	 * the one recorded so far
+	 *
+	 * @param ray
+	 *            the index of the ray
+	 * @param r
+	 *            the renderable hit
+	 * @param at
+	 *            the multiple of the direction at the puncture point
+	 * @return whether the hit was recorded
+	 */
+	public boolean offer(final int ray, final Renderable r, final double at) {
+		if (!(at >= 0 && at <= t[ray]))
+			return false;
+		t[ray] = at;
+		hit[ray] = r;
+		return true;
+	}
+
+	/**
+	 * @param ray
+	 *            the index of the ray
+	 * @return the distance of the nearest hit to the start of the ray
+	 */
+	public double distance(final int ray) {
+		return t[ray] * Math.sqrt(dx[ray] * dx[ray] + dy[ray] * dy[ray]
+				+ dz[ray] * dz[ray]);
+	}
+
+	/**
+	 * @param ray
+	 *            the index of the ray
+	 * @return a new vector at the nearest puncture point of the ray
+	 */
+	public Vector3d point(final int ray) {
+		return new Vector3d(ox[ray] + t[ray] * dx[ray],
+				oy[ray] + t[ray] * dy[ray], oz[ray] + t[ray] * dz[ray]);
+	}
+
+	/**
+	 * @param ray
+	 *            the index of the ray
+	 * @return a new vector at the start of the ray
+	 */
+	public Vector3d start(final int ray) {
+		return new Vector3d(ox[ray], oy[ray], oz[ray]);
+	}
+
+	/**
+	 * @param ray
+	 *            the index of the ray
+	 * @return a new vector of the direction of the ray
+	 */
+	public Vector3d direction(final int ray) {
+		return new Vector3d(dx[ray], dy[ray], dz[ray]);
+	}
+
+	/**
+	 *
+	 * @return fast3d.complex.RayPacket[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.complex.RayPacket[" + "size=" + size + ";capacity="
+				+ t.length + "]";
+	}
+}
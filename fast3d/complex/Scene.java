@@ -6,12 +6,15 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Set;
 
+import fast3d.Bounded;
+import fast3d.Movable;
 import fast3d.Renderable;
 import fast3d.complex.light.Illuminatable;
 import fast3d.complex.light.Light;
 import fast3d.complex.light.Material;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
+import fast3d.math.Matrix4d;
 import fast3d.math.Vector3d;
 import fast3d.renderables.AdvTriangle;
 import fast3d.renderables.Triangle;
@@ -23,11 +26,16 @@ import fast3d.renderables.Triangle;
  * note: to add this to an universe does not mean to add the objects to the
  * universe, but just to make clicking and selecting work<br>
  * although the contained objects can be part of a stringent 3d-scenery, they
- * can be independent
+ * can be independent<br>
+ * rotating and scaling compose the transformation with the pending ones of
+ * the groups of all objects, only if the groups share vertices they are
+ * transformed at once
  * 
+ * @see Group#applyTransform()
  * @author Tim Trense
  */
-public class Scene extends java.lang.Object implements Illuminatable {
+public class Scene extends java.lang.Object
+		implements Illuminatable, Bounded, Movable {
 
 	/**
 	 * direct access to the internal storage permitted
@@ -35,6 +43,11 @@ public class Scene extends java.lang.Object implements Illuminatable {
 	public final List<Object> objs;
 	private final Vector3d pos;
 	private Vector3d forward, up;
+	private final Vector3d boundingCenter = Vector3d.zero();
+	private long version;
+	private final VertexSet vertexSet = new VertexSet();
+
+	private static final Vector3d ORIGIN = Vector3d.zero();
 
 	/**
 	 * @param pos
@@ -88,18 +101,24 @@ public class Scene extends java.lang.Object implements Illuminatable {
 	}
 
 	/**
-	 * shades all contained objects
+	 * shades all contained objects<br>
+	 * nothing is done if the scene is out of the cameras sight
 	 */
 	@Override
 	public void shade(final Graphics3d g) {
+		if (!g.inFrustum(this))
+			return;
 		for (Renderable r : objs)
 			r.shade(g);
 	}
 	/**
-	 * renders all objects in the sorted, correct order
+	 * renders all objects in the sorted, correct order<br>
+	 * nothing is done if the scene is out of the cameras sight
 	 */
 	@Override
 	public void render(final Graphics3d g) {
+		if (!g.inFrustum(this))
+			return;
 		final Renderable[] o = new Renderable[objs.size()];
 		objs.toArray(o);
 		g.sort(o);
@@ -181,6 +200,8 @@ public class Scene extends java.lang.Object implements Illuminatable {
 		pos.add(dir);
 		for (Object t : objs)
 			t.moveInAbsoluteDirection(dir);
+		// the objects changed themselves
+		version++;
 	}
 
 	/**
@@ -210,11 +231,15 @@ public class Scene extends java.lang.Object implements Illuminatable {
 	}
 
 	/**
-	 * a scene is targeted if any of its objects is targeted
+	 * a scene is targeted if any of its objects is targeted<br>
+	 * nothing is tested if the ray misses the bounding sphere
 	 */
 	@Override
 	public Vector3d rayTrace(final Vector3d rayOrig,
 			final Vector3d rayDir) {
+		if (!BVH.hitsSphere(rayOrig, rayDir, getBoundingCenter(),
+				getBoundingRadius()))
+			return null;
 		Vector3d v;
 		for (Object t : objs)
 			if ((v = t.rayTrace(rayOrig, rayDir)) != null)
@@ -279,14 +304,8 @@ public class Scene extends java.lang.Object implements Illuminatable {
 	 *            the rotation angle in radiant
 	 */
 	public void rot(final Vector3d axis, final double rad) {
-		for (Vector3d v : getVerticesOnce()) {
-			v.sub(pos);
-			v.rot(axis, rad);
-			v.add(pos);
-		}
-		for (Triangle t : getTrianglesOnce())
-			if (t instanceof AdvTriangle)
-				t.getNormal().rot(axis, rad);
+		transform(new Matrix4d().rotate(pos, axis, rad),
+				new Matrix4d().rotate(ORIGIN, axis, rad));
 		forward.rot(axis, rad);
 		up.rot(axis, rad);
 	}
@@ -572,8 +591,92 @@ public class Scene extends java.lang.Object implements Illuminatable {
 	 *            mirror-scale ]-infinite;0[
 	 */
 	public void scale(final double factor) {
-		for (Vector3d v : getVerticesOnce())
-			v.scale(factor);
+		transform(new Matrix4d().scale(ORIGIN, factor), new Matrix4d());
+	}
+
+	/**
+	 * transforms all vertices of the objects and the normals of their
+	 * AdvTriangles: composed with the pending transformations of the groups
+	 * if all groups are disjoint, otherwise at once
+	 */
+	private void transform(final Matrix4d points, final Matrix4d normals) {
+		if (vertexSet.validate(getGroups(), false))
+			for (Object o : objs)
+				o.transform(points, normals);
+		else {
+			applyTransform();
+			vertexSet.transform(points, normals);
+			for (Object o : objs)
+				o.transformed(points);
+		}
+		version++;
+	}
+
+	/**
+	 * @return a new list of the groups of all objects
+	 */
+	private List<Group> getGroups() {
+		final List<Group> all = new ArrayList<Group>();
+		for (Object o : objs)
+			all.addAll(o.groups);
+		return all;
+	}
+
+	/**
+	 * applies the pending transformations of the groups of all objects
+	 *
+	 * @see Group#applyTransform()
+	 */
+	public void applyTransform() {
+		for (Object o : objs)
+			o.applyTransform();
+	}
+
+	/**
+	 * the version changes whenever this is moved, rotated or scaled
+	 * 
+	 * @see #changed()
+	 * @return the current version of the vertices of this
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the vertices of this were changed directly, the
+	 * methods of this call it themselves<br>
+	 * changes the version of this and of all objects
+	 * 
+	 * @see Triangle#changed()
+	 */
+	public void changed() {
+		version++;
+		vertexSet.invalidate();
+		for (Object t : objs)
+			t.changed();
+	}
+
+	/**
+	 * the bounding sphere encloses the bounding spheres of all objects
+	 */
+	@Override
+	public Vector3d getBoundingCenter() {
+		Object.enclose(boundingCenter, objs);
+		return boundingCenter;
+	}
+
+	@Override
+	public double getBoundingRadius() {
+		return Object.enclose(boundingCenter, objs);
+	}
+
+	/**
+	 * invalidates the bounds of every object
+	 */
+	@Override
+	public void invalidateBounds() {
+		for (Object o : objs)
+			o.invalidateBounds();
 	}
 
 	/**
@@ -1,6 +1,7 @@
 package fast3d.complex;
 
 import java.util.Hashtable;
+import java.util.Map;
 
 import fast3d.Renderable;
 import fast3d.complex.light.Light;
@@ -96,6 +97,124 @@ public interface Universe {
 	 *         panel3d-screen and it's puncture point with the ray
 	 */
 	public Hashtable<Renderable, Vector3d> rayTrace(final Vector3d s, final Vector3d r);
+
+	/**
+	 * searches the nearest renderable in the direction of the ray, e.g. for
+	 * picking or the first hit of a fragment-ray<br>
+	 * by default the result of rayTrace() is searched, an implementation
+	 * should stop searching as soon as nothing nearer can be found
+	 *
+	 * @param s
+	 *            the start-vector of the ray
+	 * @param r
+	 *            the direction-vector of the ray
+	 * @param maxDistance
+	 *            the maximal distance of a hit to the start of the ray
+	 * @return the nearest hit or null if nothing is hit within the distance
+	 */
+	public default RayHit rayTraceClosest(final Vector3d s, final Vector3d r,
+			final double maxDistance) {
+		return RayHit.closest(rayTrace(s, r), s, r, maxDistance);
+	}
+
+	/**
+	 * searches the nearest renderable for every ray of the packet, e.g. for
+	 * the primary rays of a block of pixels<br>
+	 * by default every ray is traced on its own by rayTraceClosest(), an
+	 * implementation should trace the rays together
+	 *
+	 * @param packet
+	 *            the rays to trace, their hits are written to it
+	 */
+	public default void rayTraceClosest(final RayPacket packet) {
+		for (int i = 0; i < packet.size(); i++) {
+			if (!(packet.t[i] >= 0))
+				continue;
+			final Vector3d s = packet.start(i), r = packet.direction(i);
+			final RayHit hit = rayTraceClosest(s, r, packet.distance(i));
+			if (hit != null)
+				packet.offer(i, hit.getRenderable(),
+						RayHit.param(s, r, hit.getPoint()));
+		}
+	}
+
+	/**
+	 * tests whether anything is in the way of the ray, e.g. for shadows<br>
+	 * by default the result of rayTrace() is searched, an implementation
+	 * should stop at the first hit
+	 *
+	 * @param s
+	 *            the start-vector of the ray
+	 * @param r
+	 *            the direction-vector of the ray
+	 * @param maxDistance
+	 *            the maximal distance of a hit to the start of the ray
+	 * @param ignore
+	 *            a renderable not to count as hit (e.g. the one the ray
+	 *            starts on), may be null
+	 * @return whether any renderable but the ignored one is hit in the
+	 *         direction of the ray within the distance
+	 */
+	public default boolean rayTraceAny(final Vector3d s, final Vector3d r,
+			final double maxDistance, final Renderable ignore) {
+		final Hashtable<Renderable, Vector3d> all = rayTrace(s, r);
+		if (all == null)
+			return false;
+		final double tmax = maxDistance / r.length();
+		for (Map.Entry<Renderable, Vector3d> e : all.entrySet()) {
+			if (e.getKey() == ignore || e.getValue() == null)
+				continue;
+			final double t = RayHit.param(s, r, e.getValue());
+			if (t >= 0 && t <= tmax)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * indicates that renderables may have moved, so that an acceleration
+	 * structure used by rayTrace() has to be fitted to them again before the
+	 * next query<br>
+	 * called by the Panel3d once per frame after preRender(), an
+	 * implementation watching groups applies their pending transformations
+	 * here first<br>
+	 * does nothing by default
+	 * 
+	 * @see fast3d.complex.BVH#refit()
+	 * @see #watchTransform(Group)
+	 */
+	public default void invalidateBounds() {
+	}
+
+	/**
+	 * called by Group.addToUniverse() for a group whose triangles were added
+	 * to this on their own, so that the pending transformation of the group
+	 * is applied to them by invalidateBounds() before they are rendered<br>
+	 * does nothing by default, then the group applies every transformation
+	 * to its triangles at once as long as they are added to this
+	 * 
+	 * @see Group#applyTransform()
+	 * @param g
+	 *            the group to watch
+	 * @return whether this applies the pending transformations of the
+	 *         watched groups by invalidateBounds(), false by default
+	 */
+	public default boolean watchTransform(final Group g) {
+		return false;
+	}
+
+	/**
+	 * called by Group.removeFromUniverse(), the group is not watched any
+	 * longer<br>
+	 * does nothing by default
+	 * 
+	 * @param g
+	 *            the group to stop watching
+	 * @return the same as watchTransform(), false by default
+	 */
+	public default boolean unwatchTransform(final Group g) {
+		return false;
+	}
 	
 	/**
 	 * for all Illuminatables invalidateLight() is called
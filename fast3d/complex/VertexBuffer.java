@@ -0,0 +1,256 @@
+package fast3d.complex;
+
+import fast3d.math.Matrix3d;
+import fast3d.math.Vector3d;
+
+/**
+ * a vertex buffer stores the vertices of a mesh as a structure of primitive
+ * arrays instead of one Vector3d per vertex<br>
+ * vertex i has the position (positions[3*i], positions[3*i+1],
+ * positions[3*i+2]), the optional normal at the same indices in normals and
+ * the optional texture coordinate (uvs[2*i], uvs[2*i+1])<br>
+ * direct access to the arrays is permitted
+ *
+ * @see fast3d.complex.IndexedMesh
+ * @author Tim Trense
+ */
+public class VertexBuffer {
+
+	/**
+	 * the flat xyz-coordinates of all vertices
+	 */
+	public final float[] positions;
+	/**
+	 * the flat xyz-coordinates of the normal-vectors of all vertices, may be
+	 * null
+	 */
+	public final float[] normals;
+	/**
+	 * the flat uv-texture-coordinates of all vertices, may be null
+	 */
+	public final float[] uvs;
+	private long version;
+
+	/**
+	 * constructs a vertex buffer around the given arrays (not cloned)
+	 *
+	 * @param positions
+	 *            the flat xyz-coordinates of all vertices, not null
+	 * @param normals
+	 *            the flat xyz-coordinates of the vertices normal-vectors, may
+	 *            be null
+	 * @param uvs
+	 *            the flat uv-texture-coordinates of all vertices, may be null
+	 */
+	public VertexBuffer(final float[] positions, final float[] normals,
+			final float[] uvs) {
+		if (positions.length % 3 != 0)
+			throw new IllegalArgumentException(
+					"positions need three coordinates per vertex");
+		if (normals != null && normals.length != positions.length)
+			throw new IllegalArgumentException(
+					"normals need three coordinates per vertex");
+		if (uvs != null && uvs.length * 3 != positions.length * 2)
+			throw new IllegalArgumentException(
+					"uvs need two coordinates per vertex");
+		this.positions = positions;
+		this.normals = normals;
+		this.uvs = uvs;
+	}
+
+	/**
+	 * constructs an empty vertex buffer where all vertices are at zero
+	 *
+	 * @param vertexCount
+	 *            the count of vertices
+	 * @param withNormals
+	 *            whether to allocate normals
+	 * @param withUVs
+	 *            whether to allocate texture-coordinates
+	 */
+	public VertexBuffer(final int vertexCount, final boolean withNormals,
+			final boolean withUVs) {
+		this(new float[3 * vertexCount],
+				withNormals ? new float[3 * vertexCount] : null,
+				withUVs ? new float[2 * vertexCount] : null);
+	}
+
+	/**
+	 * @return the count of vertices in this buffer
+	 */
+	public int size() {
+		return positions.length / 3;
+	}
+
+	/**
+	 * @param i
+	 *            the index of the vertex
+	 * @return an independent vector of the position of the vertex
+	 */
+	public Vector3d getPosition(final int i) {
+		return new Vector3d(positions[3 * i], positions[3 * i + 1],
+				positions[3 * i + 2]);
+	}
+
+	/**
+	 * @param i
+	 *            the index of the vertex
+	 * @param pos
+	 *            the new position of the vertex
+	 */
+	public void setPosition(final int i, final Vector3d pos) {
+		positions[3 * i] = (float) pos.x;
+		positions[3 * i + 1] = (float) pos.y;
+		positions[3 * i + 2] = (float) pos.z;
+		version++;
+	}
+
+	/**
+	 * @param i
+	 *            the index of the vertex
+	 * @return an independent vector of the normal of the vertex or null if
+	 *         this has no normals
+	 */
+	public Vector3d getNormal(final int i) {
+		if (normals == null)
+			return null;
+		return new Vector3d(normals[3 * i], normals[3 * i + 1],
+				normals[3 * i + 2]);
+	}
+
+	/**
+	 * @param i
+	 *            the index of the vertex
+	 * @param normal
+	 *            the new normal of the vertex (ignored if this has no normals)
+	 */
+	public void setNormal(final int i, final Vector3d normal) {
+		if (normals == null)
+			return;
+		normals[3 * i] = (float) normal.x;
+		normals[3 * i + 1] = (float) normal.y;
+		normals[3 * i + 2] = (float) normal.z;
+		version++;
+	}
+
+	/**
+	 * translates all vertices along the given vector
+	 *
+	 * @param dir
+	 *            the vector to add to all positions
+	 */
+	public void moveInAbsoluteDirection(final Vector3d dir) {
+		final float dx = (float) dir.x, dy = (float) dir.y,
+				dz = (float) dir.z;
+		for (int i = 0; i < positions.length; i += 3) {
+			positions[i] += dx;
+			positions[i + 1] += dy;
+			positions[i + 2] += dz;
+		}
+		version++;
+	}
+
+	/**
+	 * rotates all vertices around the given axis through the given center,
+	 * the normals are rotated too
+	 *
+	 * @param center
+	 *            a point on the rotation-axis
+	 * @param axis
+	 *            the axe to rotate around in mathematically positive direction
+	 * @param rad
+	 *            the rotation angle in radiant
+	 */
+	public void rot(final Vector3d center, final Vector3d axis,
+			final double rad) {
+		final Matrix3d m = new Matrix3d().setRotation(axis, rad);
+		transform(positions, m, center.x, center.y, center.z);
+		if (normals != null)
+			transform(normals, m, 0, 0, 0);
+		version++;
+	}
+
+	/**
+	 * scales every position by the given factor
+	 *
+	 * @param factor
+	 *            the factor how to enlarge ]1;infinite[ or shrink ]0;1[ or
+	 *            mirror-scale ]-infinite;0[
+	 */
+	public void scale(final double factor) {
+		for (int i = 0; i < positions.length; i++)
+			positions[i] *= factor;
+		version++;
+	}
+
+	/**
+	 * the version changes with every change of the vertices by the methods
+	 * of this
+	 *
+	 * @see #changed()
+	 * @return the current version of the vertices
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the arrays were changed directly
+	 *
+	 * @see #getVersion()
+	 */
+	public void changed() {
+		version++;
+	}
+
+	private static void transform(final float[] xyz, final Matrix3d m,
+			final double cx, final double cy, final double cz) {
+		for (int i = 0; i < xyz.length; i += 3) {
+			final double x = xyz[i] - cx, y = xyz[i + 1] - cy,
+					z = xyz[i + 2] - cz;
+			xyz[i] = (float) (m.m00 * x + m.m01 * y + m.m02 * z + cx);
+			xyz[i + 1] = (float) (m.m10 * x + m.m11 * y + m.m12 * z + cy);
+			xyz[i + 2] = (float) (m.m20 * x + m.m21 * y + m.m22 * z + cz);
+		}
+	}
+
+	/**
+	 * @return the center of the axis-aligned box around all vertices
+	 */
+	public Vector3d getCenter() {
+		if (positions.length == 0)
+			return Vector3d.zero();
+		double minX = Double.POSITIVE_INFINITY, minY = minX, minZ = minX;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = maxX, maxZ = maxX;
+		for (int i = 0; i < positions.length; i += 3) {
+			minX = Math.min(minX, positions[i]);
+			maxX = Math.max(maxX, positions[i]);
+			minY = Math.min(minY, positions[i + 1]);
+			maxY = Math.max(maxY, positions[i + 1]);
+			minZ = Math.min(minZ, positions[i + 2]);
+			maxZ = Math.max(maxZ, positions[i + 2]);
+		}
+		return new Vector3d((minX + maxX) / 2, (minY + maxY) / 2,
+				(minZ + maxZ) / 2);
+	}
+
+	/**
+	 * @return an independent vertex buffer with cloned arrays
+	 */
+	@Override
+	public VertexBuffer clone() {
+		return new VertexBuffer(positions.clone(),
+				normals != null ? normals.clone() : null,
+				uvs != null ? uvs.clone() : null);
+	}
+
+	/**
+	 *
+	 * @return fast3d.complex.VertexBuffer[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.complex.VertexBuffer[" + "size=" + size() + ";normals="
+				+ (normals != null) + ";uvs=" + (uvs != null) + "]";
+	}
+}
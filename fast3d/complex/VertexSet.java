@@ -0,0 +1,116 @@
+package fast3d.complex;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fast3d.math.Matrix4d;
+import fast3d.math.Vector3d;
+import fast3d.renderables.AdvTriangle;
+import fast3d.renderables.Triangle;
+
+/**
+ * the distinct vertices and AdvTriangle-normals of some groups, collected
+ * once by identity and then reused to transform all of them without
+ * hashing<br>
+ * the collection is done again if the count of groups or of their triangles
+ * changed or invalidate() was called
+ *
+ * @author Tim Trense
+ */
+final class VertexSet {
+
+	private Vector3d[] vertices;
+	private Vector3d[] normals;
+	private boolean disjoint;
+	private long signature = -1;
+
+	/**
+	 * the next call of validate() will collect the vertices again
+	 */
+	void invalidate() {
+		signature = -1;
+	}
+
+	/**
+	 * collects the vertices and normals if the groups changed since the
+	 * last call<br>
+	 * if the groups are disjoint, nothing is held
+	 *
+	 * @param groups
+	 *            the groups to collect from
+	 * @param keep
+	 *            whether to hold the vertices even if the groups are disjoint
+	 * @return whether no vertex, normal or triangle is shared by two groups
+	 */
+	boolean validate(final List<Group> groups, final boolean keep) {
+		long sig = groups.size();
+		for (Group g : groups)
+			sig = sig * 31 + g.triangles.size();
+		if (sig == signature && (vertices != null || (disjoint && !keep)))
+			return disjoint;
+		final Map<Triangle, Group> triangles = new IdentityHashMap<Triangle, Group>();
+		final Map<Vector3d, Group> owners = new IdentityHashMap<Vector3d, Group>();
+		final Map<Vector3d, Group> normalOwners = new IdentityHashMap<Vector3d, Group>();
+		final List<Vector3d> vertexList = new ArrayList<Vector3d>();
+		final List<Vector3d> normalList = new ArrayList<Vector3d>();
+		boolean shared = false;
+		for (Group g : groups)
+			for (Triangle t : g.triangles) {
+				final Group owner = triangles.get(t);
+				if (owner != null) {
+					shared |= owner != g;
+					continue;
+				}
+				triangles.put(t, g);
+				if (t instanceof AdvTriangle)
+					shared |= collect(normalOwners, t.getNormal(), g,
+							normalList);
+				for (Vector3d v : t.getVertices())
+					shared |= collect(owners, v, g, vertexList);
+			}
+		disjoint = !shared;
+		signature = sig;
+		if (disjoint && !keep) {
+			vertices = null;
+			normals = null;
+		} else {
+			vertices = vertexList.toArray(new Vector3d[vertexList.size()]);
+			normals = normalList.toArray(new Vector3d[normalList.size()]);
+		}
+		return disjoint;
+	}
+
+	/**
+	 * adds the vector to the list if it was not collected yet
+	 *
+	 * @return whether the vector was collected from another group before
+	 */
+	private static boolean collect(final Map<Vector3d, Group> owners,
+			final Vector3d v, final Group g, final List<Vector3d> list) {
+		final Group owner = owners.get(v);
+		if (owner == null) {
+			owners.put(v, g);
+			list.add(v);
+			return false;
+		}
+		return owner != g;
+	}
+
+	/**
+	 * transforms all collected vertices and normals in place, validate() has
+	 * to be called before
+	 *
+	 * @param points
+	 *            the transformation of the vertices
+	 * @param normals
+	 *            the transformation of the normals
+	 */
+	void transform(final Matrix4d points, final Matrix4d normals) {
+		for (Vector3d v : vertices)
+			points.transformPoint(v);
+		for (Vector3d n : this.normals)
+			normals.transformDirection(n);
+	}
+}
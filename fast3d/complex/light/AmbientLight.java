@@ -15,6 +15,7 @@ public class AmbientLight implements Light {
 	 * dark gray)
 	 */
 	public final Color lightColor;
+	private long version;
 
 	/**
 	 * constructs some ambient lighting with the given color
@@ -60,4 +61,19 @@ public class AmbientLight implements Light {
 	public String toString() {
 		return "fast3d.complex.light.AmbientLight[" + "lightingColor=" + lightColor + "]";
 	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the fields of this were changed, so that the
+	 * lighting is calculated again
+	 * 
+	 * @see Light#getVersion()
+	 */
+	public void changed() {
+		version++;
+	}
 }
\ No newline at end of file
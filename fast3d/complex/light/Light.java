@@ -22,4 +22,17 @@ public interface Light {
 	 */
 	public Color illuminate(final Illuminatable illum);
 
+	/**
+	 * the version has to change whenever this illuminates differently than
+	 * before (e.g. it was moved or its color changed), the lighting results
+	 * of the illuminatables are reused as long as the versions of the lights
+	 * stay the same<br>
+	 * by default the light never changes
+	 * 
+	 * @return the current version of this light
+	 */
+	public default long getVersion() {
+		return 0;
+	}
+
 }
\ No newline at end of file
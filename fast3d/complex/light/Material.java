@@ -45,6 +45,13 @@ public class Material extends java.lang.Object {
 	 */
 	public Texture texture;
 
+	/**
+	 * if false, surfaces with this material are skipped while the camera sees
+	 * their back<br>
+	 * default false
+	 */
+	public boolean doubleSided = false;
+
 	/**
 	 * all colors will be white, shininess=1, alpha=1, no texture
 	 */
@@ -199,9 +206,11 @@ public class Material extends java.lang.Object {
 	 */
 	@Override
 	public Material clone() {
-		return new Material(ambient.clone(), diffuse.clone(),
+		final Material m = new Material(ambient.clone(), diffuse.clone(),
 				specular.clone(), emissive.clone(), shininess, alpha,
 				texture);
+		m.doubleSided = doubleSided;
+		return m;
 	}
 
 	/**
@@ -218,6 +227,7 @@ public class Material extends java.lang.Object {
 					&& specular.equals(m.specular)
 					&& emissive.equals(m.emissive)
 					&& shininess == m.shininess && alpha == m.alpha
+					&& doubleSided == m.doubleSided
 					&& (texture == null ? m.texture == null
 							: texture.equals(m.texture));
 		} else
@@ -233,7 +243,8 @@ public class Material extends java.lang.Object {
 		return "fast3d.complex.light.Material[ambient=" + ambient
 				+ ";diffuse=" + diffuse + ";specular=" + specular
 				+ ";emissive=" + emissive + ";shininess=" + shininess
-				+ ";a=" + alpha + ";texture=" + texture + "]";
+				+ ";a=" + alpha + ";texture=" + texture + ";doubleSided="
+				+ doubleSided + "]";
 	}
 
 	/**
@@ -256,5 +267,6 @@ public class Material extends java.lang.Object {
 		this.texture = mat.texture;
 		this.shininess = mat.shininess;
 		this.alpha = mat.alpha;
+		this.doubleSided = mat.doubleSided;
 	}
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ public abstract class ObstructableLight implements Light {
 	 * (may cause insane computational effort)
 	 */
 	public boolean calculateShadows = false;
+	private long version;
 
 	/**
 	 * for illuminating it has to be calculated, whether an illuminatable lays
@@ -76,6 +77,30 @@ public abstract class ObstructableLight implements Light {
 			return null;
 	}
 
+	/**
+	 * should be used by illuminate(Illuminatable) to determine whether the
+	 * Illuminatable to currently illuminate lays in the shadow of another,
+	 * stopping at the first renderable in between<br>
+	 * cheaper than obstructings(), because no renderable behind the first
+	 * one or behind the light is searched
+	 * 
+	 * @see fast3d.complex.Universe#rayTraceAny(Vector3d, Vector3d, double,
+	 *      Renderable)
+	 * @param l
+	 *            the illuminatable to illuminate just yet
+	 * @return true if shadows are calculated and any renderable is in
+	 *         between of the Illuminatable and the light-source
+	 */
+	public boolean isObstructed(final Illuminatable l) {
+		if (!calculateShadows)
+			return false;
+		final Vector3d start = l.getPos();
+		final Vector3d pos = getPos();
+		return uni.rayTraceAny(start, directionOfLight(l).clone().invert(),
+				pos == null ? Double.POSITIVE_INFINITY : start.distanceTo(pos),
+				l);
+	}
+
 	/**
 	 * any obstructable light has to have a direction of it's light-rays
 	 * 
@@ -132,4 +157,19 @@ public abstract class ObstructableLight implements Light {
 	public Universe getUniverse() {
 		return uni;
 	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the fields of this were changed, so that the
+	 * lighting is calculated again
+	 * 
+	 * @see Light#getVersion()
+	 */
+	public void changed() {
+		version++;
+	}
 }
\ No newline at end of file
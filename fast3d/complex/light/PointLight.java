@@ -39,7 +39,7 @@ public class PointLight extends ObstructableLight {
 
 	@Override
 	public Color illuminate(final Illuminatable c) {
-		if (obstructings(c) != null)
+		if (isObstructed(c))
 			return null;
 		final Material mat = c.getMaterial();
 		if (mat == null)
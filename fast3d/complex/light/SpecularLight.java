@@ -30,7 +30,7 @@ public class SpecularLight extends DirectionalLight {
 
 	@Override
 	public Color illuminate(final Illuminatable c) {
-		if (obstructings(c) != null)
+		if (isObstructed(c))
 			return null;
 		final Vector3d light = directionOfLight().clone();
 		final Vector3d norm = c.getNormal();
@@ -40,13 +40,26 @@ import fast3d.math.Vector3d;
  * </ol>
  * and findClosestToTheCam(Hashtable_Renderable_Vector3d) : searches the
  * hashtable for the renderable thats puncture-point is the nearest one to the
- * universes camera position
+ * universes camera position<br>
+ * a subclass may shade whole blocks of pixels at once by overriding
+ * shadeBlock(), which is tried before shadeFragment(int,int)
  * <p>
  * 
  * @author Tim Trense
  */
 public abstract class FragmentShader extends Thread {
 
+	/**
+	 * the default edge-length of the blocks of pixels passed to shadeBlock()
+	 */
+	public static int defaultPacketSize = 8;
+
+	/**
+	 * the edge-length of the blocks of pixels passed to shadeBlock(), 1 to
+	 * process every pixel by shadeFragment(int,int)
+	 */
+	public int packetSize = defaultPacketSize;
+
 	private final Universe uni;
 	private final BufferedImage img;
 	private final Rectangle rect;
@@ -85,17 +98,59 @@ public abstract class FragmentShader extends Thread {
 		this(uni, img, new Rectangle(0, 0, img.getWidth(), img.getHeight()));
 	}
 
+	/**
+	 * the pixels are processed in square blocks of packetSize, every block is
+	 * passed to shadeBlock() and its pixels are processed one by one by
+	 * shadeFragment(int,int) if that does not support blocks
+	 */
 	@Override
 	public final void run() {
-		for (int y = rect.y; y < img.getHeight() && y < rect.y + rect.height; y++)
-			for (int x = rect.x; x < img.getWidth() && x < rect.x + rect.width; x++) {
-				final Color pixel = shadeFragment(x, y);
-				if (pixel != null)
-					img.setRGB(x, y, pixel.getRGB());
-				shadedPixels++;
+		final int endX = Math.min(img.getWidth(), rect.x + rect.width);
+		final int endY = Math.min(img.getHeight(), rect.y + rect.height);
+		final int block = Math.max(1, packetSize);
+		final Color[] colors = new Color[block * block];
+		for (int by = rect.y; by < endY; by += block)
+			for (int bx = rect.x; bx < endX; bx += block) {
+				final int w = Math.min(block, endX - bx);
+				final int h = Math.min(block, endY - by);
+				final boolean shaded = block > 1
+						&& shadeBlock(bx, by, w, h, colors);
+				for (int y = by; y < by + h; y++)
+					for (int x = bx; x < bx + w; x++) {
+						final Color pixel = shaded
+								? colors[(y - by) * w + x - bx]
+								: shadeFragment(x, y);
+						if (pixel != null)
+							img.setRGB(x, y, pixel.getRGB());
+						shadedPixels++;
+					}
 			}
 	}
 
+	/**
+	 * processes a block of pixels at once, e.g. by tracing their rays as one
+	 * packet by Universe.rayTraceClosest(RayPacket)<br>
+	 * does not support blocks by default
+	 * 
+	 * @see fast3d.complex.RayPacket
+	 * @param x
+	 *            the x-coordinate of the upper left pixel of the block
+	 * @param y
+	 *            the y-coordinate of the upper left pixel of the block
+	 * @param width
+	 *            the count of pixels per row of the block
+	 * @param height
+	 *            the count of rows of the block
+	 * @param colors
+	 *            the array to write the colors of the pixels to, row by row
+	 * @return false if the pixels have to be processed one by one by
+	 *         shadeFragment(int,int)
+	 */
+	protected boolean shadeBlock(final int x, final int y, final int width,
+			final int height, final Color[] colors) {
+		return false;
+	}
+
 	/**
 	 * converts the x,y-pixel-position to their ratios and calls
 	 * shadeFragment(x_ratio,y_ratio) and returns the result
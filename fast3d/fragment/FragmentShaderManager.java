@@ -57,6 +57,7 @@ public abstract class FragmentShaderManager implements Runnable {
 	@Override
 	public final void run() {
 		running = true;
+		uni.invalidateBounds();
 		final int width = img.getWidth() / shaders.length + 1;
 		for (int i = 0; i < shaders.length; i++)
 			shaders[i] = createShader(uni, img, new Rectangle(
@@ -2,11 +2,13 @@ package fast3d.graphics;
 
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import fast3d.Bounded;
 import fast3d.Renderable;
 import fast3d.complex.RenderAction;
 import fast3d.complex.light.Illuminatable;
@@ -28,13 +30,18 @@ public class Graphics3d {
 	private final Graphics2D g;
 	private final Shader sh;
 	private final Light[] lights;
-	private final byte frameID;
-	private static byte nextFrameID = 0;
+	private final ProjectionBuffer projections;
+	private final long frameID;
+	private final long lightsVersion;
 
 	/**
 	 * constructs a graphics3d-wrapper around a 2d-graphics-context with a
-	 * shader to convert 3d in 2d
+	 * shader to convert 3d in 2d<br>
+	 * a new projection-buffer of 16 stripes is allocated for this frame only,
+	 * so a graphics3d constructed per frame should be given a buffer reused
+	 * frame by frame instead
 	 * 
+	 * @see #Graphics3d(Graphics2D, Shader, ProjectionBuffer, Light...)
 	 * @param g
 	 *            the 2d-graphics context to draw on
 	 * @param sh
@@ -44,10 +51,32 @@ public class Graphics3d {
 	 */
 	public Graphics3d(final Graphics2D g, final Shader sh,
 			final Light... lights) {
+		this(g, sh, new ProjectionBuffer(), lights);
+	}
+
+	/**
+	 * constructs a graphics3d-wrapper around a 2d-graphics-context with a
+	 * shader to convert 3d in 2d<br>
+	 * the projection-buffer may be reused by the following frames, this
+	 * starts a new generation in it
+	 * 
+	 * @param g
+	 *            the 2d-graphics context to draw on
+	 * @param sh
+	 *            the 3d/2d-converter
+	 * @param projections
+	 *            the buffer to store the shaded vertices of this frame in
+	 * @param lights
+	 *            all used lights to illuminate the scenery
+	 */
+	public Graphics3d(final Graphics2D g, final Shader sh,
+			final ProjectionBuffer projections, final Light... lights) {
 		this.g = g;
 		this.sh = sh;
 		this.lights = lights;
-		this.frameID = nextFrameID++;
+		this.projections = projections;
+		this.frameID = projections.nextFrame();
+		this.lightsVersion = lightsVersion(lights);
 	}
 
 	/**
@@ -81,6 +110,37 @@ public class Graphics3d {
 		return sh;
 	}
 
+	/**
+	 * an illuminatable may keep its lighting result as long as this stays
+	 * the same
+	 * 
+	 * @see #lightsVersion(Light...)
+	 * @return the version of the lights of this
+	 */
+	public long getLightsVersion() {
+		return lightsVersion;
+	}
+
+	/**
+	 * combines the identities and versions of the lights, so that the result
+	 * changes (almost surely) if a light is added, removed or changed
+	 * 
+	 * @see Light#getVersion()
+	 * @param lights
+	 *            the lights to illuminate with, may be null
+	 * @return the version of the lights
+	 */
+	public static long lightsVersion(final Light... lights) {
+		if (lights == null)
+			return 0;
+		long v = lights.length;
+		for (Light l : lights)
+			if (l != null)
+				v = (v * 31 + System.identityHashCode(l)) * 31
+						+ l.getVersion();
+		return v;
+	}
+
 	/**
 	 * 
 	 * @return fast3d.graphics.Graphics3d[_parameter_]
@@ -91,6 +151,17 @@ public class Graphics3d {
 				+ "]";
 	}
 
+	/**
+	 * a depth-buffered graphics3d hides the drawn polygons, lines and pixels
+	 * behind each other per pixel, so that opaque renderables need not to be
+	 * sorted before they are rendered
+	 * 
+	 * @return false, subclasses drawing with a depth-buffer return true
+	 */
+	public boolean isDepthBuffered() {
+		return false;
+	}
+
 	/**
 	 * converts all given vertices in pixel-coordinates <br>
 	 * faster than getShader().shade(vertices) because of buffering-features
@@ -118,20 +189,92 @@ public class Graphics3d {
 	 * faster than getShader().shade(vertices) because of buffering-features
 	 * <br>
 	 * if a vertex is shaded to null according to the camera-mode-settings, this
-	 * method will return null too
+	 * method will return null too<br>
+	 * thread-safe
 	 * 
+	 * @see fast3d.graphics.ProjectionBuffer
 	 * @param v
 	 *            the vertex to shade
 	 * @return its corresponding pixel-coordinates according to the current
-	 *         camera setting
+	 *         camera setting (shared reference, do not change)
 	 */
 	public Vector2d shade(final Vector3d v) {
-		if (v.shadedFrameID == frameID && v.shaded != null)
-			return v.shaded;
-		else {
-			v.shadedFrameID = frameID;
-			return v.shaded = sh.shadeVertex(v);
-		}
+		return projections.shade(v, sh, frameID);
+	}
+
+	/**
+	 * the depth-key of the given vertex, buffered just like shade()<br>
+	 * thread-safe
+	 * 
+	 * @see fast3d.math.Shader#depth(Vector3d)
+	 * @param v
+	 *            the vertex to get the depth-key of
+	 * @return the greater the nearer the vertex is to the camera
+	 */
+	public double depth(final Vector3d v) {
+		return projections.depth(v, sh, frameID);
+	}
+
+	/**
+	 * tests whether anything of the given bounded can be visible at all, so
+	 * that it can be skipped before any of its vertices is shaded
+	 *
+	 * @see fast3d.math.Shader#inFrustum(Vector3d, double)
+	 * @param b
+	 *            the bounded to test
+	 * @return false if the bounding sphere is entirely out of the cameras
+	 *         sight
+	 */
+	public boolean inFrustum(final Bounded b) {
+		return sh.inFrustum(b.getBoundingCenter(), b.getBoundingRadius());
+	}
+
+	/**
+	 * @see fast3d.math.Shader#projectedSize(Vector3d, double)
+	 * @param b
+	 *            the bounded to measure
+	 * @return the approximate diameter of the bounding sphere on the screen in
+	 *         pixel
+	 */
+	public double projectedSize(final Bounded b) {
+		return sh.projectedSize(b.getBoundingCenter(), b.getBoundingRadius());
+	}
+
+	/**
+	 * tests whether the front of the triangle (a,b,c) is turned away from the
+	 * camera, the front is the side the normal (b-a)x(c-a) points to<br>
+	 * creates no object
+	 * 
+	 * @see fast3d.math.Shader#isBackface(Vector3d, Vector3d, Vector3d)
+	 * @param a
+	 *            edge 1
+	 * @param b
+	 *            edge 2
+	 * @param c
+	 *            edge 3
+	 * @return true if the triangle can be skipped by a single-sided surface
+	 */
+	public boolean isBackface(final Vector3d a, final Vector3d b,
+			final Vector3d c) {
+		return sh.isBackface(a, b, c);
+	}
+
+	/**
+	 * tests whether the front of a surface with a known normal is turned away
+	 * from the camera<br>
+	 * creates no object
+	 * 
+	 * @see fast3d.math.Shader#isBackface(double, double, double, double,
+	 *      double, double)
+	 * @param point
+	 *            any point of the surface
+	 * @param normal
+	 *            the outside-pointing normal of the surface
+	 * @return true if the surface can be skipped if it is single-sided
+	 */
+	public boolean isBackface(final Vector3d point, final Vector3d normal) {
+		return sh.isBackface(point.x, point.y, point.z, normal.x, normal.y,
+				normal.z);
 	}
 
 	/**
@@ -198,6 +341,8 @@ public class Graphics3d {
 	/**
 	 * shades all vertices using shadeAll() and draws a polygon over these
 	 * pixels (filled if wireFrameMode is false) <br>
+	 * if some of the vertices are not visible, the polygon is clipped at the
+	 * borders of the visible space first<br>
 	 * works like drawing a 3d-polygon (should be not too big in complex
 	 * sceneries) if wireframeMode is on(true), a polygon is just a polyline
 	 * where the first and last point are equal
@@ -207,15 +352,31 @@ public class Graphics3d {
 	 *            the edges of the polygon
 	 */
 	public void polygon(final Vector3d... ps) {
-		final List<Vector2d> p2s = shadeAll(ps);
-		final int count = p2s.size();
-		final int[] x = new int[count];
-		final int[] y = new int[count];
-		int i = 0;
-		for (Vector2d v : p2s) {
-			x[i] = v.getX();
-			y[i] = v.getY();
-			i++;
+		final Vector3d[] clipped = sh.clip(ps);
+		final int count;
+		final int[] x, y;
+		if (clipped == ps) {
+			final List<Vector2d> p2s = shadeAll(ps);
+			count = p2s.size();
+			x = new int[count];
+			y = new int[count];
+			int i = 0;
+			for (Vector2d v : p2s) {
+				x[i] = v.getX();
+				y[i] = v.getY();
+				i++;
+			}
+		} else {
+			count = clipped.length;
+			if (count < 3)
+				return;
+			x = new int[count];
+			y = new int[count];
+			for (int i = 0; i < count; i++) {
+				final Vector2d v = sh.shadeVertexIgnoreMode(clipped[i]);
+				x[i] = v.getX();
+				y[i] = v.getY();
+			}
 		}
 		if (sh.cam.mode.wireframe)
 			g.drawPolygon(x, y, count);
@@ -223,6 +384,68 @@ public class Graphics3d {
 			g.fillPolygon(x, y, count);
 	}
 
+	/**
+	 * draws a triangle of already shaded pixel-coordinates in the previous set
+	 * color by setColor(Color) (filled if wireFrameMode is false)<br>
+	 * used by renderables that shade their vertices in bulk, the depth-keys
+	 * are only respected by depth-buffered subclasses
+	 *
+	 * @see fast3d.math.Shader#projectAll(float[], int, int, float[], float[],
+	 *      float[], long[])
+	 * @param x0
+	 *            pixel x-coordinate of edge 1
+	 * @param y0
+	 *            pixel y-coordinate of edge 1
+	 * @param z0
+	 *            depth-key of edge 1
+	 * @param x1
+	 *            pixel x-coordinate of edge 2
+	 * @param y1
+	 *            pixel y-coordinate of edge 2
+	 * @param z1
+	 *            depth-key of edge 2
+	 * @param x2
+	 *            pixel x-coordinate of edge 3
+	 * @param y2
+	 *            pixel y-coordinate of edge 3
+	 * @param z2
+	 *            depth-key of edge 3
+	 */
+	public void triangle(final float x0, final float y0, final float z0,
+			final float x1, final float y1, final float z1, final float x2,
+			final float y2, final float z2) {
+		final int[] x = { (int) x0, (int) x1, (int) x2 };
+		final int[] y = { (int) y0, (int) y1, (int) y2 };
+		if (sh.cam.mode.wireframe)
+			g.drawPolygon(x, y, 3);
+		else
+			g.fillPolygon(x, y, 3);
+	}
+
+	/**
+	 * draws the image of a triangle (e.g. its texture painted during shade())
+	 * by the backing Graphics2D<br>
+	 * a depth-buffered subclass depth-tests every pixel of the image within
+	 * the triangle instead
+	 * 
+	 * @param img
+	 *            the image to draw
+	 * @param x
+	 *            the pixel x-coordinate of the upper left corner of the image
+	 * @param y
+	 *            the pixel y-coordinate of the upper left corner of the image
+	 * @param a
+	 *            vertex 1 of the triangle
+	 * @param b
+	 *            vertex 2 of the triangle
+	 * @param c
+	 *            vertex 3 of the triangle
+	 */
+	public void image(final BufferedImage img, final int x, final int y,
+			final Vector3d a, final Vector3d b, final Vector3d c) {
+		g.drawImage(img, x, y, null);
+	}
+
 	/**
 	 * shades all vertices using shadeAll() and draws a polyline over these<br>
 	 * works like drawing a 3d-polyline (should be not too big in complex
@@ -261,7 +484,7 @@ public class Graphics3d {
 	 *            the scenery to be calculated
 	 */
 	public void sort(final Renderable... r) {
-		Sort.Quicksort.Renderables.sort(sh.cam.getPos(), r);
+		Sort.Radixsort.Renderables.sort(sh.cam.getPos(), r);
 	}
 
 	/**
@@ -272,8 +495,9 @@ public class Graphics3d {
 	 *            a mapping of where to render what
 	 */
 	public void sort(final Map<Vector3d, RenderAction> call) {
-		final Vector3d[] keys = (Vector3d[]) call.keySet().toArray();
-		Sort.Quicksort.Vectors.sort(sh.cam.getPos(), keys);
+		final Vector3d[] keys = call.keySet()
+				.toArray(new Vector3d[call.size()]);
+		Sort.Radixsort.Vectors.sort(sh.cam.getPos(), keys);
 		for (Vector3d v : keys)
 			call.get(v).render(v, this);
 	}
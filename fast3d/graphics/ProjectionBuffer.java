@@ -0,0 +1,257 @@
+package fast3d.graphics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import fast3d.math.Shader;
+import fast3d.math.Vector2d;
+import fast3d.math.Vector3d;
+
+/**
+ * buffers the shaded pixel-coordinates and depth-keys of vertices so that a
+ * vertex shared by multiple renderables is shaded only once per frame<br>
+ * the vertices are identified by reference, every frame has its own
+ * generation given by nextFrame(), entries of other generations are never
+ * returned, so a buffer can be reused frame by frame without clearing<br>
+ * if a vertex is changed within a frame, it is shaded again<br>
+ * the buffer is split into independently locked stripes, so it is safe and
+ * cheap to be used by multiple shading threads at once
+ *
+ * @see fast3d.graphics.Graphics3d#shade(Vector3d)
+ * @author Tim Trense
+ */
+public class ProjectionBuffer {
+
+	private final AtomicLong generation = new AtomicLong();
+	private final Stripe[] stripes;
+	private final int stripeBits;
+
+	/**
+	 * constructs a buffer with 16 stripes
+	 */
+	public ProjectionBuffer() {
+		this(16);
+	}
+
+	/**
+	 * @param concurrency
+	 *            the count of threads expected to shade at once, the count of
+	 *            stripes is the next power of two
+	 */
+	public ProjectionBuffer(final int concurrency) {
+		int bits = 0;
+		while ((1 << bits) < concurrency && bits < 16)
+			bits++;
+		this.stripeBits = bits;
+		this.stripes = new Stripe[1 << bits];
+		for (int i = 0; i < stripes.length; i++)
+			stripes[i] = new Stripe(bits);
+	}
+
+	/**
+	 * starts a new generation, all entries of prior generations become
+	 * invalid
+	 *
+	 * @return the generation to pass to shade() and depth() for the new frame
+	 */
+	public long nextFrame() {
+		return generation.incrementAndGet();
+	}
+
+	/**
+	 * @param v
+	 *            the vertex to shade
+	 * @param sh
+	 *            the shader of the frame
+	 * @param frame
+	 *            the generation of the frame as returned by nextFrame()
+	 * @return the buffered result of sh.shadeVertex(v) (a shared reference,
+	 *         may be null)
+	 */
+	public Vector2d shade(final Vector3d v, final Shader sh,
+			final long frame) {
+		final int h = hash(v);
+		return stripes[h & (stripes.length - 1)].shade(v, h >>> stripeBits,
+				sh, frame);
+	}
+
+	/**
+	 * @param v
+	 *            the vertex to get the depth-key for
+	 * @param sh
+	 *            the shader of the frame
+	 * @param frame
+	 *            the generation of the frame as returned by nextFrame()
+	 * @return the buffered result of sh.depth(v)
+	 */
+	public double depth(final Vector3d v, final Shader sh, final long frame) {
+		final int h = hash(v);
+		return stripes[h & (stripes.length - 1)].depth(v, h >>> stripeBits,
+				sh, frame);
+	}
+
+	/**
+	 * releases all buffered entries and their references to the vertices
+	 */
+	public void clear() {
+		for (Stripe s : stripes)
+			s.clear();
+	}
+
+	private static int hash(final Vector3d v) {
+		final int h = System.identityHashCode(v) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 *
+	 * @return fast3d.graphics.ProjectionBuffer[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.graphics.ProjectionBuffer[" + "stripes="
+				+ stripes.length + ";generation=" + generation.get() + "]";
+	}
+
+	/**
+	 * an open-addressing identity hash table, a slot is free if its
+	 * generation is not the current one<br>
+	 * the count of used slots is just known for the generation written last,
+	 * so if multiple generations write at once, the table grows by the length
+	 * of the probes too
+	 */
+	private static final class Stripe {
+
+		private static final int INITIAL_CAPACITY = 64;
+		/**
+		 * the probes of find() from which on the table grows, as a shift of
+		 * the capacity
+		 */
+		private static final int MAX_PROBES_SHIFT = 2;
+
+		private final int shift;
+		private Vector3d[] keys;
+		private Vector2d[] shaded;
+		private double[] coords;
+		private double[] depths;
+		private long[] frames;
+		private long usedFrame;
+		private int used;
+		/**
+		 * the count of slots of the current generation passed by the last
+		 * find()
+		 */
+		private int probes;
+
+		private Stripe(final int shift) {
+			this.shift = shift;
+			allocate(INITIAL_CAPACITY);
+		}
+
+		private void allocate(final int capacity) {
+			keys = new Vector3d[capacity];
+			shaded = new Vector2d[capacity];
+			coords = new double[3 * capacity];
+			depths = new double[capacity];
+			frames = new long[capacity];
+		}
+
+		synchronized Vector2d shade(final Vector3d v, final int h,
+				final Shader sh, final long frame) {
+			final int i = slot(v, h, sh, frame); // may grow the arrays
+			return shaded[i];
+		}
+
+		synchronized double depth(final Vector3d v, final int h,
+				final Shader sh, final long frame) {
+			final int i = slot(v, h, sh, frame);
+			if (Double.isNaN(depths[i]))
+				depths[i] = sh.depth(v);
+			return depths[i];
+		}
+
+		synchronized void clear() {
+			allocate(INITIAL_CAPACITY);
+			used = 0;
+		}
+
+		/**
+		 * @return the index of the valid entry of the vertex, shaded if
+		 *         necessary
+		 */
+		private int slot(final Vector3d v, final int h, final Shader sh,
+				final long frame) {
+			int i = find(v, h, frame);
+			if (i >= 0) {
+				final int c = 3 * i;
+				if (coords[c] == v.x && coords[c + 1] == v.y
+						&& coords[c + 2] == v.z)
+					return i;
+			} else {
+				if (usedFrame != frame) {
+					usedFrame = frame;
+					used = 0;
+				}
+				if (2 * (used + 1) > keys.length
+						|| probes > keys.length >> MAX_PROBES_SHIFT) {
+					grow(frame);
+					i = find(v, h, frame);
+				}
+				i = -i - 1;
+				keys[i] = v;
+				frames[i] = frame;
+				used++;
+			}
+			final int c = 3 * i;
+			coords[c] = v.x;
+			coords[c + 1] = v.y;
+			coords[c + 2] = v.z;
+			shaded[i] = sh.shadeVertex(v);
+			depths[i] = Double.NaN;
+			return i;
+		}
+
+		/**
+		 * stops after visiting every slot once, so it terminates even if
+		 * every slot is of the current generation
+		 * 
+		 * @return the index of the entry of the vertex or -(index of the free
+		 *         slot to insert the vertex at)-1, the slot is not free if
+		 *         probes equals the capacity afterwards
+		 */
+		private int find(final Vector3d v, final int h, final long frame) {
+			final int mask = keys.length - 1;
+			int i = h & mask;
+			probes = 0;
+			while (frames[i] == frame && probes < keys.length) {
+				if (keys[i] == v)
+					return i;
+				i = (i + 1) & mask;
+				probes++;
+			}
+			return -i - 1;
+		}
+
+		/**
+		 * doubles the capacity and drops all entries of other generations
+		 */
+		private void grow(final long frame) {
+			final Vector3d[] oldKeys = keys;
+			final Vector2d[] oldShaded = shaded;
+			final double[] oldCoords = coords;
+			final double[] oldDepths = depths;
+			final long[] oldFrames = frames;
+			allocate(2 * oldKeys.length);
+			for (int j = 0; j < oldKeys.length; j++) {
+				if (oldFrames[j] != frame)
+					continue;
+				final int i = -find(oldKeys[j], hash(oldKeys[j]) >>> shift,
+						frame) - 1;
+				keys[i] = oldKeys[j];
+				shaded[i] = oldShaded[j];
+				System.arraycopy(oldCoords, 3 * j, coords, 3 * i, 3);
+				depths[i] = oldDepths[j];
+				frames[i] = frame;
+			}
+		}
+	}
+}
@@ -0,0 +1,514 @@
+package fast3d.graphics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import fast3d.Renderable;
+import fast3d.complex.light.Light;
+import fast3d.math.Shader;
+import fast3d.math.Vector2d;
+import fast3d.math.Vector3d;
+import fast3d.util.Sort;
+
+/**
+ * a graphics3d that rasterizes directly into the int-pixels of an image and
+ * tests every pixel against a depth-buffer<br>
+ * polygons, lines, pixels and the images of textured triangles hide each
+ * other per pixel, so opaque renderables
+ * can be rendered in any order and only the translucent ones have to be
+ * sorted<br>
+ * the backing Graphics2D draws into the same image but without depth-test (it
+ * is still usable for HUDs and text)<br>
+ * the depth-buffer contains the depth-keys of Shader.depth(Vector3d)
+ *
+ * @see fast3d.math.Shader#depth(Vector3d)
+ * @author Tim Trense
+ */
+public class RasterGraphics3d extends Graphics3d {
+
+	private final int width, height;
+	private final int[] pixels;
+	private final float[] depth;
+	private int argb;
+
+	/**
+	 * constructs a graphics3d rasterizing into the given image with a new
+	 * projection-buffer for this frame only
+	 *
+	 * @see Graphics3d#Graphics3d(java.awt.Graphics2D, Shader, Light...)
+	 * @param img
+	 *            the image to draw on, of type BufferedImage.TYPE_INT_ARGB or
+	 *            BufferedImage.TYPE_INT_RGB
+	 * @param depth
+	 *            the depth-buffer with one entry per pixel of the image
+	 * @param sh
+	 *            the 3d/2d-converter
+	 * @param lights
+	 *            all used lights to illuminate the scenery
+	 */
+	public RasterGraphics3d(final BufferedImage img, final float[] depth,
+			final Shader sh, final Light... lights) {
+		this(img, depth, sh, new ProjectionBuffer(), lights);
+	}
+
+	/**
+	 * constructs a graphics3d rasterizing into the given image
+	 *
+	 * @see Graphics3d#Graphics3d(java.awt.Graphics2D, Shader,
+	 *      ProjectionBuffer, Light...)
+	 * @param img
+	 *            the image to draw on, of type BufferedImage.TYPE_INT_ARGB or
+	 *            BufferedImage.TYPE_INT_RGB
+	 * @param depth
+	 *            the depth-buffer with one entry per pixel of the image
+	 * @param sh
+	 *            the 3d/2d-converter
+	 * @param projections
+	 *            the buffer to store the shaded vertices of this frame in
+	 * @param lights
+	 *            all used lights to illuminate the scenery
+	 */
+	public RasterGraphics3d(final BufferedImage img, final float[] depth,
+			final Shader sh, final ProjectionBuffer projections,
+			final Light... lights) {
+		super(img.createGraphics(), sh, projections, lights);
+		this.width = img.getWidth();
+		this.height = img.getHeight();
+		this.pixels = ((DataBufferInt) img.getRaster().getDataBuffer())
+				.getData();
+		if (depth.length < width * height)
+			throw new IllegalArgumentException(
+					"depth-buffer smaller than the image");
+		this.depth = depth;
+		this.argb = 0xFFFFFFFF;
+	}
+
+	/**
+	 * @return true
+	 */
+	@Override
+	public boolean isDepthBuffered() {
+		return true;
+	}
+
+	/**
+	 * fills the entire image with the given color and resets the depth-buffer
+	 * so that everything drawn afterwards is visible
+	 *
+	 * @param rgb
+	 *            the awt-rgba coding of the color to clear the image with
+	 */
+	public void clear(final int rgb) {
+		Arrays.fill(pixels, 0, width * height, rgb);
+		Arrays.fill(depth, 0, width * height, Float.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * disposes the backing Graphics2D, should be called after the frame is
+	 * completely drawn
+	 */
+	public void dispose() {
+		getGraphics2d().dispose();
+	}
+
+	/**
+	 * @return the width of the image in pixel
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the image in pixel
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public void setColor(final Color col) {
+		super.setColor(col);
+		argb = col.getRGB();
+	}
+
+	/**
+	 * draws the pixel depth-tested
+	 */
+	@Override
+	public void pixel(final Vector3d pos) {
+		pixel(pos, 1);
+	}
+
+	/**
+	 * draws the pixel depth-tested
+	 */
+	@Override
+	public void pixel(final Vector3d pos, final int width) {
+		final Vector2d p = shade(pos);
+		if (p == null)
+			return;
+		final float z = (float) depth(pos);
+		final int minX = Math.max(0, p.getX());
+		final int minY = Math.max(0, p.getY());
+		final int maxX = Math.min(this.width, p.getX() + width);
+		final int maxY = Math.min(this.height, p.getY() + width);
+		for (int y = minY; y < maxY; y++)
+			for (int x = minX, i = y * this.width + minX; x < maxX; x++, i++)
+				plot(i, z);
+	}
+
+	/**
+	 * draws the line depth-tested
+	 */
+	@Override
+	public void line(final Vector3d start, final Vector3d end) {
+		final Vector2d s = shade(start);
+		if (s == null)
+			return;
+		final Vector2d e = shade(end);
+		if (e == null)
+			return;
+		final double zs = depth(start);
+		final double ze = depth(end);
+		final int steps = (int) Math.max(Math.abs(e.x - s.x),
+				Math.abs(e.y - s.y)) + 1;
+		final double dx = (e.x - s.x) / steps;
+		final double dy = (e.y - s.y) / steps;
+		final double dz = (ze - zs) / steps;
+		double x = s.x, y = s.y, z = zs;
+		for (int i = 0; i <= steps; i++) {
+			if (x >= 0 && y >= 0 && x < width && y < height)
+				plot((int) y * width + (int) x, (float) z);
+			x += dx;
+			y += dy;
+			z += dz;
+		}
+	}
+
+	/**
+	 * shades all vertices and fills the polygon depth-tested as a fan of
+	 * triangles around the first vertex (so it has to be convex)<br>
+	 * if some of the vertices are not visible, the polygon is clipped at the
+	 * borders of the visible space first<br>
+	 * if wireframeMode is on, the polygon is drawn by the backing Graphics2D
+	 * just like in Graphics3d
+	 */
+	@Override
+	public void polygon(final Vector3d... ps) {
+		if (getShader().cam.mode.wireframe) {
+			super.polygon(ps);
+			return;
+		}
+		final Vector3d[] clipped = getShader().clip(ps);
+		final double[] x = new double[clipped.length];
+		final double[] y = new double[clipped.length];
+		final double[] z = new double[clipped.length];
+		int count = 0;
+		Vector2d p;
+		if (clipped == ps) {
+			for (Vector3d v : ps) {
+				p = shade(v);
+				if (p != null) {
+					x[count] = p.x;
+					y[count] = p.y;
+					z[count] = depth(v);
+					count++;
+				}
+			}
+		} else
+			for (Vector3d v : clipped) {
+				p = getShader().shadeVertexIgnoreMode(v);
+				x[count] = p.x;
+				y[count] = p.y;
+				z[count] = getShader().depth(v);
+				count++;
+			}
+		for (int i = 2; i < count; i++)
+			fillTriangle(x[0], y[0], z[0], x[i - 1], y[i - 1], z[i - 1],
+					x[i], y[i], z[i], argb);
+	}
+
+	/**
+	 * fills the triangle depth-tested<br>
+	 * if wireframeMode is on, the triangle is drawn by the backing Graphics2D
+	 * just like in Graphics3d
+	 */
+	@Override
+	public void triangle(final float x0, final float y0, final float z0,
+			final float x1, final float y1, final float z1, final float x2,
+			final float y2, final float z2) {
+		if (getShader().cam.mode.wireframe)
+			super.triangle(x0, y0, z0, x1, y1, z1, x2, y2, z2);
+		else
+			fillTriangle(x0, y0, z0, x1, y1, z1, x2, y2, z2, argb);
+	}
+
+	/**
+	 * draws every pixel of the image within the triangle depth-tested, the
+	 * depth is interpolated between the vertices<br>
+	 * pixels of the image with an alpha below 255 are blended without
+	 * writing the depth, just like translucent colors<br>
+	 * if a vertex is not visible, nothing is drawn
+	 */
+	@Override
+	public void image(final BufferedImage img, final int ox, final int oy,
+			final Vector3d a, final Vector3d b, final Vector3d c) {
+		final Vector2d pa = shade(a), pb = shade(b), pc = shade(c);
+		if (pa == null || pb == null || pc == null)
+			return;
+		final double x0 = pa.x, y0 = pa.y, z0 = depth(a);
+		final double x1 = pb.x, y1 = pb.y, z1 = depth(b);
+		final double x2 = pc.x, y2 = pc.y, z2 = depth(c);
+		final double area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+		if (!(area != 0) || Double.isInfinite(area))
+			return;
+		final int imgWidth = img.getWidth();
+		final int minX = Math.max(Math.max(0, ox),
+				(int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+		final int minY = Math.max(Math.max(0, oy),
+				(int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+		final int maxX = Math.min(Math.min(width, ox + imgWidth) - 1,
+				(int) Math.ceil(Math.max(x0, Math.max(x1, x2))));
+		final int maxY = Math.min(Math.min(height, oy + img.getHeight()) - 1,
+				(int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+		if (minX > maxX || minY > maxY)
+			return;
+		final int[] src = img.getType() == BufferedImage.TYPE_INT_ARGB
+				? ((DataBufferInt) img.getRaster().getDataBuffer()).getData()
+				: null;
+
+		// the same barycentric walk as fillTriangle() but with the color
+		// read from the image
+		final double inv = 1d / area;
+		final double px = minX + .5, py = minY + .5;
+		final double l0 = ((x2 - x1) * (py - y1) - (y2 - y1) * (px - x1))
+				* inv;
+		final double l1 = ((x0 - x2) * (py - y2) - (y0 - y2) * (px - x2))
+				* inv;
+		final double l2 = ((x1 - x0) * (py - y0) - (y1 - y0) * (px - x0))
+				* inv;
+		final double l0dx = -(y2 - y1) * inv, l0dy = (x2 - x1) * inv;
+		final double l1dx = -(y0 - y2) * inv, l1dy = (x0 - x2) * inv;
+		final double l2dx = -(y1 - y0) * inv, l2dy = (x1 - x0) * inv;
+		final double zdx = l0dx * z0 + l1dx * z1 + l2dx * z2;
+
+		for (int y = minY; y <= maxY; y++) {
+			final int row = y - minY;
+			double w0 = l0 + row * l0dy;
+			double w1 = l1 + row * l1dy;
+			double w2 = l2 + row * l2dy;
+			double z = w0 * z0 + w1 * z1 + w2 * z2;
+			final int srcRow = (y - oy) * imgWidth - ox;
+			for (int x = minX, i = y * width + minX; x <= maxX; x++, i++) {
+				if (w0 >= 0 && w1 >= 0 && w2 >= 0 && z > depth[i]) {
+					final int argb = src != null ? src[srcRow + x]
+							: img.getRGB(x - ox, y - oy);
+					final int alpha = argb >>> 24;
+					if (alpha == 255) {
+						pixels[i] = argb;
+						depth[i] = (float) z;
+					} else if (alpha != 0)
+						pixels[i] = blend(pixels[i], argb, alpha);
+				}
+				w0 += l0dx;
+				w1 += l1dx;
+				w2 += l2dx;
+				z += zdx;
+			}
+		}
+	}
+
+	/**
+	 * the opaque renderables are moved to the front of the array in no
+	 * particular order, because they are depth-tested, and the translucent
+	 * ones are sorted behind them far to near
+	 */
+	@Override
+	public void sort(final Renderable... r) {
+		int opaque = 0;
+		Renderable help;
+		for (int i = 0; i < r.length; i++) {
+			final Color c = r[i].getColor();
+			if (c == null || c.isOpaque()) {
+				help = r[opaque];
+				r[opaque] = r[i];
+				r[i] = help;
+				opaque++;
+			}
+		}
+		Sort.Radixsort.Renderables.sort(getShader().cam.getPos(), opaque,
+				r.length - 1, r);
+	}
+
+	/**
+	 * fills the triangle of the given pixel-coordinates and depth-keys
+	 * depth-tested within the whole image<br>
+	 * every filled polygon and triangle ends up here, subclasses may override
+	 * this to defer the rasterization
+	 *
+	 * @param x0
+	 *            pixel x-coordinate of edge 1
+	 * @param y0
+	 *            pixel y-coordinate of edge 1
+	 * @param z0
+	 *            depth-key of edge 1
+	 * @param x1
+	 *            pixel x-coordinate of edge 2
+	 * @param y1
+	 *            pixel y-coordinate of edge 2
+	 * @param z1
+	 *            depth-key of edge 2
+	 * @param x2
+	 *            pixel x-coordinate of edge 3
+	 * @param y2
+	 *            pixel y-coordinate of edge 3
+	 * @param z2
+	 *            depth-key of edge 3
+	 * @param argb
+	 *            the awt-rgba coding of the color to fill with
+	 */
+	protected void fillTriangle(final double x0, final double y0,
+			final double z0, final double x1, final double y1,
+			final double z1, final double x2, final double y2,
+			final double z2, final int argb) {
+		fillTriangle(x0, y0, z0, x1, y1, z1, x2, y2, z2, argb, 0, 0, width,
+				height);
+	}
+
+	/**
+	 * fills the triangle of the given pixel-coordinates and depth-keys
+	 * depth-tested within the clip-rectangle<br>
+	 * pixels outside the clip-rectangle are neither read nor written, so
+	 * disjoint clip-rectangles may be filled by different threads at once<br>
+	 * a pixel is covered if its center is within the triangle
+	 *
+	 * @param x0
+	 *            pixel x-coordinate of edge 1
+	 * @param y0
+	 *            pixel y-coordinate of edge 1
+	 * @param z0
+	 *            depth-key of edge 1
+	 * @param x1
+	 *            pixel x-coordinate of edge 2
+	 * @param y1
+	 *            pixel y-coordinate of edge 2
+	 * @param z1
+	 *            depth-key of edge 2
+	 * @param x2
+	 *            pixel x-coordinate of edge 3
+	 * @param y2
+	 *            pixel y-coordinate of edge 3
+	 * @param z2
+	 *            depth-key of edge 3
+	 * @param argb
+	 *            the awt-rgba coding of the color to fill with
+	 * @param clipX
+	 *            the first column to draw
+	 * @param clipY
+	 *            the first row to draw
+	 * @param clipMaxX
+	 *            the column after the last column to draw
+	 * @param clipMaxY
+	 *            the row after the last row to draw
+	 */
+	protected final void fillTriangle(final double x0, final double y0,
+			final double z0, final double x1, final double y1,
+			final double z1, final double x2, final double y2,
+			final double z2, final int argb, final int clipX,
+			final int clipY, final int clipMaxX, final int clipMaxY) {
+		final int alpha = argb >>> 24;
+		if (alpha == 0)
+			return;
+		final double area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+		if (!(area != 0) || Double.isInfinite(area))
+			return; // degenerated or not finite
+		final int minX = Math.max(clipX,
+				(int) Math.floor(Math.min(x0, Math.min(x1, x2))));
+		final int minY = Math.max(clipY,
+				(int) Math.floor(Math.min(y0, Math.min(y1, y2))));
+		final int maxX = Math.min(Math.min(clipMaxX, width) - 1,
+				(int) Math.ceil(Math.max(x0, Math.max(x1, x2))));
+		final int maxY = Math.min(Math.min(clipMaxY, height) - 1,
+				(int) Math.ceil(Math.max(y0, Math.max(y1, y2))));
+		if (minX > maxX || minY > maxY)
+			return;
+
+		// barycentric weights of the edges at the first pixel center and
+		// their increments per column and row
+		final double inv = 1d / area;
+		final double px = minX + .5, py = minY + .5;
+		final double l0 = ((x2 - x1) * (py - y1) - (y2 - y1) * (px - x1))
+				* inv;
+		final double l1 = ((x0 - x2) * (py - y2) - (y0 - y2) * (px - x2))
+				* inv;
+		final double l2 = ((x1 - x0) * (py - y0) - (y1 - y0) * (px - x0))
+				* inv;
+		final double l0dx = -(y2 - y1) * inv, l0dy = (x2 - x1) * inv;
+		final double l1dx = -(y0 - y2) * inv, l1dy = (x0 - x2) * inv;
+		final double l2dx = -(y1 - y0) * inv, l2dy = (x1 - x0) * inv;
+		final double zdx = l0dx * z0 + l1dx * z1 + l2dx * z2;
+
+		for (int y = minY; y <= maxY; y++) {
+			final int row = y - minY;
+			double w0 = l0 + row * l0dy;
+			double w1 = l1 + row * l1dy;
+			double w2 = l2 + row * l2dy;
+			double z = w0 * z0 + w1 * z1 + w2 * z2;
+			for (int x = minX, i = y * width + minX; x <= maxX; x++, i++) {
+				if (w0 >= 0 && w1 >= 0 && w2 >= 0 && z > depth[i]) {
+					if (alpha == 255) {
+						pixels[i] = argb;
+						depth[i] = (float) z;
+					} else
+						pixels[i] = blend(pixels[i], argb, alpha);
+				}
+				w0 += l0dx;
+				w1 += l1dx;
+				w2 += l2dx;
+				z += zdx;
+			}
+		}
+	}
+
+	/**
+	 * sets the pixel at the given index to the current color if it passes the
+	 * depth-test
+	 */
+	private void plot(final int i, final float z) {
+		if (z > depth[i]) {
+			final int alpha = argb >>> 24;
+			if (alpha == 255) {
+				pixels[i] = argb;
+				depth[i] = z;
+			} else if (alpha != 0)
+				pixels[i] = blend(pixels[i], argb, alpha);
+		}
+	}
+
+	/**
+	 * translucent colors are drawn over the pixel without writing the depth
+	 *
+	 * @return the source color with the given alpha over the destination
+	 */
+	private static int blend(final int dst, final int src, final int alpha) {
+		final int inv = 255 - alpha;
+		final int a = alpha + (((dst >>> 24) * inv) / 255);
+		final int r = (((src >> 16) & 0xFF) * alpha
+				+ ((dst >> 16) & 0xFF) * inv) / 255;
+		final int g = (((src >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inv)
+				/ 255;
+		final int b = ((src & 0xFF) * alpha + (dst & 0xFF) * inv) / 255;
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+
+	/**
+	 *
+	 * @return fast3d.graphics.RasterGraphics3d[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.graphics.RasterGraphics3d[" + "width=" + width
+				+ ";height=" + height + ";super=" + super.toString() + "]";
+	}
+}
@@ -0,0 +1,370 @@
+package fast3d.graphics;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import fast3d.complex.light.Light;
+import fast3d.math.Shader;
+import fast3d.math.Vector3d;
+
+/**
+ * a depth-buffered graphics3d that does not fill the triangles when they are
+ * drawn but collects them and rasterizes them at once on all cores<br>
+ * the image is split into square tiles, every collected triangle is binned
+ * into the tiles its bounding box overlaps and the tiles are filled in
+ * parallel by a ForkJoinPool, every tile clipped to its own pixels, so the
+ * threads never touch the same pixel and need no locking<br>
+ * within a tile the triangles are filled in the order they were drawn, so
+ * translucent triangles are blended just like by RasterGraphics3d<br>
+ * the collected triangles are flushed before anything else is drawn (pixels,
+ * lines, strings, the backing Graphics2D) and on dispose(), so the result is
+ * the same as drawn by a RasterGraphics3d<br>
+ * drawing is not thread-safe, only the rasterization is parallel
+ *
+ * @see #flush()
+ * @author Tim Trense
+ */
+public class TiledGraphics3d extends RasterGraphics3d {
+
+	/**
+	 * the default edge-length of a tile in pixel
+	 */
+	public static int defaultTileSize = 64;
+
+	/**
+	 * triangles to collect at least before a flush uses more than one thread
+	 */
+	private static final int MIN_PARALLEL_TRIANGLES = 64;
+
+	private final ForkJoinPool pool;
+	private final int tileSize, tilesX, tilesY;
+	private double[] coords;
+	private int[] colors;
+	private int count;
+	private int[] binStart, binned;
+
+	/**
+	 * constructs a graphics3d rasterizing into the given image on the common
+	 * ForkJoinPool
+	 *
+	 * @param img
+	 *            the image to draw on, of type BufferedImage.TYPE_INT_ARGB or
+	 *            BufferedImage.TYPE_INT_RGB
+	 * @param depth
+	 *            the depth-buffer with one entry per pixel of the image
+	 * @param sh
+	 *            the 3d/2d-converter
+	 * @param projections
+	 *            the buffer to store the shaded vertices of this frame in
+	 * @param lights
+	 *            all used lights to illuminate the scenery
+	 */
+	public TiledGraphics3d(final BufferedImage img, final float[] depth,
+			final Shader sh, final ProjectionBuffer projections,
+			final Light... lights) {
+		this(img, depth, sh, projections, ForkJoinPool.commonPool(),
+				defaultTileSize, lights);
+	}
+
+	/**
+	 * constructs a graphics3d rasterizing into the given image
+	 *
+	 * @param img
+	 *            the image to draw on, of type BufferedImage.TYPE_INT_ARGB or
+	 *            BufferedImage.TYPE_INT_RGB
+	 * @param depth
+	 *            the depth-buffer with one entry per pixel of the image
+	 * @param sh
+	 *            the 3d/2d-converter
+	 * @param projections
+	 *            the buffer to store the shaded vertices of this frame in
+	 * @param pool
+	 *            the threads to fill the tiles on
+	 * @param tileSize
+	 *            the edge-length of a tile in pixel
+	 * @param lights
+	 *            all used lights to illuminate the scenery
+	 */
+	public TiledGraphics3d(final BufferedImage img, final float[] depth,
+			final Shader sh, final ProjectionBuffer projections,
+			final ForkJoinPool pool, final int tileSize,
+			final Light... lights) {
+		super(img, depth, sh, projections, lights);
+		if (tileSize < 1)
+			throw new IllegalArgumentException("tile-size must be positive");
+		this.pool = pool;
+		this.tileSize = tileSize;
+		this.tilesX = (getWidth() + tileSize - 1) / tileSize;
+		this.tilesY = (getHeight() + tileSize - 1) / tileSize;
+		this.coords = new double[9 * 256];
+		this.colors = new int[256];
+		this.binStart = new int[tilesX * tilesY + 1];
+		this.binned = new int[256];
+	}
+
+	/**
+	 * @return the edge-length of a tile in pixel
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * @return the count of triangles collected since the last flush
+	 */
+	public int getPendingTriangles() {
+		return count;
+	}
+
+	/**
+	 * collects the triangle to be filled by the next flush()
+	 */
+	@Override
+	protected void fillTriangle(final double x0, final double y0,
+			final double z0, final double x1, final double y1,
+			final double z1, final double x2, final double y2,
+			final double z2, final int argb) {
+		if ((argb >>> 24) == 0)
+			return;
+		if (count == colors.length) {
+			colors = Arrays.copyOf(colors, 2 * count);
+			coords = Arrays.copyOf(coords, 18 * count);
+		}
+		final int c = 9 * count;
+		coords[c] = x0;
+		coords[c + 1] = y0;
+		coords[c + 2] = z0;
+		coords[c + 3] = x1;
+		coords[c + 4] = y1;
+		coords[c + 5] = z1;
+		coords[c + 6] = x2;
+		coords[c + 7] = y2;
+		coords[c + 8] = z2;
+		colors[count] = argb;
+		count++;
+	}
+
+	/**
+	 * fills all collected triangles into the image, the tiles in parallel<br>
+	 * called automatically before anything else is drawn
+	 */
+	public void flush() {
+		if (count == 0)
+			return;
+		final int tiles = bin();
+		if (tiles > 1 && count >= MIN_PARALLEL_TRIANGLES
+				&& pool.getParallelism() > 1)
+			pool.invoke(new Fill(0, tilesX * tilesY));
+		else
+			fillTiles(0, tilesX * tilesY);
+		count = 0;
+	}
+
+	/**
+	 * sorts the indices of the collected triangles by the tiles they overlap
+	 * (a counting sort, so the order of drawing is kept within each tile)
+	 *
+	 * @return the count of tiles having any triangle
+	 */
+	private int bin() {
+		Arrays.fill(binStart, 0);
+		int total = 0;
+		for (int t = 0; t < count; t++) {
+			final long range = tileRange(t);
+			if (range < 0)
+				continue;
+			for (int ty = ty0(range); ty <= ty1(range); ty++)
+				for (int tx = tx0(range); tx <= tx1(range); tx++) {
+					binStart[ty * tilesX + tx + 1]++;
+					total++;
+				}
+		}
+		int used = 0;
+		for (int i = 1; i < binStart.length; i++) {
+			if (binStart[i] > 0)
+				used++;
+			binStart[i] += binStart[i - 1];
+		}
+		if (binned.length < total)
+			binned = new int[Math.max(total, 2 * binned.length)];
+		final int[] next = Arrays.copyOf(binStart, binStart.length - 1);
+		for (int t = 0; t < count; t++) {
+			final long range = tileRange(t);
+			if (range < 0)
+				continue;
+			for (int ty = ty0(range); ty <= ty1(range); ty++)
+				for (int tx = tx0(range); tx <= tx1(range); tx++)
+					binned[next[ty * tilesX + tx]++] = t;
+		}
+		return used;
+	}
+
+	/**
+	 * @return the first and last tile-column and -row the bounding box of the
+	 *         triangle overlaps, packed into 16 bit each, or -1 if the
+	 *         triangle is not on the image
+	 */
+	private long tileRange(final int t) {
+		final int c = 9 * t;
+		final double minX = Math.min(coords[c], Math.min(coords[c + 3],
+				coords[c + 6]));
+		final double maxX = Math.max(coords[c], Math.max(coords[c + 3],
+				coords[c + 6]));
+		final double minY = Math.min(coords[c + 1], Math.min(coords[c + 4],
+				coords[c + 7]));
+		final double maxY = Math.max(coords[c + 1], Math.max(coords[c + 4],
+				coords[c + 7]));
+		if (!(maxX >= 0 && maxY >= 0 && minX < getWidth()
+				&& minY < getHeight()))
+			return -1; // off the image or not finite
+		final int tx0 = Math.max(0, (int) Math.floor(minX) / tileSize);
+		final int ty0 = Math.max(0, (int) Math.floor(minY) / tileSize);
+		final int tx1 = Math.min(tilesX - 1,
+				(int) Math.min(Math.ceil(maxX), getWidth()) / tileSize);
+		final int ty1 = Math.min(tilesY - 1,
+				(int) Math.min(Math.ceil(maxY), getHeight()) / tileSize);
+		return ((long) tx0 << 48) | ((long) ty0 << 32) | ((long) tx1 << 16)
+				| ty1;
+	}
+
+	private static int tx0(final long range) {
+		return (int) (range >>> 48) & 0xFFFF;
+	}
+
+	private static int ty0(final long range) {
+		return (int) (range >>> 32) & 0xFFFF;
+	}
+
+	private static int tx1(final long range) {
+		return (int) (range >>> 16) & 0xFFFF;
+	}
+
+	private static int ty1(final long range) {
+		return (int) range & 0xFFFF;
+	}
+
+	/**
+	 * fills the binned triangles of the tiles from (inclusive) to
+	 * (exclusive)
+	 */
+	private void fillTiles(final int from, final int to) {
+		for (int tile = from; tile < to; tile++) {
+			final int clipX = (tile % tilesX) * tileSize;
+			final int clipY = (tile / tilesX) * tileSize;
+			for (int i = binStart[tile]; i < binStart[tile + 1]; i++) {
+				final int t = binned[i];
+				final int c = 9 * t;
+				fillTriangle(coords[c], coords[c + 1], coords[c + 2],
+						coords[c + 3], coords[c + 4], coords[c + 5],
+						coords[c + 6], coords[c + 7], coords[c + 8],
+						colors[t], clipX, clipY, clipX + tileSize,
+						clipY + tileSize);
+			}
+		}
+	}
+
+	/**
+	 * splits a range of tiles until it is small enough to be filled by one
+	 * thread
+	 */
+	@SuppressWarnings("serial")
+	private class Fill extends RecursiveAction {
+
+		private final int from, to;
+
+		private Fill(final int from, final int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= 2 || binStart[to] - binStart[from] < 2
+					* MIN_PARALLEL_TRIANGLES) {
+				fillTiles(from, to);
+				return;
+			}
+			final int mid = (from + to) >>> 1;
+			invokeAll(new Fill(from, mid), new Fill(mid, to));
+		}
+	}
+
+	/**
+	 * drops the collected triangles and clears the image
+	 */
+	@Override
+	public void clear(final int rgb) {
+		count = 0;
+		super.clear(rgb);
+	}
+
+	/**
+	 * flushes the collected triangles before the pixel is drawn
+	 */
+	@Override
+	public void pixel(final Vector3d pos, final int width) {
+		flush();
+		super.pixel(pos, width);
+	}
+
+	/**
+	 * flushes the collected triangles before the line is drawn
+	 */
+	@Override
+	public void line(final Vector3d start, final Vector3d end) {
+		flush();
+		super.line(start, end);
+	}
+
+	/**
+	 * flushes the collected triangles before the polyline is drawn
+	 */
+	@Override
+	public void polyline(final Vector3d... ps) {
+		flush();
+		super.polyline(ps);
+	}
+
+	/**
+	 * flushes the collected triangles before the image is drawn
+	 */
+	@Override
+	public void image(final BufferedImage img, final int x, final int y,
+			final Vector3d a, final Vector3d b, final Vector3d c) {
+		flush();
+		super.image(img, x, y, a, b, c);
+	}
+
+	/**
+	 * flushes the collected triangles before the string is drawn
+	 */
+	@Override
+	public void drawString(final String text, final Vector3d pos) {
+		flush();
+		super.drawString(text, pos);
+	}
+
+	/**
+	 * flushes the collected triangles, so that everything drawn by the
+	 * returned Graphics2D is drawn over them
+	 */
+	@Override
+	public Graphics2D getGraphics2d() {
+		flush();
+		return super.getGraphics2d();
+	}
+
+	/**
+	 *
+	 * @return fast3d.graphics.TiledGraphics3d[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.graphics.TiledGraphics3d[" + "tileSize=" + tileSize
+				+ ";tiles=" + tilesX + "x" + tilesY + ";pending=" + count
+				+ ";super=" + super.toString() + "]";
+	}
+}
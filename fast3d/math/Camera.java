@@ -1,5 +1,7 @@
 package fast3d.math;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * each shader needs information about the camera-setting to shade from, to
  * project all the vertices correctly to the screen<br>
@@ -32,6 +34,15 @@ public class Camera {
 	 */
 	/* package */ final Vector3d screenWidth, screenHeight;
 
+	// the versions are unique among all cameras, a snapshot keeps the one of
+	// its camera, so equal versions mean equal settings
+	private static final AtomicLong VERSIONS = new AtomicLong();
+	private volatile long version = VERSIONS.incrementAndGet();
+	// the mode as it was at the current version, the fields of the mode are
+	// public, so its changes are detected by comparison in checkMode(),
+	// guarded by the monitor of this
+	private CameraMode versionedMode;
+
 	/**
 	 * position=Vector3d.zero <br>
 	 * lookDirection=Vector3d.forward <br>
@@ -64,6 +75,7 @@ public class Camera {
 		this.screenWidth = sW;
 		this.screenHeight = sH;
 		this.mode = mode;
+		this.versionedMode = mode.clone();
 	}
 
 	/**
@@ -92,9 +104,82 @@ public class Camera {
 	protected Camera clone() {
 		final Camera cam = new Camera(getPos().clone(), getScreenOrig().clone(),
 				getScreenWidth().clone(), getScreenHeight().clone(), mode);
+		cam.version = checkMode();
+		return cam;
+	}
+
+	/**
+	 * unlike clone() the mode is copied too, so that the snapshot is not
+	 * affected by any later change of this camera<br>
+	 * the version of the snapshot is the one of the copied mode, even if the
+	 * mode is changed by another thread meanwhile
+	 * 
+	 * @return an independent but equal camera setting to render a frame with
+	 *         while this camera is moved on
+	 */
+	public synchronized Camera snapshot() {
+		final CameraMode m = mode.clone();
+		final long v = checkMode(m);
+		final Camera cam = new Camera(getPos().clone(),
+				getScreenOrig().clone(), getScreenWidth().clone(),
+				getScreenHeight().clone(), m);
+		cam.version = v;
 		return cam;
 	}
 
+	/**
+	 * the version changes with every change of the position, orientation,
+	 * aspect ratio or mode of this, so that results depending only on the
+	 * camera-setting (e.g. projected vertices) can be reused as long as it
+	 * stays the same<br>
+	 * versions are unique among all cameras, a snapshot or clone has the
+	 * version of its camera<br>
+	 * the fields of the mode may be changed directly, so the version does
+	 * not count a change of the mode until checkMode() is called
+	 * 
+	 * @see #changed()
+	 * @see #checkMode()
+	 * @return the current version of the camera-setting
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * compares the mode with the one of the current version and changes the
+	 * version if they differ, called by the Shader and by snapshot()
+	 * 
+	 * @return the current version of the camera-setting including the mode
+	 */
+	public synchronized long checkMode() {
+		return mode.equals(versionedMode) ? version : checkMode(mode.clone());
+	}
+
+	/**
+	 * has to be called while holding the monitor of this
+	 * 
+	 * @param current
+	 *            a copy of the mode, not changed afterwards
+	 * @return the version of the copied mode
+	 */
+	private long checkMode(final CameraMode current) {
+		if (!current.equals(versionedMode)) {
+			versionedMode = current.clone();
+			changed();
+		}
+		return version;
+	}
+
+	/**
+	 * has to be called after the vectors of this were changed directly (e.g.
+	 * through getPos()), the methods of this call it themselves
+	 * 
+	 * @see #getVersion()
+	 */
+	public void changed() {
+		version = VERSIONS.incrementAndGet();
+	}
+
 	/**
 	 * just usable for debug
 	 */
@@ -115,6 +200,7 @@ public class Camera {
 		screenOrigin.sub(pos);
 		this.pos.set(newpos);
 		screenOrigin.add(pos);
+		changed();
 	}
 
 	/**
@@ -187,6 +273,7 @@ public class Camera {
 
 		middle.add(getScreenDiagon().invert().scale(0.5));
 		this.screenOrigin.set(middle);
+		changed();
 	}
 
 	/**
@@ -255,6 +342,36 @@ public class Camera {
 		this.lookTo(Vector3d.zero(), Vector3d.up());
 	}
 
+	/**
+	 * the rotation turning Vector3d.forward() into the look-direction and
+	 * Vector3d.up() into the up-direction, the screen-axes are made
+	 * orthonormal before, so that it is always an exact rotation
+	 * 
+	 * @return the current orientation as an independent quaternion
+	 */
+	public Quaternion getOrientation() {
+		final Vector3d right = screenWidth.clone().normalize();
+		final Vector3d dir = getLookDir();
+		final Vector3d up = Vector3d.crossP(right, dir).normalize();
+		return new Quaternion().set(new Matrix3d().setColumns(right, up,
+				dir.invert()));
+	}
+
+	/**
+	 * looks along the rotated Vector3d.forward() with the rotated
+	 * Vector3d.up() as up-direction, just like lookInDirection()
+	 * 
+	 * @param orientation
+	 *            the rotation of the camera (will not be changed)
+	 * @param zoom
+	 *            positive value; the distance between camera position and
+	 *            virtual screen
+	 */
+	public void setOrientation(final Quaternion orientation, final double zoom) {
+		lookInDirection(orientation.rotate(Vector3d.forward()).scale(zoom),
+				orientation.rotate(Vector3d.up()));
+	}
+
 	/**
 	 * rotates the look direction around the constant x axis
 	 * 
@@ -262,7 +379,7 @@ public class Camera {
 	 *            the angle to rotate mathematically positive in radiant
 	 */
 	public void rotX(final double rad) {
-		lookInDirection(getLookDir().rotX(rad), getUpVector().rotX(rad));
+		rot(new Quaternion().setRotationX(rad));
 	}
 
 	/**
@@ -272,7 +389,7 @@ public class Camera {
 	 *            the angle to rotate mathematically positive in radiant
 	 */
 	public void rotY(final double rad) {
-		lookInDirection(getLookDir().rotY(rad), getUpVector().rotY(rad));
+		rot(new Quaternion().setRotationY(rad));
 	}
 
 	/**
@@ -282,7 +399,7 @@ public class Camera {
 	 *            the angle to rotate mathematically positive in radiant
 	 */
 	public void rotZ(final double rad) {
-		lookInDirection(getLookDir().rotZ(rad), getUpVector().rotZ(rad));
+		rot(new Quaternion().setRotationZ(rad));
 	}
 
 	/**
@@ -294,7 +411,17 @@ public class Camera {
 	 *            the angle to rotate mathematically positive in radiant
 	 */
 	public void rot(final Vector3d axis, final double rad) {
-		lookInDirection(getLookDir().rot(axis, rad), getUpVector().rot(axis, rad));
+		rot(new Quaternion().setRotation(axis, rad));
+	}
+
+	/**
+	 * composes the rotation with the orthonormal orientation instead of
+	 * rotating the screen-axes themselves, so that many small rotations do not
+	 * let look- and up-direction drift apart from being orthogonal<br>
+	 * the zoom is reset to 1 like before
+	 */
+	private void rot(final Quaternion r) {
+		setOrientation(getOrientation().preMul(r).normalize(), 1);
 	}
 
 	/**
@@ -305,6 +432,10 @@ public class Camera {
 	 *            the ratio of display width divided by display height
 	 */
 	public void applyAspectRatioWpH(final double widthPerHeight) {
+		// called every frame, so an unchanged ratio must keep the version
+		if (isScaledTo(screenWidth, widthPerHeight)
+				&& isScaledTo(screenHeight, 1))
+			return;
 		final Vector3d xcenter = screenOrigin.clone().add(screenWidth.scale(.5));
 		// screenWidth is resized regarding that it has to be resized not only
 		// to right
@@ -312,6 +443,7 @@ public class Camera {
 		screenWidth.scaleTo(widthPerHeight);
 		screenHeight.normalize();
 		screenOrigin.set(xcenter.add(screenWidth.clone().scale(-.5)));
+		changed();
 	}
 
 	/**
@@ -329,6 +461,9 @@ public class Camera {
 	 *            the ratio of display height divided by display width
 	 */
 	public void applyAspectRatioHpW(final double heightPerWidth) {
+		if (isScaledTo(screenHeight, heightPerWidth)
+				&& isScaledTo(screenWidth, 1))
+			return;
 		final Vector3d ycenter = screenOrigin.clone().add(screenHeight.scale(.5));
 		// screenHeight is resized regarding that it has to be resized not only
 		// to down
@@ -336,6 +471,11 @@ public class Camera {
 		screenHeight.scaleTo(heightPerWidth);
 		screenWidth.normalize();
 		screenOrigin.set(ycenter.add(screenHeight.clone().scale(-.5)));
+		changed();
+	}
+
+	private static boolean isScaledTo(final Vector3d v, final double length) {
+		return Math.abs(v.length() - length) <= 1e-12 * length;
 	}
 
 	/**
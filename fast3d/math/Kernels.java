@@ -0,0 +1,265 @@
+package fast3d.math;
+
+/**
+ * bulk operations over flat primitive arrays of vectors (vector i at
+ * array[3*i], array[3*i+1], array[3*i+2]) without creating any object<br>
+ * this implementation uses plain scalar loops and is always available, the
+ * instance returned by get() is selected once on startup: if the class named
+ * by the system property "fast3d.kernels" (default is
+ * fast3d.math.VectorKernels, which uses the incubating vector api of the jdk
+ * and is compiled separately from the vector/ source folder) can be loaded,
+ * it is used, otherwise this one<br>
+ * the value "scalar" for the property forces this implementation<br>
+ * a subclass may compute in float instead of double precision, so its
+ * results may differ from these in the last bits
+ *
+ * @author Tim Trense
+ */
+public class Kernels {
+
+	private static final Kernels INSTANCE = load();
+
+	/**
+	 * only to be called by subclasses, use get()
+	 */
+	protected Kernels() {
+	}
+
+	/**
+	 * @return the kernels selected on startup
+	 */
+	public static Kernels get() {
+		return INSTANCE;
+	}
+
+	private static Kernels load() {
+		String name;
+		try {
+			name = System.getProperty("fast3d.kernels",
+					"fast3d.math.VectorKernels");
+		} catch (SecurityException e) {
+			name = "scalar";
+		}
+		if (!name.equals("scalar"))
+			try {
+				return Class.forName(name).asSubclass(Kernels.class)
+						.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError
+					| ClassCastException | SecurityException e) {
+				// not present or the vector api is not available: the
+				// scalar loops work everywhere
+			}
+		return new Kernels();
+	}
+
+	/**
+	 * @return a short name of the implementation, "scalar" for this one
+	 */
+	public String getName() {
+		return "scalar";
+	}
+
+	/**
+	 * transforms count points of the flat xyz-array beginning at point first
+	 * into the other array (may be the same)
+	 *
+	 * @see fast3d.math.Matrix4d#transformPoints(float[], int, int, float[])
+	 * @param m
+	 *            the transformation
+	 * @param src
+	 *            the flat xyz-coordinates of the points
+	 * @param first
+	 *            the index of the first point
+	 * @param count
+	 *            the count of points to transform
+	 * @param dst
+	 *            receives the transformed coordinates at the same indices
+	 */
+	public void transformPoints(final Matrix4d m, final float[] src,
+			final int first, final int count, final float[] dst) {
+		for (int j = 3 * first, end = 3 * (first + count); j < end; j += 3) {
+			final double x = src[j], y = src[j + 1], z = src[j + 2];
+			dst[j] = (float) (m.m00 * x + m.m01 * y + m.m02 * z + m.m03);
+			dst[j + 1] = (float) (m.m10 * x + m.m11 * y + m.m12 * z + m.m13);
+			dst[j + 2] = (float) (m.m20 * x + m.m21 * y + m.m22 * z + m.m23);
+		}
+	}
+
+	/**
+	 * transforms count directions of the flat xyz-array beginning at
+	 * direction first into the other array (may be the same), they are not
+	 * translated
+	 *
+	 * @see fast3d.math.Matrix4d#transformDirections(float[], int, int,
+	 *      float[])
+	 * @param m
+	 *            the transformation
+	 * @param src
+	 *            the flat xyz-coordinates of the directions
+	 * @param first
+	 *            the index of the first direction
+	 * @param count
+	 *            the count of directions to transform
+	 * @param dst
+	 *            receives the transformed coordinates at the same indices
+	 */
+	public void transformDirections(final Matrix4d m, final float[] src,
+			final int first, final int count, final float[] dst) {
+		for (int j = 3 * first, end = 3 * (first + count); j < end; j += 3) {
+			final double x = src[j], y = src[j + 1], z = src[j + 2];
+			dst[j] = (float) (m.m00 * x + m.m01 * y + m.m02 * z);
+			dst[j + 1] = (float) (m.m10 * x + m.m11 * y + m.m12 * z);
+			dst[j + 2] = (float) (m.m20 * x + m.m21 * y + m.m22 * z);
+		}
+	}
+
+	/**
+	 * projects count vertices of the flat xyz-array beginning at vertex
+	 * first to the screen of the shader, exactly as
+	 * Shader.projectAll(float[], ...) describes
+	 *
+	 * @see fast3d.math.Shader#projectAll(float[], int, int, float[], float[],
+	 *      float[], long[])
+	 * @param s
+	 *            the shader to project with
+	 * @param positions
+	 *            the flat xyz-coordinates of the vertices
+	 * @param first
+	 *            the index of the first vertex to shade
+	 * @param count
+	 *            the count of vertices to shade
+	 * @param x
+	 *            receives the pixel x-coordinates, at least first+count long
+	 * @param y
+	 *            receives the pixel y-coordinates, at least first+count long
+	 * @param depth
+	 *            receives the depth-keys, at least first+count long
+	 * @param visible
+	 *            receives the visibility-bits, at least (first+count+63)/64
+	 *            long
+	 * @return the count of visible vertices
+	 */
+	public int project(final Shader s, final float[] positions,
+			final int first, final int count, final float[] x,
+			final float[] y, final float[] depth, final long[] visible) {
+		int visibles = 0;
+		for (int i = first, j = 3 * first; i < first + count; i++, j += 3)
+			if (s.project(positions[j], positions[j + 1], positions[j + 2], i,
+					x, y, depth, visible))
+				visibles++;
+		return visibles;
+	}
+
+	/**
+	 * dst[i] = a[i] * b[i] for the vectors i of the flat xyz-arrays
+	 *
+	 * @param a
+	 *            the flat xyz-coordinates of the first vectors
+	 * @param b
+	 *            the flat xyz-coordinates of the second vectors
+	 * @param first
+	 *            the index of the first vector
+	 * @param count
+	 *            the count of vectors
+	 * @param dst
+	 *            receives the dot products, at least first+count long
+	 */
+	public void dot(final float[] a, final float[] b, final int first,
+			final int count, final float[] dst) {
+		for (int i = first, j = 3 * first; i < first + count; i++, j += 3)
+			dst[i] = (float) ((double) a[j] * b[j] + (double) a[j + 1] * b[j + 1]
+					+ (double) a[j + 2] * b[j + 2]);
+	}
+
+	/**
+	 * dst[i] = a[i] * (x,y,z) for the vectors i of the flat xyz-array, e.g.
+	 * the lambert-factors of normals and a light-direction
+	 *
+	 * @param a
+	 *            the flat xyz-coordinates of the vectors
+	 * @param first
+	 *            the index of the first vector
+	 * @param count
+	 *            the count of vectors
+	 * @param x
+	 *            the x-coordinate of the constant vector
+	 * @param y
+	 *            the y-coordinate of the constant vector
+	 * @param z
+	 *            the z-coordinate of the constant vector
+	 * @param dst
+	 *            receives the dot products, at least first+count long
+	 */
+	public void dot(final float[] a, final int first, final int count,
+			final double x, final double y, final double z,
+			final float[] dst) {
+		for (int i = first, j = 3 * first; i < first + count; i++, j += 3)
+			dst[i] = (float) (a[j] * x + a[j + 1] * y + a[j + 2] * z);
+	}
+
+	/**
+	 * dst[i] = a[i] X b[i] for the vectors i of the flat xyz-arrays, dst may
+	 * be one of them
+	 *
+	 * @param a
+	 *            the flat xyz-coordinates of the first vectors
+	 * @param b
+	 *            the flat xyz-coordinates of the second vectors
+	 * @param first
+	 *            the index of the first vector
+	 * @param count
+	 *            the count of vectors
+	 * @param dst
+	 *            receives the cross products at the same indices
+	 */
+	public void cross(final float[] a, final float[] b, final int first,
+			final int count, final float[] dst) {
+		for (int j = 3 * first, end = 3 * (first + count); j < end; j += 3) {
+			final double ax = a[j], ay = a[j + 1], az = a[j + 2];
+			final double bx = b[j], by = b[j + 1], bz = b[j + 2];
+			dst[j] = (float) (ay * bz - az * by);
+			dst[j + 1] = (float) (az * bx - ax * bz);
+			dst[j + 2] = (float) (ax * by - ay * bx);
+		}
+	}
+
+	/**
+	 * scales every vector of the flat xyz-array to the length 1 like
+	 * Vector3d.normalize(), the zero-vector stays as it is
+	 *
+	 * @param src
+	 *            the flat xyz-coordinates of the vectors
+	 * @param first
+	 *            the index of the first vector
+	 * @param count
+	 *            the count of vectors
+	 * @param dst
+	 *            receives the normalized vectors at the same indices (may be
+	 *            src)
+	 */
+	public void normalize(final float[] src, final int first,
+			final int count, final float[] dst) {
+		for (int j = 3 * first, end = 3 * (first + count); j < end; j += 3) {
+			final double x = src[j], y = src[j + 1], z = src[j + 2];
+			final double fac = 1d / Math.sqrt(x * x + y * y + z * z);
+			if (Double.isFinite(fac)) {
+				dst[j] = (float) (x * fac);
+				dst[j + 1] = (float) (y * fac);
+				dst[j + 2] = (float) (z * fac);
+			} else {
+				dst[j] = src[j];
+				dst[j + 1] = src[j + 1];
+				dst[j + 2] = src[j + 2];
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return fast3d.math.Kernels[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.math.Kernels[" + "name=" + getName() + "]";
+	}
+}
@@ -0,0 +1,443 @@
+package fast3d.math;
+
+/**
+ * a 3x3-matrix to rotate and scale vectors<br>
+ * all operations change this in place and create no object, transforming
+ * means multiplying the matrix with the vector as defined mathematical
+ *
+ * @see fast3d.math.Matrix4d
+ * @author Tim Trense
+ */
+public class Matrix3d {
+
+	/**
+	 * the first row
+	 */
+	public double m00, m01, m02;
+	/**
+	 * the second row
+	 */
+	public double m10, m11, m12;
+	/**
+	 * the third row
+	 */
+	public double m20, m21, m22;
+
+	/**
+	 * constructs the identity
+	 */
+	public Matrix3d() {
+		setIdentity();
+	}
+
+	/**
+	 * constructs a copy of the given matrix
+	 *
+	 * @param m
+	 *            the matrix to copy
+	 */
+	public Matrix3d(final Matrix3d m) {
+		set(m);
+	}
+
+	/**
+	 * @return this as the identity
+	 */
+	public Matrix3d setIdentity() {
+		m00 = 1;
+		m01 = 0;
+		m02 = 0;
+		m10 = 0;
+		m11 = 1;
+		m12 = 0;
+		m20 = 0;
+		m21 = 0;
+		m22 = 1;
+		return this;
+	}
+
+	/**
+	 * @param m
+	 *            the matrix to copy
+	 * @return this as a copy of the given matrix
+	 */
+	public Matrix3d set(final Matrix3d m) {
+		m00 = m.m00;
+		m01 = m.m01;
+		m02 = m.m02;
+		m10 = m.m10;
+		m11 = m.m11;
+		m12 = m.m12;
+		m20 = m.m20;
+		m21 = m.m21;
+		m22 = m.m22;
+		return this;
+	}
+
+	/**
+	 * @param q
+	 *            the rotation, has to be normalized
+	 * @return this as the matrix rotating like the quaternion
+	 */
+	public Matrix3d set(final Quaternion q) {
+		final double xx = q.x * q.x, yy = q.y * q.y, zz = q.z * q.z;
+		final double xy = q.x * q.y, xz = q.x * q.z, yz = q.y * q.z;
+		final double wx = q.w * q.x, wy = q.w * q.y, wz = q.w * q.z;
+		m00 = 1 - 2 * (yy + zz);
+		m01 = 2 * (xy - wz);
+		m02 = 2 * (xz + wy);
+		m10 = 2 * (xy + wz);
+		m11 = 1 - 2 * (xx + zz);
+		m12 = 2 * (yz - wx);
+		m20 = 2 * (xz - wy);
+		m21 = 2 * (yz + wx);
+		m22 = 1 - 2 * (xx + yy);
+		return this;
+	}
+
+	/**
+	 * @param x
+	 *            the first column
+	 * @param y
+	 *            the second column
+	 * @param z
+	 *            the third column
+	 * @return this as the matrix mapping the axes to the given vectors
+	 */
+	public Matrix3d setColumns(final Vector3d x, final Vector3d y,
+			final Vector3d z) {
+		m00 = x.x;
+		m10 = x.y;
+		m20 = x.z;
+		m01 = y.x;
+		m11 = y.y;
+		m21 = y.z;
+		m02 = z.x;
+		m12 = z.y;
+		m22 = z.z;
+		return this;
+	}
+
+	/**
+	 * the same matrix as MatrixCalculation.rotationMatrix(axis, rad)
+	 *
+	 * @param axis
+	 *            the axe to rotate around in mathematically positive direction
+	 *            (need not to be normalized)
+	 * @param rad
+	 *            the rotation angle in radiant
+	 * @return this as the rotation
+	 */
+	public Matrix3d setRotation(final Vector3d axis, final double rad) {
+		final double fac = 1d / axis.length();
+		final boolean finite = Double.isFinite(fac);
+		final double x = finite ? axis.x * fac : axis.x;
+		final double y = finite ? axis.y * fac : axis.y;
+		final double z = finite ? axis.z * fac : axis.z;
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		m00 = x * x * (1 - c) + c;
+		m01 = x * y * (1 - c) - z * s;
+		m02 = x * z * (1 - c) + y * s;
+		m10 = x * y * (1 - c) + z * s;
+		m11 = y * y * (1 - c) + c;
+		m12 = y * z * (1 - c) - x * s;
+		m20 = x * z * (1 - c) - y * s;
+		m21 = y * z * (1 - c) + x * s;
+		m22 = z * z * (1 - c) + c;
+		return this;
+	}
+
+	/**
+	 * @param rad
+	 *            the angle for rotation around the x axis in mathematically
+	 *            positive direction in radiant
+	 * @return this as the rotation
+	 */
+	public Matrix3d setRotationX(final double rad) {
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		setIdentity();
+		m11 = c;
+		m12 = -s;
+		m21 = s;
+		m22 = c;
+		return this;
+	}
+
+	/**
+	 * @param rad
+	 *            the angle for rotation around the y axis in mathematically
+	 *            positive direction in radiant
+	 * @return this as the rotation
+	 */
+	public Matrix3d setRotationY(final double rad) {
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		setIdentity();
+		m00 = c;
+		m02 = s;
+		m20 = -s;
+		m22 = c;
+		return this;
+	}
+
+	/**
+	 * @param rad
+	 *            the angle for rotation around the z axis in mathematically
+	 *            positive direction in radiant
+	 * @return this as the rotation
+	 */
+	public Matrix3d setRotationZ(final double rad) {
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		setIdentity();
+		m00 = c;
+		m01 = -s;
+		m10 = s;
+		m11 = c;
+		return this;
+	}
+
+	/**
+	 * this = this * m, so that m is applied first
+	 *
+	 * @param m
+	 *            the matrix to multiply with from the right
+	 * @return this
+	 */
+	public Matrix3d mul(final Matrix3d m) {
+		final double a00 = m00 * m.m00 + m01 * m.m10 + m02 * m.m20;
+		final double a01 = m00 * m.m01 + m01 * m.m11 + m02 * m.m21;
+		final double a02 = m00 * m.m02 + m01 * m.m12 + m02 * m.m22;
+		final double a10 = m10 * m.m00 + m11 * m.m10 + m12 * m.m20;
+		final double a11 = m10 * m.m01 + m11 * m.m11 + m12 * m.m21;
+		final double a12 = m10 * m.m02 + m11 * m.m12 + m12 * m.m22;
+		final double a20 = m20 * m.m00 + m21 * m.m10 + m22 * m.m20;
+		final double a21 = m20 * m.m01 + m21 * m.m11 + m22 * m.m21;
+		final double a22 = m20 * m.m02 + m21 * m.m12 + m22 * m.m22;
+		m00 = a00;
+		m01 = a01;
+		m02 = a02;
+		m10 = a10;
+		m11 = a11;
+		m12 = a12;
+		m20 = a20;
+		m21 = a21;
+		m22 = a22;
+		return this;
+	}
+
+	/**
+	 * this = m * this, so that m is applied after this
+	 *
+	 * @param m
+	 *            the matrix to multiply with from the left
+	 * @return this
+	 */
+	public Matrix3d preMul(final Matrix3d m) {
+		final double a00 = m.m00 * m00 + m.m01 * m10 + m.m02 * m20;
+		final double a01 = m.m00 * m01 + m.m01 * m11 + m.m02 * m21;
+		final double a02 = m.m00 * m02 + m.m01 * m12 + m.m02 * m22;
+		final double a10 = m.m10 * m00 + m.m11 * m10 + m.m12 * m20;
+		final double a11 = m.m10 * m01 + m.m11 * m11 + m.m12 * m21;
+		final double a12 = m.m10 * m02 + m.m11 * m12 + m.m12 * m22;
+		final double a20 = m.m20 * m00 + m.m21 * m10 + m.m22 * m20;
+		final double a21 = m.m20 * m01 + m.m21 * m11 + m.m22 * m21;
+		final double a22 = m.m20 * m02 + m.m21 * m12 + m.m22 * m22;
+		m00 = a00;
+		m01 = a01;
+		m02 = a02;
+		m10 = a10;
+		m11 = a11;
+		m12 = a12;
+		m20 = a20;
+		m21 = a21;
+		m22 = a22;
+		return this;
+	}
+
+	/**
+	 * @param factor
+	 *            the factor to multiply all entries with
+	 * @return this
+	 */
+	public Matrix3d scale(final double factor) {
+		m00 *= factor;
+		m01 *= factor;
+		m02 *= factor;
+		m10 *= factor;
+		m11 *= factor;
+		m12 *= factor;
+		m20 *= factor;
+		m21 *= factor;
+		m22 *= factor;
+		return this;
+	}
+
+	/**
+	 * @return this mirrored at its diagonal, which inverts a rotation
+	 */
+	public Matrix3d transpose() {
+		double t = m01;
+		m01 = m10;
+		m10 = t;
+		t = m02;
+		m02 = m20;
+		m20 = t;
+		t = m12;
+		m12 = m21;
+		m21 = t;
+		return this;
+	}
+
+	/**
+	 * @return the determinant
+	 */
+	public double determinant() {
+		return m00 * (m11 * m22 - m12 * m21) + m01 * (m12 * m20 - m10 * m22)
+				+ m02 * (m10 * m21 - m11 * m20);
+	}
+
+	/**
+	 * inverts this in place
+	 *
+	 * @return this
+	 * @throws ArithmeticException
+	 *             if this is not invertible
+	 */
+	public Matrix3d invert() {
+		final double c00 = m11 * m22 - m12 * m21;
+		final double c01 = m12 * m20 - m10 * m22;
+		final double c02 = m10 * m21 - m11 * m20;
+		final double det = m00 * c00 + m01 * c01 + m02 * c02;
+		if (det == 0)
+			throw new ArithmeticException("matrix is not invertible");
+		final double d = 1 / det;
+		final double a01 = (m02 * m21 - m01 * m22) * d;
+		final double a02 = (m01 * m12 - m02 * m11) * d;
+		final double a11 = (m00 * m22 - m02 * m20) * d;
+		final double a12 = (m02 * m10 - m00 * m12) * d;
+		final double a21 = (m01 * m20 - m00 * m21) * d;
+		final double a22 = (m00 * m11 - m01 * m10) * d;
+		m00 = c00 * d;
+		m01 = a01;
+		m02 = a02;
+		m10 = c01 * d;
+		m11 = a11;
+		m12 = a12;
+		m20 = c02 * d;
+		m21 = a21;
+		m22 = a22;
+		return this;
+	}
+
+	/**
+	 * transforms the vector in place
+	 *
+	 * @param v
+	 *            the vector to transform
+	 * @return the parameter
+	 */
+	public Vector3d transform(final Vector3d v) {
+		final double x = (m00 * v.x) + (m01 * v.y) + (m02 * v.z);
+		final double y = (m10 * v.x) + (m11 * v.y) + (m12 * v.z);
+		final double z = (m20 * v.x) + (m21 * v.y) + (m22 * v.z);
+		v.x = x;
+		v.y = y;
+		v.z = z;
+		return v;
+	}
+
+	/**
+	 * transforms all vectors in place
+	 *
+	 * @param vs
+	 *            the vectors to transform, every one only once
+	 */
+	public void transformAll(final Vector3d[] vs) {
+		for (Vector3d v : vs)
+			transform(v);
+	}
+
+	/**
+	 * transforms count vectors of the flat xyz-array beginning at vector
+	 * first into the other array (may be the same)
+	 *
+	 * @param src
+	 *            the flat xyz-coordinates of the vectors
+	 * @param first
+	 *            the index of the first vector
+	 * @param count
+	 *            the count of vectors to transform
+	 * @param dst
+	 *            receives the transformed coordinates at the same indices
+	 */
+	public void transformAll(final float[] src, final int first,
+			final int count, final float[] dst) {
+		for (int j = 3 * first, end = 3 * (first + count); j < end; j += 3) {
+			final double x = src[j], y = src[j + 1], z = src[j + 2];
+			dst[j] = (float) (m00 * x + m01 * y + m02 * z);
+			dst[j + 1] = (float) (m10 * x + m11 * y + m12 * z);
+			dst[j + 2] = (float) (m20 * x + m21 * y + m22 * z);
+		}
+	}
+
+	/**
+	 * @return an independent copy
+	 */
+	@Override
+	public Matrix3d clone() {
+		return new Matrix3d(this);
+	}
+
+	/**
+	 * compares this with the parameter and returns false if the parameter is
+	 * not of the same type<br>
+	 *
+	 * @return whether this and the given Matrix3d have equal entries
+	 **/
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj instanceof Matrix3d) {
+			final Matrix3d m = (Matrix3d) obj;
+			return m00 == m.m00 && m01 == m.m01 && m02 == m.m02
+					&& m10 == m.m10 && m11 == m.m11 && m12 == m.m12
+					&& m20 == m.m20 && m21 == m.m21 && m22 == m.m22;
+		} else
+			return false;
+	}
+
+	/**
+	 * consistent with equals(), so entries of 0 and -0 hash the same
+	 *
+	 * @return a hash of the entries
+	 **/
+	@Override
+	public int hashCode() {
+		int h = 1;
+		h = hash(h, m00);
+		h = hash(h, m01);
+		h = hash(h, m02);
+		h = hash(h, m10);
+		h = hash(h, m11);
+		h = hash(h, m12);
+		h = hash(h, m20);
+		h = hash(h, m21);
+		h = hash(h, m22);
+		return h;
+	}
+
+	private static int hash(final int h, final double v) {
+		return 31 * h + Double.hashCode(v + 0.0); // -0 + 0 is 0
+	}
+
+	/**
+	 *
+	 * @return fast3d.math.Matrix3d[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.math.Matrix3d[" + "row0=" + m00 + "," + m01 + ","
+				+ m02 + ";row1=" + m10 + "," + m11 + "," + m12 + ";row2="
+				+ m20 + "," + m21 + "," + m22 + "]";
+	}
+}
@@ -0,0 +1,441 @@
+package fast3d.math;
+
+/**
+ * an affine transformation as a 4x4-matrix, whose last row is always
+ * (0,0,0,1)<br>
+ * the upper-left 3x3-part rotates and scales, the last column translates<br>
+ * all operations change this in place and create no object, transforming
+ * means multiplying the matrix with the vector as defined mathematical
+ * (points are translated, directions are not)
+ *
+ * @author Tim Trense
+ */
+public class Matrix4d {
+
+	/**
+	 * the first row
+	 */
+	public double m00, m01, m02, m03;
+	/**
+	 * the second row
+	 */
+	public double m10, m11, m12, m13;
+	/**
+	 * the third row
+	 */
+	public double m20, m21, m22, m23;
+
+	/**
+	 * constructs the identity
+	 */
+	public Matrix4d() {
+		setIdentity();
+	}
+
+	/**
+	 * constructs a copy of the given matrix
+	 *
+	 * @param m
+	 *            the matrix to copy
+	 */
+	public Matrix4d(final Matrix4d m) {
+		set(m);
+	}
+
+	/**
+	 * @return this as the identity
+	 */
+	public Matrix4d setIdentity() {
+		m00 = 1;
+		m01 = 0;
+		m02 = 0;
+		m03 = 0;
+		m10 = 0;
+		m11 = 1;
+		m12 = 0;
+		m13 = 0;
+		m20 = 0;
+		m21 = 0;
+		m22 = 1;
+		m23 = 0;
+		return this;
+	}
+
+	/**
+	 * @param m
+	 *            the matrix to copy
+	 * @return this as a copy of the given matrix
+	 */
+	public Matrix4d set(final Matrix4d m) {
+		m00 = m.m00;
+		m01 = m.m01;
+		m02 = m.m02;
+		m03 = m.m03;
+		m10 = m.m10;
+		m11 = m.m11;
+		m12 = m.m12;
+		m13 = m.m13;
+		m20 = m.m20;
+		m21 = m.m21;
+		m22 = m.m22;
+		m23 = m.m23;
+		return this;
+	}
+
+	/**
+	 * this = this * m, so that m is applied first
+	 *
+	 * @param m
+	 *            the matrix to multiply with from the right
+	 * @return this
+	 */
+	public Matrix4d mul(final Matrix4d m) {
+		final double a00 = m00 * m.m00 + m01 * m.m10 + m02 * m.m20;
+		final double a01 = m00 * m.m01 + m01 * m.m11 + m02 * m.m21;
+		final double a02 = m00 * m.m02 + m01 * m.m12 + m02 * m.m22;
+		final double a03 = m00 * m.m03 + m01 * m.m13 + m02 * m.m23 + m03;
+		final double a10 = m10 * m.m00 + m11 * m.m10 + m12 * m.m20;
+		final double a11 = m10 * m.m01 + m11 * m.m11 + m12 * m.m21;
+		final double a12 = m10 * m.m02 + m11 * m.m12 + m12 * m.m22;
+		final double a13 = m10 * m.m03 + m11 * m.m13 + m12 * m.m23 + m13;
+		final double a20 = m20 * m.m00 + m21 * m.m10 + m22 * m.m20;
+		final double a21 = m20 * m.m01 + m21 * m.m11 + m22 * m.m21;
+		final double a22 = m20 * m.m02 + m21 * m.m12 + m22 * m.m22;
+		final double a23 = m20 * m.m03 + m21 * m.m13 + m22 * m.m23 + m23;
+		m00 = a00;
+		m01 = a01;
+		m02 = a02;
+		m03 = a03;
+		m10 = a10;
+		m11 = a11;
+		m12 = a12;
+		m13 = a13;
+		m20 = a20;
+		m21 = a21;
+		m22 = a22;
+		m23 = a23;
+		return this;
+	}
+
+	/**
+	 * this = m * this, so that m is applied after this
+	 *
+	 * @param m
+	 *            the matrix to multiply with from the left
+	 * @return this
+	 */
+	public Matrix4d preMul(final Matrix4d m) {
+		final double a00 = m.m00 * m00 + m.m01 * m10 + m.m02 * m20;
+		final double a01 = m.m00 * m01 + m.m01 * m11 + m.m02 * m21;
+		final double a02 = m.m00 * m02 + m.m01 * m12 + m.m02 * m22;
+		final double a03 = m.m00 * m03 + m.m01 * m13 + m.m02 * m23 + m.m03;
+		final double a10 = m.m10 * m00 + m.m11 * m10 + m.m12 * m20;
+		final double a11 = m.m10 * m01 + m.m11 * m11 + m.m12 * m21;
+		final double a12 = m.m10 * m02 + m.m11 * m12 + m.m12 * m22;
+		final double a13 = m.m10 * m03 + m.m11 * m13 + m.m12 * m23 + m.m13;
+		final double a20 = m.m20 * m00 + m.m21 * m10 + m.m22 * m20;
+		final double a21 = m.m20 * m01 + m.m21 * m11 + m.m22 * m21;
+		final double a22 = m.m20 * m02 + m.m21 * m12 + m.m22 * m22;
+		final double a23 = m.m20 * m03 + m.m21 * m13 + m.m22 * m23 + m.m23;
+		m00 = a00;
+		m01 = a01;
+		m02 = a02;
+		m03 = a03;
+		m10 = a10;
+		m11 = a11;
+		m12 = a12;
+		m13 = a13;
+		m20 = a20;
+		m21 = a21;
+		m22 = a22;
+		m23 = a23;
+		return this;
+	}
+
+	/**
+	 * translates after this transformation
+	 *
+	 * @param dir
+	 *            the vector to move along
+	 * @return this
+	 */
+	public Matrix4d translate(final Vector3d dir) {
+		m03 += dir.x;
+		m13 += dir.y;
+		m23 += dir.z;
+		return this;
+	}
+
+	/**
+	 * rotates after this transformation around the axis through the given
+	 * center
+	 *
+	 * @param center
+	 *            a point on the rotation-axis
+	 * @param axis
+	 *            the axe to rotate around in mathematically positive direction
+	 * @param rad
+	 *            the rotation angle in radiant
+	 * @return this
+	 */
+	public Matrix4d rotate(final Vector3d center, final Vector3d axis,
+			final double rad) {
+		// a zero axis is kept unnormalized like in Vector3d.rot(), so that
+		// an angle of 0 stays the identity
+		final double fac = 1d / axis.length();
+		final boolean finite = Double.isFinite(fac);
+		final double x = finite ? axis.x * fac : axis.x;
+		final double y = finite ? axis.y * fac : axis.y;
+		final double z = finite ? axis.z * fac : axis.z;
+		final double c = Math.cos(rad), s = Math.sin(rad), t = 1 - c;
+		// the rows of the rotation-matrix, as by MatrixCalculation
+		final double r00 = x * x * t + c, r01 = x * y * t - z * s,
+				r02 = x * z * t + y * s;
+		final double r10 = x * y * t + z * s, r11 = y * y * t + c,
+				r12 = y * z * t - x * s;
+		final double r20 = x * z * t - y * s, r21 = y * z * t + x * s,
+				r22 = z * z * t + c;
+		final double a00 = r00 * m00 + r01 * m10 + r02 * m20;
+		final double a01 = r00 * m01 + r01 * m11 + r02 * m21;
+		final double a02 = r00 * m02 + r01 * m12 + r02 * m22;
+		final double a10 = r10 * m00 + r11 * m10 + r12 * m20;
+		final double a11 = r10 * m01 + r11 * m11 + r12 * m21;
+		final double a12 = r10 * m02 + r11 * m12 + r12 * m22;
+		final double a20 = r20 * m00 + r21 * m10 + r22 * m20;
+		final double a21 = r20 * m01 + r21 * m11 + r22 * m21;
+		final double a22 = r20 * m02 + r21 * m12 + r22 * m22;
+		// the translation is rotated relative to the center
+		final double tx = m03 - center.x, ty = m13 - center.y,
+				tz = m23 - center.z;
+		m03 = r00 * tx + r01 * ty + r02 * tz + center.x;
+		m13 = r10 * tx + r11 * ty + r12 * tz + center.y;
+		m23 = r20 * tx + r21 * ty + r22 * tz + center.z;
+		m00 = a00;
+		m01 = a01;
+		m02 = a02;
+		m10 = a10;
+		m11 = a11;
+		m12 = a12;
+		m20 = a20;
+		m21 = a21;
+		m22 = a22;
+		return this;
+	}
+
+	/**
+	 * scales after this transformation relative to the given center
+	 *
+	 * @param center
+	 *            the point staying in place
+	 * @param factor
+	 *            the factor how to enlarge ]1;infinite[ or shrink ]0;1[ or
+	 *            mirror-scale ]-infinite;0[
+	 * @return this
+	 */
+	public Matrix4d scale(final Vector3d center, final double factor) {
+		m00 *= factor;
+		m01 *= factor;
+		m02 *= factor;
+		m10 *= factor;
+		m11 *= factor;
+		m12 *= factor;
+		m20 *= factor;
+		m21 *= factor;
+		m22 *= factor;
+		m03 = (m03 - center.x) * factor + center.x;
+		m13 = (m13 - center.y) * factor + center.y;
+		m23 = (m23 - center.z) * factor + center.z;
+		return this;
+	}
+
+	/**
+	 * transforms the point in place
+	 *
+	 * @param v
+	 *            the point to transform
+	 * @return the parameter
+	 */
+	public Vector3d transformPoint(final Vector3d v) {
+		final double x = v.x, y = v.y, z = v.z;
+		v.x = m00 * x + m01 * y + m02 * z + m03;
+		v.y = m10 * x + m11 * y + m12 * z + m13;
+		v.z = m20 * x + m21 * y + m22 * z + m23;
+		return v;
+	}
+
+	/**
+	 * transforms the direction in place, it is not translated<br>
+	 * normals have to be transformed by the inverse transposed matrix unless
+	 * this just rotates and scales uniformly
+	 *
+	 * @param v
+	 *            the direction to transform
+	 * @return the parameter
+	 */
+	public Vector3d transformDirection(final Vector3d v) {
+		final double x = v.x, y = v.y, z = v.z;
+		v.x = m00 * x + m01 * y + m02 * z;
+		v.y = m10 * x + m11 * y + m12 * z;
+		v.z = m20 * x + m21 * y + m22 * z;
+		return v;
+	}
+
+	/**
+	 * transforms count points of the flat xyz-array beginning at point first
+	 * into the other array (may be the same) by the kernels selected on
+	 * startup
+	 *
+	 * @see fast3d.math.Kernels
+	 * @param src
+	 *            the flat xyz-coordinates of the points
+	 * @param first
+	 *            the index of the first point
+	 * @param count
+	 *            the count of points to transform
+	 * @param dst
+	 *            receives the transformed coordinates at the same indices
+	 */
+	public void transformPoints(final float[] src, final int first,
+			final int count, final float[] dst) {
+		Kernels.get().transformPoints(this, src, first, count, dst);
+	}
+
+	/**
+	 * transforms count directions of the flat xyz-array beginning at
+	 * direction first into the other array (may be the same), they are not
+	 * translated, by the kernels selected on startup
+	 *
+	 * @see #transformDirection(Vector3d)
+	 * @see fast3d.math.Kernels
+	 * @param src
+	 *            the flat xyz-coordinates of the directions
+	 * @param first
+	 *            the index of the first direction
+	 * @param count
+	 *            the count of directions to transform
+	 * @param dst
+	 *            receives the transformed coordinates at the same indices
+	 */
+	public void transformDirections(final float[] src, final int first,
+			final int count, final float[] dst) {
+		Kernels.get().transformDirections(this, src, first, count, dst);
+	}
+
+	/**
+	 * inverts this in place
+	 *
+	 * @return this
+	 * @throws ArithmeticException
+	 *             if this is not invertible (it scales by zero)
+	 */
+	public Matrix4d invert() {
+		final double c00 = m11 * m22 - m12 * m21;
+		final double c01 = m12 * m20 - m10 * m22;
+		final double c02 = m10 * m21 - m11 * m20;
+		final double det = m00 * c00 + m01 * c01 + m02 * c02;
+		if (det == 0)
+			throw new ArithmeticException("matrix is not invertible");
+		final double d = 1 / det;
+		final double a00 = c00 * d;
+		final double a01 = (m02 * m21 - m01 * m22) * d;
+		final double a02 = (m01 * m12 - m02 * m11) * d;
+		final double a10 = c01 * d;
+		final double a11 = (m00 * m22 - m02 * m20) * d;
+		final double a12 = (m02 * m10 - m00 * m12) * d;
+		final double a20 = c02 * d;
+		final double a21 = (m01 * m20 - m00 * m21) * d;
+		final double a22 = (m00 * m11 - m01 * m10) * d;
+		final double tx = m03, ty = m13, tz = m23;
+		m00 = a00;
+		m01 = a01;
+		m02 = a02;
+		m10 = a10;
+		m11 = a11;
+		m12 = a12;
+		m20 = a20;
+		m21 = a21;
+		m22 = a22;
+		m03 = -(a00 * tx + a01 * ty + a02 * tz);
+		m13 = -(a10 * tx + a11 * ty + a12 * tz);
+		m23 = -(a20 * tx + a21 * ty + a22 * tz);
+		return this;
+	}
+
+	/**
+	 * @return the largest factor a length is scaled with by this, e.g. to
+	 *         transform the radius of a bounding sphere
+	 */
+	public double getMaxScale() {
+		final double x = m00 * m00 + m10 * m10 + m20 * m20;
+		final double y = m01 * m01 + m11 * m11 + m21 * m21;
+		final double z = m02 * m02 + m12 * m12 + m22 * m22;
+		return Math.sqrt(Math.max(x, Math.max(y, z)));
+	}
+
+	/**
+	 * @return an independent copy
+	 */
+	@Override
+	public Matrix4d clone() {
+		return new Matrix4d(this);
+	}
+
+	/**
+	 * compares this with the parameter and returns false if the parameter is
+	 * not of the same type<br>
+	 *
+	 * @return whether this and the given Matrix4d have equal entries
+	 **/
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj instanceof Matrix4d) {
+			final Matrix4d m = (Matrix4d) obj;
+			return m00 == m.m00 && m01 == m.m01 && m02 == m.m02
+					&& m03 == m.m03 && m10 == m.m10 && m11 == m.m11
+					&& m12 == m.m12 && m13 == m.m13 && m20 == m.m20
+					&& m21 == m.m21 && m22 == m.m22 && m23 == m.m23;
+		} else
+			return false;
+	}
+
+	/**
+	 * consistent with equals(), so entries of 0 and -0 hash the same
+	 *
+	 * @return a hash of the entries
+	 **/
+	@Override
+	public int hashCode() {
+		int h = 1;
+		h = hash(h, m00);
+		h = hash(h, m01);
+		h = hash(h, m02);
+		h = hash(h, m03);
+		h = hash(h, m10);
+		h = hash(h, m11);
+		h = hash(h, m12);
+		h = hash(h, m13);
+		h = hash(h, m20);
+		h = hash(h, m21);
+		h = hash(h, m22);
+		h = hash(h, m23);
+		return h;
+	}
+
+	private static int hash(final int h, final double v) {
+		return 31 * h + Double.hashCode(v + 0.0); // -0 + 0 is 0
+	}
+
+	/**
+	 *
+	 * @return fast3d.math.Matrix4d[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.math.Matrix4d[" + "row0=" + m00 + "," + m01 + ","
+				+ m02 + "," + m03 + ";row1=" + m10 + "," + m11 + "," + m12
+				+ "," + m13 + ";row2=" + m20 + "," + m21 + "," + m22 + ","
+				+ m23 + "]";
+	}
+}
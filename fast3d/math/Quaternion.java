@@ -0,0 +1,357 @@
+package fast3d.math;
+
+/**
+ * a rotation as a unit quaternion w + xi + yj + zk<br>
+ * unlike rotating vectors again and again, composing quaternions and
+ * normalizing the result does not let the rotated axes drift apart from
+ * being orthogonal<br>
+ * all operations change this in place and create no object
+ *
+ * @author Tim Trense
+ */
+public class Quaternion {
+
+	/**
+	 * the real part
+	 */
+	public double w;
+	/**
+	 * the imaginary parts, the rotation-axis scaled by the sine of half the
+	 * angle
+	 */
+	public double x, y, z;
+
+	/**
+	 * constructs the identity (no rotation)
+	 */
+	public Quaternion() {
+		this(1, 0, 0, 0);
+	}
+
+	/**
+	 * @param w
+	 *            the real part
+	 * @param x
+	 *            the i-part
+	 * @param y
+	 *            the j-part
+	 * @param z
+	 *            the k-part
+	 */
+	public Quaternion(final double w, final double x, final double y,
+			final double z) {
+		this.w = w;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
+	/**
+	 * constructs a copy of the given quaternion
+	 *
+	 * @param q
+	 *            the quaternion to copy
+	 */
+	public Quaternion(final Quaternion q) {
+		this(q.w, q.x, q.y, q.z);
+	}
+
+	/**
+	 * @return this as the identity
+	 */
+	public Quaternion setIdentity() {
+		w = 1;
+		x = y = z = 0;
+		return this;
+	}
+
+	/**
+	 * @param q
+	 *            the quaternion to copy
+	 * @return this as a copy of the given quaternion
+	 */
+	public Quaternion set(final Quaternion q) {
+		w = q.w;
+		x = q.x;
+		y = q.y;
+		z = q.z;
+		return this;
+	}
+
+	/**
+	 * @param axis
+	 *            the axe to rotate around in mathematically positive direction
+	 *            (need not to be normalized)
+	 * @param rad
+	 *            the rotation angle in radiant
+	 * @return this as the rotation
+	 */
+	public Quaternion setRotation(final Vector3d axis, final double rad) {
+		final double l = axis.length();
+		if (l == 0)
+			return setIdentity();
+		final double s = Math.sin(rad / 2) / l;
+		w = Math.cos(rad / 2);
+		x = axis.x * s;
+		y = axis.y * s;
+		z = axis.z * s;
+		return this;
+	}
+
+	/**
+	 * @param rad
+	 *            the angle for rotation around the x axis in mathematically
+	 *            positive direction in radiant
+	 * @return this as the rotation
+	 */
+	public Quaternion setRotationX(final double rad) {
+		w = Math.cos(rad / 2);
+		x = Math.sin(rad / 2);
+		y = z = 0;
+		return this;
+	}
+
+	/**
+	 * @param rad
+	 *            the angle for rotation around the y axis in mathematically
+	 *            positive direction in radiant
+	 * @return this as the rotation
+	 */
+	public Quaternion setRotationY(final double rad) {
+		w = Math.cos(rad / 2);
+		y = Math.sin(rad / 2);
+		x = z = 0;
+		return this;
+	}
+
+	/**
+	 * @param rad
+	 *            the angle for rotation around the z axis in mathematically
+	 *            positive direction in radiant
+	 * @return this as the rotation
+	 */
+	public Quaternion setRotationZ(final double rad) {
+		w = Math.cos(rad / 2);
+		z = Math.sin(rad / 2);
+		x = y = 0;
+		return this;
+	}
+
+	/**
+	 * @param m
+	 *            a rotation-matrix (orthonormal with determinant 1)
+	 * @return this as the rotation of the matrix
+	 */
+	public Quaternion set(final Matrix3d m) {
+		final double trace = m.m00 + m.m11 + m.m22;
+		if (trace > 0) {
+			final double s = 0.5 / Math.sqrt(trace + 1);
+			w = 0.25 / s;
+			x = (m.m21 - m.m12) * s;
+			y = (m.m02 - m.m20) * s;
+			z = (m.m10 - m.m01) * s;
+		} else if (m.m00 > m.m11 && m.m00 > m.m22) {
+			final double s = 2 * Math.sqrt(1 + m.m00 - m.m11 - m.m22);
+			w = (m.m21 - m.m12) / s;
+			x = 0.25 * s;
+			y = (m.m01 + m.m10) / s;
+			z = (m.m02 + m.m20) / s;
+		} else if (m.m11 > m.m22) {
+			final double s = 2 * Math.sqrt(1 + m.m11 - m.m00 - m.m22);
+			w = (m.m02 - m.m20) / s;
+			x = (m.m01 + m.m10) / s;
+			y = 0.25 * s;
+			z = (m.m12 + m.m21) / s;
+		} else {
+			final double s = 2 * Math.sqrt(1 + m.m22 - m.m00 - m.m11);
+			w = (m.m10 - m.m01) / s;
+			x = (m.m02 + m.m20) / s;
+			y = (m.m12 + m.m21) / s;
+			z = 0.25 * s;
+		}
+		return normalize();
+	}
+
+	/**
+	 * this = this * q, so that q is applied first
+	 *
+	 * @param q
+	 *            the rotation to multiply with from the right
+	 * @return this
+	 */
+	public Quaternion mul(final Quaternion q) {
+		return set(w, x, y, z, q.w, q.x, q.y, q.z);
+	}
+
+	/**
+	 * this = q * this, so that q is applied after this
+	 *
+	 * @param q
+	 *            the rotation to multiply with from the left
+	 * @return this
+	 */
+	public Quaternion preMul(final Quaternion q) {
+		return set(q.w, q.x, q.y, q.z, w, x, y, z);
+	}
+
+	/**
+	 * sets this to the product a * b
+	 */
+	private Quaternion set(final double aw, final double ax, final double ay,
+			final double az, final double bw, final double bx,
+			final double by, final double bz) {
+		w = aw * bw - ax * bx - ay * by - az * bz;
+		x = aw * bx + ax * bw + ay * bz - az * by;
+		y = aw * by - ax * bz + ay * bw + az * bx;
+		z = aw * bz + ax * by - ay * bx + az * bw;
+		return this;
+	}
+
+	/**
+	 * @return the length of this as a 4d-vector
+	 */
+	public double length() {
+		return Math.sqrt(w * w + x * x + y * y + z * z);
+	}
+
+	/**
+	 * scales this to the length 1, so that it stays a rotation although the
+	 * products were rounded<br>
+	 * the zero-quaternion becomes the identity
+	 *
+	 * @return this
+	 */
+	public Quaternion normalize() {
+		final double l = length();
+		if (l == 0)
+			return setIdentity();
+		w /= l;
+		x /= l;
+		y /= l;
+		z /= l;
+		return this;
+	}
+
+	/**
+	 * @return this as the inverse rotation (if this is normalized)
+	 */
+	public Quaternion conjugate() {
+		x = -x;
+		y = -y;
+		z = -z;
+		return this;
+	}
+
+	/**
+	 * rotates the vector in place
+	 *
+	 * @param v
+	 *            the vector to rotate
+	 * @return the parameter
+	 */
+	public Vector3d rotate(final Vector3d v) {
+		// v + 2w(q x v) + 2q x (q x v), with q the imaginary part
+		final double tx = 2 * (y * v.z - z * v.y);
+		final double ty = 2 * (z * v.x - x * v.z);
+		final double tz = 2 * (x * v.y - y * v.x);
+		final double vx = v.x + w * tx + (y * tz - z * ty);
+		final double vy = v.y + w * ty + (z * tx - x * tz);
+		final double vz = v.z + w * tz + (x * ty - y * tx);
+		v.x = vx;
+		v.y = vy;
+		v.z = vz;
+		return v;
+	}
+
+	/**
+	 * interpolates spherical between this and the target, so that the
+	 * rotation changes with constant speed
+	 *
+	 * @param target
+	 *            the rotation at t=1
+	 * @param t
+	 *            the interpolation-parameter in [0;1]
+	 * @return this as the interpolated rotation
+	 */
+	public Quaternion slerp(final Quaternion target, final double t) {
+		double bw = target.w, bx = target.x, by = target.y, bz = target.z;
+		double cos = w * bw + x * bx + y * by + z * bz;
+		if (cos < 0) {
+			// the shorter way round
+			cos = -cos;
+			bw = -bw;
+			bx = -bx;
+			by = -by;
+			bz = -bz;
+		}
+		final double fa, fb;
+		if (cos > 1 - 1e-9) {
+			fa = 1 - t;
+			fb = t;
+		} else {
+			final double angle = Math.acos(cos);
+			final double sin = Math.sin(angle);
+			fa = Math.sin((1 - t) * angle) / sin;
+			fb = Math.sin(t * angle) / sin;
+		}
+		w = fa * w + fb * bw;
+		x = fa * x + fb * bx;
+		y = fa * y + fb * by;
+		z = fa * z + fb * bz;
+		return normalize();
+	}
+
+	/**
+	 * @return an independent copy
+	 */
+	@Override
+	public Quaternion clone() {
+		return new Quaternion(this);
+	}
+
+	/**
+	 * compares this with the parameter and returns false if the parameter is
+	 * not of the same type<br>
+	 *
+	 * @return whether this and the given Quaternion have equal parts
+	 **/
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj instanceof Quaternion) {
+			final Quaternion q = (Quaternion) obj;
+			return w == q.w && x == q.x && y == q.y && z == q.z;
+		} else
+			return false;
+	}
+
+	/**
+	 * consistent with equals(), so components of 0 and -0 hash the same
+	 *
+	 * @return a hash of the components
+	 **/
+	@Override
+	public int hashCode() {
+		int h = 1;
+		h = hash(h, w);
+		h = hash(h, x);
+		h = hash(h, y);
+		h = hash(h, z);
+		return h;
+	}
+
+	private static int hash(final int h, final double v) {
+		return 31 * h + Double.hashCode(v + 0.0); // -0 + 0 is 0
+	}
+
+	/**
+	 *
+	 * @return fast3d.math.Quaternion[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.math.Quaternion[" + "w=" + w + ";x=" + x + ";y=" + y
+				+ ";z=" + z + "]";
+	}
+}
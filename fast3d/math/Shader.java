@@ -1,5 +1,6 @@
 package fast3d.math;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -29,10 +30,46 @@ public class Shader {
 	 */
 	public final Camera cam;
 
-	private final Vector3d orthoNormal;
+	/*
+	 * the projection is derived once from the camera on construction: the
+	 * screen-axes are inverted by their dual basis, so that shading a vertex
+	 * needs just some multiply-adds and one divide instead of solving the
+	 * linear equation system of the screen-plane and the ray of the vertex
+	 * (the access-modifiers of the projection are package to allow the
+	 * kernels to project vertices in bulk)
+	 */
+	/* package */ final double posX, posY, posZ;
+	/* package */ final double origX, origY, origZ;
+	// distance of the near-plane to the camera-position per distance of the
+	// screen to the camera-position
+	private static final double NEAR = 1e-3;
+	// normal of the screen (cross product of the screen axes, not normalized)
+	/* package */ final double nX, nY, nZ;
+	// normalized look direction
+	/* package */ final double lookX, lookY, lookZ;
+	// dual basis vectors of the screen axes
+	/* package */ final double uX, uY, uZ;
+	/* package */ final double vX, vY, vZ;
+	// dot product of camera-to-screenOrigin with the screen normal
+	/* package */ final double origN;
+	/* package */ final double origU, origV;
+	/* package */ final boolean orthogonal;
+	private final long camVersion;
+	// pixels per unit of length on the screen-plane
+	private final double pixelsPerUnit;
+	// the planes bounding the visible space, 4 doubles (nx, ny, nz, d) per
+	// plane with normalized inside-pointing normals, for orthographic shading
+	// the last one is the screen-plane
+	private final double[] frustum;
+	// the planes to clip at for oriented cameras: slightly in front of the
+	// camera-position and (if notincam) the screen
+	private final double[] nearPlane, screenPlane;
+	private static final Vector3d[] NONE = new Vector3d[0];
 
 	/**
-	 * Wrapper for the constructor getting all the cameras vectors
+	 * Wrapper for the constructor getting all the cameras vectors<br>
+	 * the camera-setting is read once, a shader is only valid as long as the
+	 * camera is not changed (usually for one frame)
 	 * 
 	 * @param cam
 	 *            the vectors needed to shade
@@ -46,7 +83,107 @@ public class Shader {
 		this.cam = cam;
 		this.screenWidthPX = sw;
 		this.screenHeightPX = sh;
-		this.orthoNormal = cam.getLookDir();
+		this.camVersion = cam.checkMode();
+		this.orthogonal = cam.mode.viewmode == Viewmode.ORTHOGONAL;
+
+		final Vector3d w = cam.screenWidth;
+		final Vector3d h = cam.screenHeight;
+		final Vector3d n = Vector3d.crossP(w, h);
+		final double nn = n.lengthSquared();
+		final Vector3d u = Vector3d.crossP(h, n).scale(1d / nn);
+		final Vector3d v = Vector3d.crossP(n, w).scale(1d / nn);
+		final Vector3d look = n.clone().normalize();
+
+		posX = cam.pos.x;
+		posY = cam.pos.y;
+		posZ = cam.pos.z;
+		origX = cam.screenOrigin.x;
+		origY = cam.screenOrigin.y;
+		origZ = cam.screenOrigin.z;
+		nX = n.x;
+		nY = n.y;
+		nZ = n.z;
+		lookX = look.x;
+		lookY = look.y;
+		lookZ = look.z;
+		uX = u.x;
+		uY = u.y;
+		uZ = u.z;
+		vX = v.x;
+		vY = v.y;
+		vZ = v.z;
+		final double ox = origX - posX, oy = origY - posY,
+				oz = origZ - posZ;
+		origN = ox * nX + oy * nY + oz * nZ;
+		origU = ox * uX + oy * uY + oz * uZ;
+		origV = ox * vX + oy * vY + oz * vZ;
+		pixelsPerUnit = Math.max(sw * u.length(), sh * v.length());
+
+		final Vector3d o = cam.screenOrigin;
+		final Vector3d ow = o.clone().add(w);
+		final Vector3d oh = o.clone().add(h);
+		screenPlane = new double[4];
+		plane(screenPlane, 0, look, o);
+		nearPlane = new double[4];
+		plane(nearPlane, 0, look, cam.pos);
+		nearPlane[3] -= NEAR * origN / Math.sqrt(nn);
+		if (orthogonal) {
+			final Vector3d un = u.clone().normalize();
+			final Vector3d vn = v.clone().normalize();
+			frustum = new double[20];
+			plane(frustum, 0, un, o);
+			plane(frustum, 4, un.clone().invert(), ow);
+			plane(frustum, 8, vn, o);
+			plane(frustum, 12, vn.clone().invert(), oh);
+			plane(frustum, 16, look, o);
+		} else {
+			final Vector3d p = cam.pos;
+			final Vector3d inside = o.clone().add(w.clone().scale(.5))
+					.add(h.clone().scale(.5)).sub(p);
+			frustum = new double[16];
+			sidePlane(frustum, 0, p, o, h, inside);
+			sidePlane(frustum, 4, p, ow, h, inside);
+			sidePlane(frustum, 8, p, o, w, inside);
+			sidePlane(frustum, 12, p, oh, w, inside);
+		}
+	}
+
+	private static void plane(final double[] planes, final int i,
+			final Vector3d normal, final Vector3d point) {
+		planes[i] = normal.x;
+		planes[i + 1] = normal.y;
+		planes[i + 2] = normal.z;
+		planes[i + 3] = -Vector3d.dotP(normal, point);
+	}
+
+	/**
+	 * the plane through the camera-position and the screen-edge from edge
+	 * along dir
+	 */
+	private static void sidePlane(final double[] planes, final int i,
+			final Vector3d pos, final Vector3d edge, final Vector3d dir,
+			final Vector3d inside) {
+		final Vector3d normal = Vector3d.crossP(pos.to(edge), dir).normalize();
+		if (Vector3d.dotP(normal, inside) < 0)
+			normal.invert();
+		plane(planes, i, normal, pos);
+	}
+
+	/**
+	 * a renderable may keep the results of the last frame (e.g. projected
+	 * vertices or a rasterized image) if the shader of that frame had the
+	 * same view as the current one and the renderable did not change
+	 * 
+	 * @see Camera#checkMode()
+	 * @param other
+	 *            the shader of an earlier frame, may be null
+	 * @return whether the given shader was made for the same camera-setting
+	 *         and screen-size, so that it projects just like this
+	 */
+	public boolean hasSameView(final Shader other) {
+		return other != null && camVersion == other.camVersion
+				&& screenWidthPX == other.screenWidthPX
+				&& screenHeightPX == other.screenHeightPX;
 	}
 
 	/**
@@ -122,34 +259,6 @@ public class Shader {
 		return erg;
 	}
 
-	private double[][] getShadingMatrix(final Vector3d vertex) {
-		switch (cam.mode.viewmode) {
-		case ORTHOGONAL:
-			return new double[][] {
-					{ cam.screenWidth.x, cam.screenHeight.x,
-							orthoNormal.x,
-							vertex.x - cam.screenOrigin.x },
-					{ cam.screenWidth.y, cam.screenHeight.y,
-							orthoNormal.y,
-							vertex.y - cam.screenOrigin.y },
-					{ cam.screenWidth.z, cam.screenHeight.z,
-							orthoNormal.z,
-							vertex.z - cam.screenOrigin.z } };
-		case PERSPECTIVE: // fall-through
-		default: // if null
-			return new double[][] {
-					{ cam.screenWidth.x, cam.screenHeight.x,
-							vertex.x - cam.pos.x,
-							vertex.x - cam.screenOrigin.x },
-					{ cam.screenWidth.y, cam.screenHeight.y,
-							vertex.y - cam.pos.y,
-							vertex.y - cam.screenOrigin.y },
-					{ cam.screenWidth.z, cam.screenHeight.z,
-							vertex.z - cam.pos.z,
-							vertex.z - cam.screenOrigin.z } };
-		}
-	}
-
 	/**
 	 * shades a single vertex<br>
 	 * returns null if the vertex is not visible on the screen (does not
@@ -160,36 +269,45 @@ public class Shader {
 	 * @return the screen-projection-position of the vertex
 	 */
 	public Vector2d shadeVertex(final Vector3d vertex) {
-		// shading matrix
-		final double[][] matrix = getShadingMatrix(vertex);
-
-		final double[] result = MatrixCalculation
-				.solveLinearEquationSystem(matrix);
-
-		if (cam.mode.viewmode == Viewmode.ORTHOGONAL) {
-			if (cam.mode.oriented && result[2] < 0)
+		final double x, y, t;
+		if (orthogonal) {
+			final double dx = vertex.x - origX, dy = vertex.y - origY,
+					dz = vertex.z - origZ;
+			// distance from the screen along the look direction
+			t = dx * lookX + dy * lookY + dz * lookZ;
+			if (cam.mode.oriented && t < 0)
 				return null;
 			// notinscreen not available in orthographic shading
+			x = dx * uX + dy * uY + dz * uZ;
+			y = dx * vX + dy * vY + dz * vZ;
 		} else {
+			final double dx = vertex.x - posX, dy = vertex.y - posY,
+					dz = vertex.z - posZ;
+			// w is the ratio of the screen-distance to the vertex-distance
+			// t = 1 - w is the distance value of the ray from the vertex to
+			// the camera-position where it punctures the screen
+			final double w = origN / (dx * nX + dy * nY + dz * nZ);
+			t = 1 - w;
 			// check whether the distance value is in [0;1]
 			// <0 (vertex between camera-position and camera-screen) and
 			// >1 (vertex behind the camera-position)
-			if (cam.mode.notincam && result[2] < 0)
+			if (cam.mode.notincam && t < 0)
 				return null;
-			if (cam.mode.oriented && result[2] > 1)
+			if (cam.mode.oriented && t > 1)
 				return null;
+			x = w * (dx * uX + dy * uY + dz * uZ) - origU;
+			y = w * (dx * vX + dy * vY + dz * vZ) - origV;
 		}
 
 		if (cam.mode.inscreen) {
 			// check result-x and -y are in bound of the screen
-			if (result[0] < 0 || result[0] > 1)
+			if (x < 0 || x > 1)
 				return null;
-			if (result[1] < 0 || result[1] > 1)
+			if (y < 0 || y > 1)
 				return null;
 		}
 
-		return new Vector2d(result[0] * screenWidthPX,
-				result[1] * screenHeightPX);
+		return new Vector2d(x * screenWidthPX, y * screenHeightPX);
 	}
 
 	/**
@@ -246,12 +364,367 @@ public class Shader {
 	 * @return the screen-projection-position of the vertex
 	 */
 	public Vector2d shadeVertexIgnoreMode(final Vector3d vertex) {
-		final double[][] matrix = getShadingMatrix(vertex);
+		final double x, y;
+		if (orthogonal) {
+			final double dx = vertex.x - origX, dy = vertex.y - origY,
+					dz = vertex.z - origZ;
+			x = dx * uX + dy * uY + dz * uZ;
+			y = dx * vX + dy * vY + dz * vZ;
+		} else {
+			final double dx = vertex.x - posX, dy = vertex.y - posY,
+					dz = vertex.z - posZ;
+			final double w = origN / (dx * nX + dy * nY + dz * nZ);
+			x = w * (dx * uX + dy * uY + dz * uZ) - origU;
+			y = w * (dx * vX + dy * vY + dz * vZ) - origV;
+		}
+		return new Vector2d(x * screenWidthPX, y * screenHeightPX);
+	}
+
+	/**
+	 * tests a bounding sphere against the space that can be seen by the
+	 * camera, so that everything inside the sphere can be skipped if it is
+	 * not visible<br>
+	 * the test is conservative: a sphere may be called visible although it
+	 * is not, but never the other way around<br>
+	 * for perspective shading nothing is culled unless the camera-mode is
+	 * oriented, because otherwise vertices behind the camera are visible
+	 * 
+	 * @param center
+	 *            the center of the sphere
+	 * @param radius
+	 *            the radius of the sphere
+	 * @return false if nothing within the sphere can be visible
+	 */
+	public boolean inFrustum(final Vector3d center, final double radius) {
+		final boolean oriented = cam.mode.oriented;
+		if (!orthogonal && !oriented)
+			return true;
+		final int planes = orthogonal && !oriented ? 16 : frustum.length;
+		for (int i = 0; i < planes; i += 4)
+			if (frustum[i] * center.x + frustum[i + 1] * center.y
+					+ frustum[i + 2] * center.z + frustum[i + 3] < -radius)
+				return false;
+		return true;
+	}
+
+	/**
+	 * estimates how large a sphere appears on the screen, e.g. to choose a
+	 * level of detail<br>
+	 * creates no object
+	 * 
+	 * @param center
+	 *            the center of the sphere
+	 * @param radius
+	 *            the radius of the sphere
+	 * @return the approximate diameter of the projected sphere in pixel,
+	 *         infinite if the center is not in front of the camera-position
+	 */
+	public double projectedSize(final Vector3d center, final double radius) {
+		if (orthogonal)
+			return 2 * radius * pixelsPerUnit;
+		final double d = (center.x - posX) * nX + (center.y - posY) * nY
+				+ (center.z - posZ) * nZ;
+		if (d <= 0)
+			return Double.POSITIVE_INFINITY;
+		// the ratio of the screen-distance to the distance of the center
+		return 2 * radius * pixelsPerUnit * origN / d;
+	}
+
+	/**
+	 * clips the given convex polygon at the borders of the visible space, so
+	 * that no vertex of the result would be shaded to null, instead of
+	 * dropping the invisible vertices<br>
+	 * for oriented cameras it is clipped at a plane just in front of the
+	 * camera-position (at the screen if notincam is set, at the screen for
+	 * orthographic shading), if inscreen is set the polygon is clipped at the
+	 * screen-borders too<br>
+	 * the vertices of the result should be shaded by
+	 * shadeVertexIgnoreMode(Vector3d) because the new vertices are exactly on
+	 * the borders
+	 * 
+	 * @param polygon
+	 *            the edges of the polygon
+	 * @return the parameter itself if nothing has to be clipped, the clipped
+	 *         polygon (the inside-vertices are given by reference) otherwise,
+	 *         which may have less than three edges
+	 */
+	public Vector3d[] clip(final Vector3d... polygon) {
+		if (!isClipping())
+			return polygon;
+		final double[] near = getNearPlane();
+		final boolean sides = cam.mode.inscreen;
+		boolean inside = true;
+		if (near != null) {
+			final int outside = outside(polygon, near, 0);
+			if (outside == polygon.length)
+				return NONE;
+			inside = outside == 0;
+		}
+		if (sides)
+			for (int i = 0; i < 16; i += 4) {
+				final int outside = outside(polygon, frustum, i);
+				if (outside == polygon.length)
+					return NONE;
+				inside &= outside == 0;
+			}
+		if (inside)
+			return polygon;
+		Vector3d[] clipped = polygon;
+		if (near != null)
+			clipped = clip(clipped, near, 0);
+		if (sides)
+			for (int i = 0; i < 16; i += 4)
+				clipped = clip(clipped, frustum, i);
+		return clipped;
+	}
+
+	/**
+	 * @return whether clip(Vector3d...) may change a polygon at the current
+	 *         camera-mode-setting
+	 */
+	public boolean isClipping() {
+		return getNearPlane() != null
+				|| cam.mode.inscreen && orthogonal;
+	}
+
+	private double[] getNearPlane() {
+		if (!cam.mode.oriented)
+			return null;
+		return orthogonal || cam.mode.notincam ? screenPlane : nearPlane;
+	}
+
+	private static int outside(final Vector3d[] polygon,
+			final double[] planes, final int i) {
+		int outside = 0;
+		for (Vector3d v : polygon)
+			if (distance(planes, i, v) < 0)
+				outside++;
+		return outside;
+	}
+
+	private static double distance(final double[] planes, final int i,
+			final Vector3d v) {
+		return planes[i] * v.x + planes[i + 1] * v.y + planes[i + 2] * v.z
+				+ planes[i + 3];
+	}
+
+	/**
+	 * one step of the Sutherland-Hodgman-algorithm
+	 */
+	private static Vector3d[] clip(final Vector3d[] polygon,
+			final double[] planes, final int i) {
+		if (polygon.length == 0)
+			return polygon;
+		final List<Vector3d> clipped = new ArrayList<Vector3d>(
+				polygon.length + 2);
+		Vector3d prev = polygon[polygon.length - 1];
+		double dPrev = distance(planes, i, prev);
+		for (Vector3d cur : polygon) {
+			final double dCur = distance(planes, i, cur);
+			if ((dCur >= 0) != (dPrev >= 0)) {
+				final double t = dPrev / (dPrev - dCur);
+				clipped.add(new Vector3d(prev.x + t * (cur.x - prev.x),
+						prev.y + t * (cur.y - prev.y),
+						prev.z + t * (cur.z - prev.z)));
+			}
+			if (dCur >= 0)
+				clipped.add(cur);
+			prev = cur;
+			dPrev = dCur;
+		}
+		return clipped.toArray(new Vector3d[clipped.size()]);
+	}
+
+	/**
+	 * tests whether the front of a surface is turned away from the camera<br>
+	 * for perspective shading the view-vector from the camera-position to the
+	 * surface is used, so that surfaces at the borders of the screen are
+	 * tested correctly, for orthographic shading the look-direction
+	 * 
+	 * @param px
+	 *            x-coordinate of any point of the surface
+	 * @param py
+	 *            y-coordinate of any point of the surface
+	 * @param pz
+	 *            z-coordinate of any point of the surface
+	 * @param nx
+	 *            x-coordinate of the outside-pointing normal (needs not to be
+	 *            normalized)
+	 * @param ny
+	 *            y-coordinate of the outside-pointing normal
+	 * @param nz
+	 *            z-coordinate of the outside-pointing normal
+	 * @return true if the camera sees the back of the surface (or exactly its
+	 *         side)
+	 */
+	public boolean isBackface(final double px, final double py,
+			final double pz, final double nx, final double ny,
+			final double nz) {
+		if (orthogonal)
+			return nx * lookX + ny * lookY + nz * lookZ >= 0;
+		else
+			return nx * (px - posX) + ny * (py - posY) + nz * (pz - posZ) >= 0;
+	}
+
+	/**
+	 * tests whether the front of the triangle (a,b,c) is turned away from the
+	 * camera, the front is the side the normal (b-a)x(c-a) points to
+	 * 
+	 * @see #isBackface(double, double, double, double, double, double)
+	 * @param a
+	 *            edge 1
+	 * @param b
+	 *            edge 2
+	 * @param c
+	 *            edge 3
+	 * @return true if the camera sees the back of the triangle
+	 */
+	public boolean isBackface(final Vector3d a, final Vector3d b,
+			final Vector3d c) {
+		final double ux = b.x - a.x, uy = b.y - a.y, uz = b.z - a.z;
+		final double vx = c.x - a.x, vy = c.y - a.y, vz = c.z - a.z;
+		return isBackface(a.x, a.y, a.z, uy * vz - uz * vy,
+				uz * vx - ux * vz, ux * vy - uy * vx);
+	}
 
-		final double[] result = MatrixCalculation
-				.solveLinearEquationSystem(matrix);
+	/**
+	 * calculates the depth-key of a single vertex<br>
+	 * the depth-key is linear on the screen, so that it can be interpolated
+	 * between shaded pixels, and the greater the nearer the vertex is to the
+	 * camera<br>
+	 * for perspective shading it is the distance of the screen to the
+	 * camera-position divided by the distance of the vertex along the
+	 * look-direction, for orthographic shading it is the negative distance of
+	 * the vertex to the screen
+	 * 
+	 * @param vertex
+	 *            a 3d-point in space
+	 * @return the depth-key of the vertex at the current camera-setting
+	 */
+	public double depth(final Vector3d vertex) {
+		if (orthogonal)
+			return -((vertex.x - origX) * lookX + (vertex.y - origY) * lookY
+					+ (vertex.z - origZ) * lookZ);
+		else
+			return origN / ((vertex.x - posX) * nX + (vertex.y - posY) * nY
+					+ (vertex.z - posZ) * nZ);
+	}
+
+	/**
+	 * shades count vertices of the flat xyz-array (vertex i at positions[3*i],
+	 * positions[3*i+1], positions[3*i+2]) beginning at vertex first without
+	 * creating any object<br>
+	 * the pixel coordinates and depth-keys of vertex i are written to x[i],
+	 * y[i] and depth[i] whether the vertex is visible or not (like
+	 * shadeVertexIgnoreMode), bit i of the visible-mask is set if
+	 * shadeVertex would not return null for the vertex and cleared otherwise
+	 * 
+	 * @see #shadeVertex(Vector3d)
+	 * @see #depth(Vector3d)
+	 * @see #isVisible(long[], int)
+	 * @param positions
+	 *            the flat xyz-coordinates of the vertices
+	 * @param first
+	 *            the index of the first vertex to shade
+	 * @param count
+	 *            the count of vertices to shade
+	 * @param x
+	 *            receives the pixel x-coordinates, at least first+count long
+	 * @param y
+	 *            receives the pixel y-coordinates, at least first+count long
+	 * @param depth
+	 *            receives the depth-keys, at least first+count long
+	 * @param visible
+	 *            receives the visibility-bits, at least (first+count+63)/64
+	 *            long
+	 * @return the count of visible vertices
+	 */
+	public int projectAll(final double[] positions, final int first,
+			final int count, final float[] x, final float[] y,
+			final float[] depth, final long[] visible) {
+		int visibles = 0;
+		for (int i = first, j = 3 * first; i < first + count; i++, j += 3)
+			if (project(positions[j], positions[j + 1], positions[j + 2], i, x,
+					y, depth, visible))
+				visibles++;
+		return visibles;
+	}
+
+	/**
+	 * shades count vertices of the flat xyz-array beginning at vertex first
+	 * without creating any object by the kernels selected on startup
+	 * 
+	 * @see #projectAll(double[], int, int, float[], float[], float[], long[])
+	 * @see fast3d.math.Kernels
+	 * @param positions
+	 *            the flat xyz-coordinates of the vertices
+	 * @param first
+	 *            the index of the first vertex to shade
+	 * @param count
+	 *            the count of vertices to shade
+	 * @param x
+	 *            receives the pixel x-coordinates, at least first+count long
+	 * @param y
+	 *            receives the pixel y-coordinates, at least first+count long
+	 * @param depth
+	 *            receives the depth-keys, at least first+count long
+	 * @param visible
+	 *            receives the visibility-bits, at least (first+count+63)/64
+	 *            long
+	 * @return the count of visible vertices
+	 */
+	public int projectAll(final float[] positions, final int first,
+			final int count, final float[] x, final float[] y,
+			final float[] depth, final long[] visible) {
+		return Kernels.get().project(this, positions, first, count, x, y,
+				depth, visible);
+	}
+
+	/**
+	 * @param visible
+	 *            a visibility-mask as filled by projectAll
+	 * @param i
+	 *            the index of the vertex
+	 * @return whether the vertex was visible
+	 */
+	public static boolean isVisible(final long[] visible, final int i) {
+		return (visible[i >>> 6] & (1L << i)) != 0;
+	}
+
+	/* package */ boolean project(final double px, final double py,
+			final double pz, final int i, final float[] xs,
+			final float[] ys, final float[] depth, final long[] visible) {
+		final double x, y, z;
+		boolean vis = true;
+		if (orthogonal) {
+			final double dx = px - origX, dy = py - origY, dz = pz - origZ;
+			final double t = dx * lookX + dy * lookY + dz * lookZ;
+			if (cam.mode.oriented && t < 0)
+				vis = false;
+			x = dx * uX + dy * uY + dz * uZ;
+			y = dx * vX + dy * vY + dz * vZ;
+			z = -t;
+		} else {
+			final double dx = px - posX, dy = py - posY, dz = pz - posZ;
+			final double w = origN / (dx * nX + dy * nY + dz * nZ);
+			if (cam.mode.notincam && w > 1)
+				vis = false;
+			if (cam.mode.oriented && w < 0)
+				vis = false;
+			x = w * (dx * uX + dy * uY + dz * uZ) - origU;
+			y = w * (dx * vX + dy * vY + dz * vZ) - origV;
+			z = w;
+		}
+		if (cam.mode.inscreen && (x < 0 || x > 1 || y < 0 || y > 1))
+			vis = false;
 
-		return new Vector2d(result[0] * screenWidthPX,
-				result[1] * screenHeightPX);
+		xs[i] = (float) (x * screenWidthPX);
+		ys[i] = (float) (y * screenHeightPX);
+		depth[i] = (float) z;
+		if (vis)
+			visible[i >>> 6] |= 1L << i;
+		else
+			visible[i >>> 6] &= ~(1L << i);
+		return vis;
 	}
 }
\ No newline at end of file
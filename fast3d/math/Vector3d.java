@@ -1,6 +1,5 @@
 package fast3d.math;
 
-import fast3d.math.MatrixCalculation;
 import fast3d.math.Vector2d;
 import fast3d.math.Vector3d;
 
@@ -13,22 +12,6 @@ import fast3d.math.Vector3d;
  */
 public class Vector3d {
 
-	/**
-	 * to shade a vertex means to calculate its position on a viewers
-	 * camera-screen<br>
-	 * to not calculate that multiple times for one image, the shaded position
-	 * can be buffered here
-	 */
-	public Vector2d shaded;
-	/**
-	 * if multiple images are calculated with changes in the scenery or camera
-	 * movement in between it is necessary to know whether the
-	 * shaded-field-value is valid or was from previous calculations
-	 * 
-	 * @see #shaded
-	 */
-	public byte shadedFrameID;
-
 	/**
 	 * the coordinate x of the vector<br>
 	 * first dimensions coordinate
@@ -114,16 +97,18 @@ public class Vector3d {
 		this.x = vec[0];
 		this.y = vec[1];
 		this.z = vec[2];
-		invalidateShaded();
 		return this;
 	}
 
 	/**
-	 * indicate that a prior shade in the same frame is now invalid, due to
-	 * changes of the coordinate
+	 * does nothing, the shaded positions are buffered by the Graphics3d which
+	 * notices changes of the coordinates itself
+	 * 
+	 * @see fast3d.graphics.ProjectionBuffer
+	 * @deprecated not needed any more
 	 */
+	@Deprecated
 	public void invalidateShaded() {
-		shaded = null;
 	}
 
 	/**
@@ -140,7 +125,6 @@ public class Vector3d {
 		x *= k;
 		y *= k;
 		z *= k;
-		invalidateShaded();
 		return this;
 	}
 
@@ -225,7 +209,6 @@ public class Vector3d {
 		x += t.x;
 		y += t.y;
 		z += t.z;
-		invalidateShaded();
 		return this;
 	}
 
@@ -242,7 +225,6 @@ public class Vector3d {
 		x *= t.x;
 		y *= t.y;
 		z *= t.z;
-		invalidateShaded();
 		return this;
 	}
 
@@ -259,7 +241,6 @@ public class Vector3d {
 		x -= t.x;
 		y -= t.y;
 		z -= t.z;
-		invalidateShaded();
 		return this;
 	}
 
@@ -604,7 +585,6 @@ public class Vector3d {
 		this.x = t.x;
 		this.y = t.y;
 		this.z = t.z;
-		invalidateShaded();
 		return this;
 	}
 
@@ -624,7 +604,6 @@ public class Vector3d {
 		this.x = x;
 		this.y = y;
 		this.z = z;
-		invalidateShaded();
 		return this;
 	}
 
@@ -637,7 +616,6 @@ public class Vector3d {
 		this.x = 0;
 		this.y = 0;
 		this.z = 0;
-		invalidateShaded();
 		return this;
 	}
 
@@ -718,9 +696,10 @@ public class Vector3d {
 	 * @return a this reference
 	 */
 	public Vector3d rotZ(final double rad) {
-		MatrixCalculation.mul(MatrixCalculation.rotationMatrixZ(rad),
-				this);
-		invalidateShaded();
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		final double nx = c * x - s * y;
+		y = s * x + c * y;
+		x = nx;
 		return this;
 	}
 
@@ -734,9 +713,10 @@ public class Vector3d {
 	 * @return a this reference
 	 */
 	public Vector3d rotX(final double rad) {
-		MatrixCalculation.mul(MatrixCalculation.rotationMatrixX(rad),
-				this);
-		invalidateShaded();
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		final double ny = c * y - s * z;
+		z = s * y + c * z;
+		y = ny;
 		return this;
 	}
 
@@ -750,9 +730,10 @@ public class Vector3d {
 	 * @return a this reference
 	 */
 	public Vector3d rotY(final double rad) {
-		MatrixCalculation.mul(MatrixCalculation.rotationMatrixY(rad),
-				this);
-		invalidateShaded();
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		final double nx = c * x + s * z;
+		z = -s * x + c * z;
+		x = nx;
 		return this;
 	}
 
@@ -767,9 +748,23 @@ public class Vector3d {
 	 * @return a this reference
 	 */
 	public Vector3d rot(final Vector3d axis, final double rad) {
-		MatrixCalculation.mul(
-				MatrixCalculation.rotationMatrix(axis, rad), this);
-		invalidateShaded();
+		// the entries of MatrixCalculation.rotationMatrix() without creating it
+		final double fac = 1d / axis.length();
+		final boolean finite = Double.isFinite(fac);
+		final double ax = finite ? axis.x * fac : axis.x;
+		final double ay = finite ? axis.y * fac : axis.y;
+		final double az = finite ? axis.z * fac : axis.z;
+		final double c = Math.cos(rad), s = Math.sin(rad);
+		final double nx = (ax * ax * (1 - c) + c) * x
+				+ (ax * ay * (1 - c) - az * s) * y
+				+ (ax * az * (1 - c) + ay * s) * z;
+		final double ny = (ax * ay * (1 - c) + az * s) * x
+				+ (ay * ay * (1 - c) + c) * y
+				+ (ay * az * (1 - c) - ax * s) * z;
+		z = (ax * az * (1 - c) - ay * s) * x + (ay * az * (1 - c) + ax * s) * y
+				+ (az * az * (1 - c) + c) * z;
+		x = nx;
+		y = ny;
 		return this;
 	}
 
@@ -829,7 +824,6 @@ public class Vector3d {
 			z = min;
 		if (z > max)
 			z = max;
-		invalidateShaded();
 		return this;
 	}
 
@@ -851,7 +845,6 @@ public class Vector3d {
 			scaleTo(min);
 		if (length > max)
 			scaleTo(max);
-		invalidateShaded();
 		return this;
 	}
 
@@ -903,7 +896,6 @@ public class Vector3d {
 		this.x = inclination;
 		this.y = azimuth;
 		this.z = distance;
-		invalidateShaded();
 		return this;
 	}
 
@@ -923,7 +915,6 @@ public class Vector3d {
 		this.x = distance * Math.sin(inclination) * Math.cos(azimuth);
 		this.y = distance * Math.sin(inclination) * Math.sin(azimuth);
 		this.z = distance * Math.cos(inclination);
-		invalidateShaded();
 		return this;
 	}
 
@@ -1,12 +1,22 @@
 package fast3d.mtOpt;
 
+import java.awt.image.BufferedImage;
+
 import fast3d.Panel3d;
 import fast3d.Renderable;
 import fast3d.complex.Universe;
+import fast3d.complex.light.Light;
 import fast3d.graphics.Graphics3d;
+import fast3d.graphics.ProjectionBuffer;
+import fast3d.graphics.RasterGraphics3d;
+import fast3d.graphics.TiledGraphics3d;
+import fast3d.math.Shader;
 
 /**
- * A Panel3d that can render on multiple threads
+ * A Panel3d that can render on multiple threads<br>
+ * the shading is done by long-living shading-threads taking the renderables
+ * in chunks while the render-order is sorted, if depth-buffering is enabled
+ * the rasterization is split to the tiles of a TiledGraphics3d
  * 
  * @see #setSharedShadingThreadCount(int)
  * @author Tim Trense
@@ -14,8 +24,16 @@ import fast3d.graphics.Graphics3d;
 @SuppressWarnings("serial")
 public class MultiThreadPanel3d extends Panel3d {
 
-	private SharedShader[] threads;
+	/**
+	 * replaced, used and shut down while holding the lock, so that the EDT
+	 * never shuts down the pool while the render-thread submits a frame to
+	 * it
+	 */
+	private ShadingPool pool;
+	private final Object poolLock = new Object();
 	private int threadCount;
+	private boolean virtual, pooledVirtual;
+	private boolean tiled;
 
 	/**
 	 * calls the super constructor on the argument and sets the initial thread-count to 1
@@ -24,28 +42,62 @@ public class MultiThreadPanel3d extends Panel3d {
 	public MultiThreadPanel3d(final Universe uni) {
 		super(uni);
 		this.threadCount = 1;
+		this.tiled = true;
+	}
+
+	/**
+	 * @return whether the depth-buffered frames are rasterized in parallel
+	 */
+	public boolean isTiled() {
+		return tiled;
+	}
+
+	/**
+	 * enables or disables the parallel rasterization of the following
+	 * depth-buffered frames by a TiledGraphics3d<br>
+	 * has no effect if depth-buffering is disabled<br>
+	 * default is enabled
+	 * 
+	 * @see fast3d.graphics.TiledGraphics3d
+	 * @see #setDepthBuffered(boolean)
+	 * @param tiled
+	 *            whether to fill the tiles of the frame on all cores
+	 */
+	public void setTiled(final boolean tiled) {
+		this.tiled = tiled;
+	}
+
+	@Override
+	protected RasterGraphics3d createRasterGraphics3d(
+			final BufferedImage frame, final float[] depth, final Shader sh,
+			final ProjectionBuffer projections, final Light... lights) {
+		if (tiled)
+			return new TiledGraphics3d(frame, depth, sh, projections,
+					lights);
+		return super.createRasterGraphics3d(frame, depth, sh, projections,
+				lights);
 	}
 
 	/**
-	 * splits the universe into multiple render-pipelines
-	 * @return a similar split of renderables to threads based on the CURRENT universe
+	 * has to be called while holding the lock
+	 * 
+	 * @return the workers of the configured kind and count, created on the
+	 *         first frame after a change of the configuration
 	 */
-	private SharedShader[] pack() {
-		if (this.threadCount < 1)
-			this.threadCount = 1;
-		final SharedShader[] threads = new SharedShader[this.threadCount];
-		final Renderable[] mobjs = getUniverse().getObjs();
-		final int length = mobjs.length / threads.length;
-		for (int i = 0; i < threads.length; i++) {
-			threads[i] = new SharedShader(mobjs, i * length,
-					(i == threads.length - 1 ? Integer.MAX_VALUE
-							: length));
+	private ShadingPool getPool() {
+		if (pool == null || pool.getThreadCount() != threadCount
+				|| pooledVirtual != virtual) {
+			if (pool != null)
+				pool.shutdown();
+			pool = new ShadingPool(threadCount, virtual);
+			pooledVirtual = virtual;
 		}
-		return threads;
+		return pool;
 	}
 
 	/**
-	 * @return the number of threads used to render one frame
+	 * @return the number of threads shading one frame besides the one
+	 *         sorting the render-order (which helps after sorting)
 	 */
 	public int getSharedShadingThreadCount() {
 		return threadCount;
@@ -56,22 +108,57 @@ public class MultiThreadPanel3d extends Panel3d {
 	 * @param threadCount a positive count
 	 */
 	public void setSharedShadingThreadCount(final int threadCount) {
-		this.threadCount = threadCount;
+		this.threadCount = Math.max(1, threadCount);
 	}
 
+	/**
+	 * @return whether the shading-threads should be virtual threads
+	 */
+	public boolean isVirtualThreads() {
+		return virtual;
+	}
+
+	/**
+	 * sets whether the shading-threads of the following frames should be
+	 * virtual threads, which is only possible if the runtime supports them
+	 * <br>
+	 * default is disabled
+	 * 
+	 * @param virtual
+	 *            whether to use virtual threads
+	 */
+	public void setVirtualThreads(final boolean virtual) {
+		this.virtual = virtual;
+	}
+
+	/**
+	 * stops the shading-threads when this is removed from its parent, they
+	 * are recreated on the next frame, a frame being shaded is finished
+	 */
 	@Override
-	public void repaint() {
-		super.repaint();
-		threads = pack();
+	public void removeNotify() {
+		super.removeNotify();
+		synchronized (poolLock) {
+			if (pool != null) {
+				pool.shutdown();
+				pool = null;
+			}
+		}
 	}
 
+	/**
+	 * nothing is drawn if the thread was interrupted while shading
+	 */
 	@Override
 	public void render(final Graphics3d g) {
-		for (SharedShader t : threads)
-			t.shade(g);
-		final Renderable[] ms = getUniverse().getObjsSorted();
-		for (SharedShader t : threads)
-			t.finishShade();
+		final Renderable[] objs = getUniverse().getObjs();
+		final ShadingPool.Frame shading;
+		synchronized (poolLock) {
+			shading = getPool().shade(objs, g);
+		}
+		final Renderable[] ms = getRenderOrder(g);
+		if (!shading.finish())
+			return;
 
 		for (Renderable m : ms) {
 			m.render(g);
@@ -0,0 +1,272 @@
+package fast3d.mtOpt;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import fast3d.Renderable;
+import fast3d.graphics.Graphics3d;
+
+/**
+ * a long-living set of worker-threads to shade the renderables of a frame
+ * <br>
+ * the renderables are not split into equal parts per thread but taken in
+ * small chunks from a shared cursor, so a thread having cheap renderables
+ * simply takes more chunks and no thread waits for an overloaded one<br>
+ * the thread calling shade() works on the chunks too, so a pool of n workers
+ * shades on n+1 threads<br>
+ * shutdown() lets the frames already started finish, so it may be called
+ * while another thread shades, but shade() must not be called afterwards
+ *
+ * @see MultiThreadPanel3d
+ * @author Tim Trense
+ */
+public class ShadingPool {
+
+	/**
+	 * the default count of renderables taken at once by a thread
+	 */
+	public static int defaultChunkSize = 16;
+
+	private final ExecutorService workers;
+	private final int threadCount;
+	private final boolean virtual;
+	/**
+	 * the count of renderables taken at once by a thread
+	 */
+	public int chunkSize = defaultChunkSize;
+
+	/**
+	 * constructs a pool of platform-threads
+	 *
+	 * @param threadCount
+	 *            the count of worker-threads besides the calling thread
+	 */
+	public ShadingPool(final int threadCount) {
+		this(threadCount, false);
+	}
+
+	/**
+	 * @param threadCount
+	 *            the count of worker-threads besides the calling thread
+	 * @param virtual
+	 *            whether to use virtual threads, only possible if the runtime
+	 *            supports them, otherwise platform-threads are used
+	 */
+	public ShadingPool(final int threadCount, final boolean virtual) {
+		if (threadCount < 0)
+			throw new IllegalArgumentException(
+					"thread-count must not be negative");
+		this.threadCount = threadCount;
+		ThreadFactory factory = virtual ? virtualThreadFactory() : null;
+		this.virtual = factory != null;
+		if (factory == null)
+			factory = new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(final Runnable r) {
+					final Thread t = new Thread(r,
+							"fast3d-shading-" + count.incrementAndGet());
+					t.setDaemon(true);
+					t.setPriority(Thread.MAX_PRIORITY);
+					return t;
+				}
+			};
+		this.workers = threadCount == 0 ? null
+				: Executors.newFixedThreadPool(threadCount, factory);
+	}
+
+	/**
+	 * @return a factory of virtual threads or null if the runtime does not
+	 *         know them (they are looked up reflectively, so that this
+	 *         compiles on older runtimes)
+	 */
+	private static ThreadFactory virtualThreadFactory() {
+		try {
+			final Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			final Object builder = ofVirtual.invoke(null);
+			final Method factory = Class.forName("java.lang.Thread$Builder")
+					.getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the count of worker-threads besides the calling thread
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * @return whether the workers are virtual threads
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * starts shading all given renderables on the workers, the calling thread
+	 * may do something else before joining them by Frame.finish()
+	 *
+	 * @param objs
+	 *            the renderables to shade, must not be changed until the
+	 *            frame is finished
+	 * @param g
+	 *            the parameter for Renderable.shade
+	 * @return the running frame
+	 * @throws java.util.concurrent.RejectedExecutionException
+	 *             if this was shut down
+	 */
+	public Frame shade(final Renderable[] objs, final Graphics3d g) {
+		final int chunk = Math.max(1, chunkSize);
+		final int n = workers == null ? 0
+				: Math.min(threadCount, (objs.length + chunk - 1) / chunk);
+		final Frame f = new Frame(objs, g, chunk, n);
+		for (int i = 0; i < n; i++)
+			workers.execute(f.worker);
+		return f;
+	}
+
+	/**
+	 * stops all workers after the current frame, the pool can not be used
+	 * afterwards
+	 */
+	public void shutdown() {
+		if (workers != null)
+			workers.shutdown();
+	}
+
+	/**
+	 * @return whether shutdown() was called
+	 */
+	public boolean isShutdown() {
+		return workers != null && workers.isShutdown();
+	}
+
+	/**
+	 *
+	 * @return fast3d.mtOpt.ShadingPool[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.mtOpt.ShadingPool[" + "threads=" + threadCount
+				+ ";virtual=" + virtual + ";chunkSize=" + chunkSize + "]";
+	}
+
+	/**
+	 * the shading of the renderables of one frame
+	 */
+	public static final class Frame implements Runnable {
+
+		private final Renderable[] objs;
+		private final Graphics3d g;
+		private final int chunk;
+		private final AtomicInteger cursor = new AtomicInteger();
+		/**
+		 * counted down by every worker when it took its last chunk
+		 */
+		private final CountDownLatch done;
+		private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		private final Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Frame.this.run();
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+					cancel();
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+
+		private Frame(final Renderable[] objs, final Graphics3d g,
+				final int chunk, final int workers) {
+			this.objs = objs;
+			this.g = g;
+			this.chunk = chunk;
+			this.done = new CountDownLatch(workers);
+		}
+
+		/**
+		 * shades chunks until no renderable is left
+		 */
+		@Override
+		public void run() {
+			int from;
+			while ((from = cursor.getAndAdd(chunk)) < objs.length) {
+				final int to = Math.min(objs.length, from + chunk);
+				for (int i = from; i < to; i++)
+					objs[i].shade(g);
+			}
+		}
+
+		/**
+		 * no chunk is taken afterwards, the chunks being shaded are
+		 * finished
+		 */
+		private void cancel() {
+			cursor.set(objs.length);
+		}
+
+		/**
+		 * shades the left chunks on the calling thread and waits for the
+		 * workers to finish theirs<br>
+		 * if the calling thread is interrupted, the chunks not taken yet are
+		 * dropped and the workers are still awaited, so that no renderable
+		 * is shaded after return, the interrupt-flag is set again<br>
+		 * an exception thrown by a renderable on a worker is rethrown here
+		 * 
+		 * @return false if the shading was cancelled by an interrupt, so that
+		 *         not every renderable was shaded
+		 */
+		public boolean finish() {
+			try {
+				run();
+			} catch (RuntimeException | Error e) {
+				cancel();
+				await();
+				throw e;
+			}
+			final boolean interrupted = await();
+			final Throwable cause = failure.get();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			if (cause != null)
+				throw new IllegalStateException(cause);
+			return !interrupted;
+		}
+
+		/**
+		 * waits for the workers even if interrupted, then cancels the left
+		 * chunks and sets the interrupt-flag again
+		 *
+		 * @return whether the calling thread was interrupted
+		 */
+		private boolean await() {
+			boolean interrupted = false;
+			while (true)
+				try {
+					done.await();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					cancel();
+				}
+			if (interrupted)
+				Thread.currentThread().interrupt();
+			return interrupted;
+		}
+	}
+}
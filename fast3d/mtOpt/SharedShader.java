@@ -6,8 +6,13 @@ import fast3d.graphics.Graphics3d;
 /**
  * a support-class for MultiThreadPanel3d<br>
  * holds the information about it and one shading-pipeline itself
+ * @deprecated MultiThreadPanel3d does not use this any longer, it shades on
+ *             the long-living workers of a ShadingPool, which starts no
+ *             thread per frame
+ * @see ShadingPool
  * @author Tim Trense
  */
+@Deprecated
 public class SharedShader {
 
 	private final Renderable[] list;
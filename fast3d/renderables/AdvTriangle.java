@@ -8,10 +8,11 @@ import fast3d.complex.light.Light;
 import fast3d.complex.light.Material;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
+import fast3d.graphics.Texture;
+import fast3d.math.Shader;
 import fast3d.math.Vector2d;
 import fast3d.math.Vector3d;
 import fast3d.util.ColorGen;
-import fast3d.util.math.MathUtil;
 
 /**
  * an advanced version of triangle3d that is illuminatable with any built-in
@@ -23,6 +24,8 @@ import fast3d.util.math.MathUtil;
 public class AdvTriangle extends Triangle implements Illuminatable {
 
 	private Color currentVisibleColor = null;
+	// the version of the lights the current visible color was calculated for
+	private long litLights;
 	private final Vector3d normal;
 	/**
 	 * the lighting-color information of the triangles surface
@@ -228,15 +231,53 @@ public class AdvTriangle extends Triangle implements Illuminatable {
 	private Vector2d as, bs, cs;
 	private BufferedImage img;
 	private int ox, oy;
+	private boolean solid;
+	// what the image was drawn for, it is reused while all of it stays the
+	// same
+	private Shader imgShader;
+	private long imgVersion;
+	private Color imgColor;
+	private Texture imgTexture;
+	private boolean imgIlluminated;
 
+	/**
+	 * calculates the visible color and draws this into an image to render
+	 * <br>
+	 * nothing is drawn while the camera sees the back of this, unless the
+	 * material is double-sided<br>
+	 * if no texture is set, no image is drawn but this is rendered as a polygon
+	 * (depth-tested if the graphics3d is depth-buffered and clipped if it is
+	 * partially visible)<br>
+	 * the visible color is calculated again only if this was invalidated or
+	 * the lights changed, the image is drawn again only if additionally the
+	 * camera, the vertices or the texture changed
+	 * 
+	 * @see Graphics3d#getLightsVersion()
+	 * @see Shader#hasSameView(Shader)
+	 */
 	public void shade(final Graphics3d s) {
-		if (s.getShader().cam.getLookDir()
-				.angleTo(this.getNormal()) < MathUtil.piOver2) {
+		solid = false;
+		if (!material.doubleSided && s.isBackface(a, getNormal())) {
 			img = null;
 			return;
 		}
-		if (currentVisibleColor == null)
+		if (currentVisibleColor == null
+				|| litLights != s.getLightsVersion()) {
 			currentVisibleColor = s.illuminateSurface(this);
+			litLights = s.getLightsVersion();
+		}
+		if (material.texture == null) {
+			img = null;
+			solid = true;
+			return;
+		}
+		final Shader sh = s.getShader();
+		if (img != null && sh.hasSameView(imgShader)
+				&& imgVersion == getVersion()
+				&& imgColor == currentVisibleColor
+				&& imgTexture == material.texture
+				&& imgIlluminated == illuminateTexture)
+			return;
 		as = s.shade(this.a);
 		bs = s.shade(this.b);
 		cs = s.shade(this.c);
@@ -310,11 +351,19 @@ public class AdvTriangle extends Triangle implements Illuminatable {
 
 		g.dispose();
 		img = img2;
+		imgShader = sh;
+		imgVersion = getVersion();
+		imgColor = currentVisibleColor;
+		imgTexture = material.texture;
+		imgIlluminated = illuminateTexture;
 	}
 
 	public void render(final Graphics3d g) {
-		if (img != null)
-			g.getGraphics2d().drawImage(img, ox, oy, null);
+		if (solid) {
+			g.setColor(currentVisibleColor);
+			g.polygon(a, b, c);
+		} else if (img != null)
+			g.image(img, ox, oy, a, b, c);
 	}
 
 	/**
@@ -348,25 +397,14 @@ public class AdvTriangle extends Triangle implements Illuminatable {
 	}
 
 	/**
-	 * invalidates the lighting calculation
-	 * 
-	 * @see #invalidateLight()
-	 */
-	@Override
-	public void rot(final Vector3d axis, final double rad) {
-		invalidateLight();
-		super.rot(axis, rad);
-	}
-
-	/**
-	 * invalidates the lighting calculation
+	 * invalidates the lighting calculation too
 	 * 
 	 * @see #invalidateLight()
 	 */
 	@Override
-	public void moveInAbsoluteDirection(Vector3d dir) {
+	public void changed() {
 		invalidateLight();
-		super.moveInAbsoluteDirection(dir);
+		super.changed();
 	}
 
 	/**
@@ -395,6 +433,7 @@ public class AdvTriangle extends Triangle implements Illuminatable {
 		a2.set(a);
 		b2.set(b);
 		c2.set(c);
+		img = null;
 	}
 
 	/**
@@ -430,5 +469,6 @@ public class AdvTriangle extends Triangle implements Illuminatable {
 	public void revalidateLight(Light... lights) {
 		currentVisibleColor = Graphics3d.illuminateSurface(this,
 				lights);
+		litLights = Graphics3d.lightsVersion(lights);
 	}
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package fast3d.renderables;
 
 import java.awt.Font;
 
+import fast3d.Movable;
 import fast3d.Renderable;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
@@ -16,7 +17,7 @@ import fast3d.util.ColorGen;
  * 
  * @author Tim Trense
  */
-public class Callout implements Renderable {
+public class Callout implements Renderable, Movable {
 
 	/**
 	 * the class to represent the awt-font but with further information
@@ -1,5 +1,6 @@
 package fast3d.renderables;
 
+import fast3d.Movable;
 import fast3d.Renderable;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
@@ -15,7 +16,7 @@ import fast3d.util.ColorGen;
  * 
  * @author Tim Trense
  */
-public class Line implements Renderable {
+public class Line implements Renderable, Movable {
 
 	/**
 	 * the starting point of the line
@@ -1,5 +1,6 @@
 package fast3d.renderables;
 
+import fast3d.Movable;
 import fast3d.Renderable;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
@@ -15,7 +16,7 @@ import fast3d.math.geom.Point;
  * 
  * @author Tim Trense
  */
-public class Pixel extends Point implements Renderable {
+public class Pixel extends Point implements Renderable, Movable {
 
 	/**
 	 * determines the default value for the rayIntersectionZeroLockControl on
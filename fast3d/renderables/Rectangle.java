@@ -1,5 +1,6 @@
 package fast3d.renderables;
 
+import fast3d.Movable;
 import fast3d.Renderable;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
@@ -13,7 +14,7 @@ import fast3d.util.ColorGen;
  * 
  * @author Tim Trense
  */
-public class Rectangle implements Renderable {
+public class Rectangle implements Renderable, Movable {
 
 	/**
 	 * edge 1
@@ -37,6 +38,18 @@ public class Rectangle implements Renderable {
 	 */
 	protected final Color color;
 
+	/**
+	 * the initial value of doubleSided for every new rectangle<br>
+	 * default true
+	 */
+	public static boolean defaultDoubleSided = true;
+
+	/**
+	 * if false, the rectangle is skipped while the camera sees its back (the
+	 * front is the side getNormal() points to)
+	 */
+	public boolean doubleSided = defaultDoubleSided;
+
 	/**
 	 * constructs a rectangle with the given edges
 	 * 
@@ -98,16 +111,26 @@ public class Rectangle implements Renderable {
 		return getPos();
 	}
 
+	/**
+	 * shades the edges unless this is single-sided and turned away
+	 */
 	@Override
 	public void shade(Graphics3d s) {
+		if (!doubleSided && s.isBackface(a, b, d))
+			return;
 		s.shade(a);
 		s.shade(b);
 		s.shade(c);
 		s.shade(d);
 	}
 	
+	/**
+	 * draws this unless this is single-sided and turned away
+	 */
 	@Override
 	public void render(final Graphics3d g) {
+		if (!doubleSided && g.isBackface(a, b, d))
+			return;
 		g.setColor(color);
 		g.polygon(a, b, c, d);
 	}
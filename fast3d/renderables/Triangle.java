@@ -1,6 +1,8 @@
 package fast3d.renderables;
 
+import fast3d.Movable;
 import fast3d.Renderable;
+import fast3d.complex.RayPacket;
 import fast3d.graphics.Color;
 import fast3d.graphics.Graphics3d;
 import fast3d.math.MatrixCalculation;
@@ -13,7 +15,7 @@ import fast3d.util.ColorGen;
  * 
  * @author Tim Trense
  */
-public class Triangle implements Renderable {
+public class Triangle implements Renderable, Movable {
 
 	/**
 	 * edge 1
@@ -33,6 +35,21 @@ public class Triangle implements Renderable {
 	 */
 	protected final Color color;
 
+	/**
+	 * the initial value of doubleSided for every new triangle<br>
+	 * default true
+	 */
+	public static boolean defaultDoubleSided = true;
+
+	/**
+	 * if false, the triangle is skipped while the camera sees its back (the
+	 * front is the side the normal (b-a)x(c-a) points to)<br>
+	 * an AdvTriangle ignores this and uses material.doubleSided instead
+	 */
+	public boolean doubleSided = defaultDoubleSided;
+
+	private long version;
+
 	/**
 	 * constructs a triangle with the given edges
 	 * 
@@ -67,6 +84,29 @@ public class Triangle implements Renderable {
 		this(a, b, c, ColorGen.WHITE());
 	}
 
+	/**
+	 * the version changes whenever this is moved or rotated, so that results
+	 * depending only on the vertices (e.g. a rasterized image) can be reused
+	 * as long as it stays the same
+	 * 
+	 * @see #changed()
+	 * @return the current version of the vertices
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * has to be called after the vertices of this were changed directly, the
+	 * methods of this and of a group, object or scene containing this call it
+	 * themselves
+	 * 
+	 * @see #getVersion()
+	 */
+	public void changed() {
+		version++;
+	}
+
 	/**
 	 * @return a reference to the first edge given in the constructor
 	 */
@@ -168,15 +208,25 @@ public class Triangle implements Renderable {
 				+ color + "]";
 	}
 
+	/**
+	 * shades the edges unless this is single-sided and turned away
+	 */
 	@Override
 	public void shade(final Graphics3d s) {
+		if (!doubleSided && s.isBackface(a, b, c))
+			return;
 		s.shade(a);
 		s.shade(b);
 		s.shade(c);
 	}
 	
+	/**
+	 * draws this unless this is single-sided and turned away
+	 */
 	@Override
 	public void render(final Graphics3d g) {
+		if (!doubleSided && g.isBackface(a, b, c))
+			return;
 		g.setColor(color);
 		g.polygon(a, b, c);
 	}
@@ -203,6 +253,43 @@ public class Triangle implements Renderable {
 		return puncturepoint;
 	}
 
+	/**
+	 * intersects all rays of the packet from the given index on with this,
+	 * the sides are computed once for all rays<br>
+	 * gives the same hits as rayTrace() for every single ray, so a subclass
+	 * overriding rayTrace() has to override this too
+	 * 
+	 * @param packet
+	 *            the rays to offer the hits to
+	 * @param from
+	 *            the index of the first ray to intersect
+	 */
+	public void rayTrace(final RayPacket packet, final int from) {
+		final double abx = b.x - a.x, aby = b.y - a.y, abz = b.z - a.z;
+		final double acx = c.x - a.x, acy = c.y - a.y, acz = c.z - a.z;
+		for (int i = from; i < packet.size(); i++) {
+			final double dx = packet.dx[i], dy = packet.dy[i],
+					dz = packet.dz[i];
+			// Cramer's rule on ab*u + ac*v - dir*t = orig - a
+			final double px = dy * acz - dz * acy, py = dz * acx - dx * acz,
+					pz = dx * acy - dy * acx;
+			final double det = abx * px + aby * py + abz * pz;
+			if (det == 0)
+				continue;
+			final double tx = packet.ox[i] - a.x, ty = packet.oy[i] - a.y,
+					tz = packet.oz[i] - a.z;
+			final double u = (tx * px + ty * py + tz * pz) / det;
+			if (!(u > 0 && u < 1))
+				continue;
+			final double qx = ty * abz - tz * aby, qy = tz * abx - tx * abz,
+					qz = tx * aby - ty * abx;
+			final double v = (dx * qx + dy * qy + dz * qz) / det;
+			if (!(v > 0 && v < 1) || u + v > 1)
+				continue;
+			packet.offer(i, this, (acx * qx + acy * qy + acz * qz) / det);
+		}
+	}
+
 	/**
 	 * calculates the point that is on both this and the given line<br>
 	 * the lines length is the length of its direction-vector<br>
@@ -294,6 +381,7 @@ public class Triangle implements Renderable {
 		b.add(pos);
 		c.add(pos);
 		getNormal().rot(axis, rad);
+		changed();
 	}
 
 	/**
@@ -335,6 +423,7 @@ public class Triangle implements Renderable {
 		getEdge1().add(dir);
 		getEdge2().add(dir);
 		getEdge3().add(dir);
+		changed();
 	}
 
 	/**
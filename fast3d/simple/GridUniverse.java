@@ -0,0 +1,985 @@
+package fast3d.simple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import fast3d.Movable;
+import fast3d.Renderable;
+import fast3d.complex.BVH;
+import fast3d.complex.Group;
+import fast3d.complex.IndexedMesh;
+import fast3d.complex.Instance;
+import fast3d.complex.RayHit;
+import fast3d.complex.RayPacket;
+import fast3d.complex.Scene;
+import fast3d.math.Shader;
+import fast3d.math.Vector3d;
+import fast3d.renderables.Triangle;
+
+/**
+ * a universe for scenes in which many renderables move every frame<br>
+ * every renderable is put into all cells of a uniform grid its axis-aligned
+ * box overlaps, the occupied cells are kept in a hash-table, so the extent
+ * of the scene needs not be known and empty space takes no memory<br>
+ * moving a renderable by move() or moveTo() (or telling about its move by
+ * update()) re-bins just that renderable in O(1), nothing is rebuilt or
+ * refitted<br>
+ * invalidateBounds() re-bins just the renderables whose version changed
+ * since they were binned (triangles, groups, objects, scenes, meshes and
+ * instances), renderables without a version are measured again and re-binned
+ * if their box changed, a change not counted by the version of the
+ * renderable in the universe (e.g. moving a group of an object on its own)
+ * has to be told by update()<br>
+ * rays walk through the grid cell by cell, frustum-, sphere- and box-queries
+ * visit only the occupied cells in range<br>
+ * renderables which may be hit by a ray outside of their vertices (pixels,
+ * lines, ...) are binned for the range-queries but tested one by one by
+ * rayTrace(), renderables spanning more than maxCellsPerObject cells are not
+ * binned but tested one by one by every query
+ *
+ * @see fast3d.complex.BVH
+ * @author Tim Trense
+ */
+public class GridUniverse extends SimpleUniverse {
+
+	/**
+	 * the default edge-length of a cell
+	 */
+	public static double defaultCellSize = 1;
+	/**
+	 * the default count of cells a renderable may span to be binned
+	 */
+	public static int defaultMaxCellsPerObject = 64;
+
+	/**
+	 * cell-coordinates are clamped to 21 bit each to be packed into the key
+	 */
+	private static final int MAX_CELL = (1 << 20) - 1;
+	/**
+	 * the version of a renderable that has none
+	 */
+	private static final long NO_VERSION = Long.MIN_VALUE;
+
+	private final double cellSize;
+	private final int maxCellsPerObject;
+	private final HashMap<Long, Cell> cells;
+	private final ReadWriteLock gridLock = new ReentrantReadWriteLock();
+
+	/**
+	 * per handle: the renderable, its box (min x,y,z, max x,y,z), its range
+	 * of cells (first x,y,z, last x,y,z, empty if not binned), its
+	 * BVH.hitKind() and the version it was measured at
+	 */
+	private Renderable[] byHandle;
+	private double[] box;
+	private int[] range;
+	private int[] kind;
+	private long[] stamp;
+	private final int[] previous = new int[6];
+	/**
+	 * the renderables tested one by one by rayTrace()
+	 */
+	private final HandleSet rayLinear;
+	/**
+	 * the renderables spanning too many cells, tested one by one by every
+	 * query
+	 */
+	private final HandleSet large;
+	/**
+	 * the count of binned renderables that may be hit behind the start of a
+	 * ray
+	 */
+	private int lineCount;
+	/**
+	 * the range of the occupied cells, it may be larger than needed until
+	 * the next invalidateBounds()
+	 */
+	private final int[] occupied = { 0, 0, 0, -1, -1, -1 };
+	/**
+	 * whether a cell at the border of the occupied range was emptied, so
+	 * that the range may shrink
+	 */
+	private boolean extentStale;
+
+	/**
+	 * generates an empty universe with the default cell-size
+	 */
+	public GridUniverse() {
+		this(defaultCellSize, defaultMaxCellsPerObject);
+	}
+
+	/**
+	 * generates an empty universe
+	 *
+	 * @param cellSize
+	 *            the edge-length of a cell, best about the size of the
+	 *            renderables moving most
+	 * @param maxCellsPerObject
+	 *            the count of cells a renderable may span to be binned
+	 */
+	public GridUniverse(final double cellSize, final int maxCellsPerObject) {
+		if (!(cellSize > 0) || Double.isInfinite(cellSize))
+			throw new IllegalArgumentException("cell-size must be positive");
+		this.cellSize = cellSize;
+		this.maxCellsPerObject = Math.max(1, maxCellsPerObject);
+		this.cells = new HashMap<Long, Cell>();
+		this.byHandle = new Renderable[16];
+		this.box = new double[6 * 16];
+		this.range = new int[6 * 16];
+		this.kind = new int[16];
+		this.stamp = new long[16];
+		this.rayLinear = new HandleSet();
+		this.large = new HandleSet();
+	}
+
+	/**
+	 * @return the edge-length of a cell
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * @return the count of occupied cells
+	 */
+	public int getCellCount() {
+		gridLock.readLock().lock();
+		try {
+			return cells.size();
+		} finally {
+			gridLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * synchronized add to the internal renderables-storage and to the cells
+	 * of the grid it overlaps
+	 */
+	@Override
+	public int insert(final Renderable r) {
+		final int handle = super.insert(r);
+		gridLock.writeLock().lock();
+		try {
+			if (handle >= byHandle.length)
+				grow(handle);
+			if (byHandle[handle] != r) {
+				if (byHandle[handle] != null)
+					drop(handle);
+				enter(handle, r);
+			}
+		} finally {
+			gridLock.writeLock().unlock();
+		}
+		return handle;
+	}
+
+	/**
+	 * synchronized remove from the internal renderables-storage and from the
+	 * cells of the grid it was in
+	 */
+	@Override
+	public Renderable remove(final int handle) {
+		final Renderable r = super.remove(handle);
+		if (r != null) {
+			gridLock.writeLock().lock();
+			try {
+				if (byHandle[handle] == r)
+					drop(handle);
+			} finally {
+				gridLock.writeLock().unlock();
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * moves the given renderable and re-bins it
+	 *
+	 * @param m
+	 *            a renderable of this universe
+	 * @param dir
+	 *            the vector to move it by
+	 */
+	public void move(final Movable m, final Vector3d dir) {
+		m.moveInAbsoluteDirection(dir);
+		if (m instanceof Renderable)
+			update((Renderable) m);
+	}
+
+	/**
+	 * moves the given renderable to the target and re-bins it
+	 *
+	 * @param m
+	 *            a renderable of this universe
+	 * @param target
+	 *            the location where its position-vector will be after call
+	 */
+	public void moveTo(final Movable m, final Vector3d target) {
+		m.moveTo(target);
+		if (m instanceof Renderable)
+			update((Renderable) m);
+	}
+
+	/**
+	 * re-bins a renderable that was moved or changed its shape, in O(1)
+	 *
+	 * @param r
+	 *            a renderable of this universe
+	 */
+	public void update(final Renderable r) {
+		final int handle = handleOf(r);
+		if (handle >= 0)
+			update(handle);
+	}
+
+	/**
+	 * re-bins a renderable that was moved or changed its shape, in O(1)
+	 *
+	 * @param handle
+	 *            the handle returned by insert()
+	 */
+	public void update(final int handle) {
+		gridLock.writeLock().lock();
+		try {
+			if (handle >= 0 && handle < byHandle.length
+					&& byHandle[handle] != null)
+				rebin(handle);
+		} finally {
+			gridLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * applies the pending transformations of the watched groups, then
+	 * re-bins the renderables whose version changed since they were binned
+	 * and those without a version whose box changed, the write-lock is only
+	 * taken if any did
+	 */
+	@Override
+	public void invalidateBounds() {
+		super.invalidateBounds();
+		int[] dirty = null;
+		int count = 0;
+		final boolean stale;
+		final double[] measured = new double[6];
+		gridLock.readLock().lock();
+		try {
+			for (int h = 0; h < byHandle.length; h++) {
+				final Renderable r = byHandle[h];
+				if (r == null || !changed(h, r, measured))
+					continue;
+				if (dirty == null)
+					dirty = new int[16];
+				else if (count == dirty.length)
+					dirty = Arrays.copyOf(dirty, 2 * count);
+				dirty[count++] = h;
+			}
+			stale = extentStale;
+		} finally {
+			gridLock.readLock().unlock();
+		}
+		if (count == 0 && !stale)
+			return;
+		gridLock.writeLock().lock();
+		try {
+			for (int i = 0; i < count; i++)
+				if (byHandle[dirty[i]] != null)
+					rebin(dirty[i]);
+			if (extentStale) {
+				occupied[0] = occupied[1] = occupied[2] = 0;
+				occupied[3] = occupied[4] = occupied[5] = -1;
+				for (Cell c : cells.values())
+					occupy(c.x, c.y, c.z);
+				extentStale = false;
+			}
+		} finally {
+			gridLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return whether the renderable of the handle has to be re-binned
+	 */
+	private boolean changed(final int h, final Renderable r,
+			final double[] measured) {
+		final long v = versionOf(r);
+		if (v != NO_VERSION)
+			return v != stamp[h];
+		BVH.bounds(r, measured, 0);
+		for (int i = 0; i < 6; i++)
+			if (Double.compare(measured[i], box[6 * h + i]) != 0)
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return the version of the vertices of the renderable, growing with
+	 *         every change, or NO_VERSION if it has none
+	 */
+	private static long versionOf(final Renderable r) {
+		if (r instanceof Triangle)
+			return ((Triangle) r).getVersion();
+		if (r instanceof Group)
+			return ((Group) r).getVersion();
+		if (r instanceof fast3d.complex.Object)
+			return ((fast3d.complex.Object) r).getVersion();
+		if (r instanceof Scene)
+			return ((Scene) r).getVersion();
+		if (r instanceof IndexedMesh)
+			return ((IndexedMesh) r).getVersion();
+		if (r instanceof Instance) {
+			// both versions only grow, so does their sum
+			final Instance i = (Instance) r;
+			return i.getVersion() + i.mesh.getVersion();
+		}
+		return NO_VERSION;
+	}
+
+	/**
+	 * the ray walks through the occupied cells it passes, every renderable
+	 * of these cells whose box is passed by the ray is asked for its
+	 * puncture point
+	 *
+	 * @param s
+	 *            start of ray
+	 * @param r
+	 *            direction of ray
+	 * @return all Renderables which are targeted by the ray and their puncture
+	 *         point with the ray
+	 */
+	@Override
+	public Hashtable<Renderable, Vector3d> rayTrace(final Vector3d s,
+			final Vector3d r) {
+		if (s == null || r == null)
+			return null;
+		final Hashtable<Renderable, Vector3d> hits = new Hashtable<Renderable, Vector3d>();
+		gridLock.readLock().lock();
+		try {
+			for (int i = 0; i < rayLinear.count; i++)
+				trace(rayLinear.items[i], s, r, hits);
+			if (r.x == 0 && r.y == 0 && r.z == 0) {
+				for (Cell c : cells.values())
+					for (int i = 0; i < c.count; i++)
+						trace(c.members[i], s, r, hits);
+			} else if (!cells.isEmpty())
+				walk(s, r, hits, null);
+		} finally {
+			gridLock.readLock().unlock();
+		}
+		return hits;
+	}
+
+	/**
+	 * the cells are walked from the start of the ray on and the walk stops
+	 * behind the cell containing the nearest hit
+	 *
+	 * @see fast3d.complex.BVH#rayTraceClosest(Vector3d, Vector3d, double)
+	 */
+	@Override
+	public RayHit rayTraceClosest(final Vector3d s, final Vector3d r,
+			final double maxDistance) {
+		final double length = r.length();
+		if (!(length > 0))
+			return null;
+		final Search q = new Search(maxDistance / length, null, false);
+		search(s, r, q);
+		return q.hit == null ? null
+				: new RayHit(q.hit, q.point, q.tmax * length);
+	}
+
+	/**
+	 * every ray walks the cells on its own like in rayTraceClosest(Vector3d,
+	 * Vector3d, double), which overrides the bounding volume hierarchy of
+	 * SimpleUniverse that would be built over all renderables
+	 *
+	 * @see #rayTraceClosest(Vector3d, Vector3d, double)
+	 */
+	@Override
+	public void rayTraceClosest(final RayPacket packet) {
+		for (int i = 0; i < packet.size(); i++) {
+			if (!(packet.t[i] >= 0))
+				continue;
+			final Search q = new Search(packet.t[i], null, false);
+			search(packet.start(i), packet.direction(i), q);
+			if (q.hit != null)
+				packet.offer(i, q.hit, q.tmax);
+		}
+	}
+
+	/**
+	 * the cells are walked from the start of the ray on and the walk stops at
+	 * the first hit
+	 *
+	 * @see fast3d.complex.BVH#rayTraceAny(Vector3d, Vector3d, double,
+	 *      Renderable)
+	 */
+	@Override
+	public boolean rayTraceAny(final Vector3d s, final Vector3d r,
+			final double maxDistance, final Renderable ignore) {
+		final double length = r.length();
+		if (!(length > 0))
+			return false;
+		final Search q = new Search(maxDistance / length, ignore, true);
+		search(s, r, q);
+		return q.hit != null;
+	}
+
+	private void search(final Vector3d s, final Vector3d r, final Search q) {
+		gridLock.readLock().lock();
+		try {
+			if (!cells.isEmpty() && walk(s, r, null, q))
+				return;
+			for (int i = 0; i < rayLinear.count; i++) {
+				final int h = rayLinear.items[i];
+				if ((kind[h] == BVH.HIT_UNBOUNDED
+						|| BVH.hits(box, 6 * h, s, r, false))
+						&& q.offer(byHandle[h], s, r))
+					return;
+			}
+		} finally {
+			gridLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * the state of a closest- or any-hit query
+	 */
+	private static final class Search {
+
+		/**
+		 * the multiple of the direction up to which hits count
+		 */
+		double tmax;
+		final Renderable ignore;
+		final boolean any;
+		Renderable hit;
+		Vector3d point;
+
+		Search(final double tmax, final Renderable ignore, final boolean any) {
+			this.tmax = tmax;
+			this.ignore = ignore;
+			this.any = any;
+		}
+
+		/**
+		 * @return whether the query is answered
+		 */
+		boolean offer(final Renderable rend, final Vector3d s,
+				final Vector3d r) {
+			if (rend == ignore)
+				return false;
+			final Vector3d p = rend.rayTrace(s, r);
+			if (p == null)
+				return false;
+			final double t = RayHit.param(s, r, p);
+			if (!(t >= 0 && t <= tmax))
+				return false;
+			tmax = t;
+			hit = rend;
+			point = p;
+			return any;
+		}
+	}
+
+	/**
+	 * a 3d-DDA through the box of the occupied cells along the ray (or the
+	 * whole line if any renderable may be hit behind the start and all hits
+	 * are collected), either collecting all hits or offering the renderables
+	 * to the query
+	 *
+	 * @return whether the query is answered
+	 */
+	private boolean walk(final Vector3d s, final Vector3d r,
+			final Hashtable<Renderable, Vector3d> hits, final Search q) {
+		final double[] o = { s.x, s.y, s.z };
+		final double[] d = { r.x, r.y, r.z };
+		double tmin = q == null && lineCount > 0 ? Double.NEGATIVE_INFINITY
+				: 0;
+		double tmax = q == null ? Double.POSITIVE_INFINITY : q.tmax;
+		for (int a = 0; a < 3; a++) {
+			final double lo = occupied[a] * cellSize;
+			final double hi = (occupied[a + 3] + 1) * cellSize;
+			if (d[a] == 0) {
+				if (o[a] < lo || o[a] > hi)
+					return false;
+			} else {
+				double t1 = (lo - o[a]) / d[a], t2 = (hi - o[a]) / d[a];
+				if (t1 > t2) {
+					final double t = t1;
+					t1 = t2;
+					t2 = t;
+				}
+				tmin = Math.max(tmin, t1);
+				tmax = Math.min(tmax, t2);
+			}
+		}
+		if (!(tmin <= tmax))
+			return false;
+		final int[] cell = new int[3], step = new int[3];
+		final double[] next = new double[3], delta = new double[3];
+		for (int a = 0; a < 3; a++) {
+			final int c = Math.max(occupied[a], Math.min(occupied[a + 3],
+					cell(o[a] + d[a] * tmin)));
+			cell[a] = c;
+			if (d[a] > 0) {
+				step[a] = 1;
+				next[a] = ((c + 1) * cellSize - o[a]) / d[a];
+				delta[a] = cellSize / d[a];
+			} else if (d[a] < 0) {
+				step[a] = -1;
+				next[a] = (c * cellSize - o[a]) / d[a];
+				delta[a] = -cellSize / d[a];
+			} else {
+				next[a] = Double.POSITIVE_INFINITY;
+				delta[a] = Double.POSITIVE_INFINITY;
+			}
+		}
+		final BitSet seen = new BitSet();
+		while (true) {
+			final int a = next[0] < next[1] ? (next[0] < next[2] ? 0 : 2)
+					: (next[1] < next[2] ? 1 : 2);
+			final double exit = next[a];
+			final Cell c = cells.get(key(cell[0], cell[1], cell[2]));
+			if (c != null)
+				for (int i = 0; i < c.count; i++) {
+					final int h = c.members[i];
+					// a cell behind the start may still be passed in front
+					if (seen.get(h) || (exit < 0 && kind[h] != BVH.HIT_LINE))
+						continue;
+					seen.set(h);
+					if (q == null)
+						trace(h, s, r, hits);
+					else if (BVH.hits(box, 6 * h, s, r, false)
+							&& q.offer(byHandle[h], s, r))
+						return true;
+				}
+			if (q != null)
+				tmax = Math.min(tmax, q.tmax);
+			if (exit > tmax)
+				return false;
+			cell[a] += step[a];
+			if (cell[a] < occupied[a] || cell[a] > occupied[a + 3])
+				return false;
+			next[a] += delta[a];
+		}
+	}
+
+	/**
+	 * asks the renderable of the handle for its puncture point if the ray
+	 * passes its box
+	 */
+	private void trace(final int h, final Vector3d s, final Vector3d r,
+			final Hashtable<Renderable, Vector3d> hits) {
+		final int k = kind[h];
+		if (k != BVH.HIT_UNBOUNDED
+				&& !BVH.hits(box, 6 * h, s, r, k == BVH.HIT_LINE))
+			return;
+		final Renderable o = byHandle[h];
+		final Vector3d p = o.rayTrace(s, r);
+		if (p != null)
+			hits.put(o, p);
+	}
+
+	/**
+	 * @param sh
+	 *            the shader to get the frustum of
+	 * @return all renderables whose box may be in the frustum (tested
+	 *         conservatively by the bounding spheres of the cells and boxes)
+	 */
+	public List<Renderable> inFrustum(final Shader sh) {
+		final double half = cellSize / 2;
+		final double cellRadius = half * Math.sqrt(3);
+		final Vector3d center = new Vector3d(0, 0, 0);
+		return query(null, new Query() {
+			@Override
+			boolean cell(final int x, final int y, final int z) {
+				center.x = x * cellSize + half;
+				center.y = y * cellSize + half;
+				center.z = z * cellSize + half;
+				return sh.inFrustum(center, cellRadius);
+			}
+
+			@Override
+			boolean member(final double[] b, final int i) {
+				final double dx = (b[i + 3] - b[i]) / 2,
+						dy = (b[i + 4] - b[i + 1]) / 2,
+						dz = (b[i + 5] - b[i + 2]) / 2;
+				center.x = b[i] + dx;
+				center.y = b[i + 1] + dy;
+				center.z = b[i + 2] + dz;
+				return sh.inFrustum(center,
+						Math.sqrt(dx * dx + dy * dy + dz * dz));
+			}
+		});
+	}
+
+	/**
+	 * @param center
+	 *            the center of the sphere
+	 * @param radius
+	 *            the radius of the sphere
+	 * @return all renderables whose box overlaps the sphere
+	 */
+	public List<Renderable> inSphere(final Vector3d center,
+			final double radius) {
+		final double[] min = { center.x - radius, center.y - radius,
+				center.z - radius };
+		final double[] max = { center.x + radius, center.y + radius,
+				center.z + radius };
+		final double[] c = { center.x, center.y, center.z };
+		final double rr = radius * radius;
+		return query(cellRange(min, max), new Query() {
+			@Override
+			boolean cell(final int x, final int y, final int z) {
+				final double[] b = { x * cellSize, y * cellSize,
+						z * cellSize, (x + 1) * cellSize, (y + 1) * cellSize,
+						(z + 1) * cellSize };
+				return member(b, 0);
+			}
+
+			@Override
+			boolean member(final double[] b, final int i) {
+				double dist = 0;
+				for (int a = 0; a < 3; a++) {
+					final double v = c[a] < b[i + a] ? b[i + a] - c[a]
+							: c[a] > b[i + a + 3] ? c[a] - b[i + a + 3] : 0;
+					dist += v * v;
+				}
+				return dist <= rr;
+			}
+		});
+	}
+
+	/**
+	 * @param min
+	 *            the corner of the box with the least coordinates
+	 * @param max
+	 *            the corner of the box with the greatest coordinates
+	 * @return all renderables whose box overlaps the given one
+	 */
+	public List<Renderable> inBox(final Vector3d min, final Vector3d max) {
+		final double[] q = { min.x, min.y, min.z, max.x, max.y, max.z };
+		return query(cellRange(q, Arrays.copyOfRange(q, 3, 6)), new Query() {
+			@Override
+			boolean cell(final int x, final int y, final int z) {
+				return true; // the range is exactly the overlapped cells
+			}
+
+			@Override
+			boolean member(final double[] b, final int i) {
+				for (int a = 0; a < 3; a++)
+					if (b[i + a] > q[a + 3] || b[i + a + 3] < q[a])
+						return false;
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * a test of the cells and of the boxes of the renderables
+	 */
+	private static abstract class Query {
+
+		abstract boolean cell(int x, int y, int z);
+
+		abstract boolean member(double[] b, int i);
+	}
+
+	/**
+	 * visits all occupied cells in the range (all if null) passing the
+	 * query, collecting their members passing it too
+	 */
+	private List<Renderable> query(final int[] rng, final Query q) {
+		final List<Renderable> found = new ArrayList<Renderable>();
+		gridLock.readLock().lock();
+		try {
+			for (int i = 0; i < large.count; i++) {
+				final int h = large.items[i];
+				if (q.member(box, 6 * h))
+					found.add(byHandle[h]);
+			}
+			final BitSet seen = new BitSet();
+			if (rng == null || (long) (rng[3] - rng[0] + 1)
+					* (rng[4] - rng[1] + 1) * (rng[5] - rng[2] + 1) > cells
+							.size()) {
+				for (Cell c : cells.values())
+					if (rng == null || (c.x >= rng[0] && c.y >= rng[1]
+							&& c.z >= rng[2] && c.x <= rng[3]
+							&& c.y <= rng[4] && c.z <= rng[5]))
+						collect(c, q, seen, found);
+			} else
+				for (int x = rng[0]; x <= rng[3]; x++)
+					for (int y = rng[1]; y <= rng[4]; y++)
+						for (int z = rng[2]; z <= rng[5]; z++) {
+							final Cell c = cells.get(key(x, y, z));
+							if (c != null)
+								collect(c, q, seen, found);
+						}
+		} finally {
+			gridLock.readLock().unlock();
+		}
+		return found;
+	}
+
+	private void collect(final Cell c, final Query q, final BitSet seen,
+			final List<Renderable> found) {
+		if (!q.cell(c.x, c.y, c.z))
+			return;
+		for (int i = 0; i < c.count; i++) {
+			final int h = c.members[i];
+			if (seen.get(h))
+				continue;
+			seen.set(h);
+			if (q.member(box, 6 * h))
+				found.add(byHandle[h]);
+		}
+	}
+
+	/**
+	 * @return the range of cells overlapped by the box
+	 */
+	private int[] cellRange(final double[] min, final double[] max) {
+		final int[] rng = new int[6];
+		for (int a = 0; a < 3; a++) {
+			rng[a] = cell(min[a]);
+			rng[a + 3] = cell(max[a]);
+		}
+		return rng;
+	}
+
+	/**
+	 * @return the clamped index of the cell containing the coordinate
+	 */
+	private int cell(final double v) {
+		final double c = Math.floor(v / cellSize);
+		return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, c));
+	}
+
+	private static long key(final int x, final int y, final int z) {
+		return ((long) (x & 0x1FFFFF) << 42) | ((long) (y & 0x1FFFFF) << 21)
+				| (z & 0x1FFFFF);
+	}
+
+	private void grow(final int handle) {
+		final int c = Math.max(2 * byHandle.length, handle + 1);
+		byHandle = Arrays.copyOf(byHandle, c);
+		box = Arrays.copyOf(box, 6 * c);
+		range = Arrays.copyOf(range, 6 * c);
+		kind = Arrays.copyOf(kind, c);
+		stamp = Arrays.copyOf(stamp, c);
+	}
+
+	/**
+	 * puts a new renderable into the grid
+	 */
+	private void enter(final int h, final Renderable r) {
+		byHandle[h] = r;
+		kind[h] = BVH.hitKind(r);
+		if (kind[h] == BVH.HIT_UNBOUNDED)
+			rayLinear.add(h);
+		else if (kind[h] == BVH.HIT_LINE)
+			lineCount++;
+		measure(h);
+		bin(h, range, 6 * h);
+	}
+
+	/**
+	 * takes a renderable out of the grid
+	 */
+	private void drop(final int h) {
+		unbin(h, range, 6 * h);
+		rayLinear.remove(h);
+		if (kind[h] == BVH.HIT_LINE)
+			lineCount--;
+		byHandle[h] = null;
+	}
+
+	/**
+	 * moves the renderable to the cells it overlaps now if they changed
+	 */
+	private void rebin(final int h) {
+		final int b = 6 * h;
+		System.arraycopy(range, b, previous, 0, 6);
+		measure(h);
+		boolean same = true;
+		for (int i = 0; i < 6; i++)
+			same &= previous[i] == range[b + i];
+		if (same)
+			return;
+		unbin(h, previous, 0);
+		bin(h, range, b);
+	}
+
+	/**
+	 * computes the box and the range of cells of the renderable, the range is
+	 * empty if it spans too many cells
+	 */
+	private void measure(final int h) {
+		final int b = 6 * h;
+		stamp[h] = versionOf(byHandle[h]);
+		BVH.bounds(byHandle[h], box, b);
+		long spanned = 1;
+		for (int a = 0; a < 3; a++) {
+			if (Double.isNaN(box[b + a]) || Double.isNaN(box[b + a + 3])) {
+				spanned = Long.MAX_VALUE;
+				break;
+			}
+			range[b + a] = cell(box[b + a]);
+			range[b + a + 3] = cell(box[b + a + 3]);
+			spanned *= range[b + a + 3] - range[b + a] + 1;
+			if (spanned > maxCellsPerObject)
+				break;
+		}
+		if (spanned > maxCellsPerObject) {
+			range[b] = range[b + 1] = range[b + 2] = 0;
+			range[b + 3] = range[b + 4] = range[b + 5] = -1;
+		}
+	}
+
+	/**
+	 * adds the handle to the cells of the range or to the large ones if it is
+	 * empty
+	 */
+	private void bin(final int h, final int[] rng, final int o) {
+		if (rng[o] > rng[o + 3]) {
+			large.add(h);
+			rayLinear.add(h);
+			return;
+		}
+		for (int x = rng[o]; x <= rng[o + 3]; x++)
+			for (int y = rng[o + 1]; y <= rng[o + 4]; y++)
+				for (int z = rng[o + 2]; z <= rng[o + 5]; z++) {
+					final Long k = key(x, y, z);
+					Cell c = cells.get(k);
+					if (c == null) {
+						c = new Cell(x, y, z);
+						cells.put(k, c);
+						occupy(x, y, z);
+					}
+					c.add(h);
+				}
+	}
+
+	/**
+	 * removes the handle from the cells of the range or from the large ones
+	 * if it is empty
+	 */
+	private void unbin(final int h, final int[] rng, final int o) {
+		if (rng[o] > rng[o + 3]) {
+			large.remove(h);
+			if (kind[h] != BVH.HIT_UNBOUNDED)
+				rayLinear.remove(h);
+			return;
+		}
+		for (int x = rng[o]; x <= rng[o + 3]; x++)
+			for (int y = rng[o + 1]; y <= rng[o + 4]; y++)
+				for (int z = rng[o + 2]; z <= rng[o + 5]; z++) {
+					final Long k = key(x, y, z);
+					final Cell c = cells.get(k);
+					if (c != null && c.remove(h) && c.count == 0) {
+						cells.remove(k);
+						extentStale |= x == occupied[0] || x == occupied[3]
+								|| y == occupied[1] || y == occupied[4]
+								|| z == occupied[2] || z == occupied[5];
+					}
+				}
+	}
+
+	private void occupy(final int x, final int y, final int z) {
+		if (occupied[0] > occupied[3]) {
+			occupied[0] = occupied[3] = x;
+			occupied[1] = occupied[4] = y;
+			occupied[2] = occupied[5] = z;
+			return;
+		}
+		occupied[0] = Math.min(occupied[0], x);
+		occupied[1] = Math.min(occupied[1], y);
+		occupied[2] = Math.min(occupied[2], z);
+		occupied[3] = Math.max(occupied[3], x);
+		occupied[4] = Math.max(occupied[4], y);
+		occupied[5] = Math.max(occupied[5], z);
+	}
+
+	/**
+	 * an occupied cell of the grid with the handles of the renderables
+	 * overlapping it
+	 */
+	private static final class Cell {
+
+		final int x, y, z;
+		int[] members = new int[4];
+		int count;
+
+		Cell(final int x, final int y, final int z) {
+			this.x = x;
+			this.y = y;
+			this.z = z;
+		}
+
+		void add(final int h) {
+			if (count == members.length)
+				members = Arrays.copyOf(members, 2 * count);
+			members[count++] = h;
+		}
+
+		boolean remove(final int h) {
+			for (int i = 0; i < count; i++)
+				if (members[i] == h) {
+					members[i] = members[--count];
+					return true;
+				}
+			return false;
+		}
+	}
+
+	/**
+	 * a set of handles, adding and removing in O(1)
+	 */
+	private static final class HandleSet {
+
+		int[] items = new int[16];
+		int count;
+		private int[] indexOf = new int[0];
+
+		void add(final int h) {
+			if (h >= indexOf.length) {
+				final int old = indexOf.length;
+				indexOf = Arrays.copyOf(indexOf, Math.max(16, 2 * h));
+				Arrays.fill(indexOf, old, indexOf.length, -1);
+			}
+			if (indexOf[h] >= 0)
+				return;
+			if (count == items.length)
+				items = Arrays.copyOf(items, 2 * count);
+			indexOf[h] = count;
+			items[count++] = h;
+		}
+
+		void remove(final int h) {
+			if (h >= indexOf.length || indexOf[h] < 0)
+				return;
+			final int i = indexOf[h];
+			final int last = items[--count];
+			items[i] = last;
+			indexOf[last] = i;
+			indexOf[h] = -1;
+		}
+	}
+
+	/**
+	 *
+	 * @return fast3d.simple.GridUniverse[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.simple.GridUniverse[" + "cellSize=" + cellSize
+				+ ";cells=" + getCellCount() + ";super=" + super.toString()
+				+ "]";
+	}
+}
@@ -1,12 +1,18 @@
 package fast3d.simple;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import fast3d.Renderable;
+import fast3d.complex.BVH;
+import fast3d.complex.Group;
+import fast3d.complex.RayHit;
+import fast3d.complex.RayPacket;
 import fast3d.complex.Universe;
 import fast3d.complex.light.AmbientLight;
 import fast3d.complex.light.DirectionalLight;
@@ -16,27 +22,172 @@ import fast3d.complex.light.SpecularLight;
 import fast3d.math.Camera;
 import fast3d.math.Vector3d;
 import fast3d.util.ColorGen;
+import fast3d.util.HandleList;
 import fast3d.util.Sort;
 
 /**
- * a default implementation of universe
+ * a default implementation of universe<br>
+ * the renderables and lights are published as an immutable snapshot after
+ * every change, so readers like the renderer never wait for writers and
+ * always see a consistent state, while writers are synchronized among
+ * themselves
  * 
+ * @see #snapshot()
  * @author Tim Trense
  */
 public class SimpleUniverse implements Universe {
 
+	/**
+	 * an immutable view of the renderables and lights of a universe at one
+	 * moment<br>
+	 * the renderables are stored in chunks, a change of the universe copies
+	 * just the changed chunks and shares the others with the previous
+	 * snapshot
+	 */
+	public static final class Snapshot {
+
+		private static final Snapshot EMPTY = new Snapshot(
+				new Renderable[0][], 0, new Light[0], 0, 0);
+
+		private final Renderable[][] chunks;
+		private final int size;
+		private final Light[] lights;
+		private final long epoch;
+		/**
+		 * the epoch of the last change of the renderables, the caches of the
+		 * universe are valid for the snapshots of the same objsEpoch
+		 */
+		private final long objsEpoch;
+
+		private Snapshot(final Renderable[][] chunks, final int size,
+				final Light[] lights, final long epoch, final long objsEpoch) {
+			this.chunks = chunks;
+			this.size = size;
+			this.lights = lights;
+			this.epoch = epoch;
+			this.objsEpoch = objsEpoch;
+		}
+
+		/**
+		 * @return the count of renderables
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @param index
+		 *            an index from 0 (inclusive) to size() (exclusive)
+		 * @return the renderable at the index
+		 */
+		public Renderable get(final int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException(index + " of " + size);
+			return chunks[index >> CHUNK_BITS][index & CHUNK_MASK];
+		}
+
+		/**
+		 * @return a new array of all lights
+		 */
+		public Light[] getLights() {
+			return lights.clone();
+		}
+
+		/**
+		 * @return the count of changes of the universe before this snapshot
+		 */
+		public long getEpoch() {
+			return epoch;
+		}
+
+		/**
+		 * copies all renderables into the given array
+		 * 
+		 * @param reuse
+		 *            the array to copy to
+		 * @return the given array if it has exactly size() entries, otherwise
+		 *         a new array
+		 */
+		public Renderable[] toArray(final Renderable[] reuse) {
+			final Renderable[] a = reuse != null && reuse.length == size
+					? reuse : new Renderable[size];
+			for (int c = 0, i = 0; i < size; c++, i += CHUNK_SIZE)
+				System.arraycopy(chunks[c], 0, a, i,
+						Math.min(CHUNK_SIZE, size - i));
+			return a;
+		}
+
+		/**
+		 * 
+		 * @return fast3d.simple.SimpleUniverse.Snapshot[_parameter_]
+		 **/
+		public String toString() {
+			return "fast3d.simple.SimpleUniverse.Snapshot[" + "epoch=" + epoch
+					+ ";renderables=" + size + ";lights=" + lights.length
+					+ "]";
+		}
+	}
+
+	private static final int CHUNK_BITS = 8;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/**
+	 * the count of renderables added or removed at once from which on the
+	 * snapshot is built anew instead of changed renderable by renderable
+	 */
+	private static final int BULK = CHUNK_SIZE / 2;
+
+	/**
+	 * the current snapshot, replaced (while holding the monitor of objs)
+	 * after every change
+	 */
+	private volatile Snapshot snapshot = Snapshot.EMPTY;
+	/**
+	 * while positive the changes are published at once at the end of a bulk
+	 * operation, guarded by the monitor of objs
+	 */
+	private int batching;
+
 	/**
 	 * the universes objects are all renderable<br>
-	 * this list should be accessed by the wrapper methods add, remove, ...
-	 * because of synchronization
+	 * this list must be accessed while holding its monitor, so it should be
+	 * accessed by the wrapper methods add, remove, ...
+	 */
+	private final HandleList<Renderable> objs;
+	/**
+	 * the vertices each renderable had when it was added, by handle
+	 */
+	private Vector3d[][] verticesOf;
+
+	private final Sort.Incremental sorted;
+	/**
+	 * the objsEpoch of the snapshot whose renderables are sorted, guarded by
+	 * the monitor of sorted
+	 */
+	private long sortedEpoch = -1;
+
+	/**
+	 * the hierarchy answering rayTrace(), rebuilt for a snapshot of other
+	 * renderables and refitted after invalidateBounds()
 	 */
-	private final List<Renderable> objs;
+	private BVH bvh;
+	/**
+	 * the objsEpoch of the snapshot the hierarchy was built of, guarded by
+	 * bvhLock
+	 */
+	private long bvhEpoch = -1;
+	private volatile boolean bvhFitted;
+	private final ReadWriteLock bvhLock = new ReentrantReadWriteLock();
 
-	private Renderable[] sorted;
-	private Vector3d lastCamPos;
+	/**
+	 * the groups whose pending transformations are applied by
+	 * invalidateBounds(), replaced (while holding the monitor of objs) on
+	 * every change
+	 */
+	private volatile Group[] watched = new Group[0];
 
 	/**
-	 * the universe may be enlightened
+	 * the universe may be enlightened, guarded by the monitor of objs
 	 */
 	private final List<Light> lights;
 	/**
@@ -44,17 +195,24 @@ public class SimpleUniverse implements Universe {
 	 */
 	private final Camera cam;
 
-	private final List<Vector3d> vecs;
+	/**
+	 * every distinct vertex of the renderables and the count of renderables
+	 * referencing it, guarded by the monitor of objs
+	 */
+	private final HandleList<Vector3d> vecs;
+	private final IdentityHashMap<Vector3d, int[]> vecRefs;
 
 	/**
 	 * generates an empty universe
 	 */
 	public SimpleUniverse() {
-		objs = new LinkedList<Renderable>();
+		objs = new HandleList<Renderable>();
+		verticesOf = new Vector3d[16][];
 		cam = new Camera();
 		lights = new ArrayList<Light>();
-		vecs = new LinkedList<Vector3d>();
-		sorted = null;
+		vecs = new HandleList<Vector3d>();
+		vecRefs = new IdentityHashMap<Vector3d, int[]>();
+		sorted = new Sort.Incremental();
 	}
 
 	/**
@@ -69,8 +227,9 @@ public class SimpleUniverse implements Universe {
 			return true;
 		if (obj instanceof SimpleUniverse) {
 			final SimpleUniverse other = (SimpleUniverse) obj;
-			return cam.equals(other.cam) && objs.equals(other.objs)
-					&& lights.equals(other.lights);
+			return cam.equals(other.cam)
+					&& Arrays.equals(getObjs(), other.getObjs())
+					&& Arrays.equals(getLights(), other.getLights());
 		} else
 			return false;
 	}
@@ -80,78 +239,263 @@ public class SimpleUniverse implements Universe {
 	 * @return fast3d.simple.SimpleUniverse[_parameter_]
 	 **/
 	public String toString() {
-		return "fast3d.simple.SimpleUniverse[" + "cam=" + cam + ";renderables=" + objs
-				+ ";lights=" + lights + "]";
+		return "fast3d.simple.SimpleUniverse[" + "cam=" + cam
+				+ ";renderables=" + Arrays.toString(getObjs()) + ";lights="
+				+ Arrays.toString(getLights()) + "]";
 	}
 
 	/**
-	 * synchronized variant to objs.add()<br>
+	 * synchronized add to the internal renderables-storage, O(1) per
+	 * renderable, a renderable already contained is not added again<br>
+	 * many renderables are published by one new snapshot<br>
 	 * all renderables are asked for their vertices which than are stored in an
-	 * internal list
+	 * internal registry
 	 * 
 	 * @param r
 	 *            the renderable to put in the universe
 	 */
 	@Override
 	public void add(final Renderable... r) {
-		sorted = null;
 		synchronized (objs) {
-			for (Renderable c : r)
-				objs.add(c);
-		}
-		synchronized (vecs) {
-			for (Renderable c : r) {
-				final Vector3d[] verticies = c.getVertices();
-				if (verticies != null)
-					for (Vector3d vertex : verticies)
-						vecs.add(vertex);
+			final boolean bulk = r.length >= BULK;
+			if (bulk)
+				batching++;
+			try {
+				for (Renderable c : r)
+					insert(c);
+			} finally {
+				if (bulk && --batching == 0)
+					publishAll();
 			}
 		}
 	}
 
 	/**
-	 * synchronized variant to objs.remove()<br>
-	 * all renderables are asked for their vertices which than are removed from
-	 * an internal list
+	 * synchronized add to the internal renderables-storage in O(1), the new
+	 * snapshot copies just the chunk of the renderable<br>
+	 * the renderable is asked for its vertices which than are stored in an
+	 * internal registry
+	 * 
+	 * @param r
+	 *            the renderable to put in the universe
+	 * @return the handle of the renderable to remove it by, which stays valid
+	 *         until it is removed (the handle it already has if it is
+	 *         contained)
+	 */
+	public int insert(final Renderable r) {
+		synchronized (objs) {
+			if (objs.contains(r))
+				return objs.handleOf(r);
+			final int handle = objs.add(r);
+			if (handle >= verticesOf.length)
+				verticesOf = Arrays.copyOf(verticesOf, 2 * handle);
+			final Vector3d[] vertices = r.getVertices();
+			verticesOf[handle] = vertices;
+			if (vertices != null)
+				for (Vector3d v : vertices)
+					register(v);
+			if (batching == 0)
+				publish(objs.size() - 1, r);
+			return handle;
+		}
+	}
+
+	/**
+	 * synchronized remove from the internal renderables-storage, O(1) per
+	 * renderable<br>
+	 * many renderables are published by one new snapshot<br>
+	 * the vertices the renderables had when they were added are removed from
+	 * the internal registry if no other renderable references them
 	 * 
 	 * @param r
 	 *            the renderable to remove from the universe
 	 */
 	@Override
 	public void remove(final Renderable... r) {
-		sorted = null;
 		synchronized (objs) {
-			for (Renderable c : r)
-				objs.remove(c);
-		}
-		synchronized (vecs) {
-			for (Renderable c : r) {
-				final Vector3d[] verticies = c.getVertices();
-				if (verticies != null)
-					for (Vector3d vertex : verticies)
-						vecs.add(vertex);
+			final boolean bulk = r.length >= BULK;
+			if (bulk)
+				batching++;
+			try {
+				for (Renderable c : r) {
+					final int handle = objs.handleOf(c);
+					if (handle >= 0)
+						remove(handle);
+				}
+			} finally {
+				if (bulk && --batching == 0)
+					publishAll();
 			}
 		}
 	}
 
+	/**
+	 * synchronized remove from the internal renderables-storage in O(1), the
+	 * new snapshot copies just the chunks of the removed and the last
+	 * renderable
+	 * 
+	 * @param handle
+	 *            the handle returned by insert()
+	 * @return the removed renderable or null if the handle is not in use
+	 */
+	public Renderable remove(final int handle) {
+		synchronized (objs) {
+			final int index = objs.indexOf(handle);
+			final Renderable r = objs.remove(handle);
+			if (r == null)
+				return null;
+			final Vector3d[] vertices = verticesOf[handle];
+			verticesOf[handle] = null;
+			if (vertices != null)
+				for (Vector3d v : vertices)
+					unregister(v);
+			if (batching == 0)
+				publish(index, index < objs.size() ? objs.at(index) : null);
+			return r;
+		}
+	}
+
+	/**
+	 * @param handle
+	 *            the handle returned by insert()
+	 * @return the renderable of the handle or null if the handle is not in
+	 *         use
+	 */
+	public Renderable get(final int handle) {
+		synchronized (objs) {
+			return objs.get(handle);
+		}
+	}
+
+	/**
+	 * @param r
+	 *            any renderable
+	 * @return the handle of the renderable or -1 if it is not contained
+	 */
+	public int handleOf(final Renderable r) {
+		synchronized (objs) {
+			return objs.handleOf(r);
+		}
+	}
+
+	/**
+	 * @return the count of renderables in the universe
+	 */
+	public int size() {
+		return snapshot.size();
+	}
+
+	/**
+	 * the renderer should take one snapshot per frame to see the renderables
+	 * and lights of the same moment, without waiting for any writer
+	 * 
+	 * @return an immutable view of the current renderables and lights
+	 */
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * publishes a snapshot after the renderable at the index changed and the
+	 * count of renderables changed by at most one, copying just the touched
+	 * chunks, must hold the monitor of objs
+	 * 
+	 * @param index
+	 *            the index of the changed renderable
+	 * @param r
+	 *            the renderable now at the index
+	 */
+	private void publish(final int index, final Renderable r) {
+		final Snapshot old = snapshot;
+		final int size = objs.size();
+		final Renderable[][] chunks = Arrays.copyOf(old.chunks,
+				(size + CHUNK_MASK) >> CHUNK_BITS);
+		int copied = -1;
+		if (index < size) {
+			copied = index >> CHUNK_BITS;
+			chunks[copied] = chunks[copied] == null
+					? new Renderable[CHUNK_SIZE] : chunks[copied].clone();
+			chunks[copied][index & CHUNK_MASK] = r;
+		}
+		if (size < old.size && (size >> CHUNK_BITS) < chunks.length) {
+			// do not keep the removed last renderable alive
+			final int c = size >> CHUNK_BITS;
+			if (c != copied)
+				chunks[c] = chunks[c].clone();
+			chunks[c][size & CHUNK_MASK] = null;
+		}
+		snapshot = new Snapshot(chunks, size, old.lights, old.epoch + 1,
+				old.epoch + 1);
+	}
+
+	/**
+	 * publishes a snapshot with the current lights, must hold the monitor of
+	 * objs
+	 */
+	private void publishLights() {
+		final Snapshot old = snapshot;
+		snapshot = new Snapshot(old.chunks, old.size,
+				lights.toArray(new Light[lights.size()]), old.epoch + 1,
+				old.objsEpoch);
+	}
+
+	/**
+	 * publishes a snapshot of all renderables and lights, must hold the
+	 * monitor of objs
+	 */
+	private void publishAll() {
+		final int size = objs.size();
+		final Renderable[][] chunks = new Renderable[(size + CHUNK_MASK) >> CHUNK_BITS][];
+		for (int c = 0; c < chunks.length; c++) {
+			chunks[c] = new Renderable[CHUNK_SIZE];
+			for (int i = 0; i < CHUNK_SIZE && c * CHUNK_SIZE + i < size; i++)
+				chunks[c][i] = objs.at(c * CHUNK_SIZE + i);
+		}
+		final long epoch = snapshot.epoch + 1;
+		snapshot = new Snapshot(chunks, size,
+				lights.toArray(new Light[lights.size()]), epoch, epoch);
+	}
+
+	private void register(final Vector3d v) {
+		final int[] refs = vecRefs.get(v);
+		if (refs != null)
+			refs[0]++;
+		else {
+			vecRefs.put(v, new int[] { 1 });
+			vecs.add(v);
+		}
+	}
+
+	private void unregister(final Vector3d v) {
+		final int[] refs = vecRefs.get(v);
+		if (refs != null && --refs[0] == 0) {
+			vecRefs.remove(v);
+			vecs.remove(v);
+		}
+	}
+
 	/**
 	 * to render all objects, it is necessary to order them by distance to the
 	 * camera<br>
-	 * the best way of sorting is detected automatically
+	 * the order of the last call is repaired incrementally, so this is very
+	 * fast if just a few renderables moved, it is sorted anew for a snapshot
+	 * of other renderables<br>
+	 * unlike snapshot() this waits for another thread repairing the order,
+	 * as the repaired order is shared by all callers
 	 * 
-	 * @return a sorted list of all Renderables in the universe
+	 * @see fast3d.util.Sort.Incremental
+	 * @return a sorted list of all Renderables of the current snapshot (a
+	 *         new array, not changed by the following calls)
 	 */
 	@Override
 	public Renderable[] getObjsSorted() {
-		if (sorted == null || !getCam().getPos().equals(lastCamPos)) {
-			final Renderable[] objs = getObjs();
-			Sort.Quicksort.Renderables.sort(getCam().getPos(), objs);
-			sorted = objs;
-			lastCamPos = getCam().getPos().clone();
-			return objs;
-		} else {
-			Sort.Bubblesort.Renderables.sort(getCam().getPos(), sorted);
-			return sorted;
+		synchronized (sorted) {
+			final Snapshot s = snapshot;
+			if (sortedEpoch != s.objsEpoch) {
+				sortedEpoch = s.objsEpoch;
+				sorted.reset(s.toArray(null));
+			}
+			return sorted.update(getCam().getPos()).clone();
 		}
 	}
 
@@ -162,15 +506,28 @@ public class SimpleUniverse implements Universe {
 	 */
 	@Override
 	public Renderable[] getObjs() {
-		final Renderable[] objs;
-		synchronized (this.objs) {
-			objs = new Renderable[this.objs.size()];
-			this.objs.toArray(objs);
-		}
-		return objs;
+		return snapshot.toArray(null);
+	}
+
+	/**
+	 * copies all renderables into the given array, so that it can be reused
+	 * frame by frame without creating a new one
+	 * 
+	 * @param reuse
+	 *            the array to copy to
+	 * @return the given array if it has exactly size() entries, otherwise a
+	 *         new array
+	 */
+	public Renderable[] getObjs(final Renderable[] reuse) {
+		return snapshot.toArray(reuse);
 	}
 
 	/**
+	 * the query is answered by a bounding volume hierarchy, which is built
+	 * on the first query after renderables were added or removed and fitted
+	 * to the moved renderables on the first query after invalidateBounds()
+	 * 
+	 * @see fast3d.complex.BVH
 	 * @param s
 	 *            start of ray
 	 * @param r
@@ -182,13 +539,134 @@ public class SimpleUniverse implements Universe {
 	public Hashtable<Renderable, Vector3d> rayTrace(final Vector3d s, final Vector3d r) {
 		if(s==null || r==null)
 			return null;
-		final Renderable[] objs = getObjs();
-		final Hashtable<Renderable, Vector3d> res = new Hashtable<Renderable, Vector3d>();
-		Vector3d current;
-		for (Renderable rend : objs)
-			if ((current = rend.rayTrace(s, r)) != null)
-				res.put(rend, current);
-		return res;
+		final BVH b = lockBvh();
+		try {
+			return b.rayTrace(s, r);
+		} finally {
+			bvhLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * the query is answered by the bounding volume hierarchy of rayTrace(),
+	 * visiting its nodes nearest first
+	 * 
+	 * @see fast3d.complex.BVH#rayTraceClosest(Vector3d, Vector3d, double)
+	 */
+	@Override
+	public RayHit rayTraceClosest(final Vector3d s, final Vector3d r,
+			final double maxDistance) {
+		final BVH b = lockBvh();
+		try {
+			return b.rayTraceClosest(s, r, maxDistance);
+		} finally {
+			bvhLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * the query is answered by the bounding volume hierarchy of rayTrace(),
+	 * walking through it with all rays at once
+	 * 
+	 * @see fast3d.complex.BVH#rayTraceClosest(RayPacket)
+	 */
+	@Override
+	public void rayTraceClosest(final RayPacket packet) {
+		final BVH b = lockBvh();
+		try {
+			b.rayTraceClosest(packet);
+		} finally {
+			bvhLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * the query is answered by the bounding volume hierarchy of rayTrace(),
+	 * stopping at the first hit
+	 * 
+	 * @see fast3d.complex.BVH#rayTraceAny(Vector3d, Vector3d, double,
+	 *      Renderable)
+	 */
+	@Override
+	public boolean rayTraceAny(final Vector3d s, final Vector3d r,
+			final double maxDistance, final Renderable ignore) {
+		final BVH b = lockBvh();
+		try {
+			return b.rayTraceAny(s, r, maxDistance, ignore);
+		} finally {
+			bvhLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * builds the hierarchy if it was built of a snapshot of other
+	 * renderables, or refits it if needed
+	 * 
+	 * @return the hierarchy, the caller holds the read-lock and has to
+	 *         unlock it
+	 */
+	private BVH lockBvh() {
+		bvhLock.readLock().lock();
+		if (bvhEpoch == snapshot.objsEpoch && bvhFitted)
+			return bvh;
+		bvhLock.readLock().unlock();
+		bvhLock.writeLock().lock();
+		try {
+			final Snapshot s = snapshot;
+			if (bvhEpoch != s.objsEpoch) {
+				bvhEpoch = s.objsEpoch;
+				bvhFitted = true;
+				bvh = new BVH(s.toArray(null));
+			} else if (!bvhFitted) {
+				bvhFitted = true;
+				bvh.refit();
+			}
+			// downgrade to the read-lock
+			bvhLock.readLock().lock();
+		} finally {
+			bvhLock.writeLock().unlock();
+		}
+		return bvh;
+	}
+
+	/**
+	 * the pending transformations of the watched groups are applied and the
+	 * bounding volume hierarchy of rayTrace() is refitted before the next
+	 * query
+	 */
+	@Override
+	public void invalidateBounds() {
+		for (Group g : watched)
+			g.applyTransform();
+		bvhFitted = false;
+	}
+
+	@Override
+	public boolean watchTransform(final Group g) {
+		synchronized (objs) {
+			for (Group w : watched)
+				if (w == g)
+					return true;
+			final Group[] w = Arrays.copyOf(watched, watched.length + 1);
+			w[w.length - 1] = g;
+			watched = w;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean unwatchTransform(final Group g) {
+		synchronized (objs) {
+			final Group[] w = watched;
+			for (int i = 0; i < w.length; i++)
+				if (w[i] == g) {
+					final Group[] rest = Arrays.copyOf(w, w.length - 1);
+					System.arraycopy(w, i + 1, rest, i, w.length - i - 1);
+					watched = rest;
+					break;
+				}
+		}
+		return true;
 	}
 
 	/**
@@ -200,28 +678,27 @@ public class SimpleUniverse implements Universe {
 	}
 
 	/**
-	 * synchronized implementation to provide all light-sources to the rendering
-	 * process
+	 * provides all light-sources of the current snapshot to the rendering
+	 * process without waiting for writers
 	 */
 	@Override
 	public Light[] getLights() {
-		synchronized (lights) {
-			return this.lights.toArray(
-					(Light[]) Array.newInstance(Light.class, this.lights.size()));
-		}
+		return snapshot.getLights();
 	}
 
 	@Override
 	public void addLight(final Light l) {
-		synchronized (lights) {
+		synchronized (objs) {
 			lights.add(l);
+			publishLights();
 		}
 	}
 
 	@Override
 	public void removeLight(Light l) {
-		synchronized (lights) {
+		synchronized (objs) {
 			lights.remove(l);
+			publishLights();
 		}
 	}
 
@@ -255,17 +732,19 @@ public class SimpleUniverse implements Universe {
 	 * @see fast3d.complex.light.Illuminatable#invalidateLight()
 	 */
 	public void invalidateLights() {
-		synchronized (objs) {
-			for (Renderable r : objs)
-				if (r instanceof Illuminatable)
-					((Illuminatable) r).invalidateLight();
-		}
+		final Snapshot current = snapshot;
+		for (int i = 0; i < current.size(); i++)
+			if (current.get(i) instanceof Illuminatable)
+				((Illuminatable) current.get(i)).invalidateLight();
 	}
 
 	/**
-	 * @return all vertices of all renderables as a reference-list
+	 * @return all distinct vertices of all renderables (as they were when the
+	 *         renderables were added) as a list of references
 	 */
 	public List<Vector3d> getVertices() {
-		return vecs;
+		synchronized (objs) {
+			return Arrays.asList(vecs.toArray(new Vector3d[vecs.size()]));
+		}
 	}
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
 
 import fast3d.control.SimpleControl;
+import fast3d.math.Quaternion;
 import fast3d.math.Vector2d;
 import fast3d.math.Vector3d;
 import fast3d.simple.SimplePanel3d;
@@ -38,6 +39,8 @@ public class SFPUControl extends SimpleControl {
 	 */
 	public double zoom = 1;
 	private Vector3d translation;
+	private final Quaternion orientation = new Quaternion();
+	private final Quaternion nick = new Quaternion();
 	private Vector2d lastMouseDownPos;
 	/**
 	 * the speed for rotation around x and y axis in radiant per
@@ -215,14 +218,9 @@ public class SFPUControl extends SimpleControl {
 			rotX = Math.PI / 3;
 		if (rotX < -Math.PI / 3)
 			rotX = -Math.PI / 3;
-		final Vector3d dir = Vector3d.forward();
-		final Vector3d up = Vector3d.up();
-		dir.rotX(rotX);
-		dir.rotY(rotY);
-		up.rotX(rotX);
-		up.rotY(rotY);
-		dir.scale(zoom);
-		cam.lookInDirection(dir, up);
+		// first nicking around x, then turning around y
+		orientation.setRotationY(rotY).mul(nick.setRotationX(rotX));
+		cam.setOrientation(orientation, zoom);
 		if (translation != null)
 			cam.moveInAbsoluteDirection(translation);
 	}
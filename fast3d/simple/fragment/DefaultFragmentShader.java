@@ -7,6 +7,8 @@ import java.util.LinkedList;
 import java.util.List;
 
 import fast3d.Renderable;
+import fast3d.complex.RayHit;
+import fast3d.complex.RayPacket;
 import fast3d.complex.Universe;
 import fast3d.complex.light.Illuminatable;
 import fast3d.complex.light.Light;
@@ -32,6 +34,22 @@ import fast3d.util.ColorGen;
  */
 public class DefaultFragmentShader extends FragmentShader {
 
+	/**
+	 * whether the rays of a block are traced as one packet by shadeBlock(),
+	 * which skips shadeFragment(int,int), shadeFragment(double,double),
+	 * shadeFragment(Vector3d,Vector3d) and findClosestToTheCam(), and whether
+	 * a single ray is answered by Universe.rayTraceClosest(), which skips
+	 * findClosestToTheCam() too<br>
+	 * enabled just for this class itself, so that a subclass overriding one
+	 * of those methods keeps working unless it enables this
+	 */
+	public boolean packetTracing = getClass() == DefaultFragmentShader.class;
+
+	/**
+	 * the rays of the block traced by shadeBlock()
+	 */
+	private RayPacket packet;
+
 	/**
 	 * calls super constructor
 	 * 
@@ -113,12 +131,94 @@ public class DefaultFragmentShader extends FragmentShader {
 	@Override
 	protected Color shadeFragment(final Vector3d start,
 			final Vector3d dir) {
+		if (!packetTracing) {
+			final Hashtable<Renderable, Vector3d> traced = getUniverse()
+					.rayTrace(start, dir);
+			if (traced == null || traced.isEmpty())
+				return ColorGen.BLACK();
+			return shadeFragment(traced);
+		}
+		final RayHit closest = getUniverse().rayTraceClosest(start, dir,
+				Double.POSITIVE_INFINITY);
+		if (closest == null)
+			return ColorGen.BLACK();
+		final Color first = shadeFragment(closest.getRenderable(),
+				closest.getPoint());
+		if (first != null && first.alpha() < 1)
+			addBehind(first, closest.getRenderable(), start, dir);
+		return first;
+	}
+
+	/**
+	 * a translucent hit needs the renderables behind it, which are traced by
+	 * rayTrace() and added to the color
+	 */
+	private void addBehind(final Color first, final Renderable closest,
+			final Vector3d start, final Vector3d dir) {
 		final Hashtable<Renderable, Vector3d> traced = getUniverse()
 				.rayTrace(start, dir);
-		if (traced == null || traced.isEmpty())
-			return ColorGen.BLACK();
-		else
-			return shadeFragment(traced);
+		traced.remove(closest);
+		final Color second = shadeFragment(traced);
+		if (second != null) {
+			first.add(second);
+			first.constrain(0, 1);
+		}
+	}
+
+	/**
+	 * the rays of all pixels of the block are traced as one packet by
+	 * Universe.rayTraceClosest(RayPacket) if packetTracing is enabled
+	 */
+	@Override
+	protected boolean shadeBlock(final int x, final int y, final int width,
+			final int height, final Color[] colors) {
+		if (!packetTracing)
+			return false;
+		if (packet == null || packet.capacity() < width * height)
+			packet = new RayPacket(width * height);
+		packet.clear();
+		final Camera cam = getUniverse().getCam();
+		final Vector3d orig = cam.getScreenOrig();
+		final Vector3d sw = cam.getScreenWidth();
+		final Vector3d sh = cam.getScreenHeight();
+		final Vector3d pos = cam.getPos();
+		final boolean ortho = cam.mode.viewmode == Viewmode.ORTHOGONAL;
+		final Vector3d look = ortho ? cam.getLookDir() : null;
+		final double iw = 1d / getImage().getWidth();
+		final double ih = 1d / getImage().getHeight();
+		for (int py = y; py < y + height; py++)
+			for (int px = x; px < x + width; px++) {
+				final double xr = px * iw, yr = py * ih;
+				final double pixX = orig.x + sw.x * xr + sh.x * yr;
+				final double pixY = orig.y + sw.y * xr + sh.y * yr;
+				final double pixZ = orig.z + sw.z * xr + sh.z * yr;
+				if (ortho) {
+					final double back = cam.mode.notincam ? 0 : 1;
+					packet.add(pixX - back * look.x, pixY - back * look.y,
+							pixZ - back * look.z, look.x, look.y, look.z,
+							Double.POSITIVE_INFINITY);
+				} else if (cam.mode.notincam)
+					packet.add(pixX, pixY, pixZ, pixX - pos.x, pixY - pos.y,
+							pixZ - pos.z, Double.POSITIVE_INFINITY);
+				else
+					packet.add(pos.x, pos.y, pos.z, pixX - pos.x,
+							pixY - pos.y, pixZ - pos.z,
+							Double.POSITIVE_INFINITY);
+			}
+		getUniverse().rayTraceClosest(packet);
+		for (int i = 0; i < packet.size(); i++) {
+			final Renderable closest = packet.hit[i];
+			if (closest == null) {
+				colors[i] = ColorGen.BLACK();
+				continue;
+			}
+			final Color first = shadeFragment(closest, packet.point(i));
+			if (first != null && first.alpha() < 1)
+				addBehind(first, closest, packet.start(i),
+						packet.direction(i));
+			colors[i] = first;
+		}
+		return true;
 	}
 
 	@Override
@@ -178,10 +278,11 @@ public class DefaultFragmentShader extends FragmentShader {
 			final ObstructableLight obslight = (ObstructableLight) light;
 			final Vector3d dir = obslight.directionOfLight(l).clone()
 					.invert();
-			final Hashtable<Renderable, Vector3d> all = getUniverse()
-					.rayTrace(puncture, dir);
-			all.remove(l);
-			if (!all.isEmpty())
+			final Vector3d lightPos = obslight.getPos();
+			if (getUniverse().rayTraceAny(puncture, dir,
+					lightPos == null ? Double.POSITIVE_INFINITY
+							: puncture.distanceTo(lightPos),
+					l))
 				return ColorGen.BLACK();
 			else
 				return light.illuminate(l);
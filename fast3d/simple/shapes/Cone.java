@@ -77,6 +77,32 @@ public class Cone extends GeometricBodyBuilder {
 		resolution = 7;
 	}
 
+	@Override
+	protected int getSegments() {
+		return resolution;
+	}
+
+	@Override
+	protected int[] saveResolution() {
+		return new int[] { resolution };
+	}
+
+	@Override
+	protected void restoreResolution(final int[] resolution) {
+		this.resolution = resolution[0];
+	}
+
+	/**
+	 * halves the resolution down to the one of setLowPoly() at most
+	 */
+	@Override
+	protected boolean coarsen() {
+		if (resolution <= 7)
+			return false;
+		resolution = Math.max(7, resolution / 2);
+		return true;
+	}
+
 	@Override
 	protected void build(Group plain, Color color) {
 		final Vector3d peak = new Vector3d(0,
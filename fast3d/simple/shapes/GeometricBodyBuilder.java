@@ -1,6 +1,10 @@
 package fast3d.simple.shapes;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import fast3d.complex.Group;
+import fast3d.complex.LevelOfDetail;
 import fast3d.complex.light.Material;
 import fast3d.graphics.Color;
 import fast3d.util.ColorGen;
@@ -16,11 +20,27 @@ import fast3d.util.ColorGen;
  * specified shape<br>
  * subclasses are meant to build the shapes around Vector3d.zero() (as the
  * groups center) and by default of size (diameter) 1d<br>
+ * buildLevelOfDetail() builds the body in the set resolution and in ever
+ * coarser ones, to show the coarser ones while the body is small on the
+ * screen<br>
  * 
  * @author Tim Trense
  */
 public abstract class GeometricBodyBuilder {
 
+	/**
+	 * the initial value of segmentPixels for every new builder<br>
+	 * default 8
+	 */
+	public static double defaultSegmentPixels = 8;
+
+	/**
+	 * the length in pixel a segment of the circumference of the body should
+	 * at least have on the screen, a level of detail shows the next coarser
+	 * level while the segments of it would not be shorter
+	 */
+	public double segmentPixels = defaultSegmentPixels;
+
 	private Material material = null;
 	private Color color = null;
 
@@ -76,6 +96,78 @@ public abstract class GeometricBodyBuilder {
 		return g;
 	}
 
+	/**
+	 * builds the body in the set resolution as the finest level and then
+	 * coarsens it until the coarsest resolution is reached, the set
+	 * resolution is restored afterwards<br>
+	 * a level is shown from the projected diameter on, at which the segments
+	 * of the circumference of the next coarser level would be segmentPixels
+	 * long
+	 * 
+	 * @return the levels of the specified shape or null if setMaterial() or
+	 *         setColor() where not called
+	 */
+	public LevelOfDetail buildLevelOfDetail() {
+		final List<Group> levels = new ArrayList<Group>();
+		final List<Integer> segments = new ArrayList<Integer>();
+		final int[] resolution = saveResolution();
+		try {
+			do {
+				final Group g = build();
+				if (g == null)
+					return null;
+				levels.add(g);
+				segments.add(getSegments());
+			} while (coarsen());
+		} finally {
+			restoreResolution(resolution);
+		}
+		final double[] minSizes = new double[levels.size()];
+		for (int i = 0; i < minSizes.length - 1; i++)
+			minSizes[i] = segments.get(i + 1) * segmentPixels / Math.PI;
+		return new LevelOfDetail(levels.toArray(new Group[levels.size()]),
+				minSizes);
+	}
+
+	/**
+	 * by default a body has no circumference to approach
+	 * 
+	 * @return the count of segments the largest circumference of the body is
+	 *         approached with in the current resolution
+	 */
+	protected int getSegments() {
+		return 0;
+	}
+
+	/**
+	 * by default a body has just one resolution
+	 * 
+	 * @return the current resolution-fields, to be restored by
+	 *         restoreResolution()
+	 */
+	protected int[] saveResolution() {
+		return null;
+	}
+
+	/**
+	 * does nothing by default
+	 * 
+	 * @param resolution
+	 *            a result of saveResolution()
+	 */
+	protected void restoreResolution(final int[] resolution) {
+	}
+
+	/**
+	 * lowers the resolution for the next coarser level of detail<br>
+	 * by default a body has just one resolution
+	 * 
+	 * @return false if the resolution can not be lowered any further
+	 */
+	protected boolean coarsen() {
+		return false;
+	}
+
 	protected abstract void build(final Group plain,
 			final Color color);
 
@@ -84,6 +84,37 @@ public class Sphere extends GeometricBodyBuilder {
 		resolutionLatitude = 4;
 	}
 
+	/**
+	 * the longitude
+	 */
+	@Override
+	protected int getSegments() {
+		return resolutionLongitude;
+	}
+
+	@Override
+	protected int[] saveResolution() {
+		return new int[] { resolutionLatitude, resolutionLongitude };
+	}
+
+	@Override
+	protected void restoreResolution(final int[] resolution) {
+		resolutionLatitude = resolution[0];
+		resolutionLongitude = resolution[1];
+	}
+
+	/**
+	 * halves both resolutions down to the one of setLowPoly() at most
+	 */
+	@Override
+	protected boolean coarsen() {
+		if (resolutionLongitude <= 16)
+			return false;
+		resolutionLongitude = Math.max(16, resolutionLongitude / 2);
+		resolutionLatitude = Math.max(4, resolutionLatitude / 2);
+		return true;
+	}
+
 	@Override
 	protected void build(final Group plain, final Color color) {
 		final TriangleStripGenerator2d tsg = new TriangleStripGenerator2d(
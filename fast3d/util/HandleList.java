@@ -0,0 +1,230 @@
+package fast3d.util;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * a compact, growable array of distinct elements, that hands out a stable
+ * integer handle for every added element<br>
+ * adding and removing is O(1): a removed element is replaced by the last one
+ * (so the order of the elements is not kept), the handles of the other
+ * elements stay valid, the handles of removed elements are reused<br>
+ * the elements are identified by reference<br>
+ * not synchronized, the caller has to lock if the list is shared between
+ * threads
+ *
+ * @param <T>
+ *            the type of the elements
+ * @author Tim Trense
+ */
+public class HandleList<T> {
+
+	private Object[] elements;
+	private int[] handleAt;
+	private int[] slotOf;
+	private int[] freeHandles;
+	private int freeCount, size;
+	private final IdentityHashMap<T, Integer> handles;
+
+	/**
+	 * constructs an empty list
+	 */
+	public HandleList() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity
+	 *            the count of elements to hold without growing
+	 */
+	public HandleList(final int capacity) {
+		final int c = Math.max(1, capacity);
+		elements = new Object[c];
+		handleAt = new int[c];
+		slotOf = new int[c];
+		freeHandles = new int[c];
+		handles = new IdentityHashMap<T, Integer>(c);
+	}
+
+	/**
+	 * @return the count of elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * adds the element if it is not already contained
+	 *
+	 * @param e
+	 *            the element to add, not null
+	 * @return the handle of the element
+	 */
+	public int add(final T e) {
+		final Integer known = handles.get(e);
+		if (known != null)
+			return known;
+		if (size == elements.length) {
+			final int c = 2 * size;
+			elements = Arrays.copyOf(elements, c);
+			handleAt = Arrays.copyOf(handleAt, c);
+		}
+		final int handle;
+		if (freeCount > 0)
+			handle = freeHandles[--freeCount];
+		else {
+			handle = size; // all handles below size are in use
+			if (handle == slotOf.length)
+				slotOf = Arrays.copyOf(slotOf, 2 * handle);
+		}
+		elements[size] = e;
+		handleAt[size] = handle;
+		slotOf[handle] = size;
+		size++;
+		handles.put(e, handle);
+		return handle;
+	}
+
+	/**
+	 * removes the element of the given handle, the last element takes its
+	 * index
+	 *
+	 * @param handle
+	 *            a handle returned by add()
+	 * @return the removed element or null if the handle is not in use
+	 */
+	public T remove(final int handle) {
+		final T e = get(handle);
+		if (e == null)
+			return null;
+		final int slot = slotOf[handle];
+		final int last = --size;
+		elements[slot] = elements[last];
+		handleAt[slot] = handleAt[last];
+		slotOf[handleAt[slot]] = slot;
+		elements[last] = null;
+		slotOf[handle] = -1;
+		if (freeCount == freeHandles.length)
+			freeHandles = Arrays.copyOf(freeHandles, 2 * freeCount);
+		freeHandles[freeCount++] = handle;
+		handles.remove(e);
+		return e;
+	}
+
+	/**
+	 * removes the given element, the last element takes its index
+	 *
+	 * @param e
+	 *            the element to remove
+	 * @return the handle the element had or -1 if it was not contained
+	 */
+	public int remove(final T e) {
+		final Integer handle = handles.get(e);
+		if (handle == null)
+			return -1;
+		remove(handle.intValue());
+		return handle;
+	}
+
+	/**
+	 * @param handle
+	 *            a handle returned by add()
+	 * @return the element of the handle or null if the handle is not in use
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(final int handle) {
+		if (handle < 0 || handle >= slotOf.length)
+			return null;
+		final int slot = slotOf[handle];
+		if (slot < 0 || slot >= size || handleAt[slot] != handle)
+			return null;
+		return (T) elements[slot];
+	}
+
+	/**
+	 * @param e
+	 *            any element
+	 * @return the handle of the element or -1 if it is not contained
+	 */
+	public int handleOf(final T e) {
+		final Integer handle = handles.get(e);
+		return handle == null ? -1 : handle;
+	}
+
+	/**
+	 * the index of an element changes if any element is removed
+	 *
+	 * @param handle
+	 *            a handle returned by add()
+	 * @return the index of the element of the handle or -1 if the handle is
+	 *         not in use
+	 */
+	public int indexOf(final int handle) {
+		return get(handle) == null ? -1 : slotOf[handle];
+	}
+
+	/**
+	 * @param e
+	 *            any element
+	 * @return whether the element is contained
+	 */
+	public boolean contains(final T e) {
+		return handles.containsKey(e);
+	}
+
+	/**
+	 * the index of an element changes if any element is removed
+	 *
+	 * @param index
+	 *            an index from 0 (inclusive) to size() (exclusive)
+	 * @return the element at the index
+	 */
+	@SuppressWarnings("unchecked")
+	public T at(final int index) {
+		if (index >= size)
+			throw new IndexOutOfBoundsException(index + " of " + size);
+		return (T) elements[index];
+	}
+
+	/**
+	 * copies all elements into the given array if it is large enough, like
+	 * java.util.Collection.toArray(Object[])
+	 *
+	 * @param a
+	 *            the array to copy to
+	 * @return the given array if it has at least size() entries (the entry
+	 *         after the last element is set to null), otherwise a new array
+	 *         of the same type
+	 */
+	@SuppressWarnings("unchecked")
+	public T[] toArray(final T[] a) {
+		final T[] r = a.length >= size ? a
+				: (T[]) java.lang.reflect.Array
+						.newInstance(a.getClass().getComponentType(), size);
+		System.arraycopy(elements, 0, r, 0, size);
+		if (r.length > size)
+			r[size] = null;
+		return r;
+	}
+
+	/**
+	 * removes all elements, all handles become invalid
+	 */
+	public void clear() {
+		Arrays.fill(elements, 0, size, null);
+		Arrays.fill(slotOf, -1);
+		size = 0;
+		freeCount = 0;
+		handles.clear();
+	}
+
+	/**
+	 *
+	 * @return fast3d.util.HandleList[_parameter_]
+	 **/
+	@Override
+	public String toString() {
+		return "fast3d.util.HandleList[" + "size=" + size + ";elements="
+				+ Arrays.toString(Arrays.copyOf(elements, size)) + "]";
+	}
+}
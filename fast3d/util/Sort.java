@@ -1,5 +1,7 @@
 package fast3d.util;
 
+import java.util.Arrays;
+
 import fast3d.Renderable;
 import fast3d.math.Vector3d;
 
@@ -11,6 +13,9 @@ import fast3d.math.Vector3d;
  * users should normally use Sort._Algorithm_.Renderables.sort(Vector3d
  * cameraPosition, Renderable... array); or
  * Sort._Algorithm_.Vectors.sort(Vector3d cameraPosition, Vector3d... array);
+ * <br>
+ * Radixsort is the fastest for large arrays, Quicksort computes the distances
+ * on every comparison again
  * 
  * @author Tim Trense
  */
@@ -190,13 +195,12 @@ public abstract class Sort {
 				double tempD;
 				boolean swapped = false;
 				final double[] distances = new double[r.length];
+				for (int i = 0; i < distances.length; i++)
+					distances[i] = r[i].getPos().distanceTo(campos);
 				do {
 					swapped = false;
 					for (int i = 0; i < distances.length - 1; i++) {
-						if (Double.isNaN(distances[i]))
-							distances[i] = r[i].getPos()
-									.distanceTo(campos);
-						if (distances[i] > distances[i + 1]) {
+						if (distances[i] < distances[i + 1]) {
 							tempD = distances[i];
 							distances[i] = distances[i + 1];
 							distances[i + 1] = tempD;
@@ -212,4 +216,348 @@ public abstract class Sort {
 			}
 		}
 	}
+
+	/**
+	 * Radixsort computes the squared distance of every element to the camera
+	 * just once into a primitive array and orders by these keys in four
+	 * linear passes, so it does not depend on the pre-sorting of the array at
+	 * all<br>
+	 * large arrays are sorted by Arrays.parallelSort() on all cores instead
+	 * <br>
+	 * the order is stable, elements of equal distance keep their order
+	 * 
+	 * @author Tim Trense
+	 */
+	public static class Radixsort {
+
+		/**
+		 * the count of elements from which on the keys are sorted in parallel
+		 * if there are multiple processors
+		 */
+		public static int parallelThreshold = 1 << 16;
+
+		/**
+		 * a static class giving methods to sort renderables using radixsort
+		 * 
+		 * @author Tim Trense
+		 */
+		public static class Renderables {
+
+			/**
+			 * sorts all the renderables in relation to their distance to the
+			 * campos
+			 * 
+			 * @param campos
+			 *            the distance-relation-vector
+			 * @param r
+			 *            the array to sort
+			 */
+			public static void sort(final Vector3d campos,
+					final Renderable... r) {
+				sort(campos, 0, r.length - 1, r);
+			}
+
+			/**
+			 * sorts the renderables in the specified range of the given array
+			 * in relation to their distance to the campos
+			 * 
+			 * @param campos
+			 *            the distance-relation-vector
+			 * @param left
+			 *            the lower border (inclusive)
+			 * @param right
+			 *            the upper border (inclusive)
+			 * @param r
+			 *            the array to sort
+			 */
+			public static void sort(final Vector3d campos, final int left,
+					final int right, final Renderable... r) {
+				final int count = right - left + 1;
+				if (count < 2)
+					return;
+				final float[] keys = new float[count];
+				for (int i = 0; i < count; i++)
+					keys[i] = (float) squaredDistance(campos,
+							r[left + i].getPos());
+				final int[] order = order(keys, count);
+				final Renderable[] copy = new Renderable[count];
+				System.arraycopy(r, left, copy, 0, count);
+				for (int i = 0; i < count; i++)
+					r[left + i] = copy[order[i]];
+			}
+		}
+
+		/**
+		 * a static class giving methods to sort vectors using radixsort
+		 * 
+		 * @author Tim Trense
+		 */
+		public static class Vectors {
+
+			/**
+			 * sorts all the vectors in relation to their distance to the
+			 * campos
+			 * 
+			 * @param campos
+			 *            the distance-relation-vector
+			 * @param vecs
+			 *            the array to sort
+			 */
+			public static void sort(final Vector3d campos,
+					final Vector3d... vecs) {
+				final int count = vecs.length;
+				if (count < 2)
+					return;
+				final float[] keys = new float[count];
+				for (int i = 0; i < count; i++)
+					keys[i] = (float) squaredDistance(campos, vecs[i]);
+				final int[] order = order(keys, count);
+				final Vector3d[] copy = vecs.clone();
+				for (int i = 0; i < count; i++)
+					vecs[i] = copy[order[i]];
+			}
+		}
+
+		/**
+		 * @return the squared distance between the given points, without
+		 *         creating any object
+		 */
+		private static double squaredDistance(final Vector3d a,
+				final Vector3d b) {
+			final double dx = b.x - a.x, dy = b.y - a.y, dz = b.z - a.z;
+			return dx * dx + dy * dy + dz * dz;
+		}
+
+		/**
+		 * orders the given non-negative keys descending (far to near),
+		 * negative keys are treated like their absolute value
+		 * 
+		 * @param keys
+		 *            the keys to order
+		 * @param count
+		 *            the count of keys to order from index 0 on
+		 * @return the indices of the keys in the order of their keys
+		 */
+		public static int[] order(final float[] keys, final int count) {
+			// for non-negative floats the order of the bits is the order of
+			// the values, subtracting them from the maximum reverses it
+			final int[] k = new int[count];
+			for (int i = 0; i < count; i++)
+				k[i] = 0x7FFFFFFF
+						- (Float.floatToIntBits(keys[i]) & 0x7FFFFFFF);
+			if (count >= parallelThreshold
+					&& Runtime.getRuntime().availableProcessors() > 1)
+				return orderParallel(k, count);
+
+			int[] idx = new int[count], idxTmp = new int[count];
+			int[] key = k, keyTmp = new int[count];
+			for (int i = 0; i < count; i++)
+				idx[i] = i;
+			if (count < 2)
+				return idx;
+			final int[] offsets = new int[256];
+			for (int shift = 0; shift < 32; shift += 8) {
+				Arrays.fill(offsets, 0);
+				for (int i = 0; i < count; i++)
+					offsets[(key[i] >>> shift) & 0xFF]++;
+				if (offsets[(key[0] >>> shift) & 0xFF] == count)
+					continue; // all keys share this digit
+				int sum = 0;
+				for (int d = 0; d < 256; d++) {
+					final int c = offsets[d];
+					offsets[d] = sum;
+					sum += c;
+				}
+				for (int i = 0; i < count; i++) {
+					final int j = offsets[(key[i] >>> shift) & 0xFF]++;
+					keyTmp[j] = key[i];
+					idxTmp[j] = idx[i];
+				}
+				int[] help = key;
+				key = keyTmp;
+				keyTmp = help;
+				help = idx;
+				idx = idxTmp;
+				idxTmp = help;
+			}
+			return idx;
+		}
+
+		/**
+		 * packs every key with its index into one long and sorts them by
+		 * Arrays.parallelSort(), the index keeps the order stable
+		 */
+		private static int[] orderParallel(final int[] k, final int count) {
+			final long[] packed = new long[count];
+			for (int i = 0; i < count; i++)
+				packed[i] = ((long) k[i] << 32) | i;
+			Arrays.parallelSort(packed);
+			final int[] idx = new int[count];
+			for (int i = 0; i < count; i++)
+				idx[i] = (int) packed[i];
+			return idx;
+		}
+	}
+
+	/**
+	 * an incremental sort keeps the order and the keys of the last frame and
+	 * repairs them, which is very fast if only some renderables moved<br>
+	 * a key is only recomputed if the renderable or the camera moved, the
+	 * order is repaired by insertion, which is given up for a full radixsort
+	 * if it had to shift more than disorderThreshold elements per
+	 * renderable<br>
+	 * the order is stable, renderables of equal distance keep their order of
+	 * the last frame
+	 * 
+	 * @see Radixsort
+	 * @author Tim Trense
+	 */
+	public static class Incremental {
+
+		/**
+		 * the default count of shifts per renderable from which on the
+		 * insertion is given up for a full sort
+		 */
+		public static double defaultDisorderThreshold = .5;
+
+		/**
+		 * the count of shifts per renderable from which on the insertion is
+		 * given up for a full sort
+		 */
+		public double disorderThreshold = defaultDisorderThreshold;
+		private Renderable[] order;
+		private float[] keys;
+		private double[] positions;
+		private double camX, camY, camZ;
+		private boolean sorted;
+
+		/**
+		 * constructs a sort without any renderables
+		 */
+		public Incremental() {
+			reset(new Renderable[0]);
+		}
+
+		/**
+		 * replaces the renderables to sort, the next update() sorts them
+		 * completely
+		 * 
+		 * @param r
+		 *            the array to sort from now on, which is sorted in place
+		 *            and must not be changed from outside afterwards
+		 */
+		public void reset(final Renderable[] r) {
+			order = r;
+			keys = new float[r.length];
+			positions = new double[3 * r.length];
+			sorted = false;
+		}
+
+		/**
+		 * @return the count of renderables to sort
+		 */
+		public int size() {
+			return order.length;
+		}
+
+		/**
+		 * repairs the order for the current positions of the renderables and
+		 * the camera
+		 * 
+		 * @param campos
+		 *            the distance-relation-vector
+		 * @return the renderables ordered far to near (the array given to
+		 *         reset())
+		 */
+		public Renderable[] update(final Vector3d campos) {
+			final boolean camMoved = campos.x != camX || campos.y != camY
+					|| campos.z != camZ;
+			camX = campos.x;
+			camY = campos.y;
+			camZ = campos.z;
+			int changed = 0;
+			for (int i = 0; i < order.length; i++) {
+				final Vector3d p = order[i].getPos();
+				final int c = 3 * i;
+				if (sorted && !camMoved && p.x == positions[c]
+						&& p.y == positions[c + 1]
+						&& p.z == positions[c + 2])
+					continue;
+				positions[c] = p.x;
+				positions[c + 1] = p.y;
+				positions[c + 2] = p.z;
+				final double dx = p.x - camX, dy = p.y - camY,
+						dz = p.z - camZ;
+				keys[i] = (float) (dx * dx + dy * dy + dz * dz);
+				changed++;
+			}
+			if (!sorted || changed > 0) {
+				if (!sorted || !insertion())
+					fullSort();
+				sorted = true;
+			}
+			return order;
+		}
+
+		/**
+		 * sorts the renderables by insertion as long as it does not have to
+		 * shift too many of them
+		 * 
+		 * @return false if it was given up
+		 */
+		private boolean insertion() {
+			long shifts = 0;
+			final long maxShifts = (long) (disorderThreshold * order.length);
+			for (int i = 1; i < order.length; i++) {
+				final float key = keys[i];
+				if (!(key > keys[i - 1]))
+					continue;
+				final Renderable r = order[i];
+				final double x = positions[3 * i], y = positions[3 * i + 1],
+						z = positions[3 * i + 2];
+				int j = i;
+				do {
+					keys[j] = keys[j - 1];
+					order[j] = order[j - 1];
+					System.arraycopy(positions, 3 * (j - 1), positions,
+							3 * j, 3);
+					j--;
+				} while (j > 0 && key > keys[j - 1]);
+				keys[j] = key;
+				order[j] = r;
+				positions[3 * j] = x;
+				positions[3 * j + 1] = y;
+				positions[3 * j + 2] = z;
+				shifts += i - j;
+				if (shifts > maxShifts)
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * sorts all renderables by their keys using Radixsort
+		 */
+		private void fullSort() {
+			final int[] idx = Radixsort.order(keys, order.length);
+			final Renderable[] r = order.clone();
+			final float[] k = keys.clone();
+			final double[] p = positions.clone();
+			for (int i = 0; i < idx.length; i++) {
+				order[i] = r[idx[i]];
+				keys[i] = k[idx[i]];
+				System.arraycopy(p, 3 * idx[i], positions, 3 * i, 3);
+			}
+		}
+
+		/**
+		 * 
+		 * @return fast3d.util.Sort.Incremental[_parameter_]
+		 **/
+		@Override
+		public String toString() {
+			return "fast3d.util.Sort.Incremental[" + "size=" + order.length
+					+ ";disorderThreshold=" + disorderThreshold + "]";
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,363 @@
+package fast3d.math;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * the kernels using the incubating vector api of the jdk (16 or later) to
+ * process as many floats at once as the cpu supports (8 with AVX2, 16 with
+ * AVX-512)<br>
+ * this class is compiled separately from the rest of fast3d (which targets
+ * java 8 and android): javac --release 17 --add-modules jdk.incubator.vector
+ * -cp fast3d.jar -d out vector/fast3d/math/VectorKernels.java<br>
+ * with the compiled class on the class path and the jvm started with
+ * --add-modules jdk.incubator.vector it is selected by Kernels.get(),
+ * otherwise the scalar loops are used<br>
+ * all calculations are done in float precision, the flat xyz-arrays are read
+ * by overlapping loads blended per component instead of gathering, so that
+ * transformed vectors are written in whole vectors too
+ *
+ * @see fast3d.math.Kernels
+ * @author Tim Trense
+ */
+public class VectorKernels extends Kernels {
+
+	private static final VectorSpecies<Float> S = FloatVector.SPECIES_PREFERRED;
+	private static final int L = S.length();
+	// the offsets of the x-coordinates of L consecutive vectors in a flat
+	// xyz-array
+	private static final int[] STRIDE = new int[L];
+	// masks of the lanes holding an x- resp. y-coordinate, if lane 0 holds
+	// the coordinate with the index of the mask-array
+	private static final VectorMask<Float>[] IS_X = masks(0);
+	private static final VectorMask<Float>[] IS_Y = masks(1);
+	// the lane-bits of a whole vector
+	private static final long LANES = L == 64 ? -1L : (1L << L) - 1;
+
+	static {
+		for (int j = 0; j < L; j++)
+			STRIDE[j] = 3 * j;
+	}
+
+	/**
+	 * called reflectively by Kernels.get()
+	 */
+	public VectorKernels() {
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static VectorMask<Float>[] masks(final int component) {
+		final VectorMask<Float>[] masks = new VectorMask[3];
+		final boolean[] lanes = new boolean[L];
+		for (int phase = 0; phase < 3; phase++) {
+			for (int j = 0; j < L; j++)
+				lanes[j] = (phase + j) % 3 == component;
+			masks[phase] = VectorMask.fromArray(S, lanes, 0);
+		}
+		return masks;
+	}
+
+	/**
+	 * the vector with the lane j being the coordinate (phase+j)%3 of (x,y,z)
+	 */
+	private static FloatVector lanes(final double x, final double y,
+			final double z, final int phase) {
+		final float[] a = new float[L];
+		for (int j = 0; j < L; j++) {
+			final int c = (phase + j) % 3;
+			a[j] = (float) (c == 0 ? x : c == 1 ? y : z);
+		}
+		return FloatVector.fromArray(S, a, 0);
+	}
+
+	/**
+	 * the first float of the whole blocks, the points before are left to the
+	 * scalar loops as the overlapping loads must not read before the array
+	 */
+	private static int head(final int first) {
+		return first == 0 ? 1 : first;
+	}
+
+	/**
+	 * the count of points in whole blocks of 3 vectors (L points) beginning
+	 * at point from, whose overlapping loads stay within the array
+	 */
+	private static int blocks(final int from, final int end,
+			final int length) {
+		int n = 0;
+		while (from + n + L <= end && 3 * (from + n + L) + 2 <= length)
+			n += L;
+		return n;
+	}
+
+	@Override
+	public String getName() {
+		return "vector" + L;
+	}
+
+	@Override
+	public void transformPoints(final Matrix4d m, final float[] src,
+			final int first, final int count, final float[] dst) {
+		transform(m, src, first, count, dst, true);
+	}
+
+	@Override
+	public void transformDirections(final Matrix4d m, final float[] src,
+			final int first, final int count, final float[] dst) {
+		transform(m, src, first, count, dst, false);
+	}
+
+	private void transform(final Matrix4d m, final float[] src,
+			final int first, final int count, final float[] dst,
+			final boolean points) {
+		final int end = first + count;
+		final int from = Math.min(head(first), end);
+		final int n = blocks(from, end, src.length);
+		if (n == 0) {
+			scalar(m, src, first, count, dst, points);
+			return;
+		}
+		scalar(m, src, first, from - first, dst, points);
+		final FloatVector[] a = new FloatVector[3], b = new FloatVector[3],
+				c = new FloatVector[3], t = new FloatVector[3];
+		for (int k = 0; k < 3; k++) {
+			final int phase = (k * L) % 3;
+			a[k] = lanes(m.m00, m.m10, m.m20, phase);
+			b[k] = lanes(m.m01, m.m11, m.m21, phase);
+			c[k] = lanes(m.m02, m.m12, m.m22, phase);
+			t[k] = points ? lanes(m.m03, m.m13, m.m23, phase)
+					: FloatVector.zero(S);
+		}
+		for (int base = 3 * from, stop = 3 * (from + n); base < stop; base += 3 * L) {
+			// all three are computed before storing, so that dst may be src
+			final FloatVector r0 = transform(src, base, 0, a, b, c, t);
+			final FloatVector r1 = transform(src, base + L, 1, a, b, c, t);
+			final FloatVector r2 = transform(src, base + 2 * L, 2, a, b, c, t);
+			r0.intoArray(dst, base);
+			r1.intoArray(dst, base + L);
+			r2.intoArray(dst, base + 2 * L);
+		}
+		scalar(m, src, from + n, end - from - n, dst, points);
+	}
+
+	private static FloatVector transform(final float[] src, final int off,
+			final int k, final FloatVector[] a, final FloatVector[] b,
+			final FloatVector[] c, final FloatVector[] t) {
+		final int phase = (k * L) % 3;
+		final VectorMask<Float> isX = IS_X[phase], isY = IS_Y[phase];
+		final FloatVector m2 = FloatVector.fromArray(S, src, off - 2);
+		final FloatVector m1 = FloatVector.fromArray(S, src, off - 1);
+		final FloatVector l0 = FloatVector.fromArray(S, src, off);
+		final FloatVector p1 = FloatVector.fromArray(S, src, off + 1);
+		final FloatVector p2 = FloatVector.fromArray(S, src, off + 2);
+		// every lane gets the coordinates of the vector it belongs to
+		final FloatVector x = m2.blend(m1, isY).blend(l0, isX);
+		final FloatVector y = m1.blend(l0, isY).blend(p1, isX);
+		final FloatVector z = l0.blend(p1, isY).blend(p2, isX);
+		return x.fma(a[k], y.fma(b[k], z.fma(c[k], t[k])));
+	}
+
+	private void scalar(final Matrix4d m, final float[] src, final int first,
+			final int count, final float[] dst, final boolean points) {
+		if (points)
+			super.transformPoints(m, src, first, count, dst);
+		else
+			super.transformDirections(m, src, first, count, dst);
+	}
+
+	@Override
+	public int project(final Shader s, final float[] positions,
+			final int first, final int count, final float[] x,
+			final float[] y, final float[] depth, final long[] visible) {
+		final boolean oriented = s.cam.mode.oriented;
+		final boolean notincam = s.cam.mode.notincam;
+		final boolean inscreen = s.cam.mode.inscreen;
+		final boolean orthogonal = s.orthogonal;
+		final float ox = (float) (orthogonal ? s.origX : s.posX);
+		final float oy = (float) (orthogonal ? s.origY : s.posY);
+		final float oz = (float) (orthogonal ? s.origZ : s.posZ);
+		final float nx = (float) (orthogonal ? s.lookX : s.nX);
+		final float ny = (float) (orthogonal ? s.lookY : s.nY);
+		final float nz = (float) (orthogonal ? s.lookZ : s.nZ);
+		final float ux = (float) s.uX, uy = (float) s.uY, uz = (float) s.uZ;
+		final float vx = (float) s.vX, vy = (float) s.vY, vz = (float) s.vZ;
+		final float origN = (float) s.origN;
+		final float origU = (float) s.origU, origV = (float) s.origV;
+		final float w = s.screenWidthPX, h = s.screenHeightPX;
+		final int end = first + count;
+		int visibles = 0;
+		int i = first;
+		for (; i + L <= end; i += L) {
+			final int j = 3 * i;
+			final FloatVector dx = FloatVector
+					.fromArray(S, positions, j, STRIDE, 0).sub(ox);
+			final FloatVector dy = FloatVector
+					.fromArray(S, positions, j + 1, STRIDE, 0).sub(oy);
+			final FloatVector dz = FloatVector
+					.fromArray(S, positions, j + 2, STRIDE, 0).sub(oz);
+			final FloatVector dn = dx.mul(nx).add(dy.mul(ny)).add(dz.mul(nz));
+			FloatVector px = dx.mul(ux).add(dy.mul(uy)).add(dz.mul(uz));
+			FloatVector py = dx.mul(vx).add(dy.mul(vy)).add(dz.mul(vz));
+			final FloatVector pz;
+			VectorMask<Float> vis = S.maskAll(true);
+			if (orthogonal) {
+				if (oriented)
+					vis = vis.andNot(dn.compare(VectorOperators.LT, 0));
+				pz = dn.neg();
+			} else {
+				pz = FloatVector.broadcast(S, origN).div(dn);
+				if (notincam)
+					vis = vis.andNot(pz.compare(VectorOperators.GT, 1));
+				if (oriented)
+					vis = vis.andNot(pz.compare(VectorOperators.LT, 0));
+				px = px.mul(pz).sub(origU);
+				py = py.mul(pz).sub(origV);
+			}
+			if (inscreen)
+				vis = vis.andNot(px.compare(VectorOperators.LT, 0)
+						.or(px.compare(VectorOperators.GT, 1))
+						.or(py.compare(VectorOperators.LT, 0))
+						.or(py.compare(VectorOperators.GT, 1)));
+			px.mul(w).intoArray(x, i);
+			py.mul(h).intoArray(y, i);
+			pz.intoArray(depth, i);
+			final long bits = vis.toLong();
+			setBits(visible, i, bits);
+			visibles += Long.bitCount(bits);
+		}
+		return visibles + super.project(s, positions, i, end - i, x, y, depth,
+				visible);
+	}
+
+	/**
+	 * replaces the L visibility-bits beginning at bit i
+	 */
+	private static void setBits(final long[] visible, final int i,
+			final long bits) {
+		final int word = i >>> 6, shift = i & 63;
+		visible[word] = (visible[word] & ~(LANES << shift)) | (bits << shift);
+		if (shift + L > 64)
+			visible[word + 1] = (visible[word + 1] & ~(LANES >>> (64 - shift)))
+					| (bits >>> (64 - shift));
+	}
+
+	@Override
+	public void dot(final float[] a, final float[] b, final int first,
+			final int count, final float[] dst) {
+		final int end = first + count;
+		int i = first;
+		for (; i + L <= end; i += L) {
+			final int j = 3 * i;
+			FloatVector.fromArray(S, a, j, STRIDE, 0)
+					.mul(FloatVector.fromArray(S, b, j, STRIDE, 0))
+					.add(FloatVector.fromArray(S, a, j + 1, STRIDE, 0)
+							.mul(FloatVector.fromArray(S, b, j + 1, STRIDE, 0)))
+					.add(FloatVector.fromArray(S, a, j + 2, STRIDE, 0)
+							.mul(FloatVector.fromArray(S, b, j + 2, STRIDE, 0)))
+					.intoArray(dst, i);
+		}
+		super.dot(a, b, i, end - i, dst);
+	}
+
+	@Override
+	public void dot(final float[] a, final int first, final int count,
+			final double x, final double y, final double z,
+			final float[] dst) {
+		final float fx = (float) x, fy = (float) y, fz = (float) z;
+		final int end = first + count;
+		int i = first;
+		for (; i + L <= end; i += L) {
+			final int j = 3 * i;
+			FloatVector.fromArray(S, a, j, STRIDE, 0).mul(fx)
+					.add(FloatVector.fromArray(S, a, j + 1, STRIDE, 0).mul(fy))
+					.add(FloatVector.fromArray(S, a, j + 2, STRIDE, 0).mul(fz))
+					.intoArray(dst, i);
+		}
+		super.dot(a, i, end - i, x, y, z, dst);
+	}
+
+	@Override
+	public void cross(final float[] a, final float[] b, final int first,
+			final int count, final float[] dst) {
+		final int end = first + count;
+		final int from = Math.min(head(first), end);
+		final int n = blocks(from, end, Math.min(a.length, b.length));
+		if (n == 0) {
+			super.cross(a, b, first, count, dst);
+			return;
+		}
+		super.cross(a, b, first, from - first, dst);
+		for (int base = 3 * from, stop = 3 * (from + n); base < stop; base += 3 * L) {
+			final FloatVector r0 = cross(a, b, base, 0);
+			final FloatVector r1 = cross(a, b, base + L, 1);
+			final FloatVector r2 = cross(a, b, base + 2 * L, 2);
+			r0.intoArray(dst, base);
+			r1.intoArray(dst, base + L);
+			r2.intoArray(dst, base + 2 * L);
+		}
+		super.cross(a, b, from + n, end - from - n, dst);
+	}
+
+	private static FloatVector cross(final float[] a, final float[] b,
+			final int off, final int k) {
+		final int phase = (k * L) % 3;
+		final VectorMask<Float> isX = IS_X[phase], isY = IS_Y[phase];
+		final FloatVector[] u = coordinates(a, off, isX, isY);
+		final FloatVector[] v = coordinates(b, off, isX, isY);
+		final FloatVector cx = u[1].mul(v[2]).sub(u[2].mul(v[1]));
+		final FloatVector cy = u[2].mul(v[0]).sub(u[0].mul(v[2]));
+		final FloatVector cz = u[0].mul(v[1]).sub(u[1].mul(v[0]));
+		return cz.blend(cy, isY).blend(cx, isX);
+	}
+
+	/**
+	 * the x-, y- and z-coordinates of the vector each lane belongs to
+	 */
+	private static FloatVector[] coordinates(final float[] src, final int off,
+			final VectorMask<Float> isX, final VectorMask<Float> isY) {
+		final FloatVector m2 = FloatVector.fromArray(S, src, off - 2);
+		final FloatVector m1 = FloatVector.fromArray(S, src, off - 1);
+		final FloatVector l0 = FloatVector.fromArray(S, src, off);
+		final FloatVector p1 = FloatVector.fromArray(S, src, off + 1);
+		final FloatVector p2 = FloatVector.fromArray(S, src, off + 2);
+		return new FloatVector[] { m2.blend(m1, isY).blend(l0, isX),
+				m1.blend(l0, isY).blend(p1, isX),
+				l0.blend(p1, isY).blend(p2, isX) };
+	}
+
+	@Override
+	public void normalize(final float[] src, final int first,
+			final int count, final float[] dst) {
+		final int end = first + count;
+		final int from = Math.min(head(first), end);
+		final int n = blocks(from, end, src.length);
+		if (n == 0) {
+			super.normalize(src, first, count, dst);
+			return;
+		}
+		super.normalize(src, first, from - first, dst);
+		for (int base = 3 * from, stop = 3 * (from + n); base < stop; base += 3 * L) {
+			final FloatVector r0 = normalize(src, base, 0);
+			final FloatVector r1 = normalize(src, base + L, 1);
+			final FloatVector r2 = normalize(src, base + 2 * L, 2);
+			r0.intoArray(dst, base);
+			r1.intoArray(dst, base + L);
+			r2.intoArray(dst, base + 2 * L);
+		}
+		super.normalize(src, from + n, end - from - n, dst);
+	}
+
+	private static FloatVector normalize(final float[] src, final int off,
+			final int k) {
+		final int phase = (k * L) % 3;
+		final FloatVector[] v = coordinates(src, off, IS_X[phase],
+				IS_Y[phase]);
+		final FloatVector inv = FloatVector.broadcast(S, 1f).div(v[0]
+				.mul(v[0]).add(v[1].mul(v[1])).add(v[2].mul(v[2])).sqrt());
+		final FloatVector l0 = FloatVector.fromArray(S, src, off);
+		// the zero-vector stays as it is, like Vector3d.normalize()
+		return l0.blend(l0.mul(inv), inv.test(VectorOperators.IS_FINITE));
+	}
+}